@@ -9,12 +9,15 @@ import com.facebook.react.bridge.ReactApplicationContext;
 import com.facebook.react.bridge.ReactContextBaseJavaModule;
 import com.facebook.react.bridge.ReactMethod;
 import com.facebook.react.bridge.Promise;
+import com.facebook.react.bridge.ReadableMap;
 
 public class AudioModule extends ReactContextBaseJavaModule {
     private MediaPlayer mediaPlayer;
+    private final SoundCache soundCache;
 
     public AudioModule(ReactApplicationContext reactContext) {
         super(reactContext);
+        soundCache = SoundCache.shared(reactContext);
     }
 
     @Override
@@ -25,10 +28,16 @@ public class AudioModule extends ReactContextBaseJavaModule {
     @ReactMethod
     public void playAudio(String fileName, Promise promise) {
         try {
+            // ✅ Preloaded sounds go straight to the mixer, no decode and no cut-off of other sounds
+            if (soundCache.play(fileName) != 0) {
+                promise.resolve("Playing: " + fileName);
+                return;
+            }
+
             Context context = getReactApplicationContext();
 
-            // Get resource ID dynamically
-            int resId = context.getResources().getIdentifier(fileName, "raw", context.getPackageName());
+            // Get resource ID dynamically (cached per name)
+            int resId = soundCache.resourceId(fileName);
 
             if (resId == 0) {
                 promise.reject("ERROR", "Audio file not found: " + fileName);
@@ -49,8 +58,49 @@ public class AudioModule extends ReactContextBaseJavaModule {
             promise.reject("ERROR", e);
         }
     }
+    /**
+     * Decodes a raw resource into the sound cache so playAudio starts it in a few ms.
+     * options: volume (0-1, default 1), priority (higher wins a voice when all are busy, default 1).
+     * Resolves once the sound is playable with { name, bytes, loadMs, volume, priority }.
+     */
+    @ReactMethod
+    public void preloadSound(String fileName, ReadableMap options, Promise promise) {
+        double volume = number(options, "volume", 1);
+        if (volume < 0 || volume > 1) {
+            promise.reject("Invalid Option", "volume must be between 0 and 1.");
+            return;
+        }
+        soundCache.preload(fileName, (float) volume, (int) number(options, "priority", 1), promise);
+    }
+
+    @ReactMethod
+    public void unloadSound(String fileName, Promise promise) {
+        promise.resolve(soundCache.unload(fileName));
+    }
+
+    /**
+     * maxVoices: sounds that can play at once (default 4, changing it drops the cache).
+     * maxBytes: cap on decoded PCM (default 4 MB), least recently played sounds are evicted first.
+     */
+    @ReactMethod
+    public void configureSoundCache(ReadableMap options, Promise promise) {
+        soundCache.configure((int) number(options, "maxVoices", 0), (long) number(options, "maxBytes", 0));
+        promise.resolve(soundCache.stats());
+    }
+
+    /** sounds, bytes, maxBytes, maxVoices, hits, misses, evictions and lastPlayMs. */
+    @ReactMethod
+    public void getSoundCacheStats(Promise promise) {
+        promise.resolve(soundCache.stats());
+    }
+
+    private static double number(ReadableMap options, String key, double fallback) {
+        return options != null && options.hasKey(key) && !options.isNull(key) ? options.getDouble(key) : fallback;
+    }
+
     @ReactMethod
     public void stopAudio() {
+        soundCache.stopAll();
         if (mediaPlayer != null && mediaPlayer.isPlaying()) {
             mediaPlayer.stop();
             mediaPlayer.release();
@@ -58,6 +108,15 @@ public class AudioModule extends ReactContextBaseJavaModule {
         }
     }
 
+    @Override
+    public void invalidate() {
+        soundCache.release();
+        if (mediaPlayer != null) {
+            mediaPlayer.release();
+            mediaPlayer = null;
+        }
+    }
+
     @ReactMethod
     public void showToast(String message, int duration) {
         Context context = getReactApplicationContext();
@@ -10,6 +10,7 @@ import com.facebook.react.bridge.ReactContext;
 import com.facebook.react.modules.core.DeviceEventManagerModule;
 
 import com.facebook.react.bridge.WritableArray;
+import com.facebook.react.bridge.ReadableMap;
 
 import android.bluetooth.BluetoothManager;
 import android.bluetooth.BluetoothAdapter;
@@ -26,6 +27,7 @@ import android.bluetooth.BluetoothDevice;
 import android.bluetooth.BluetoothProfile;
 import android.bluetooth.le.ScanRecord;
 import android.bluetooth.le.ScanSettings;
+import android.bluetooth.le.ScanFilter;
 import android.os.ParcelUuid;
 import java.util.Map;
 import android.os.Build;
@@ -34,37 +36,103 @@ import androidx.core.app.ActivityCompat;
 import android.app.Activity;
 
 import android.os.Handler;
+import android.os.HandlerThread;
 import android.os.Looper;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.List;
 import java.util.ArrayList;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.nio.charset.StandardCharsets;
 import android.util.Log;
 import android.content.Context;
 import android.content.Intent;
 
 public class BLEModule extends ReactContextBaseJavaModule {
     private BluetoothAdapter bluetoothAdapter;
-    private BluetoothGatt bluetoothGatt;
+    // ✅ One entry per peripheral, keyed by MAC address
+    private final Map<String, BleConnection> connections = new ConcurrentHashMap<>();
+    private volatile String primaryAddress = ESP32_DEVICE_ADDRESS;  // target of the methods without a deviceId
+    private int queueMaxDepth = GattOperationQueue.DEFAULT_MAX_DEPTH;
+    private int queueTimeoutMs = GattOperationQueue.DEFAULT_TIMEOUT_MS;
+    private final ScheduledExecutorService reconnectScheduler = Executors.newSingleThreadScheduledExecutor();
+    private boolean autoReconnect = true;
+    private long reconnectBaseDelayMs = ReconnectSupervisor.DEFAULT_BASE_DELAY_MS;
+    private long reconnectMaxDelayMs = ReconnectSupervisor.DEFAULT_MAX_DELAY_MS;
+    private int reconnectMaxAttempts = ReconnectSupervisor.DEFAULT_MAX_ATTEMPTS;
+    private long reconnectAttemptTimeoutMs = DEFAULT_RECONNECT_ATTEMPT_TIMEOUT_MS;
 
     private BluetoothLeScanner bleScanner;
     private Promise scanPromise;
-    private Promise subscribePromise;
-    private Promise writePromise;
+    private final Map<UUID, String> characteristicIds = new ConcurrentHashMap<>();
+    // Attribute caches outlive connections so aliases and resolved layouts survive reconnects
+    private final Map<String, GattAttributeCache> attributeCaches = new ConcurrentHashMap<>();
+    private final EventSink eventSink;
+    private final NotificationBatcher notificationBatcher;
+    private final NotificationRing notificationRing;
+    private final NotificationRules notificationRules;
+    private final TelemetryDecoder telemetryDecoder;
+    // ✅ Owns all connection state: GATT callbacks, JS calls and reconnects run here, one at a time
+    private final BleEventLoop loop = new BleEventLoop("BleEventLoop");
+    private final NotificationRules.Actions ruleActions = new NotificationRules.Actions() {
+        @Override
+        public void playSound(NotificationRules.Rule rule) {
+            if (SoundCache.shared(reactContext).play(rule.sound) == 0) {
+                Log.w(TAG, "Rule " + rule.id + ": sound " + rule.sound + " is not preloaded");
+            }
+        }
+
+        @Override
+        public void write(NotificationRules.Rule rule, String deviceId) {
+            BleConnection connection = connections.get(deviceId);
+            BluetoothGattCharacteristic characteristic = connection != null && connection.attributes != null
+                    ? connection.attributes.resolve(rule.service, rule.replyCharacteristic) : null;
+            if (characteristic == null) {
+                Log.w(TAG, "Rule " + rule.id + ": reply characteristic not found on " + deviceId);
+                return;
+            }
+            // Canned replies go through the queue like any write, without a promise to settle
+            connection.queue.enqueue(GattOperationQueue.write(characteristic, rule.reply,
+                    BluetoothGattCharacteristic.WRITE_TYPE_DEFAULT, RULE_REPLY_CALLBACK));
+        }
+    };
+    private HandlerThread transferThread;  // bulk transfers run here, started on first use
+    private Timer transferTimer;
 
     private ReactApplicationContext reactContext;
     private static final String TAG = "BLEModule";  // ✅ Define TAG
-    private Promise connectionPromise;  // ✅ Store Promise to resolve later
-    private Promise disconnectPromise;  // ✅ Store Promise to resolve later
     private static final String ESP32_DEVICE_ADDRESS = "94:A9:90:48:02:FA";//78:1C:3C:A5:B1:36"; // ESP32 BLE MAC address
     private static final String SERVICE_UUID = "4fafc201-1fb5-459e-8fcc-c5c9c331914b";
     private static final String CHARACTERISTIC_UUID = "beb5483e-36e1-4688-b7f5-ea07361b26a8";
     private static final String CLIENT_CHARACTERISTIC_CONFIG_DESCRIPTOR = "00002902-0000-1000-8000-00805f9b34fb";
+    private static final UUID CCCD_UUID = UUID.fromString(CLIENT_CHARACTERISTIC_CONFIG_DESCRIPTOR);
+    private static final Callback RULE_REPLY_CALLBACK = new Callback() {
+        @Override
+        public void resolve(Object value) {
+        }
+
+        @Override
+        public void reject(String code, String message) {
+            Log.w(TAG, "Rule reply failed: " + message);
+        }
+    };
 
     private static final int REQUEST_ENABLE_BT = 1;
+    // ✅ About what a direct connectGatt waits before failing, long enough to catch an advertising device
+    private static final long DEFAULT_RECONNECT_ATTEMPT_TIMEOUT_MS = 30000;
 
     public BLEModule(ReactApplicationContext reactContext) {
         super(reactContext);
         this.reactContext = reactContext;
+        eventSink = new ReactEventSink(reactContext);
+        notificationBatcher = new NotificationBatcher(eventSink, new HandlerTimer(Looper.getMainLooper()));
+        notificationRing = new NotificationRing(eventSink);
+        notificationRules = new NotificationRules(eventSink);
+        telemetryDecoder = new TelemetryDecoder(eventSink);
         bluetoothAdapter = BluetoothAdapter.getDefaultAdapter();
         if (bluetoothAdapter != null) {
             bleScanner = bluetoothAdapter.getBluetoothLeScanner();
@@ -76,6 +144,48 @@ public class BLEModule extends ReactContextBaseJavaModule {
         return "BLEModule"; // Used in React Native
     }
 
+    /**
+     * JS reload or app teardown: stops the scan, fails transfers, disconnects and closes every
+     * gatt so none keeps calling back into this instance, then stops the module's threads.
+     */
+    @Override
+    public void invalidate() {
+        scanHandler.removeCallbacks(scanTimeout);
+        if (bleScanner != null) {
+            try {
+                bleScanner.stopScan(bleScanCallback);
+            } catch (RuntimeException e) {
+                Log.w(TAG, "Can't stop the scan: " + e.getMessage());  // adapter off or permission revoked
+            }
+            scanCache.stop();
+        }
+        loop.execute(() -> {
+            for (BleConnection connection : connections.values()) {
+                connection.state = BleConnection.State.DISCONNECTED;
+                connection.supervisor.stop();
+                BulkTransfer transfer = connection.transfer;
+                if (transfer != null) {
+                    transfer.abort("BLE Disconnected", "The module was invalidated.");
+                }
+                connection.queue.clear("BLE Disconnected", "The module was invalidated.");
+                BluetoothGatt gatt = connection.gatt;
+                if (gatt != null) {
+                    gatt.disconnect();
+                    gatt.close();
+                    connection.gatt = null;
+                }
+            }
+            connections.clear();
+            reconnectScheduler.shutdownNow();  // after the supervisors stopped, so none schedules into it
+            synchronized (this) {
+                if (transferThread != null) {
+                    transferThread.quitSafely();  // after the aborts above, which are already queued on it
+                }
+            }
+            loop.quit();
+        });
+    }
+
     private final List<String> foundDevices = new ArrayList<>();
 
 //    private final ScanCallback bleScanCallback_spare = new ScanCallback() {
@@ -107,21 +217,39 @@ public class BLEModule extends ReactContextBaseJavaModule {
 //            }
 //        }
 //    };
-    private final ScanCallback bleScanCallback = new ScanCallback() {
+    private final Handler scanHandler = new Handler(Looper.getMainLooper());
+    private final Runnable scanTimeout = () -> {
+        Log.d(TAG, "Scan duration elapsed, stopping.");
+        stopBLEScan();
+        sendEvent("BLEScanStopped", Arguments.createMap());
+    };
+
+    private final ScanResultCache scanCache = new ScanResultCache(new ScanResultCache.Listener() {
         @Override
-        public void onScanResult(int callbackType, ScanResult result) {
-            BluetoothDevice device = result.getDevice();
-            String name = device.getName();
-            String address = device.getAddress();
+        public void onDelta(WritableMap delta) {
+            sendEvent("BLEScanDelta", delta);
+        }
 
-            if (address == null) return;
+        @Override
+        public void onDeviceAdded(WritableMap device) {
+            if (LogLevel.debug()) Log.d(TAG, "Device found: " + device.getString("name") + " - " + device.getString("address"));
+            sendEvent("BLEDeviceFound", device); // 👈 JS will receive this, once per device, just before the delta adding it
+        }
+    });
 
-            WritableMap params = Arguments.createMap();
-            params.putString("name", name != null ? name : "Unnamed");
-            params.putString("address", address);
+    private final ScanCallback bleScanCallback = new ScanCallback() {
+        @Override
+        public void onScanResult(int callbackType, ScanResult result) {
+            // ✅ Deduplicated in the device table, JS hears about it with the next BLEScanDelta
+            scanCache.onScanResult(result);
+        }
 
-            Log.d(TAG, "Device found: " + name + " - " + address);
-            sendEvent("BLEDeviceFound", params); // 👈 JS will receive this
+        @Override
+        public void onBatchScanResults(List<ScanResult> results) {
+            // Delivered instead of onScanResult when a reportDelayMs was set
+            for (ScanResult result : results) {
+                scanCache.onScanResult(result);
+            }
         }
 
         @Override
@@ -155,6 +283,15 @@ public class BLEModule extends ReactContextBaseJavaModule {
 //     };
     @ReactMethod
     public void scanBLEDevices(Promise promise) {
+        scanBLEDevicesWithOptions(null, promise);
+    }
+
+    /**
+     * Starts a scan with controller-side filters and custom settings, see ScanOptions for the
+     * accepted keys. With durationMs the scan stops itself and emits BLEScanStopped.
+     */
+    @ReactMethod
+    public void scanBLEDevicesWithOptions(ReadableMap options, Promise promise) {
         BluetoothAdapter bluetoothAdapter = BluetoothAdapter.getDefaultAdapter();
         if (bluetoothAdapter == null) {
             promise.reject("BLE Scan Error", "Device doesn't support Bluetooth.");
@@ -176,8 +313,26 @@ public class BLEModule extends ReactContextBaseJavaModule {
             return;
         }
 
+        List<ScanFilter> filters;
+        ScanSettings settings;
+        try {
+            filters = ScanOptions.filters(options);
+            settings = ScanOptions.settings(options);
+        } catch (IllegalArgumentException e) {
+            promise.reject("Invalid Option", e.getMessage());
+            return;
+        }
+
         Log.d(TAG, "Starting BLE scan...");
-        bleScanner.startScan(bleScanCallback);
+        scanHandler.removeCallbacks(scanTimeout);
+        bleScanner.stopScan(bleScanCallback);  // restarting with new options replaces the running scan
+        bleScanner.startScan(filters, settings, bleScanCallback);
+        scanCache.start();
+
+        long durationMs = ScanOptions.durationMs(options);
+        if (durationMs > 0) {
+            scanHandler.postDelayed(scanTimeout, durationMs);
+        }
         promise.resolve("Scan started");
     }
 
@@ -229,56 +384,163 @@ public class BLEModule extends ReactContextBaseJavaModule {
 //     }
     @ReactMethod
     public void stopBLEScan() {
+        scanHandler.removeCallbacks(scanTimeout);
         if (bleScanner != null) {
+            bleScanner.flushPendingScanResults(bleScanCallback);  // deliver anything held back by reportDelayMs
             bleScanner.stopScan(bleScanCallback);
+            scanCache.stop();
             Log.d(TAG, "Scan manually stopped.");
         } else {
             Log.w(TAG, "No active BLE scanner to stop.");
         }
     }
 
+    /** Returns the current device table: address, name, smoothed rssi, service UUIDs, manufacturer data and times. */
+    @ReactMethod
+    public void getScanSnapshot(Promise promise) {
+        promise.resolve(scanCache.snapshot());
+    }
+
+    /** ttlMs: evict devices not heard from for this long. emitIntervalMs: BLEScanDelta rate. rssiThreshold: dBm change worth an update. */
+    @ReactMethod
+    public void configureScanCache(int ttlMs, int emitIntervalMs, int rssiThreshold) {
+        scanCache.configure(ttlMs, emitIntervalMs, rssiThreshold);
+    }
+
+    @ReactMethod
+    public void clearScanCache() {
+        scanCache.clear();
+    }
+
+    /**
+     * Runs on binder threads and only hands each callback to the event loop. Values are
+     * taken here, before the stack can overwrite the shared characteristic with the next packet.
+     */
+    private class LoopGattCallback extends BluetoothGattCallback {
+        private final GattCallback target;
+
+        LoopGattCallback(GattCallback target) {
+            this.target = target;
+        }
+
+        @Override
+        public void onConnectionStateChange(BluetoothGatt gatt, int status, int newState) {
+            loop.post(() -> target.onConnectionStateChange(gatt, status, newState));
+        }
+
+        @Override
+        public void onServicesDiscovered(BluetoothGatt gatt, int status) {
+            loop.post(() -> target.onServicesDiscovered(gatt, status));
+        }
+
+        @Override
+        public void onCharacteristicChanged(BluetoothGatt gatt, BluetoothGattCharacteristic characteristic) {
+            byte[] value = characteristic.getValue();
+            loop.post(() -> target.onCharacteristicChanged(gatt, characteristic, value));
+        }
+
+        @Override
+        public void onCharacteristicChanged(BluetoothGatt gatt, BluetoothGattCharacteristic characteristic, byte[] value) {
+            loop.post(() -> target.onCharacteristicChanged(gatt, characteristic, value));
+        }
+
+        @Override
+        public void onCharacteristicRead(BluetoothGatt gatt, BluetoothGattCharacteristic characteristic, int status) {
+            byte[] value = characteristic.getValue();
+            loop.post(() -> target.onCharacteristicRead(gatt, characteristic, value, status));
+        }
+
+        @Override
+        public void onCharacteristicRead(BluetoothGatt gatt, BluetoothGattCharacteristic characteristic, byte[] value, int status) {
+            loop.post(() -> target.onCharacteristicRead(gatt, characteristic, value, status));
+        }
+
+        @Override
+        public void onCharacteristicWrite(BluetoothGatt gatt, BluetoothGattCharacteristic characteristic, int status) {
+            loop.post(() -> target.onCharacteristicWrite(gatt, characteristic, status));
+        }
+
+        @Override
+        public void onDescriptorWrite(BluetoothGatt gatt, BluetoothGattDescriptor descriptor, int status) {
+            loop.post(() -> target.onDescriptorWrite(gatt, descriptor, status));
+        }
+
+        @Override
+        public void onMtuChanged(BluetoothGatt gatt, int mtu, int status) {
+            loop.post(() -> target.onMtuChanged(gatt, mtu, status));
+        }
+
+        @Override
+        public void onServiceChanged(BluetoothGatt gatt) {
+            loop.post(() -> target.onServiceChanged(gatt));
+        }
+
+        @Override
+        public void onPhyUpdate(BluetoothGatt gatt, int txPhy, int rxPhy, int status) {
+            loop.post(() -> target.onPhyUpdate(gatt, txPhy, rxPhy, status));
+        }
+
+        @Override
+        public void onPhyRead(BluetoothGatt gatt, int txPhy, int rxPhy, int status) {
+            loop.post(() -> target.onPhyRead(gatt, txPhy, rxPhy, status));
+        }
+
+        // Hidden in the SDK, see GattCallback
+        public void onConnectionUpdated(BluetoothGatt gatt, int interval, int latency, int timeout, int status) {
+            loop.post(() -> target.onConnectionUpdated(gatt, interval, latency, timeout, status));
+        }
+    }
+
+    /** GATT callback bound to one connection, so every callback knows which device it came from. Runs on the event loop. */
+    private class GattCallback extends BluetoothGattCallback {
+        private final BleConnection connection;
+
+        GattCallback(BleConnection connection) {
+            this.connection = connection;
+        }
 
-    private final BluetoothGattCallback gattCallback = new BluetoothGattCallback() {
         @Override
         public void onDescriptorWrite(BluetoothGatt gatt, BluetoothGattDescriptor descriptor, int status) {
             if (status == BluetoothGatt.GATT_SUCCESS) {
                 Log.d(TAG, "Subscribed to BLE notifications!");
-                if (subscribePromise != null) {
-                    subscribePromise.resolve("Successfully subscribed to BLE notifications.");
-                    subscribePromise = null;
-                }
+                connection.queue.complete(GattOperationQueue.Kind.WRITE_DESCRIPTOR, null);
             } else {
                 Log.e(TAG, "Failed to write descriptor for notifications.");
-                if (subscribePromise != null) {
-                    subscribePromise.reject("Descriptor Write Failed", "Failed with status: " + status);
-                    subscribePromise = null;
-                }
+                connection.queue.fail(GattOperationQueue.Kind.WRITE_DESCRIPTOR, "Descriptor Write Failed", "Failed with status: " + status);
             }
             WritableMap params = Arguments.createMap();
             params.putString("message", status == BluetoothGatt.GATT_SUCCESS ? "Subscribed to BLE notifications!" : "Failed to subscribe");
             params.putString("origin", "native");
+            params.putString("deviceId", connection.address);
             sendEvent("BluetoothNotification", params);
             Log.e(TAG, "Something happened");
         }
         @Override
         public void onCharacteristicChanged(BluetoothGatt gatt, BluetoothGattCharacteristic characteristic) {
-            String receivedData = characteristic.getStringValue(0);
-            // ✅ Ensure message isn’t reprocessed multiple times
-            if (!receivedData.isEmpty()) {
-                Log.d(TAG, "Received Notification: " + receivedData);
-
-                WritableMap params = Arguments.createMap();
-                params.putString("message", receivedData);
-                params.putString("origin", "esp32");
-                sendEvent("BluetoothNotification", params);
-            }
+            onNotification(connection, characteristic, characteristic.getValue());
+        }
 
+        @Override
+        public void onCharacteristicChanged(BluetoothGatt gatt, BluetoothGattCharacteristic characteristic, byte[] value) {
+            // API 33+ hands over the value directly instead of through the shared characteristic
+            onNotification(connection, characteristic, value);
         }
         @Override
         public void onServicesDiscovered(BluetoothGatt gatt, int status) {
 
             if (status == BluetoothGatt.GATT_SUCCESS) {
                 Log.d(TAG, "Services discovered!");
+                connection.attributes.bind(gatt);
+                if (connection.discoveryStartedNanos != 0) {
+                    Metrics.shared().serviceDiscovery.recordNanos(System.nanoTime() - connection.discoveryStartedNanos);
+                    connection.discoveryStartedNanos = 0;
+                }
+                connection.queue.complete(GattOperationQueue.Kind.DISCOVER_SERVICES, null);
+                resubscribe(connection);
+                BulkTransfer transfer = connection.transfer;
+                if (transfer != null) {
+                    transfer.onLinkRestored();  // queued behind the CCCD writes, then continues from the device's offset
+                }
 
 //                for (BluetoothGattService service : gatt.getServices()) {
 //                    Log.d(TAG, "Found service UUID: " + service.getUuid().toString());
@@ -288,236 +550,1366 @@ public class BLEModule extends ReactContextBaseJavaModule {
 //                    }
 //                }
 
-                BluetoothGattService service = gatt.getService(UUID.fromString(SERVICE_UUID));
-                if (service != null) {
-                    BluetoothGattCharacteristic characteristic = service.getCharacteristic(UUID.fromString(CHARACTERISTIC_UUID));
-                    if (characteristic != null) {
-                        Log.d(TAG, "Characteristic found! Ready for BLE operations.");
-                        WritableMap params = Arguments.createMap();
-                        params.putString("status", "Characteristic found! Ready for BLE operations.");
-                        params.putString("origin", "native");
-                        sendEvent("BluetoothNotification", params);  // ✅ Use separate event type for connection status
-                        String data = "Hello ESP32!";  //a handshake message to esp32 to get charging status on connect
-                        characteristic.setValue(data.getBytes());
-                        bluetoothGatt.writeCharacteristic(characteristic);
-                    }
+                BluetoothGattCharacteristic characteristic = connection.attributes.resolve(SERVICE_UUID, CHARACTERISTIC_UUID);
+                if (characteristic != null) {
+                    Log.d(TAG, "Characteristic found! Ready for BLE operations.");
+                    WritableMap params = Arguments.createMap();
+                    params.putString("status", "Characteristic found! Ready for BLE operations.");
+                    params.putString("origin", "native");
+                    params.putString("deviceId", connection.address);
+                    sendEvent("BluetoothNotification", params);  // ✅ Use separate event type for connection status
+                    String data = "Hello ESP32!";  //a handshake message to esp32 to get charging status on connect
+                    connection.queue.enqueue(GattOperationQueue.write(characteristic, data.getBytes(), null));
                 }
             } else {
                 Log.e(TAG, "Service discovery failed!");
+                connection.queue.fail(GattOperationQueue.Kind.DISCOVER_SERVICES, "Discovery Failed", "Failed with status: " + status);
             }
         }
         @Override
         public void onCharacteristicWrite(BluetoothGatt gatt, BluetoothGattCharacteristic characteristic, int status) {
-            if (writePromise != null) {
-                if (status == BluetoothGatt.GATT_SUCCESS) {
-                    Log.d(TAG, "BLE write succeeded");
-                    writePromise.resolve("Write successful");
-                } else {
-                    Log.e(TAG, "BLE write failed with status: " + status);
-                    writePromise.reject("Write Failed", "Failed with status: " + status);
-                }
-                writePromise = null;
+            if (status == BluetoothGatt.GATT_SUCCESS) {
+                if (LogLevel.debug()) Log.d(TAG, "BLE write succeeded");
+                connection.queue.complete(GattOperationQueue.Kind.WRITE, "Write successful");
+            } else {
+                Log.e(TAG, "BLE write failed with status: " + status);
+                connection.queue.fail(GattOperationQueue.Kind.WRITE, "Write Failed", "Failed with status: " + status);
+            }
+        }
+
+        @Override
+        public void onCharacteristicRead(BluetoothGatt gatt, BluetoothGattCharacteristic characteristic, int status) {
+            onCharacteristicRead(gatt, characteristic, characteristic.getValue(), status);
+        }
+
+        @Override
+        public void onCharacteristicRead(BluetoothGatt gatt, BluetoothGattCharacteristic characteristic, byte[] value, int status) {
+            if (status == BluetoothGatt.GATT_SUCCESS) {
+                if (value != null) connection.metrics.received(value.length);
+                connection.queue.complete(GattOperationQueue.Kind.READ, value);
+            } else {
+                Log.e(TAG, "BLE read failed with status: " + status);
+                connection.queue.fail(GattOperationQueue.Kind.READ, "Read Failed", "Failed with status: " + status);
+            }
+        }
+
+        @Override
+        public void onMtuChanged(BluetoothGatt gatt, int mtu, int status) {
+            if (status == BluetoothGatt.GATT_SUCCESS) {
+                Log.d(TAG, "MTU changed to " + mtu);
+                connection.queue.complete(GattOperationQueue.Kind.REQUEST_MTU, mtu);
+                sendEvent("BLELinkUpdate", connection.linkInfo());
+            } else {
+                connection.queue.fail(GattOperationQueue.Kind.REQUEST_MTU, "MTU Request Failed", "Failed with status: " + status);
+            }
+        }
+
+        /** Service Changed indication (API 31+): handles are stale, rediscover before using them again. */
+        @Override
+        public void onServiceChanged(BluetoothGatt gatt) {
+            Log.d(TAG, "Service Changed from " + connection.address);
+            connection.attributes.invalidate();
+            WritableMap params = Arguments.createMap();
+            params.putString("deviceId", connection.address);
+            sendEvent("BLEServicesChanged", params);
+            connection.queue.enqueue(GattOperationQueue.discoverServices(null));
+        }
+
+        @Override
+        public void onPhyUpdate(BluetoothGatt gatt, int txPhy, int rxPhy, int status) {
+            onPhyRead(gatt, txPhy, rxPhy, status);
+        }
+
+        @Override
+        public void onPhyRead(BluetoothGatt gatt, int txPhy, int rxPhy, int status) {
+            if (status != BluetoothGatt.GATT_SUCCESS) {
+                Log.w(TAG, "PHY update failed with status: " + status);
+                return;
             }
+            Log.d(TAG, "PHY tx " + LinkProfile.phyName(txPhy) + ", rx " + LinkProfile.phyName(rxPhy));
+            connection.txPhy = txPhy;
+            connection.rxPhy = rxPhy;
+            sendEvent("BLELinkUpdate", connection.linkInfo());
+        }
 
+        // Hidden in the SDK (no @Override), but the stack still dispatches it on API 26+
+        public void onConnectionUpdated(BluetoothGatt gatt, int interval, int latency, int timeout, int status) {
+            if (status != BluetoothGatt.GATT_SUCCESS) return;
+            Log.d(TAG, "Connection interval " + (interval * 1.25) + " ms, latency " + latency);
+            connection.intervalUnits = interval;
+            connection.peripheralLatency = latency;
+            connection.supervisionTimeoutUnits = timeout;
+            sendEvent("BLELinkUpdate", connection.linkInfo());
         }
 
         @Override
         public void onConnectionStateChange(BluetoothGatt gatt, int status, int newState) {
+            cancelReconnectDeadline(connection);
             WritableMap params = Arguments.createMap();
+            params.putString("deviceId", connection.address);
 
             if (newState == BluetoothProfile.STATE_CONNECTED) {
 
-                Log.d(TAG, "Connected to ESP32!");
+                Log.d(TAG, "Connected to " + connection.address);
+                connection.state = BleConnection.State.CONNECTED;
+                connection.queue.attach(gatt);
+                connection.supervisor.onConnected();
+                long now = System.nanoTime();
+                if (connection.connectStartedNanos != 0) {
+                    Metrics.shared().connect.recordNanos(now - connection.connectStartedNanos);
+                    connection.connectStartedNanos = 0;
+                }
+                connection.discoveryStartedNanos = now;  // connected to services ready, MTU exchange included
 
-                if (connectionPromise != null) { //user initiated connection
-                    connectionPromise.resolve("Connected to ESP32!");  // ✅ Resolve the promise when connected
-                    connectionPromise = null;  // Clear reference
+                if (connection.connectionPromise != null) { //user initiated connection
+                    connection.connectionPromise.resolve("Connected to ESP32!");  // ✅ Resolve the promise when connected
+                    connection.connectionPromise = null;  // Clear reference
                 }else{
                     params.putString("status", "Connected"); // device connected
                     params.putString("origin", "native");
                     sendEvent("BluetoothNotification", params);  // ✅ Use separate event type for connection status
                 }
 
-                gatt.discoverServices();  // Start discovering services
+                applyLinkProfile(connection, gatt);
+                // Negotiate a larger MTU before discovery, both go through the queue so they don't overlap
+                connection.queue.enqueue(GattOperationQueue.requestMtu(AttLimits.MAX_MTU, null));
+                connection.queue.enqueue(GattOperationQueue.discoverServices(null));  // Start discovering services
 
             } else if (newState == BluetoothProfile.STATE_DISCONNECTED){
-                Log.d(TAG, "Disconnected from ESP32. Status: " + status);
+                Log.d(TAG, "Disconnected from " + connection.address + ". Status: " + status);
 //                if (status == 133) {  // ✅ Common timeout issue
 //                    Log.e(TAG, "Connection timeout.");
 //
 //                }
-                if (disconnectPromise != null) { //user initiated disconnect
-                    disconnectPromise.resolve("ESP32 BLE disconnected.");
-                    disconnectPromise = null;
+                boolean userInitiated = connection.state == BleConnection.State.DISCONNECTING;
+                boolean wasConnected = connection.state == BleConnection.State.CONNECTED;
+                connection.queue.clear("BLE Disconnected", "BLE connection closed before the operation completed.");
+                connection.attributes.unbind();
+                gatt.close();
+                connection.gatt = null;
+
+                if (connection.connectionPromise != null) { // never got as far as connecting
+                    connection.connectionPromise.reject("Connection Failed", "Failed with status: " + status);
+                    connection.connectionPromise = null;
+                    userInitiated = true;  // nothing to recover, the caller sees the rejection
+                }
+                if (connection.disconnectPromise != null) { //user initiated disconnect
+                    connection.disconnectPromise.resolve("ESP32 BLE disconnected.");
+                    connection.disconnectPromise = null;
                 }else{
                     params.putString("status", "Disconnected"); // device disconnected
                     params.putString("origin", "native");
                     sendEvent("BluetoothNotification", params);  // ✅ Use separate event type for connection status
                 }
 
-                // 🚀 Attempt reconnection
-                //reconnectDevice(gatt.getDevice());
-                // Now clean up
-                if (bluetoothGatt != null) {
-                    gatt.close();  // gatt is same as bluetoothGatt in this callback
-                    bluetoothGatt = null;
+                BulkTransfer transfer = connection.transfer;
+                if (userInitiated) {
+                    connection.state = BleConnection.State.DISCONNECTED;
+                    connection.supervisor.stop();
+                    connections.remove(connection.address, connection);
+                    if (transfer != null) {
+                        transfer.abort("BLE Disconnected", "Disconnected during the transfer.");
+                    }
+                } else {
+                    // 🚀 Link dropped, the supervisor schedules reconnectDevice() off this thread
+                    connection.state = BleConnection.State.CONNECTING;
+                    if (transfer != null) {
+                        transfer.onLinkLost();
+                    }
+                    if (wasConnected) {
+                        connection.supervisor.onConnectionLost();
+                    } else {
+                        connection.supervisor.onConnectFailed();
+                    }
                 }
             }
         }
-    };
+    }
+
+    private void onNotification(BleConnection connection, BluetoothGattCharacteristic characteristic, byte[] value) {
+        // ✅ Ensure message isn’t reprocessed multiple times
+        if (value == null || value.length == 0) return;
+        Metrics.shared().packetIn(connection.address, value.length, System.nanoTime());
+
+        BulkTransfer transfer = connection.transfer;
+        if (transfer != null) {
+            UUID id = characteristic.getUuid();
+            if (id.equals(connection.transferControl)) {
+                transfer.onControl(value);
+                return;
+            }
+            if (id.equals(connection.transferData)) {
+                transfer.onData(value);
+                return;
+            }
+        }
+
+        String uuid = connection.binaryCharacteristics.get(characteristic.getUuid());
+        if (FrameRecorder.shared().isRecording()) {
+            // ✅ Recorded before rules, the decoder or a stalled JS thread can consume or lose it
+            String id = uuid != null ? uuid : characteristicIds.computeIfAbsent(characteristic.getUuid(), UUID::toString);
+            FrameRecorder.shared().append(connection.address, id, value, 0, value.length, System.currentTimeMillis());
+        }
+        if (!notificationRules.isEmpty()) {
+            // ✅ Alerts fire here, before the packet waits on the bridge or the JS thread
+            String id = uuid != null ? uuid : characteristicIds.computeIfAbsent(characteristic.getUuid(), UUID::toString);
+            if (notificationRules.evaluate(connection.address, id, value, 0, value.length, System.currentTimeMillis(), ruleActions)) {
+                return;
+            }
+        }
+        if (!telemetryDecoder.isEmpty()) {
+            // ✅ Schema frames reach JS as typed fields instead of a string to parse
+            String id = uuid != null ? uuid : characteristicIds.computeIfAbsent(characteristic.getUuid(), UUID::toString);
+            if (telemetryDecoder.decode(connection.address, id, value, 0, value.length, System.currentTimeMillis())) {
+                return;
+            }
+        }
+        if (!connection.bufferedCharacteristics.isEmpty() && connection.bufferedCharacteristics.contains(characteristic.getUuid())) {
+            String id = uuid != null ? uuid : characteristicIds.computeIfAbsent(characteristic.getUuid(), UUID::toString);
+            notificationRing.add(connection.address, id, value, uuid != null, System.currentTimeMillis());
+            return;
+        }
+        if (notificationBatcher.isEnabled()) {
+            String id = uuid != null ? uuid : characteristicIds.computeIfAbsent(characteristic.getUuid(), UUID::toString);
+            notificationBatcher.add(connection.address, id, value, uuid != null, System.currentTimeMillis());
+            return;
+        }
+
+        EventSink.EventMap params;
+        if (uuid != null) {
+            params = NotificationEncoder.binaryEvent(eventSink, connection.address, uuid, value);
+        } else {
+            String receivedData = NotificationEncoder.text(value);
+            if (LogLevel.debug()) Log.d(TAG, "Received Notification: " + receivedData);
+            params = NotificationEncoder.textEvent(eventSink, connection.address, receivedData);
+        }
+        eventSink.emit(NotificationEncoder.EVENT, params);
+    }
+
+    /**
+     * Opt-in batched notification delivery. While enabled, notifications are emitted as
+     * one "BluetoothNotificationBatch" event every maxPackets packets or windowMs,
+     * whichever comes first, each packet keeping its own timestamp.
+     */
     @ReactMethod
-    public void connectToKnownBLEDevice(Promise promise) {
-        connectionPromise = promise;  // ✅ Store the promise for later resolution
+    public void setNotificationBatching(boolean enabled, int maxPackets, int windowMs) {
+        notificationBatcher.configure(enabled, maxPackets, windowMs);
+        Log.d(TAG, "Notification batching " + (enabled ? "enabled" : "disabled"));
+    }
 
-        BluetoothDevice device = bluetoothAdapter.getRemoteDevice(ESP32_DEVICE_ADDRESS);
-        //bluetoothGatt = device.connectGatt(getReactApplicationContext(), false, gattCallback);
-        bluetoothGatt = device.connectGatt(getReactApplicationContext(), false, gattCallback, BluetoothDevice.TRANSPORT_LE);
+    /**
+     * Connect, service discovery, write round-trip, notification inter-arrival and bridge
+     * emit latency histograms plus per-device byte, packet and reconnect counters.
+     * Shared with BluetoothModule.
+     */
+    @ReactMethod
+    public void getMetrics(Promise promise) {
+        promise.resolve(ReactEventSink.unwrap(Metrics.shared().snapshot(eventSink)));
+    }
 
-        Log.d(TAG, "Attempting to connect to ESP32...");
+    @ReactMethod
+    public void resetMetrics() {
+        Metrics.shared().reset();
+        notificationRing.resetCounters();
+        telemetryDecoder.resetCounters();
+        FrameRecorder.shared().resetCounters();
+        loop.execute(loop::resetStats);
+    }
 
+    /** pending, executed, drains, failures, maxBatch, maxWakeLagMs and maxTaskMs of the BLE event loop. */
+    @ReactMethod
+    public void getBLEEventLoopStats(Promise promise) {
+        loop.execute(() -> promise.resolve(loop.stats()));
     }
 
+    /** Emits the getMetrics() snapshot as a "BluetoothMetrics" event every intervalMs; 0 stops it. */
     @ReactMethod
-    public void disconnectBLE(Promise promise) {
+    public void setMetricsInterval(int intervalMs) {
+        Metrics.shared().setReporting(eventSink, new HandlerTimer(Looper.getMainLooper()), intervalMs);
+    }
 
-        Log.d(TAG, "Attempting to disconnect BLE...");
-        if (bluetoothGatt != null) {
-            bluetoothGatt.disconnect();
-            disconnectPromise = promise; // ✅ Store the promise for later resolution
+    /** "debug" enables per-packet logging (notifications, writes, scan results), "info" turns it off again. */
+    @ReactMethod
+    public void setLogLevel(String level, Promise promise) {
+        if (LogLevel.set(level)) {
+            promise.resolve(level);
         } else {
-            promise.reject("BLE Not Connected", "No active BLE connection to disconnect.");
+            promise.reject("Invalid Level", "Unknown log level: " + level);
         }
     }
 
     @ReactMethod
-    public void writeToBLECharacteristic(String serviceUUID, String characteristicUUID, String data, Promise promise) {
-        if (bluetoothGatt == null) {
-            promise.reject("BLE Not Connected", "No active BLE connection.");
-            return;
+    public void getNotificationBatchStats(Promise promise) {
+        promise.resolve(ReactEventSink.unwrap(notificationBatcher.stats()));
+    }
+
+    /**
+     * Pull mode for busy JS threads: notifications of the characteristics passed to
+     * setBLENotificationBuffering go into a preallocated native ring instead of events.
+     * Options: capacity (packets, default 256), overflow ("dropOldest" | "dropNewest")
+     * and wake (one "BluetoothNotificationsAvailable" event after each read, default true).
+     */
+    @ReactMethod
+    public void configureNotificationBuffer(ReadableMap options, Promise promise) {
+        NotificationRing.Overflow overflow = null;
+        if (options.hasKey("overflow")) {
+            overflow = NotificationRing.Overflow.fromJs(options.getString("overflow"));
+            if (overflow == null) {
+                promise.reject("Invalid Option", "Unknown overflow policy: " + options.getString("overflow"));
+                return;
+            }
         }
+        int capacity = options.hasKey("capacity") ? options.getInt("capacity") : 0;
+        boolean wake = !options.hasKey("wake") || options.getBoolean("wake");
+        notificationRing.configure(capacity, overflow, wake);
+        promise.resolve(ReactEventSink.unwrap(notificationRing.stats()));
+    }
 
-        BluetoothGattService service = bluetoothGatt.getService(UUID.fromString(serviceUUID));
-        if (service == null) {
-            promise.reject("Service Not Found", "BLE service not found.");
-            return;
+    /** Routes a subscribed characteristic's notifications to the buffer (true) or back to events (false). */
+    @ReactMethod
+    public void setBLENotificationBuffering(String deviceId, String characteristicUUID, boolean enabled, Promise promise) {
+        loop.execute(() -> {
+            BleConnection connection = connection(deviceId, promise);
+            if (connection == null) return;
+            UUID id;
+            try {
+                id = GattAttributeCache.uuid(characteristicUUID);
+            } catch (IllegalArgumentException e) {
+                promise.reject("Invalid UUID", e.getMessage());
+                return;
+            }
+            if (enabled) {
+                connection.bufferedCharacteristics.add(id);
+            } else {
+                connection.bufferedCharacteristics.remove(id);
+            }
+            promise.resolve(enabled);
+        });
+    }
+
+    /** Up to max buffered packets, oldest first, shaped like the packets of a batch event. */
+    @ReactMethod
+    public void readBuffered(int max, Promise promise) {
+        promise.resolve(ReactEventSink.unwrap(notificationRing.read(max)));
+    }
+
+    /**
+     * Synchronous readBuffered returning one string, a "deviceId,characteristic,timestamp,base64"
+     * line per packet, so draining the ring builds no maps. Cheapest under the TurboModule.
+     */
+    @ReactMethod(isBlockingSynchronousMethod = true)
+    public String readBufferedPacked(double max) {
+        StringBuilder out = new StringBuilder();
+        notificationRing.readPacked((int) max, out);
+        return out.toString();
+    }
+
+    @ReactMethod(isBlockingSynchronousMethod = true)
+    public double getBufferedNotificationCount() {
+        return notificationRing.size();
+    }
+
+    /** capacity, size, highWater, added, delivered and overflows. Counters reset with resetMetrics. */
+    @ReactMethod
+    public void getNotificationBufferStats(Promise promise) {
+        promise.resolve(ReactEventSink.unwrap(notificationRing.stats()));
+    }
+
+    /**
+     * Registers a rule evaluated natively on every notification, see RuleOptions for the keys.
+     * Resolves with the rule id.
+     */
+    @ReactMethod
+    public void addNotificationRule(ReadableMap rule, Promise promise) {
+        try {
+            NotificationRules.Rule parsed = RuleOptions.parse(notificationRules.nextId(), rule, true);
+            notificationRules.add(parsed);
+            promise.resolve(parsed.id);
+        } catch (IllegalArgumentException e) {
+            promise.reject("Invalid Rule", e.getMessage());
         }
+    }
 
-        BluetoothGattCharacteristic characteristic = service.getCharacteristic(UUID.fromString(characteristicUUID));
-        if (characteristic == null) {
-            promise.reject("Characteristic Not Found", "BLE characteristic not found.");
-            return;
+    @ReactMethod
+    public void removeNotificationRule(int id, Promise promise) {
+        promise.resolve(notificationRules.remove(id));
+    }
+
+    @ReactMethod
+    public void clearNotificationRules() {
+        notificationRules.clear();
+    }
+
+    /** Each rule with its match and cooldown-suppressed counts. */
+    @ReactMethod
+    public void getNotificationRules(Promise promise) {
+        promise.resolve(ReactEventSink.unwrap(notificationRules.toArray()));
+    }
+
+    /**
+     * Registers a telemetry schema, see TelemetryOptions for the keys. Matching notifications
+     * are decoded natively and emitted as "BluetoothTelemetry" events. Resolves with the schema id.
+     */
+    @ReactMethod
+    public void addTelemetrySchema(ReadableMap schema, Promise promise) {
+        try {
+            TelemetryDecoder.Schema parsed = TelemetryOptions.parse(telemetryDecoder.nextId(), schema);
+            telemetryDecoder.add(parsed);
+            promise.resolve(parsed.id);
+        } catch (IllegalArgumentException e) {
+            promise.reject("Invalid Schema", e.getMessage());
         }
+    }
 
-        characteristic.setValue(data.getBytes()); // ✅ Convert string to byte array
-        boolean writeStarted = bluetoothGatt.writeCharacteristic(characteristic);
+    @ReactMethod
+    public void removeTelemetrySchema(int id, Promise promise) {
+        promise.resolve(telemetryDecoder.remove(id));
+    }
 
-        if (writeStarted) {
-            writePromise = promise;  // store to resolve/reject later
-            Log.d(TAG, "Started BLE write for data: " + data);
-        } else {
-            promise.reject("Write Failed", "Failed to start BLE write.");
+    @ReactMethod
+    public void clearTelemetrySchemas() {
+        telemetryDecoder.clear();
+    }
+
+    /** Each schema with its decoded, lengthMismatches and enumMisses counts. */
+    @ReactMethod
+    public void getTelemetrySchemas(Promise promise) {
+        promise.resolve(ReactEventSink.unwrap(telemetryDecoder.toArray()));
+    }
+
+    /**
+     * Starts recording raw notifications and RFCOMM frames to rolling memory-mapped segment
+     * files, see RecorderOptions for the keys. Recording doesn't go through JS, so it keeps
+     * running while the JS thread is stalled or the app is in the background. Resolves with getRecorderStats.
+     */
+    @ReactMethod
+    public void startRecording(ReadableMap options, Promise promise) {
+        try {
+            FrameRecorder.shared().start(RecorderOptions.parse(options, reactContext.getFilesDir()));
+            promise.resolve(ReactEventSink.unwrap(FrameRecorder.shared().stats(eventSink)));
+        } catch (IllegalArgumentException e) {
+            promise.reject("Invalid Option", e.getMessage());
+        } catch (IOException e) {
+            promise.reject("Recorder Error", e.getMessage());
         }
     }
-    private void reconnectDevice(BluetoothDevice device) {
-        Log.d(TAG, "Attempting to reconnect...");
-        BluetoothGatt gatt = device.connectGatt(getReactApplicationContext(), false, gattCallback);
 
-        if (gatt == null) {
-            Log.e(TAG, "Reconnect failed!");
+    /** Flushes and stops the recording; what was recorded stays queryable. */
+    @ReactMethod
+    public void stopRecording(Promise promise) {
+        FrameRecorder.shared().stop();
+        promise.resolve(ReactEventSink.unwrap(FrameRecorder.shared().stats(eventSink)));
+    }
+
+    /**
+     * One page of recorded frames: { data, count, nextSeq, done } where data has one
+     * "seq,timestamp,deviceId,characteristic,base64" line per frame. Pass nextSeq as fromSeq for the next page.
+     */
+    @ReactMethod
+    public void queryRecording(ReadableMap options, Promise promise) {
+        try {
+            promise.resolve(ReactEventSink.unwrap(RecorderOptions.query(FrameRecorder.shared(), eventSink, options)));
+        } catch (IllegalArgumentException e) {
+            promise.reject("Invalid Option", e.getMessage());
         }
     }
 
-    private void sendEvent(String eventName, WritableMap params) {
-        if (reactContext != null) {
-            reactContext
-                    .getJSModule(DeviceEventManagerModule.RCTDeviceEventEmitter.class)
-                    .emit(eventName, params);
-        } else {
-            Log.e(TAG, "React Context is null—cannot emit event!");
+    /** recording, directory, segments, diskBytes, firstSeq, lastSeq, oldestMs, frames, bytes, oversized, writeErrors, segmentsDeleted. */
+    @ReactMethod
+    public void getRecorderStats(Promise promise) {
+        promise.resolve(ReactEventSink.unwrap(FrameRecorder.shared().stats(eventSink)));
+    }
+
+    /** Deletes the recorded segments, resolves with how many. Rejects while recording. */
+    @ReactMethod
+    public void deleteRecording(Promise promise) {
+        try {
+            promise.resolve(FrameRecorder.shared().delete());
+        } catch (IllegalStateException e) {
+            promise.reject("Recorder Busy", e.getMessage());
         }
     }
 
     @ReactMethod
-    public void subscribeToBLENotifications(String serviceUUID, String characteristicUUID, Promise promise) {
-        if (bluetoothGatt == null) {
-            promise.reject("BLE Not Connected", "No active BLE connection.");
+    public void connectToKnownBLEDevice(Promise promise) {
+        connectToBLEDevice(ESP32_DEVICE_ADDRESS, promise);
+    }
+
+    /**
+     * Connects to a peripheral by address. Several devices can be connected at once;
+     * the methods without a deviceId act on the most recently connected one.
+     */
+    @ReactMethod
+    public void connectToBLEDevice(String deviceId, Promise promise) {
+        connectToBLEDeviceWithProfile(deviceId, LinkProfile.BALANCED.jsName, promise);
+    }
+
+    /**
+     * Connects and applies a link profile as soon as the link is up:
+     * "lowPower", "balanced", "highThroughput" or "lowLatency".
+     */
+    @ReactMethod
+    public void connectToBLEDeviceWithProfile(String deviceId, String profileName, Promise promise) {
+        loop.execute(() -> {
+            LinkProfile profile = LinkProfile.fromName(profileName);
+            if (profile == null) {
+                promise.reject("Invalid Profile", "Unknown link profile: " + profileName);
+                return;
+            }
+            if (bluetoothAdapter == null || !BluetoothAdapter.checkBluetoothAddress(deviceId)) {
+                promise.reject("BLE Connect Error", "Invalid device address: " + deviceId);
+                return;
+            }
+
+            BleConnection existing = connections.get(deviceId);
+            if (existing != null && existing.state == BleConnection.State.CONNECTED) {
+                primaryAddress = deviceId;
+                promise.resolve("Already connected to " + deviceId);
+                return;
+            }
+            if (existing != null) {
+                promise.reject("BLE Connect Error", "Connection to " + deviceId + " is already " + existing.state.jsName + ".");
+                return;
+            }
+
+            BleConnection connection = new BleConnection(deviceId, loop.timer());
+            connection.profile = profile;
+            connection.attributes = attributeCache(deviceId);
+            connection.queue.configure(queueMaxDepth, queueTimeoutMs);
+            connection.supervisor = createSupervisor(connection);
+            connection.connectionPromise = promise;  // ✅ Store the promise for later resolution
+            connections.put(deviceId, connection);
+            primaryAddress = deviceId;
+
+            BluetoothDevice device = bluetoothAdapter.getRemoteDevice(deviceId);
+            //bluetoothGatt = device.connectGatt(getReactApplicationContext(), false, gattCallback);
+            connection.connectStartedNanos = System.nanoTime();
+            connection.gatt = device.connectGatt(getReactApplicationContext(), false, new LoopGattCallback(new GattCallback(connection)), BluetoothDevice.TRANSPORT_LE);
+
+            Log.d(TAG, "Attempting to connect to " + deviceId + "...");
+        });
+    }
+
+    private ReconnectSupervisor createSupervisor(BleConnection connection) {
+        ReconnectSupervisor supervisor = new ReconnectSupervisor(
+                () -> loop.execute(() -> reconnectDevice(connection)),
+                (state, attempt, outageMs, nextAttemptMs) -> loop.execute(() -> {
+                    WritableMap params = Arguments.createMap();
+                    params.putString("deviceId", connection.address);
+                    params.putString("state", state.jsName);
+                    params.putInt("attempt", attempt);
+                    params.putDouble("outageMs", outageMs);
+                    params.putDouble("nextAttemptMs", nextAttemptMs);
+                    sendEvent("BLEConnectionState", params);
+                    if (state == ReconnectSupervisor.State.CONNECTED && outageMs > 0) {
+                        connection.metrics.reconnects.incrementAndGet();
+                    }
+                    if (state == ReconnectSupervisor.State.GIVEN_UP) {
+                        connection.state = BleConnection.State.DISCONNECTED;
+                        BluetoothGatt pendingGatt = connection.gatt;
+                        if (pendingGatt != null) {
+                            pendingGatt.close();
+                            connection.gatt = null;
+                        }
+                        connections.remove(connection.address, connection);
+                        BulkTransfer transfer = connection.transfer;
+                        if (transfer != null) {
+                            transfer.abort("BLE Disconnected", "Gave up reconnecting during the transfer.");
+                        }
+                    }
+                }),
+                reconnectScheduler);
+        supervisor.configure(autoReconnect, reconnectBaseDelayMs, reconnectMaxDelayMs, reconnectMaxAttempts);
+        return supervisor;
+    }
+
+    /**
+     * Reconnect behaviour after an unexpected disconnect: enabled, baseDelayMs, maxDelayMs,
+     * maxAttempts (consecutive failures before giving up) and attemptTimeoutMs (how long one
+     * attempt waits for the device). Applies to all connections.
+     */
+    @ReactMethod
+    public void configureReconnect(ReadableMap options) {
+        loop.execute(() -> {
+            if (options.hasKey("enabled")) autoReconnect = options.getBoolean("enabled");
+            if (options.hasKey("baseDelayMs")) reconnectBaseDelayMs = (long) options.getDouble("baseDelayMs");
+            if (options.hasKey("maxDelayMs")) reconnectMaxDelayMs = (long) options.getDouble("maxDelayMs");
+            if (options.hasKey("maxAttempts")) reconnectMaxAttempts = options.getInt("maxAttempts");
+            if (options.hasKey("attemptTimeoutMs")) reconnectAttemptTimeoutMs = (long) options.getDouble("attemptTimeoutMs");
+            for (BleConnection connection : connections.values()) {
+                connection.supervisor.configure(autoReconnect, reconnectBaseDelayMs, reconnectMaxDelayMs, reconnectMaxAttempts);
+            }
+        });
+    }
+
+    @ReactMethod
+    public void disconnectBLE(Promise promise) {
+        disconnectBLEDevice(primaryAddress, promise);
+    }
+
+    @ReactMethod
+    public void disconnectBLEDevice(String deviceId, Promise promise) {
+        loop.execute(() -> {
+            Log.d(TAG, "Attempting to disconnect BLE...");
+            BleConnection connection = connections.get(deviceId);
+            BluetoothGatt gatt = connection != null ? connection.gatt : null;
+            if (connection != null && connection.state != BleConnection.State.CONNECTED) {
+                // Still dialling or waiting to reconnect, just stop trying
+                connection.supervisor.stop();
+                cancelReconnectDeadline(connection);
+                connection.state = BleConnection.State.DISCONNECTED;
+                connections.remove(deviceId, connection);
+                if (gatt != null) {
+                    gatt.close();
+                    connection.gatt = null;
+                }
+                BulkTransfer transfer = connection.transfer;
+                if (transfer != null) {
+                    transfer.abort("BLE Disconnected", "Disconnected during the transfer.");
+                }
+                promise.resolve("ESP32 BLE disconnected.");
+            } else if (gatt != null) {
+                connection.state = BleConnection.State.DISCONNECTING;
+                connection.disconnectPromise = promise; // ✅ Store the promise for later resolution
+                gatt.disconnect();
+            } else {
+                promise.reject("BLE Not Connected", "No active BLE connection to disconnect.");
+            }
+        });
+    }
+
+    /** Lists every known connection with its state, MTU and GATT queue depth. */
+    @ReactMethod
+    public void getConnectedBLEDevices(Promise promise) {
+        loop.execute(() -> {
+            WritableArray devices = Arguments.createArray();
+            for (BleConnection connection : connections.values()) {
+                devices.pushMap(connection.toMap());
+            }
+            promise.resolve(devices);
+        });
+    }
+
+    @ReactMethod
+    public void writeToBLECharacteristic(String serviceUUID, String characteristicUUID, String data, Promise promise) {
+        writeToBLEDeviceCharacteristic(primaryAddress, serviceUUID, characteristicUUID, data, promise);
+    }
+
+    @ReactMethod
+    public void writeToBLEDeviceCharacteristic(String deviceId, String serviceUUID, String characteristicUUID, String data, Promise promise) {
+        // ✅ Text is a thin layer over the binary path, always UTF-8 on the wire
+        writeBytes(deviceId, serviceUUID, characteristicUUID, data.getBytes(StandardCharsets.UTF_8), promise);
+    }
+
+    @ReactMethod
+    public void writeBase64ToBLECharacteristic(String serviceUUID, String characteristicUUID, String base64Data, Promise promise) {
+        writeBase64ToBLEDeviceCharacteristic(primaryAddress, serviceUUID, characteristicUUID, base64Data, promise);
+    }
+
+    @ReactMethod
+    public void writeBase64ToBLEDeviceCharacteristic(String deviceId, String serviceUUID, String characteristicUUID, String base64Data, Promise promise) {
+        byte[] payload = BlePayload.fromBase64(base64Data);
+        if (payload == null) {
+            promise.reject("Invalid Data", "Payload is not valid base64.");
             return;
         }
+        writeBytes(deviceId, serviceUUID, characteristicUUID, payload, promise);
+    }
 
-        BluetoothGattService service = bluetoothGatt.getService(UUID.fromString(serviceUUID));
-        if (service == null) {
-            promise.reject("Service Not Found", "BLE service not found.");
+    private void writeBytes(String deviceId, String serviceUUID, String characteristicUUID, byte[] payload, Promise promise) {
+        loop.execute(() -> {
+            BleConnection connection = connection(deviceId, promise);
+            if (connection == null) return;
+            BluetoothGattCharacteristic characteristic = findCharacteristic(connection, serviceUUID, characteristicUUID, promise);
+            if (characteristic == null) return;
+
+            // ✅ Queued, the promise resolves from onCharacteristicWrite
+            if (connection.queue.enqueue(GattOperationQueue.write(characteristic, payload, promise))) {
+                connection.metrics.sent(payload.length);
+                if (LogLevel.debug()) Log.d(TAG, "Queued BLE write of " + payload.length + " bytes");
+            }
+        });
+    }
+
+    @ReactMethod
+    public void setBLECharacteristicAlias(int alias, String serviceUUID, String characteristicUUID, Promise promise) {
+        setBLEDeviceCharacteristicAlias(primaryAddress, alias, serviceUUID, characteristicUUID, promise);
+    }
+
+    /**
+     * Maps a small integer (0-255) to a characteristic of a device for writeToBLEDeviceAlias.
+     * Aliases are stored per device address, survive reconnects and app restarts, and can be
+     * registered before connecting. Resolves with whether the alias already resolves.
+     */
+    @ReactMethod
+    public void setBLEDeviceCharacteristicAlias(String deviceId, int alias, String serviceUUID, String characteristicUUID, Promise promise) {
+        if (deviceId == null || !BluetoothAdapter.checkBluetoothAddress(deviceId)) {
+            promise.reject("BLE Error", "Invalid device address: " + deviceId);
             return;
         }
+        if (alias < 0 || alias >= GattAttributeCache.MAX_ALIASES) {
+            promise.reject("Invalid Alias", "Alias must be between 0 and " + (GattAttributeCache.MAX_ALIASES - 1) + ".");
+            return;
+        }
+        try {
+            promise.resolve(attributeCache(deviceId).setAlias(alias, serviceUUID, characteristicUUID));
+        } catch (IllegalArgumentException e) {
+            promise.reject("Invalid UUID", e.getMessage());
+        }
+    }
 
-        BluetoothGattCharacteristic characteristic = service.getCharacteristic(UUID.fromString(characteristicUUID));
-        if (characteristic == null) {
-            promise.reject("Characteristic Not Found", "BLE characteristic not found.");
+    @ReactMethod
+    public void removeBLEDeviceCharacteristicAlias(String deviceId, int alias) {
+        if (deviceId != null && alias >= 0 && alias < GattAttributeCache.MAX_ALIASES) {
+            attributeCache(deviceId).removeAlias(alias);
+        }
+    }
+
+    /** Known services, characteristics and aliases of a device, available from storage before connecting. */
+    @ReactMethod
+    public void getBLEDeviceAttributes(String deviceId, Promise promise) {
+        if (deviceId == null || !BluetoothAdapter.checkBluetoothAddress(deviceId)) {
+            promise.reject("BLE Error", "Invalid device address: " + deviceId);
             return;
         }
+        promise.resolve(attributeCache(deviceId).toMap());
+    }
+
+    @ReactMethod
+    public void writeToBLEAlias(int alias, String data, Promise promise) {
+        writeAlias(primaryAddress, alias, data.getBytes(StandardCharsets.UTF_8), promise);
+    }
 
-        int properties = characteristic.getProperties();
-        boolean supportsNotify = (properties & BluetoothGattCharacteristic.PROPERTY_NOTIFY) != 0;
-        boolean supportsIndicate = (properties & BluetoothGattCharacteristic.PROPERTY_INDICATE) != 0;
-        Log.d(TAG, "Characteristic supports notify: " + supportsNotify + ", indicate: " + supportsIndicate);
+    @ReactMethod
+    public void writeToBLEDeviceAlias(String deviceId, int alias, String data, Promise promise) {
+        writeAlias(deviceId, alias, data.getBytes(StandardCharsets.UTF_8), promise);
+    }
 
-        if (!supportsNotify && !supportsIndicate) {
-            promise.reject("Unsupported", "Characteristic does not support notifications or indications.");
+    @ReactMethod
+    public void writeBase64ToBLEDeviceAlias(String deviceId, int alias, String base64Data, Promise promise) {
+        byte[] payload = BlePayload.fromBase64(base64Data);
+        if (payload == null) {
+            promise.reject("Invalid Data", "Payload is not valid base64.");
             return;
         }
+        writeAlias(deviceId, alias, payload, promise);
+    }
+
+    /** Hot write path: no UUID strings, the alias indexes straight into the resolved handles. */
+    private void writeAlias(String deviceId, int alias, byte[] payload, Promise promise) {
+        loop.execute(() -> {
+            BleConnection connection = connection(deviceId, promise);
+            if (connection == null) return;
+            if (alias < 0 || alias >= GattAttributeCache.MAX_ALIASES) {
+                promise.reject("Invalid Alias", "Alias must be between 0 and " + (GattAttributeCache.MAX_ALIASES - 1) + ".");
+                return;
+            }
+            BluetoothGattCharacteristic characteristic = connection.attributes.alias(alias);
+            if (characteristic == null) {
+                if (connection.attributes.hasAlias(alias)) {
+                    promise.reject("Characteristic Not Found", "Alias " + alias + " does not resolve on this connection.");
+                } else {
+                    promise.reject("Invalid Alias", "Alias " + alias + " is not registered.");
+                }
+                return;
+            }
+            if (connection.queue.enqueue(GattOperationQueue.write(characteristic, payload, promise))) {
+                connection.metrics.sent(payload.length);
+            }
+        });
+    }
+
+    @ReactMethod
+    public void readBLECharacteristic(String serviceUUID, String characteristicUUID, Promise promise) {
+        read(primaryAddress, serviceUUID, characteristicUUID, false, promise);
+    }
+
+    @ReactMethod
+    public void readBLECharacteristicBase64(String serviceUUID, String characteristicUUID, Promise promise) {
+        read(primaryAddress, serviceUUID, characteristicUUID, true, promise);
+    }
+
+    @ReactMethod
+    public void readBLEDeviceCharacteristic(String deviceId, String serviceUUID, String characteristicUUID, Promise promise) {
+        read(deviceId, serviceUUID, characteristicUUID, false, promise);
+    }
+
+    @ReactMethod
+    public void readBLEDeviceCharacteristicBase64(String deviceId, String serviceUUID, String characteristicUUID, Promise promise) {
+        read(deviceId, serviceUUID, characteristicUUID, true, promise);
+    }
+
+    private void read(String deviceId, String serviceUUID, String characteristicUUID, boolean binary, Promise promise) {
+        loop.execute(() -> {
+            BleConnection connection = connection(deviceId, promise);
+            if (connection == null) return;
+            BluetoothGattCharacteristic characteristic = findCharacteristic(connection, serviceUUID, characteristicUUID, promise);
+            if (characteristic == null) return;
+
+            connection.queue.enqueue(GattOperationQueue.read(characteristic, binary, promise));
+        });
+    }
+
+    @ReactMethod
+    public void requestBLEMtu(int mtu, Promise promise) {
+        requestBLEDeviceMtu(primaryAddress, mtu, promise);
+    }
+
+    @ReactMethod
+    public void requestBLEDeviceMtu(String deviceId, int mtu, Promise promise) {
+        loop.execute(() -> {
+            BleConnection connection = connection(deviceId, promise);
+            if (connection == null) return;
+            connection.queue.enqueue(GattOperationQueue.requestMtu(mtu, promise));
+        });
+    }
+
+    @ReactMethod
+    public void setBLELinkProfile(String profileName, Promise promise) {
+        setBLEDeviceLinkProfile(primaryAddress, profileName, promise);
+    }
+
+    /**
+     * Switches the link profile of a connected device. Resolves with the link info right away;
+     * the negotiated PHY and interval follow as "BLELinkUpdate" events.
+     */
+    @ReactMethod
+    public void setBLEDeviceLinkProfile(String deviceId, String profileName, Promise promise) {
+        loop.execute(() -> {
+            LinkProfile profile = LinkProfile.fromName(profileName);
+            if (profile == null) {
+                promise.reject("Invalid Profile", "Unknown link profile: " + profileName);
+                return;
+            }
+            BleConnection connection = connection(deviceId, promise);
+            if (connection == null) return;
+            connection.profile = profile;
+            if (!applyLinkProfile(connection, connection.gatt)) {
+                promise.reject("Link Profile Failed", "The stack rejected the connection priority request.");
+                return;
+            }
+            if (profile.maximizeMtu && connection.queue.mtu() < AttLimits.MAX_MTU) {
+                connection.queue.enqueue(GattOperationQueue.requestMtu(AttLimits.MAX_MTU, null));
+            }
+            promise.resolve(connection.linkInfo());
+        });
+    }
+
+    @ReactMethod
+    public void getBLELinkInfo(Promise promise) {
+        getBLEDeviceLinkInfo(primaryAddress, promise);
+    }
+
+    /** Profile, MTU, PHY and connection interval of a device, for correlating with measured throughput. */
+    @ReactMethod
+    public void getBLEDeviceLinkInfo(String deviceId, Promise promise) {
+        loop.execute(() -> {
+            BleConnection connection = connection(deviceId, promise);
+            if (connection == null) return;
+            promise.resolve(connection.linkInfo());
+        });
+    }
+
+    /**
+     * Requests the connection priority and preferred PHY of the connection's profile. PHY
+     * selection needs API 26 and a controller that supports 2M; otherwise the link stays on 1M.
+     */
+    private boolean applyLinkProfile(BleConnection connection, BluetoothGatt gatt) {
+        if (gatt == null) return false;
+        LinkProfile profile = connection.profile;
+        boolean accepted = gatt.requestConnectionPriority(profile.connectionPriority);
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
+            gatt.setPreferredPhy(profile.phyMask, profile.phyMask, BluetoothDevice.PHY_OPTION_NO_PREFERRED);
+        }
+        Log.d(TAG, "Link profile " + profile.jsName + " for " + connection.address + ", priority accepted: " + accepted);
+        return accepted;
+    }
 
-        // Enable local notifications
-        boolean notificationSet = bluetoothGatt.setCharacteristicNotification(characteristic, true);
-        Log.d(TAG, "setCharacteristicNotification result: " + notificationSet);
+    @ReactMethod
+    public void getBLEMtu(Promise promise) {
+        getBLEDeviceMtu(primaryAddress, promise);
+    }
+
+    @ReactMethod
+    public void getBLEDeviceMtu(String deviceId, Promise promise) {
+        loop.execute(() -> {
+            BleConnection connection = connection(deviceId, promise);
+            if (connection == null) return;
+            promise.resolve(connection.queue.mtu());
+        });
+    }
+
+    // ✅ Synchronous state queries: plain field reads, no GATT traffic, safe to call per render
+
+    @ReactMethod(isBlockingSynchronousMethod = true)
+    public boolean isBLEDeviceConnected(String deviceId) {
+        BleConnection connection = deviceId != null ? connections.get(deviceId) : null;
+        return connection != null && connection.state == BleConnection.State.CONNECTED;
+    }
 
-        if (!notificationSet) {
-            promise.reject("Failed", "Failed to set local notification state.");
+    /** connecting, connected, disconnecting or disconnected; disconnected for unknown devices. */
+    @ReactMethod(isBlockingSynchronousMethod = true)
+    public String getBLEDeviceConnectionState(String deviceId) {
+        BleConnection connection = deviceId != null ? connections.get(deviceId) : null;
+        return connection != null ? connection.state.jsName : BleConnection.State.DISCONNECTED.jsName;
+    }
+
+    /** The negotiated MTU, or -1 when the device isn't connected. */
+    @ReactMethod(isBlockingSynchronousMethod = true)
+    public double getBLEDeviceMtuSync(String deviceId) {
+        BleConnection connection = deviceId != null ? connections.get(deviceId) : null;
+        return connection != null && connection.gatt != null ? connection.queue.mtu() : -1;
+    }
+
+    /**
+     * Streams an arbitrarily large payload in MTU-sized chunks. withResponse selects
+     * acknowledged writes, otherwise chunks are sent as write-without-response.
+     */
+    @ReactMethod
+    public void streamToBLECharacteristic(String serviceUUID, String characteristicUUID, String data, boolean withResponse, Promise promise) {
+        streamBytes(primaryAddress, serviceUUID, characteristicUUID, data.getBytes(StandardCharsets.UTF_8), withResponse, promise);
+    }
+
+    @ReactMethod
+    public void streamToBLEDeviceCharacteristic(String deviceId, String serviceUUID, String characteristicUUID, String data, boolean withResponse, Promise promise) {
+        streamBytes(deviceId, serviceUUID, characteristicUUID, data.getBytes(StandardCharsets.UTF_8), withResponse, promise);
+    }
+
+    @ReactMethod
+    public void streamBase64ToBLECharacteristic(String serviceUUID, String characteristicUUID, String base64Data, boolean withResponse, Promise promise) {
+        streamBase64ToBLEDeviceCharacteristic(primaryAddress, serviceUUID, characteristicUUID, base64Data, withResponse, promise);
+    }
+
+    @ReactMethod
+    public void streamBase64ToBLEDeviceCharacteristic(String deviceId, String serviceUUID, String characteristicUUID, String base64Data, boolean withResponse, Promise promise) {
+        byte[] payload = BlePayload.fromBase64(base64Data);
+        if (payload == null) {
+            promise.reject("Invalid Data", "Payload is not valid base64.");
             return;
         }
-        // Check for CCCD descriptor
-        BluetoothGattDescriptor descriptor = characteristic.getDescriptor(UUID.fromString(CLIENT_CHARACTERISTIC_CONFIG_DESCRIPTOR));
+        streamBytes(deviceId, serviceUUID, characteristicUUID, payload, withResponse, promise);
+    }
+
+    private void streamBytes(String deviceId, String serviceUUID, String characteristicUUID, byte[] payload, boolean withResponse, Promise promise) {
+        loop.execute(() -> {
+            BleConnection connection = connection(deviceId, promise);
+            if (connection == null) return;
+            BluetoothGattCharacteristic characteristic = findCharacteristic(connection, serviceUUID, characteristicUUID, promise);
+            if (characteristic == null) return;
+
+            int required = withResponse ? BluetoothGattCharacteristic.PROPERTY_WRITE : BluetoothGattCharacteristic.PROPERTY_WRITE_NO_RESPONSE;
+            if ((characteristic.getProperties() & required) == 0) {
+                promise.reject("Unsupported", "Characteristic does not support " + (withResponse ? "write." : "write without response."));
+                return;
+            }
+
+            if (payload.length == 0) {
+                promise.reject("Write Failed", "Nothing to write.");
+                return;
+            }
+            if (connection.queue.enqueue(GattOperationQueue.writeChunked(characteristic, payload, withResponse, promise))) {
+                connection.metrics.sent(payload.length);
+            }
+        });
+    }
 
-        if (descriptor == null) {
-            Log.w(TAG, "CCCD descriptor not found. Notifications may not work properly.");
-            promise.resolve("Subscribed without CCCD descriptor (may not work reliably).");
+    /**
+     * Sends a file ({ path }) or buffer ({ base64 }) with the bulk transfer protocol (see
+     * BulkProtocol): windowed blocks with a CRC each, a CRC over the whole image, and
+     * after a reconnect the transfer continues from the device's last acknowledged block.
+     * Progress arrives as "BLETransferProgress" events, at most every progressIntervalMs.
+     * Options are listed in TransferOptions. One transfer per device at a time.
+     */
+    @ReactMethod
+    public void uploadToBLEDevice(String deviceId, String serviceUUID, String controlUUID, String dataUUID,
+                                  ReadableMap source, ReadableMap options, Promise promise) {
+        ByteBuffer buffer;
+        try {
+            buffer = TransferOptions.source(source);
+        } catch (IOException e) {
+            promise.reject("File Error", e.getMessage());
+            return;
+        }
+        if (buffer == null || !buffer.hasRemaining()) {
+            promise.reject("Invalid Data", "Source needs a path or non-empty base64 data.");
             return;
         }
+        startTransfer(deviceId, serviceUUID, controlUUID, dataUUID, options, buffer, null, promise);
+    }
+
+    /**
+     * Fetches an image from the device. With options.path it goes to that file, and a
+     * partial file left by an earlier attempt is resumed; without, the result carries
+     * the image as base64 "data".
+     */
+    @ReactMethod
+    public void downloadFromBLEDevice(String deviceId, String serviceUUID, String controlUUID, String dataUUID,
+                                      ReadableMap options, Promise promise) {
+        File file = TransferOptions.target(options);
+        BulkTransfer.Target target = file != null ? new BulkTransfer.FileTarget(file) : new BulkTransfer.MemoryTarget();
+        startTransfer(deviceId, serviceUUID, controlUUID, dataUUID, options, null, target, promise);
+    }
+
+    @ReactMethod
+    public void cancelBLETransfer(String deviceId, Promise promise) {
+        loop.execute(() -> {
+            BleConnection connection = deviceId != null ? connections.get(deviceId) : null;
+            BulkTransfer transfer = connection != null ? connection.transfer : null;
+            if (transfer == null) {
+                promise.reject("No Transfer", "No transfer running for " + deviceId + ".");
+                return;
+            }
+            transfer.cancel();
+            promise.resolve(null);
+        });
+    }
 
-        // Set descriptor value depending on notify or indicate support
-        descriptor.setValue(supportsIndicate ? BluetoothGattDescriptor.ENABLE_INDICATION_VALUE : BluetoothGattDescriptor.ENABLE_NOTIFICATION_VALUE);
+    /** Same fields as the progress event, or null when no transfer is running. */
+    @ReactMethod
+    public void getBLETransferStatus(String deviceId, Promise promise) {
+        loop.execute(() -> {
+            BleConnection connection = deviceId != null ? connections.get(deviceId) : null;
+            BulkTransfer transfer = connection != null ? connection.transfer : null;
+            if (transfer == null) {
+                promise.resolve(null);
+                return;
+            }
+            EventSink.EventMap status = eventSink.createMap();
+            transfer.writeStatus(status);
+            promise.resolve(ReactEventSink.unwrap(status));
+        });
+    }
+
+    private void startTransfer(String deviceId, String serviceUUID, String controlUUID, String dataUUID, ReadableMap options,
+                               ByteBuffer source, BulkTransfer.Target target, Promise promise) {
+        loop.execute(() -> {
+            BleConnection connection = connection(deviceId, promise);
+            if (connection == null) return;
+            if (connection.transfer != null) {
+                promise.reject("Transfer In Progress", "A transfer to " + deviceId + " is already running.");
+                return;
+            }
+            BluetoothGattCharacteristic control = findCharacteristic(connection, serviceUUID, controlUUID, promise);
+            if (control == null) return;
+            BluetoothGattCharacteristic data = findCharacteristic(connection, serviceUUID, dataUUID, promise);
+            if (data == null) return;
+
+            // Replies come back on the control characteristic, download data on the data characteristic
+            UUID serviceId = control.getService().getUuid();
+            boolean controlSubscribed = connection.subscriptions.containsKey(control.getUuid());
+            boolean dataSubscribed = connection.subscriptions.containsKey(data.getUuid());
+            if (!enableNotifications(connection, connection.gatt, control)
+                    || (target != null && !enableNotifications(connection, connection.gatt, data))) {
+                promise.reject("Failed", "Failed to set local notification state.");
+                return;
+            }
+            connection.subscriptions.put(control.getUuid(), serviceId);
+            if (target != null) {
+                connection.subscriptions.put(data.getUuid(), serviceId);
+            }
 
-        subscribePromise = promise;  // 🔑 store promise for callback
+            // Called on the transfer thread, the connection's fields are only written on the loop
+            Callback done = new Callback() {
+                @Override
+                public void resolve(Object value) {
+                    loop.execute(() -> {
+                        release();
+                        EventSink.EventMap result = (EventSink.EventMap) value;
+                        if (target instanceof BulkTransfer.MemoryTarget) {
+                            result.putString("data", BlePayload.toBase64(((BulkTransfer.MemoryTarget) target).toByteArray()));
+                        }
+                        promise.resolve(ReactEventSink.unwrap(result));
+                    });
+                }
 
-        // Write the descriptor to enable notifications on the peripheral
-        boolean writeDescriptorStarted = bluetoothGatt.writeDescriptor(descriptor);
-        Log.d(TAG, "Started writing descriptor: " + writeDescriptorStarted);
+                @Override
+                public void reject(String code, String message) {
+                    loop.execute(() -> {
+                        release();
+                        promise.reject(code, message);
+                    });
+                }
 
-        // IMPORTANT: The writeDescriptor is asynchronous.
-        // Listen for onDescriptorWrite() callback to confirm success.
+                private void release() {
+                    if (!controlSubscribed) connection.subscriptions.remove(control.getUuid());
+                    if (!dataSubscribed) connection.subscriptions.remove(data.getUuid());
+                    connection.transfer = null;
+                    connection.transferControl = null;
+                    connection.transferData = null;
+                }
+            };
+
+            BleTransferLink link = new BleTransferLink(loop, connection, serviceUUID, controlUUID, dataUUID);
+            BulkTransfer transfer = source != null
+                    ? BulkTransfer.upload(connection.address, source, link, eventSink, transferTimer(), done)
+                    : BulkTransfer.download(connection.address, target, link, eventSink, transferTimer(), done);
+            TransferOptions.apply(transfer, options);
+            connection.transferControl = control.getUuid();
+            connection.transferData = data.getUuid();
+            connection.transfer = transfer;
+            Log.d(TAG, "Starting " + transfer.direction.jsName + " with " + connection.address);
+            transfer.start();
+        });
+    }
 
-        if (!writeDescriptorStarted) {
-            subscribePromise = null;
-            promise.reject("Descriptor Write Failed", "Failed to start descriptor write.");
+    private synchronized Timer transferTimer() {
+        if (transferTimer == null) {
+            transferThread = new HandlerThread("BleTransfer");
+            transferThread.start();
+            transferTimer = new HandlerTimer(transferThread.getLooper());
         }
+        return transferTimer;
+    }
+
+    /** Applies to connections opened after this call as well as existing ones. */
+    @ReactMethod
+    public void configureGattQueue(int maxDepth, int timeoutMs) {
+        loop.execute(() -> {
+            queueMaxDepth = maxDepth;
+            queueTimeoutMs = timeoutMs;
+            for (BleConnection connection : connections.values()) {
+                connection.queue.configure(maxDepth, timeoutMs);
+            }
+        });
+    }
+
+    @ReactMethod
+    public void getGattQueueStatus(Promise promise) {
+        loop.execute(() -> {
+            BleConnection connection = connection(primaryAddress, promise);
+            if (connection == null) return;
+            WritableMap status = Arguments.createMap();
+            status.putInt("depth", connection.queue.depth());
+            status.putInt("maxDepth", connection.queue.maxDepth());
+            promise.resolve(status);
+        });
+    }
+
+    /** Looks up a live connection, rejecting the promise and returning null if there isn't one. */
+    private BleConnection connection(String deviceId, Promise promise) {
+        BleConnection connection = deviceId != null ? connections.get(deviceId) : null;
+        if (connection == null || connection.gatt == null) {
+            promise.reject("BLE Not Connected", "No active BLE connection.");
+            return null;
+        }
+        return connection;
+    }
+
+    private GattAttributeCache attributeCache(String deviceId) {
+        return attributeCaches.computeIfAbsent(deviceId, address -> new GattAttributeCache(address,
+                getReactApplicationContext().getSharedPreferences(GattAttributeCache.PREFS_NAME, Context.MODE_PRIVATE)));
+    }
+
+    /** Resolves a characteristic on a connection, rejecting the promise and returning null if it can't. */
+    private BluetoothGattCharacteristic findCharacteristic(BleConnection connection, String serviceUUID, String characteristicUUID, Promise promise) {
+        BluetoothGatt gatt = connection.gatt;
+        if (gatt == null) {
+            promise.reject("BLE Not Connected", "No active BLE connection.");
+            return null;
+        }
+
+        BluetoothGattCharacteristic characteristic;
+        try {
+            characteristic = connection.attributes.resolve(serviceUUID, characteristicUUID);
+        } catch (IllegalArgumentException e) {
+            promise.reject("Invalid UUID", e.getMessage());
+            return null;
+        }
+        if (characteristic != null) {
+            return characteristic;
+        }
+
+        // Miss: work out which part is missing for the error
+        if (!connection.attributes.isBound()) {
+            promise.reject("Services Not Discovered", "BLE service discovery has not completed.");
+        } else if (gatt.getService(GattAttributeCache.uuid(serviceUUID)) == null) {
+            promise.reject("Service Not Found", "BLE service not found.");
+        } else {
+            promise.reject("Characteristic Not Found", "BLE characteristic not found.");
+        }
+        return null;
+    }
+
+    /**
+     * One reconnect attempt, run by the supervisor. autoConnect lets the controller wait in
+     * the background until the device advertises again instead of timing out after ~30 s,
+     * but it never reports a failure, so each attempt gets its own deadline. When it passes
+     * the attempt counts as failed and the supervisor backs off or gives up.
+     */
+    private void reconnectDevice(BleConnection connection) {
+        Log.d(TAG, "Attempting to reconnect to " + connection.address + "...");
+        connection.metrics.reconnectAttempts.incrementAndGet();
+        connection.connectStartedNanos = 0;  // autoConnect waits for the device, not a connect time
+        BluetoothDevice device = bluetoothAdapter.getRemoteDevice(connection.address);
+        BluetoothGatt gatt = device.connectGatt(getReactApplicationContext(), true, new LoopGattCallback(new GattCallback(connection)), BluetoothDevice.TRANSPORT_LE);
+
+        if (gatt == null) {
+            Log.e(TAG, "Reconnect failed!");
+            connection.supervisor.onConnectFailed();
+            return;
+        }
+        connection.gatt = gatt;
+
+        connection.reconnectDeadline = new Runnable() {
+            @Override
+            public void run() {
+                if (connection.reconnectDeadline != this || connection.gatt != gatt) return;  // superseded
+                connection.reconnectDeadline = null;
+                Log.d(TAG, "Reconnect attempt to " + connection.address + " timed out");
+                gatt.close();  // no callback follows a close, report the failure ourselves
+                connection.gatt = null;
+                connection.supervisor.onConnectFailed();
+            }
+        };
+        loop.timer().schedule(connection.reconnectDeadline, reconnectAttemptTimeoutMs);
+    }
+
+    private void cancelReconnectDeadline(BleConnection connection) {
+        Runnable deadline = connection.reconnectDeadline;
+        if (deadline != null) {
+            loop.timer().cancel(deadline);
+            connection.reconnectDeadline = null;
+        }
+    }
+
+    /** Re-enables every notification that was active before the link dropped. */
+    private void resubscribe(BleConnection connection) {
+        BluetoothGatt gatt = connection.gatt;
+        if (gatt == null) return;
+        for (Map.Entry<UUID, UUID> subscription : connection.subscriptions.entrySet()) {
+            BluetoothGattService service = gatt.getService(subscription.getValue());
+            BluetoothGattCharacteristic characteristic = service != null ? service.getCharacteristic(subscription.getKey()) : null;
+            if (characteristic == null) continue;
+            enableNotifications(connection, gatt, characteristic);
+        }
+    }
+
+    /** Local notification state plus a queued CCCD write, without a promise. */
+    private boolean enableNotifications(BleConnection connection, BluetoothGatt gatt, BluetoothGattCharacteristic characteristic) {
+        if (!gatt.setCharacteristicNotification(characteristic, true)) return false;
+        BluetoothGattDescriptor descriptor = characteristic.getDescriptor(CCCD_UUID);
+        if (descriptor != null) {
+            boolean indicate = (characteristic.getProperties() & BluetoothGattCharacteristic.PROPERTY_INDICATE) != 0;
+            connection.queue.enqueue(GattOperationQueue.writeDescriptor(descriptor,
+                    indicate ? BluetoothGattDescriptor.ENABLE_INDICATION_VALUE : BluetoothGattDescriptor.ENABLE_NOTIFICATION_VALUE,
+                    null, null));
+        }
+        return true;
+    }
+
+    private void sendEvent(String eventName, WritableMap params) {
+        if (reactContext != null) {
+            reactContext
+                    .getJSModule(DeviceEventManagerModule.RCTDeviceEventEmitter.class)
+                    .emit(eventName, params);
+        } else {
+            Log.e(TAG, "React Context is null—cannot emit event!");
+        }
+    }
+
+    @ReactMethod
+    public void subscribeToBLENotifications(String serviceUUID, String characteristicUUID, Promise promise) {
+        subscribe(primaryAddress, serviceUUID, characteristicUUID, false, promise);
+    }
+
+    /** Like subscribeToBLENotifications, but events carry the raw bytes as base64 in "data". */
+    @ReactMethod
+    public void subscribeToBLENotificationsBase64(String serviceUUID, String characteristicUUID, Promise promise) {
+        subscribe(primaryAddress, serviceUUID, characteristicUUID, true, promise);
+    }
+
+    @ReactMethod
+    public void subscribeToBLEDeviceNotifications(String deviceId, String serviceUUID, String characteristicUUID, Promise promise) {
+        subscribe(deviceId, serviceUUID, characteristicUUID, false, promise);
+    }
+
+    @ReactMethod
+    public void subscribeToBLEDeviceNotificationsBase64(String deviceId, String serviceUUID, String characteristicUUID, Promise promise) {
+        subscribe(deviceId, serviceUUID, characteristicUUID, true, promise);
+    }
+
+    private void subscribe(String deviceId, String serviceUUID, String characteristicUUID, boolean binary, Promise promise) {
+        loop.execute(() -> {
+            BleConnection connection = connection(deviceId, promise);
+            if (connection == null) return;
+            BluetoothGattCharacteristic characteristic = findCharacteristic(connection, serviceUUID, characteristicUUID, promise);
+            if (characteristic == null) return;
+
+            int properties = characteristic.getProperties();
+            boolean supportsNotify = (properties & BluetoothGattCharacteristic.PROPERTY_NOTIFY) != 0;
+            boolean supportsIndicate = (properties & BluetoothGattCharacteristic.PROPERTY_INDICATE) != 0;
+            Log.d(TAG, "Characteristic supports notify: " + supportsNotify + ", indicate: " + supportsIndicate);
+
+            if (!supportsNotify && !supportsIndicate) {
+                promise.reject("Unsupported", "Characteristic does not support notifications or indications.");
+                return;
+            }
+
+            if (binary) {
+                connection.binaryCharacteristics.put(characteristic.getUuid(), characteristic.getUuid().toString());
+            } else {
+                connection.binaryCharacteristics.remove(characteristic.getUuid());
+            }
+
+            // Enable local notifications
+            boolean notificationSet = connection.gatt.setCharacteristicNotification(characteristic, true);
+            Log.d(TAG, "setCharacteristicNotification result: " + notificationSet);
+
+            if (!notificationSet) {
+                promise.reject("Failed", "Failed to set local notification state.");
+                return;
+            }
+            connection.subscriptions.put(characteristic.getUuid(), characteristic.getService().getUuid());
+            // Check for CCCD descriptor
+            BluetoothGattDescriptor descriptor = characteristic.getDescriptor(CCCD_UUID);
+
+            if (descriptor == null) {
+                Log.w(TAG, "CCCD descriptor not found. Notifications may not work properly.");
+                promise.resolve("Subscribed without CCCD descriptor (may not work reliably).");
+                return;
+            }
+
+            // Set descriptor value depending on notify or indicate support
+            byte[] value = supportsIndicate ? BluetoothGattDescriptor.ENABLE_INDICATION_VALUE : BluetoothGattDescriptor.ENABLE_NOTIFICATION_VALUE;
+
+            // IMPORTANT: The writeDescriptor is asynchronous.
+            // The queue resolves the promise from the onDescriptorWrite() callback.
+            connection.queue.enqueue(GattOperationQueue.writeDescriptor(descriptor, value,
+                    "Successfully subscribed to BLE notifications.", promise));
+        });
     }
 
     @ReactMethod
     public void unsubscribeFromBLENotifications(String serviceUUID, String characteristicUUID, Promise promise) {
-        Log.d(TAG, "Started unsubscribe..... ");
-        if (bluetoothGatt != null) {
-            BluetoothGattService service = bluetoothGatt.getService(UUID.fromString(serviceUUID));
-            if (service != null) {
-                BluetoothGattCharacteristic characteristic = service.getCharacteristic(UUID.fromString(characteristicUUID));
+        unsubscribeFromBLEDeviceNotifications(primaryAddress, serviceUUID, characteristicUUID, promise);
+    }
+
+    @ReactMethod
+    public void unsubscribeFromBLEDeviceNotifications(String deviceId, String serviceUUID, String characteristicUUID, Promise promise) {
+        loop.execute(() -> {
+            Log.d(TAG, "Started unsubscribe..... ");
+            BleConnection connection = deviceId != null ? connections.get(deviceId) : null;
+            BluetoothGatt gatt = connection != null ? connection.gatt : null;
+            if (gatt != null) {
+                BluetoothGattCharacteristic characteristic;
+                try {
+                    characteristic = connection.attributes.resolve(serviceUUID, characteristicUUID);
+                } catch (IllegalArgumentException e) {
+                    promise.reject("Invalid UUID", e.getMessage());
+                    return;
+                }
                 if (characteristic != null) {
-                    bluetoothGatt.setCharacteristicNotification(characteristic, false); // ✅ Stop notifications
+                    gatt.setCharacteristicNotification(characteristic, false); // ✅ Stop notifications
+                    connection.binaryCharacteristics.remove(characteristic.getUuid());
+                    connection.subscriptions.remove(characteristic.getUuid());
                     promise.resolve("Unsubscribed from BLE notifications");
                     Log.d(TAG, "Unsubscribed from BLE notifications");
                     return;
                 }
             }
-        }
-        Log.d(TAG, "Could not unsubscribe from notifications");
-        promise.reject("BLE Error", "Could not unsubscribe from notifications");
+            Log.d(TAG, "Could not unsubscribe from notifications");
+            promise.reject("BLE Error", "Could not unsubscribe from notifications");
+        });
     }
 
 }
@@ -0,0 +1,108 @@
+package com.jbluepack;
+
+import com.facebook.react.bridge.Arguments;
+import com.facebook.react.bridge.Promise;
+import com.facebook.react.bridge.WritableMap;
+
+import android.bluetooth.BluetoothDevice;
+import android.bluetooth.BluetoothGatt;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Per-device state for one GATT client connection. Each connection has its own
+ * operation queue, so commands to different peripherals run in parallel.
+ *
+ * Owned by BLEModule's event loop: fields are only written there. The volatile ones are
+ * also read by the synchronous getters and the transfer thread.
+ */
+class BleConnection {
+
+    enum State {
+        CONNECTING("connecting"),
+        CONNECTED("connected"),
+        DISCONNECTING("disconnecting"),
+        DISCONNECTED("disconnected");
+
+        final String jsName;
+
+        State(String jsName) {
+            this.jsName = jsName;
+        }
+    }
+
+    final String address;
+    final GattOperationQueue queue;
+    // Characteristics subscribed in binary mode, mapped to their UUID string so events don't rebuild it per packet
+    final Map<UUID, String> binaryCharacteristics = new ConcurrentHashMap<>();
+    // Active subscriptions (characteristic -> service), restored after a reconnect
+    final Map<UUID, UUID> subscriptions = new ConcurrentHashMap<>();
+    // Characteristics delivered through the notification ring instead of events
+    final Set<UUID> bufferedCharacteristics = ConcurrentHashMap.newKeySet();
+
+    volatile BluetoothGatt gatt;
+    volatile State state = State.CONNECTING;
+    Promise connectionPromise;  // loop only, like everything not volatile
+    Promise disconnectPromise;
+    ReconnectSupervisor supervisor;
+    GattAttributeCache attributes;
+    final Metrics.Device metrics;
+    long connectStartedNanos;  // 0 for autoConnect reconnects, which wait for the device to advertise
+    Runnable reconnectDeadline;  // pending on the loop timer while a reconnect attempt waits
+    long discoveryStartedNanos;
+
+    // Bulk transfer in progress, and the characteristics its notifications arrive on
+    volatile BulkTransfer transfer;
+    volatile UUID transferControl;
+    volatile UUID transferData;
+
+    // Link parameters, requested by profile and reported back by the stack
+    volatile LinkProfile profile = LinkProfile.BALANCED;
+    volatile int txPhy = BluetoothDevice.PHY_LE_1M;
+    volatile int rxPhy = BluetoothDevice.PHY_LE_1M;
+    volatile int intervalUnits;  // 1.25 ms units, 0 until the controller reports a connection update
+    volatile int peripheralLatency;
+    volatile int supervisionTimeoutUnits;  // 10 ms units
+
+    BleConnection(String address, Timer loopTimer) {
+        this.address = address;
+        this.queue = new GattOperationQueue(loopTimer);
+        this.metrics = Metrics.shared().device(address);
+    }
+
+    WritableMap toMap() {
+        WritableMap map = Arguments.createMap();
+        map.putString("deviceId", address);
+        map.putString("state", state.jsName);
+        if (supervisor != null) {
+            map.putString("link", supervisor.state().jsName);
+        }
+        map.putInt("mtu", queue.mtu());
+        map.putInt("queueDepth", queue.depth());
+        BulkTransfer current = transfer;
+        if (current != null) {
+            map.putString("transfer", current.state().jsName);
+        }
+        return map;
+    }
+
+    /** Current link parameters. intervalMs is -1 until the stack has reported the negotiated interval. */
+    WritableMap linkInfo() {
+        WritableMap map = Arguments.createMap();
+        map.putString("deviceId", address);
+        map.putString("profile", profile.jsName);
+        map.putInt("mtu", queue.mtu());
+        map.putString("txPhy", LinkProfile.phyName(txPhy));
+        map.putString("rxPhy", LinkProfile.phyName(rxPhy));
+        int interval = intervalUnits;
+        map.putDouble("intervalMs", interval > 0 ? interval * 1.25 : -1);
+        map.putDouble("requestedIntervalMinMs", profile.intervalMinMs);
+        map.putDouble("requestedIntervalMaxMs", profile.intervalMaxMs);
+        map.putInt("peripheralLatency", peripheralLatency);
+        map.putInt("supervisionTimeoutMs", supervisionTimeoutUnits * 10);
+        return map;
+    }
+}
@@ -0,0 +1,134 @@
+package com.jbluepack;
+
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Process;
+import android.util.Log;
+
+import com.facebook.react.bridge.Arguments;
+import com.facebook.react.bridge.WritableMap;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * The one thread that owns BLEModule's connection state. GATT callbacks (binder threads),
+ * JS calls (the native-modules thread), reconnect attempts and GATT queue timeouts hand
+ * their work over through a lock-free queue and run here one at a time, so a callback
+ * can never interleave with the call that started the operation.
+ *
+ * Producers only post a Handler message when the loop goes from idle to busy, so a burst
+ * of notifications costs one MessageQueue wakeup, not one per packet. A drain runs at most
+ * MAX_BATCH tasks before yielding, so timers on the same looper aren't starved.
+ */
+final class BleEventLoop {
+
+    private static final String TAG = "BleEventLoop";
+    private static final int MAX_BATCH = 64;
+
+    private final HandlerThread thread;
+    private final Handler handler;
+    private final Timer timer;
+    private final ConcurrentLinkedQueue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+    private final Runnable drain = this::drain;
+    private volatile long wakeRequestedNanos;
+
+    // Loop thread only
+    private long executed;
+    private long drains;
+    private long failures;
+    private int maxBatch;
+    private long maxWakeLagNanos;
+    private long maxTaskNanos;
+
+    BleEventLoop(String name) {
+        thread = new HandlerThread(name, Process.THREAD_PRIORITY_MORE_FAVORABLE);
+        thread.start();
+        handler = new Handler(thread.getLooper());
+        timer = new HandlerTimer(thread.getLooper());
+    }
+
+    /** Timer whose tasks run on the loop, for queue timeouts and other delayed loop work. */
+    Timer timer() {
+        return timer;
+    }
+
+    boolean inLoop() {
+        return Thread.currentThread() == thread;
+    }
+
+    /** Runs the task right away when already on the loop, otherwise hands it over. */
+    void execute(Runnable task) {
+        if (inLoop()) {
+            task.run();
+        } else {
+            post(task);
+        }
+    }
+
+    /** Always queues, even from the loop itself, e.g. to finish the current callback first. */
+    void post(Runnable task) {
+        tasks.offer(task);
+        wake();
+    }
+
+    /** Only meaningful on the loop: executed tasks, drains, failures, batch size and worst lags. */
+    WritableMap stats() {
+        WritableMap stats = Arguments.createMap();
+        stats.putInt("pending", tasks.size());
+        stats.putDouble("executed", executed);
+        stats.putDouble("drains", drains);
+        stats.putDouble("failures", failures);
+        stats.putInt("maxBatch", maxBatch);
+        stats.putDouble("maxWakeLagMs", maxWakeLagNanos / 1_000_000.0);
+        stats.putDouble("maxTaskMs", maxTaskNanos / 1_000_000.0);
+        return stats;
+    }
+
+    void resetStats() {
+        executed = 0;
+        drains = 0;
+        failures = 0;
+        maxBatch = 0;
+        maxWakeLagNanos = 0;
+        maxTaskNanos = 0;
+    }
+
+    void quit() {
+        thread.quitSafely();
+    }
+
+    private void wake() {
+        if (scheduled.compareAndSet(false, true)) {
+            wakeRequestedNanos = System.nanoTime();
+            handler.post(drain);
+        }
+    }
+
+    private void drain() {
+        long started = System.nanoTime();
+        maxWakeLagNanos = Math.max(maxWakeLagNanos, started - wakeRequestedNanos);
+        // Cleared before polling: a task offered from here on either gets polled below or wakes another drain
+        scheduled.set(false);
+        drains++;
+        int batch = 0;
+        Runnable task;
+        while (batch < MAX_BATCH && (task = tasks.poll()) != null) {
+            long taskStarted = System.nanoTime();
+            try {
+                task.run();
+            } catch (RuntimeException e) {
+                failures++;
+                Log.e(TAG, "BLE task failed", e);
+            }
+            maxTaskNanos = Math.max(maxTaskNanos, System.nanoTime() - taskStarted);
+            batch++;
+        }
+        executed += batch;
+        maxBatch = Math.max(maxBatch, batch);
+        if (!tasks.isEmpty()) {
+            wake();  // yield to the looper's timers, then carry on
+        }
+    }
+}
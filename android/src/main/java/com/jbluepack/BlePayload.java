@@ -0,0 +1,34 @@
+package com.jbluepack;
+
+import android.util.Base64;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Conversions between raw GATT values and what crosses the React Native bridge.
+ * Binary payloads travel as base64, text payloads are always UTF-8.
+ */
+final class BlePayload {
+    private static final byte[] EMPTY = new byte[0];
+
+    private BlePayload() {
+    }
+
+    /** Returns the decoded bytes, or null if the string is not valid base64. */
+    static byte[] fromBase64(String base64) {
+        if (base64 == null) return null;
+        try {
+            return Base64.decode(base64, Base64.NO_WRAP);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    static String toBase64(byte[] value) {
+        return Base64Encoder.encode(value != null ? value : EMPTY);
+    }
+
+    static String toText(byte[] value) {
+        return value != null ? new String(value, StandardCharsets.UTF_8) : "";
+    }
+}
@@ -0,0 +1,55 @@
+package com.jbluepack;
+
+import android.bluetooth.BluetoothGattCharacteristic;
+
+/**
+ * BulkTransfer's link on a BLE connection: control messages are written with response,
+ * upload data without, both through the connection's GATT queue. Characteristics are
+ * resolved per write because a reconnect brings a new BluetoothGatt and new handles.
+ * BulkTransfer calls in on its own thread; every write is handed to the event loop, which
+ * owns the connection.
+ */
+final class BleTransferLink implements BulkTransfer.Link {
+
+    private final BleEventLoop loop;
+    private final BleConnection connection;
+    private final String serviceUUID;
+    private final String controlUUID;
+    private final String dataUUID;
+
+    BleTransferLink(BleEventLoop loop, BleConnection connection, String serviceUUID, String controlUUID, String dataUUID) {
+        this.loop = loop;
+        this.connection = connection;
+        this.serviceUUID = serviceUUID;
+        this.controlUUID = controlUUID;
+        this.dataUUID = dataUUID;
+    }
+
+    @Override
+    public void sendControl(byte[] message, Callback callback) {
+        loop.execute(() -> write(controlUUID, message, BluetoothGattCharacteristic.WRITE_TYPE_DEFAULT, callback));
+    }
+
+    @Override
+    public void sendData(byte[] packet, Callback callback) {
+        loop.execute(() -> {
+            if (write(dataUUID, packet, BluetoothGattCharacteristic.WRITE_TYPE_NO_RESPONSE, callback)) {
+                connection.metrics.sent(packet.length);
+            }
+        });
+    }
+
+    @Override
+    public int maxPacketSize() {
+        return connection.queue.maxValueLength();
+    }
+
+    private boolean write(String characteristicUUID, byte[] value, int writeType, Callback callback) {
+        BluetoothGattCharacteristic characteristic = connection.attributes.resolve(serviceUUID, characteristicUUID);
+        if (characteristic == null) {
+            callback.reject("Characteristic Not Found", "BLE characteristic not found.");
+            return false;
+        }
+        return connection.queue.enqueue(GattOperationQueue.write(characteristic, value, writeType, callback));
+    }
+}
@@ -8,33 +8,123 @@ import com.facebook.react.bridge.ReactApplicationContext;
 import com.facebook.react.bridge.ReactContextBaseJavaModule;
 import com.facebook.react.bridge.ReactMethod;
 import com.facebook.react.bridge.Promise;
+import com.facebook.react.bridge.ReadableArray;
+import com.facebook.react.bridge.ReadableMap;
 import com.facebook.react.modules.core.DeviceEventManagerModule;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
-import java.io.BufferedReader;
-import java.io.InputStreamReader;
+import java.io.Closeable;
 import java.io.IOException;
-import java.io.OutputStream;
 import java.io.InputStream;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.nio.charset.StandardCharsets;
+import android.os.Looper;
 import android.util.Log;
+import android.util.Base64;
 import android.bluetooth.BluetoothDevice;
 import android.bluetooth.BluetoothAdapter;
-import android.bluetooth.BluetoothDevice;
+import android.bluetooth.BluetoothServerSocket;
 import android.bluetooth.BluetoothSocket;
 
 
 public class BluetoothModule extends ReactContextBaseJavaModule {
 
     private BluetoothAdapter bluetoothAdapter;
-    private BluetoothSocket bluetoothSocket;
-    private String lastConnectedDeviceAddress;
+    // ✅ One RFCOMM link per device address, dialled out or accepted by the server
+    private final Map<String, RfcommConnection> connections = new ConcurrentHashMap<>();
+    // First dials still connecting, by address; reconnects are tracked on their connection
+    private final Map<String, RfcommConnectAttempt> dialing = new ConcurrentHashMap<>();
+    // Target of the methods without a deviceId: the most recently connected device
+    private volatile String primaryAddress;
+    private volatile boolean listening;
+    private volatile BluetoothServerSocket serverSocket;
+    private volatile int serverMaxConnections;
+
+    // Reconnect backoff and connect timeouts, both short tasks: the dials themselves run on ioPool
+    private final ScheduledExecutorService reconnectScheduler = Executors.newSingleThreadScheduledExecutor();
+    private boolean autoReconnect = true;
+    private long reconnectBaseDelayMs = ReconnectSupervisor.DEFAULT_BASE_DELAY_MS;
+    private long reconnectMaxDelayMs = ReconnectSupervisor.DEFAULT_MAX_DELAY_MS;
+    private int reconnectMaxAttempts = ReconnectSupervisor.DEFAULT_MAX_ATTEMPTS;
 
     private static final String TAG = "BlutoothModule";
     private static final String EVENT_TAG = "BluetoothData";
+    private static final String FRAME_EVENT_TAG = "BluetoothFrame";
+    private static final int READ_BUFFER_SIZE = 8192;
+    // A piconet has at most 7 active peripherals
+    static final int MAX_CONNECTIONS = 7;
+
+    /**
+     * Blocking socket I/O needs a thread per stream: a reader and a writer per connection, the
+     * dials in progress and the accept loop. Threads are reused and idle ones exit after 30 s.
+     */
+    private final ThreadPoolExecutor ioPool = new ThreadPoolExecutor(0, MAX_CONNECTIONS * 3 + 1,
+            30, TimeUnit.SECONDS, new SynchronousQueue<>(), new IoThreadFactory());
+
+    private interface FramerFactory {
+        StreamFramer create();
+    }
+
+    // Framers keep partial frames, so every connection gets its own from the current factory
+    private volatile FramerFactory framerFactory = () -> new DelimiterFramer('\n', StreamFramer.DEFAULT_MAX_FRAME_LENGTH);
+    private volatile boolean binaryFrames;
+    private volatile boolean taggedFrames;
+
+    private RfcommWriter.FlushPolicy flushPolicy = RfcommWriter.FlushPolicy.IMMEDIATE;
+    private int flushBytes = RfcommWriter.DEFAULT_FLUSH_BYTES;
+    private int flushIntervalMs = RfcommWriter.DEFAULT_FLUSH_INTERVAL_MS;
+    private int maxQueuedBytes = RfcommWriter.DEFAULT_MAX_QUEUED_BYTES;
+
+    private final EventSink eventSink;
+    private final NotificationRules frameRules;
+    private final TelemetryDecoder telemetryDecoder;
+    private final NotificationRules.Actions ruleActions = new NotificationRules.Actions() {
+        @Override
+        public void playSound(NotificationRules.Rule rule) {
+            if (SoundCache.shared(getReactApplicationContext()).play(rule.sound) == 0) {
+                Log.w(TAG, "Rule " + rule.id + ": sound " + rule.sound + " is not preloaded");
+            }
+        }
+
+        @Override
+        public void write(NotificationRules.Rule rule, String deviceId) {
+            RfcommConnection connection = connections.get(deviceId);
+            RfcommWriter current = connection != null ? connection.writer : null;
+            if (current != null) {
+                current.enqueue(rule.reply, RULE_REPLY_CALLBACK, null);
+            }
+        }
+    };
+    private static final Callback RULE_REPLY_CALLBACK = new Callback() {
+        @Override
+        public void resolve(Object value) {
+        }
+
+        @Override
+        public void reject(String code, String message) {
+            Log.w(TAG, "Rule reply failed: " + message);
+        }
+    };
+
     public BluetoothModule(ReactApplicationContext reactContext) {
         super(reactContext);
         bluetoothAdapter = BluetoothAdapter.getDefaultAdapter();
+        eventSink = new ReactEventSink(reactContext);
+        frameRules = new NotificationRules(eventSink);
+        telemetryDecoder = new TelemetryDecoder(eventSink);
     }
 
     @Override
@@ -42,6 +132,28 @@ public class BluetoothModule extends ReactContextBaseJavaModule {
         return "BluetoothModule";
     }
 
+    /**
+     * JS reload or app teardown: stops the server, cancels dials and closes every link so no
+     * reader or accept thread keeps blocking on a live socket, then stops the I/O pool.
+     */
+    @Override
+    public void invalidate() {
+        BluetoothServerSocket server = serverSocket;
+        serverSocket = null;
+        if (server != null) {
+            closeQuietly(server);  // frees the service record for the next instance
+        }
+        listening = false;
+        for (RfcommConnectAttempt attempt : dialing.values()) {
+            attempt.cancel("Disconnected", "The module was invalidated.");
+        }
+        for (RfcommConnection connection : connections.values()) {
+            close(connection, "The module was invalidated.");
+        }
+        reconnectScheduler.shutdownNow();  // pending reconnects and dial timeouts
+        ioPool.shutdownNow();
+    }
+
     @ReactMethod
     public void isBluetoothAvailable(Promise promise) {
         promise.resolve(bluetoothAdapter != null);
@@ -52,6 +164,29 @@ public class BluetoothModule extends ReactContextBaseJavaModule {
         promise.resolve(bluetoothAdapter != null && bluetoothAdapter.isEnabled());
     }
 
+    @ReactMethod(isBlockingSynchronousMethod = true)
+    public boolean isConnected() {
+        return isDeviceConnected(primaryAddress);
+    }
+
+    @ReactMethod(isBlockingSynchronousMethod = true)
+    public boolean isDeviceConnected(String deviceId) {
+        RfcommConnection connection = deviceId != null ? connections.get(deviceId) : null;
+        return connection != null && connection.isConnected();
+    }
+
+    /** connected, or the reconnect supervisor's state while the socket is down; disconnected once it has stopped. */
+    @ReactMethod(isBlockingSynchronousMethod = true)
+    public String getConnectionState() {
+        String address = primaryAddress;
+        RfcommConnection connection = address != null ? connections.get(address) : null;
+        if (connection == null) return "disconnected";
+        if (connection.isConnected()) return ReconnectSupervisor.State.CONNECTED.jsName;
+        ReconnectSupervisor.State state = connection.supervisor != null ? connection.supervisor.state() : ReconnectSupervisor.State.STOPPED;
+        return state == ReconnectSupervisor.State.STOPPED || state == ReconnectSupervisor.State.CONNECTED
+                ? "disconnected" : state.jsName;
+    }
+
     @ReactMethod
     public void enableBluetooth(Promise promise) {
         if (bluetoothAdapter != null) {
@@ -82,99 +217,917 @@ public class BluetoothModule extends ReactContextBaseJavaModule {
 
         promise.resolve(devicesArray);
     }
+
     @ReactMethod
     public void sendData(String message, Promise promise) {
-        if (bluetoothSocket == null) {
+        sendDataToDevice(primaryAddress, message, promise);
+    }
+
+    /**
+     * Queues the message for the connection's writer thread. Resolves once the bytes have been
+     * written to the socket, or rejects with "Queue Full" when the outbound queue is at its limit.
+     */
+    @ReactMethod
+    public void sendDataToDevice(String deviceId, String message, Promise promise) {
+        RfcommConnection connection = deviceId != null ? connections.get(deviceId) : null;
+        RfcommWriter currentWriter = connection != null ? connection.writer : null;
+        if (currentWriter == null) {
             Log.d(TAG, "No active Bluetooth connection.");
             promise.reject("Not Connected", "No active Bluetooth connection.");
             return;
         }
-        Log.d(TAG, "Sending message: " + message);
+        if (LogLevel.debug()) Log.d(TAG, "Sending message to " + deviceId + ": " + message);
+        byte[] data = message.getBytes(StandardCharsets.UTF_8);
+        if (currentWriter.enqueue(data, PromiseCallback.of(promise), "Message Sent: " + message)) {
+            connection.metrics.sent(data.length);
+        }
+    }
+
+    /**
+     * policy: "immediate" (write as soon as anything is queued, coalescing what's there),
+     * "size" (wait for flushBytes or flushIntervalMs) or "time" (every flushIntervalMs).
+     * maxQueuedBytes bounds each connection's outbound queue.
+     */
+    @ReactMethod
+    public void configureWriter(ReadableMap options) {
+        if (options.hasKey("policy")) {
+            String policy = options.getString("policy");
+            flushPolicy = "size".equals(policy) ? RfcommWriter.FlushPolicy.SIZE
+                    : "time".equals(policy) ? RfcommWriter.FlushPolicy.TIME
+                    : RfcommWriter.FlushPolicy.IMMEDIATE;
+        }
+        if (options.hasKey("flushBytes")) flushBytes = options.getInt("flushBytes");
+        if (options.hasKey("flushIntervalMs")) flushIntervalMs = options.getInt("flushIntervalMs");
+        if (options.hasKey("maxQueuedBytes")) maxQueuedBytes = options.getInt("maxQueuedBytes");
+        for (RfcommConnection connection : connections.values()) {
+            RfcommWriter currentWriter = connection.writer;
+            if (currentWriter != null) {
+                currentWriter.configure(flushPolicy, flushBytes, flushIntervalMs, maxQueuedBytes);
+            }
+        }
+    }
+
+    /** Write queue of the primary connection, see getConnections for the others. */
+    @ReactMethod
+    public void getWriteQueueStatus(Promise promise) {
+        String address = primaryAddress;
+        RfcommConnection connection = address != null ? connections.get(address) : null;
+        RfcommWriter currentWriter = connection != null ? connection.writer : null;
+        WritableMap status = Arguments.createMap();
+        status.putInt("depth", currentWriter != null ? currentWriter.depth() : 0);
+        status.putDouble("queuedBytes", currentWriter != null ? currentWriter.queuedBytes() : 0);
+        status.putBoolean("backpressure", currentWriter != null && currentWriter.isBackpressured());
+        status.putInt("maxQueuedBytes", maxQueuedBytes);
+        promise.resolve(status);
+    }
+
+    /** Every open or reconnecting link with its direction, listening state and write queue. */
+    @ReactMethod
+    public void getConnections(Promise promise) {
+        WritableArray array = Arguments.createArray();
+        for (RfcommConnection connection : connections.values()) {
+            array.pushMap(connection.toMap());
+        }
+        promise.resolve(array);
+    }
+
+    /** Hands a connected socket to the connection: a new writer on the pool, and a reader if listening. */
+    private void attach(RfcommConnection connection, BluetoothSocket socket) throws IOException {
+        stopWriter(connection, "Connection replaced");
+        RfcommWriter next;
         try {
-            OutputStream outputStream = bluetoothSocket.getOutputStream();
-            outputStream.write(message.getBytes());
-            promise.resolve("Message Sent: " + message);
-        } catch (IOException e) {
-            promise.reject("Send Failed", e.getMessage());
-            reconnectBluetooth();  // Attempt reconnection
+            next = new RfcommWriter(socket.getOutputStream(), new RfcommWriter.Listener() {
+                @Override
+                public void onBackpressure(boolean active, int depth, long queuedBytes) {
+                    WritableMap status = Arguments.createMap();
+                    status.putString("deviceId", connection.address);
+                    status.putBoolean("backpressure", active);
+                    status.putInt("depth", depth);
+                    status.putDouble("queuedBytes", queuedBytes);
+                    sendEvent("BluetoothWriteQueue", status);
+                }
+
+                @Override
+                public void onWriteError(IOException e) {
+                    onSocketLost(connection, socket);
+                }
+            }, ioPool);
+        } catch (RejectedExecutionException e) {
+            throw new IOException("No I/O thread available, " + MAX_CONNECTIONS + " connections at most.");
+        }
+        next.configure(flushPolicy, flushBytes, flushIntervalMs, maxQueuedBytes);
+        connection.attachedAtNanos = System.nanoTime();
+        connection.firstByteNanos = 0;
+        connection.socket = socket;
+        connection.writer = next;
+        if (listening) {
+            startReader(connection);
+        }
+    }
+
+    private void stopWriter(RfcommConnection connection, String reason) {
+        RfcommWriter previous = connection.writer;
+        connection.writer = null;
+        if (previous != null) {
+            previous.close(reason);
         }
     }
+
+    /** Ends the link for good: no more reconnects, queued writes rejected, socket closed. */
+    private void close(RfcommConnection connection, String reason) {
+        connection.closed = true;
+        if (connection.supervisor != null) {
+            connection.supervisor.stop();
+        }
+        RfcommConnectAttempt pending = connection.dial;
+        if (pending != null) {
+            pending.cancel("Disconnected", reason);
+        }
+        connections.remove(connection.address, connection);
+        stopWriter(connection, reason);
+        BluetoothSocket socket = connection.socket;
+        connection.socket = null;
+        if (socket != null) {
+            closeQuietly(socket);
+        }
+    }
+
     @ReactMethod
     public void connectToDevice(String deviceAddress, Promise promise) {
+        connect(deviceAddress, RfcommConnectAttempt.Options.DEFAULT, promise, false);
+    }
+
+    /**
+     * Dials a device off the calling thread. Several devices can be connected at once, next to
+     * any the server accepted; the methods without a deviceId act on the most recently connected one.
+     * Options: timeoutMs (default 12000, 0 waits as long as the stack does), secure, insecureFallback
+     * and uuid. Resolves with the deviceId and discoveryMs, socketMs, connectMs, totalMs and insecure.
+     */
+    @ReactMethod
+    public void connectToDeviceWithOptions(String deviceId, ReadableMap options, Promise promise) {
+        RfcommConnectAttempt.Options parsed;
+        try {
+            parsed = RfcommConnectAttempt.Options.parse(options);
+        } catch (IllegalArgumentException e) {
+            promise.reject("Invalid Option", e.getMessage());
+            return;
+        }
+        connect(deviceId, parsed, promise, true);
+    }
+
+    /**
+     * Dials several devices at once, e.g. the paired loggers from scanDevices, and keeps the first
+     * one that connects; the other dials are cancelled. Takes and resolves like connectToDeviceWithOptions,
+     * and rejects with every device's error when none connects.
+     */
+    @ReactMethod
+    public void connectToFirstDevice(ReadableArray deviceIds, ReadableMap options, Promise promise) {
+        if (bluetoothAdapter == null || !bluetoothAdapter.isEnabled()) {
+            promise.reject("Bluetooth Disabled", "Enable Bluetooth first.");
+            return;
+        }
+        RfcommConnectAttempt.Options parsed;
+        try {
+            parsed = RfcommConnectAttempt.Options.parse(options);
+        } catch (IllegalArgumentException e) {
+            promise.reject("Invalid Option", e.getMessage());
+            return;
+        }
+        List<String> addresses = new ArrayList<>();
+        for (int i = 0; i < deviceIds.size(); i++) {
+            String address = deviceIds.getString(i);
+            if (address == null || !BluetoothAdapter.checkBluetoothAddress(address) || addresses.contains(address)) continue;
+            RfcommConnection existing = connections.get(address);
+            if (existing != null && existing.isConnected()) {
+                primaryAddress = address;
+                promise.resolve(connectResult(existing, true));
+                return;
+            }
+            addresses.add(address);
+        }
+        if (addresses.isEmpty()) {
+            promise.reject("Connection Failed", "No valid device address.");
+            return;
+        }
+        new ConnectRace(addresses, parsed, promise).start();
+    }
+
+    private void connect(String deviceAddress, RfcommConnectAttempt.Options options, Promise promise, boolean detailed) {
         Log.d(TAG, "Connecting to " + deviceAddress);
         if (bluetoothAdapter == null || !bluetoothAdapter.isEnabled()) {
             promise.reject("Bluetooth Disabled", "Enable Bluetooth first.");
             return;
         }
+        if (deviceAddress == null || !BluetoothAdapter.checkBluetoothAddress(deviceAddress)) {
+            promise.reject("Connection Failed", "Invalid device address: " + deviceAddress);
+            return;
+        }
+
+        RfcommConnection existing = connections.get(deviceAddress);
+        if (existing != null && existing.isConnected()) {
+            primaryAddress = deviceAddress;
+            promise.resolve(detailed ? connectResult(existing, true) : "Already connected to " + deviceAddress);
+            return;
+        }
+        RfcommConnectAttempt attempt = new RfcommConnectAttempt(bluetoothAdapter, deviceAddress, options, reconnectScheduler);
+        if (!reserve(attempt, PromiseCallback.of(promise))) return;
+        // ✅ The blocking connect runs on the pool, the bridge thread is free right away
+        runDial(attempt, new Callback() {
+            @Override
+            public void resolve(Object socket) {
+                try {
+                    RfcommConnection connection = adopt(attempt, (BluetoothSocket) socket);
+                    promise.resolve(detailed ? connectResult(connection, false) : "Connected to " + deviceAddress);
+                } catch (IOException e) {
+                    promise.reject("Connection Failed", e.getMessage());
+                }
+            }
+
+            @Override
+            public void reject(String code, String message) {
+                promise.reject(code, message);
+            }
+        });
+    }
 
+    /** Claims the address for a dial, rejecting when it is being dialled already or there is no room. */
+    private boolean reserve(RfcommConnectAttempt attempt, Callback rejected) {
+        RfcommConnection existing = connections.get(attempt.address);
+        if (existing != null && !existing.isConnected() && !dialing.containsKey(attempt.address)) {
+            close(existing, "Connection replaced");  // a new dial replaces whatever we were recovering
+        }
+        if (connections.size() + dialing.size() >= MAX_CONNECTIONS) {
+            rejected.reject("Too Many Connections", MAX_CONNECTIONS + " RFCOMM connections are open already.");
+            return false;
+        }
+        if (dialing.putIfAbsent(attempt.address, attempt) != null) {
+            rejected.reject("Connect In Progress", "Already connecting to " + attempt.address + ".");
+            return false;
+        }
+        return true;
+    }
+
+    /** Runs the dial on the pool; done resolves with the connected socket. */
+    private void runDial(RfcommConnectAttempt attempt, Callback done) {
+        Runnable task = () -> {
+            BluetoothSocket socket;
+            try {
+                socket = attempt.connect();
+            } catch (IOException e) {
+                dialing.remove(attempt.address, attempt);
+                Log.e(TAG, "Connection to " + attempt.address + " failed: " + e.getMessage());
+                done.reject(attempt.failureCode(), e.getMessage());
+                return;
+            }
+            dialing.remove(attempt.address, attempt);
+            done.resolve(socket);
+        };
+        try {
+            ioPool.execute(task);
+        } catch (RejectedExecutionException e) {
+            dialing.remove(attempt.address, attempt);
+            done.reject("Connection Failed", "No I/O thread available.");
+        }
+    }
+
+    /** Turns a dialled socket into a connection with its own writer, reader and reconnect supervisor. */
+    private RfcommConnection adopt(RfcommConnectAttempt attempt, BluetoothSocket socket) throws IOException {
+        String address = attempt.address;
+        RfcommConnection existing = connections.get(address);
+        if (existing != null) {
+            close(existing, "Connection replaced");
+        }
+        RfcommConnection connection = new RfcommConnection(address, RfcommConnection.Direction.OUTBOUND, framerFactory.create());
+        connection.connectOptions = attempt.options;
+        connection.supervisor = createSupervisor(connection);
+        connection.connectedBy = attempt;
         try {
-            Log.d(TAG, "Getting Remote Device " + deviceAddress);
-            BluetoothDevice device = bluetoothAdapter.getRemoteDevice(deviceAddress);
-            Log.d(TAG, "Attempting to connect to " + deviceAddress);
-            bluetoothSocket = device.createRfcommSocketToServiceRecord(UUID.fromString("00001101-0000-1000-8000-00805F9B34FB"));
-            bluetoothSocket.connect();
-            lastConnectedDeviceAddress = deviceAddress;
-            Log.d(TAG, "Connected to " + deviceAddress);
-            sendEvent(EVENT_TAG, "Connected to " + deviceAddress);
-            promise.resolve("Connected to " + deviceAddress);
+            attach(connection, socket);
         } catch (IOException e) {
-            Log.e(TAG, "Connection Failed " + e.getMessage());
-            promise.reject("Connection Failed", e.getMessage());
+            closeQuietly(socket);
+            close(connection, "Connection failed");
+            throw e;
+        }
+        connections.put(address, connection);
+        primaryAddress = address;
+        Metrics.shared().connect.recordNanos(attempt.connectNanos());
+        connection.supervisor.onConnected();
+        Log.d(TAG, "Connected to " + address + (attempt.isInsecure() ? " (insecure)" : ""));
+        sendEvent(EVENT_TAG, "Connected to " + address);
+        return connection;
+    }
+
+    private WritableMap connectResult(RfcommConnection connection, boolean alreadyConnected) {
+        WritableMap result = Arguments.createMap();
+        result.putString("deviceId", connection.address);
+        result.putBoolean("alreadyConnected", alreadyConnected);
+        RfcommConnectAttempt attempt = connection.connectedBy;
+        if (attempt != null) {
+            attempt.writeTimings(result);
+        }
+        return result;
+    }
+
+    /** Parallel dials where the first socket to connect is kept and the rest are cancelled or closed. */
+    private final class ConnectRace {
+        private final List<RfcommConnectAttempt> attempts = new ArrayList<>();
+        private final Promise promise;
+        private final AtomicBoolean settled = new AtomicBoolean();
+        private final AtomicInteger remaining;
+        private final StringBuffer errors = new StringBuffer();
+
+        ConnectRace(List<String> addresses, RfcommConnectAttempt.Options options, Promise promise) {
+            this.promise = promise;
+            for (String address : addresses) {
+                attempts.add(new RfcommConnectAttempt(bluetoothAdapter, address, options, reconnectScheduler));
+            }
+            remaining = new AtomicInteger(attempts.size());
+        }
+
+        void start() {
+            for (RfcommConnectAttempt attempt : attempts) {
+                Callback failed = failure(attempt);
+                if (!reserve(attempt, failed)) continue;
+                runDial(attempt, new Callback() {
+                    @Override
+                    public void resolve(Object socket) {
+                        won(attempt, (BluetoothSocket) socket);
+                    }
+
+                    @Override
+                    public void reject(String code, String message) {
+                        failed.reject(code, message);
+                    }
+                });
+            }
+        }
+
+        private void won(RfcommConnectAttempt winner, BluetoothSocket socket) {
+            if (!settled.compareAndSet(false, true)) {
+                closeQuietly(socket);  // connected just after the winner
+                return;
+            }
+            for (RfcommConnectAttempt attempt : attempts) {
+                if (attempt != winner) {
+                    attempt.cancel("Lost Race", winner.address + " connected first.");
+                }
+            }
+            try {
+                promise.resolve(connectResult(adopt(winner, socket), false));
+            } catch (IOException e) {
+                promise.reject("Connection Failed", e.getMessage());
+            }
+        }
+
+        private Callback failure(RfcommConnectAttempt attempt) {
+            return new Callback() {
+                @Override
+                public void resolve(Object value) {
+                }
+
+                @Override
+                public void reject(String code, String message) {
+                    errors.append(attempt.address).append(": ").append(message).append("; ");
+                    if (remaining.decrementAndGet() == 0 && settled.compareAndSet(false, true)) {
+                        promise.reject("Connection Failed", "No device connected. " + errors);
+                    }
+                }
+            };
         }
     }
-    private void reconnectBluetooth() {
-        if (lastConnectedDeviceAddress == null) {
-            Log.e("BluetoothModule", "No previous device to reconnect to.");
+
+    @ReactMethod
+    public void disconnectFromDevice(Promise promise) {
+        disconnectDevice(primaryAddress, promise);
+    }
+
+    @ReactMethod
+    public void disconnectDevice(String deviceId, Promise promise) {
+        RfcommConnectAttempt pending = deviceId != null ? dialing.get(deviceId) : null;
+        if (pending != null) {
+            pending.cancel("Disconnected", "Disconnected while connecting.");
+        }
+        RfcommConnection connection = deviceId != null ? connections.get(deviceId) : null;
+        if (connection != null) {
+            close(connection, "Disconnected");
+        }
+        promise.resolve("Disconnected");
+    }
+
+    /**
+     * Accepts inbound connections on an SDP record: name, uuid (defaults to SPP), secure
+     * (default true; false skips pairing for loggers without a PIN) and maxConnections
+     * (inbound links at once). Accepted links work like dialled ones but aren't reconnected.
+     */
+    @ReactMethod
+    public void startServer(ReadableMap options, Promise promise) {
+        if (bluetoothAdapter == null || !bluetoothAdapter.isEnabled()) {
+            promise.reject("Bluetooth Disabled", "Enable Bluetooth first.");
             return;
         }
+        if (serverSocket != null) {
+            promise.reject("Server Running", "The RFCOMM server is already accepting connections.");
+            return;
+        }
+        String name = options.hasKey("name") ? options.getString("name") : "JBluePack";
+        boolean secure = !options.hasKey("secure") || options.getBoolean("secure");
+        int maxConnections = options.hasKey("maxConnections") ? options.getInt("maxConnections") : MAX_CONNECTIONS;
+        BluetoothServerSocket server;
         try {
-            Log.d("BluetoothModule", "Attempting to reconnect to " + lastConnectedDeviceAddress);
-            if (bluetoothSocket != null) {
-                bluetoothSocket.close();  // Close existing socket
+            UUID uuid = options.hasKey("uuid") ? UUID.fromString(options.getString("uuid")) : RfcommConnectAttempt.SPP_UUID;
+            server = secure
+                    ? bluetoothAdapter.listenUsingRfcommWithServiceRecord(name, uuid)
+                    : bluetoothAdapter.listenUsingInsecureRfcommWithServiceRecord(name, uuid);
+        } catch (IllegalArgumentException e) {
+            promise.reject("Invalid UUID", e.getMessage());
+            return;
+        } catch (IOException e) {
+            promise.reject("Server Failed", e.getMessage());
+            return;
+        }
+        serverMaxConnections = Math.max(1, Math.min(maxConnections, MAX_CONNECTIONS));
+        serverSocket = server;
+        try {
+            ioPool.execute(() -> acceptLoop(server));
+        } catch (RejectedExecutionException e) {
+            serverSocket = null;
+            closeQuietly(server);
+            promise.reject("Server Failed", "No I/O thread available.");
+            return;
+        }
+        Log.d(TAG, "RFCOMM server " + name + " listening");
+        promise.resolve(true);
+    }
+
+    /** Stops accepting; connections accepted so far stay open. */
+    @ReactMethod
+    public void stopServer(Promise promise) {
+        BluetoothServerSocket server = serverSocket;
+        serverSocket = null;
+        if (server != null) {
+            closeQuietly(server);  // unblocks accept()
+        }
+        promise.resolve(true);
+    }
+
+    private void acceptLoop(BluetoothServerSocket server) {
+        while (serverSocket == server) {
+            BluetoothSocket socket;
+            try {
+                socket = server.accept();
+            } catch (IOException e) {
+                if (serverSocket == server) {
+                    Log.e(TAG, "RFCOMM server stopped: " + e.getMessage());
+                    serverSocket = null;
+                    closeQuietly(server);
+                    WritableMap params = Arguments.createMap();
+                    params.putBoolean("running", false);
+                    params.putString("error", e.getMessage());
+                    sendEvent("BluetoothServerState", params);
+                }
+                return;
+            }
+            if (socket != null) {
+                accept(socket);
             }
+        }
+    }
 
-            BluetoothDevice device = bluetoothAdapter.getRemoteDevice(lastConnectedDeviceAddress);
-            bluetoothSocket = device.createRfcommSocketToServiceRecord(UUID.fromString("00001101-0000-1000-8000-00805F9B34FB"));
-            bluetoothSocket.connect();
-            Log.d("BluetoothModule", "Reconnected to " + lastConnectedDeviceAddress);
-            sendEvent(EVENT_TAG, "Reconnected to " + lastConnectedDeviceAddress);
+    private void accept(BluetoothSocket socket) {
+        String address = socket.getRemoteDevice().getAddress();
+        int inbound = 0;
+        for (RfcommConnection connection : connections.values()) {
+            if (connection.direction == RfcommConnection.Direction.INBOUND) inbound++;
+        }
+        RfcommConnection existing = connections.get(address);
+        if (inbound >= serverMaxConnections || connections.size() >= MAX_CONNECTIONS
+                || (existing != null && existing.isConnected())) {
+            Log.w(TAG, "Refusing inbound connection from " + address);
+            closeQuietly(socket);
+            return;
+        }
+        if (existing != null) {
+            close(existing, "Connection replaced");
+        }
+        RfcommConnection connection = new RfcommConnection(address, RfcommConnection.Direction.INBOUND, framerFactory.create());
+        try {
+            attach(connection, socket);
         } catch (IOException e) {
-            sendEvent(EVENT_TAG, "Reconnected to " + lastConnectedDeviceAddress);
-            Log.e("BluetoothModule", "Reconnection failed: " + e.getMessage());
+            Log.e(TAG, "Inbound connection from " + address + " failed: " + e.getMessage());
+            close(connection, "Connection failed");
+            return;
         }
+        connections.put(address, connection);
+        primaryAddress = address;
+        Log.d(TAG, "Accepted " + address);
+        sendConnectionState(connection, ReconnectSupervisor.State.CONNECTED.jsName, 0, 0, 0);
+    }
+
+    /**
+     * Reconnect behaviour after the link drops: enabled, baseDelayMs, maxDelayMs and
+     * maxAttempts (consecutive failures before giving up). Applies to all dialled connections.
+     */
+    @ReactMethod
+    public void configureReconnect(ReadableMap options) {
+        autoReconnect = !options.hasKey("enabled") || options.getBoolean("enabled");
+        if (options.hasKey("baseDelayMs")) reconnectBaseDelayMs = (long) options.getDouble("baseDelayMs");
+        if (options.hasKey("maxDelayMs")) reconnectMaxDelayMs = (long) options.getDouble("maxDelayMs");
+        if (options.hasKey("maxAttempts")) reconnectMaxAttempts = options.getInt("maxAttempts");
+        for (RfcommConnection connection : connections.values()) {
+            if (connection.supervisor != null) {
+                connection.supervisor.configure(autoReconnect, reconnectBaseDelayMs, reconnectMaxDelayMs, reconnectMaxAttempts);
+            }
+        }
+    }
+
+    private ReconnectSupervisor createSupervisor(RfcommConnection connection) {
+        ReconnectSupervisor supervisor = new ReconnectSupervisor(
+                () -> reconnectBluetooth(connection),
+                (state, attempt, outageMs, nextAttemptMs) -> {
+                    sendConnectionState(connection, state.jsName, attempt, outageMs, nextAttemptMs);
+                    if (state == ReconnectSupervisor.State.CONNECTED && outageMs > 0) {
+                        connection.metrics.reconnects.incrementAndGet();
+                    }
+                    if (state == ReconnectSupervisor.State.GIVEN_UP) {
+                        close(connection, "Gave up reconnecting");
+                    }
+                },
+                reconnectScheduler);
+        supervisor.configure(autoReconnect, reconnectBaseDelayMs, reconnectMaxDelayMs, reconnectMaxAttempts);
+        return supervisor;
+    }
+
+    /** A reader or writer failed. Only the socket still in use counts, not one replaced meanwhile. */
+    private void onSocketLost(RfcommConnection connection, BluetoothSocket socket) {
+        if (connection.closed || socket != connection.socket) return;
+        if (connection.supervisor != null) {
+            connection.supervisor.onConnectionLost();  // Attempt reconnection, the supervisor schedules it
+        } else {
+            close(connection, "Disconnected");
+            sendConnectionState(connection, "disconnected", 0, 0, 0);
+        }
+    }
+
+    /** One reconnect attempt, started by the supervisor. The dial runs on the pool and reports back to it. */
+    private void reconnectBluetooth(RfcommConnection connection) {
+        if (connection.closed) return;
+        connection.metrics.reconnectAttempts.incrementAndGet();
+        Log.d("BluetoothModule", "Attempting to reconnect to " + connection.address);
+        stopWriter(connection, "Reconnecting");
+        BluetoothSocket previous = connection.socket;
+        if (previous != null) {
+            closeQuietly(previous);  // Close existing socket
+        }
+
+        RfcommConnectAttempt attempt = new RfcommConnectAttempt(bluetoothAdapter, connection.address, connection.connectOptions, reconnectScheduler);
+        connection.dial = attempt;
+        runDial(attempt, new Callback() {
+            @Override
+            public void resolve(Object value) {
+                BluetoothSocket socket = (BluetoothSocket) value;
+                connection.dial = null;
+                if (connection.closed) {
+                    closeQuietly(socket);  // disconnected while we were dialling
+                    return;
+                }
+                try {
+                    connection.framer.reset();
+                    connection.connectedBy = attempt;
+                    attach(connection, socket);
+                } catch (IOException e) {
+                    closeQuietly(socket);
+                    connection.supervisor.onConnectFailed();
+                    return;
+                }
+                Metrics.shared().connect.recordNanos(attempt.connectNanos());
+                connection.supervisor.onConnected();
+                Log.d("BluetoothModule", "Reconnected to " + connection.address);
+                sendEvent(EVENT_TAG, "Reconnected to " + connection.address);
+            }
+
+            @Override
+            public void reject(String code, String message) {
+                connection.dial = null;
+                Log.e("BluetoothModule", "Reconnection failed: " + message);
+                connection.supervisor.onConnectFailed();
+            }
+        });
+    }
+
+    private void sendConnectionState(RfcommConnection connection, String state, int attempt, long outageMs, long nextAttemptMs) {
+        WritableMap params = Arguments.createMap();
+        params.putString("deviceId", connection.address);
+        params.putString("direction", connection.direction.jsName);
+        params.putString("state", state);
+        params.putInt("attempt", attempt);
+        params.putDouble("outageMs", outageMs);
+        params.putDouble("nextAttemptMs", nextAttemptMs);
+        sendEvent("BluetoothConnectionState", params);
     }
 
+    /** Starts a reader on every connection, and on every connection made from now on. */
     @ReactMethod
     public void startListeningForData() {
         Log.d("BluetoothModule", "Starting to listen for data...");
-        if (bluetoothSocket == null || !bluetoothSocket.isConnected()) {
-            Log.e("BluetoothModule", "No active Bluetooth connection.");
-            return;
+        listening = true;
+        for (RfcommConnection connection : connections.values()) {
+            startReader(connection);
         }
-        new Thread(() -> {
-            try {
-                InputStream inputStream = bluetoothSocket.getInputStream();
-                InputStreamReader inputStreamReader = new InputStreamReader(inputStream);
-                BufferedReader reader = new BufferedReader(inputStreamReader);
-                while (bluetoothSocket.isConnected()) {
-                    String receivedMessage = reader.readLine();  // Read full message
-
-                    if (receivedMessage != null) {
-                        Log.d("BluetoothModule", "Received: " + receivedMessage);
-                        sendEvent(EVENT_TAG, receivedMessage);  // Emit event
-                    }
+    }
+
+    /** At most one reader per socket, however often startListeningForData is called. */
+    private void startReader(RfcommConnection connection) {
+        BluetoothSocket socket;
+        synchronized (connection) {
+            socket = connection.socket;
+            if (socket == null || !socket.isConnected() || connection.readingSocket == socket) return;
+            connection.readingSocket = socket;
+        }
+        try {
+            ioPool.execute(() -> read(connection, socket));
+        } catch (RejectedExecutionException e) {
+            Log.e(TAG, "No reader thread available for " + connection.address);
+            synchronized (connection) {
+                if (connection.readingSocket == socket) connection.readingSocket = null;
+            }
+        }
+    }
+
+    private void read(RfcommConnection connection, BluetoothSocket socket) {
+        try {
+            InputStream inputStream = socket.getInputStream();
+            byte[] readBuffer = new byte[READ_BUFFER_SIZE];  // reused for every read
+            StreamFramer.FrameListener listener = (buffer, offset, length) -> onFrame(connection, buffer, offset, length);
+            while (socket.isConnected()) {
+                int count = inputStream.read(readBuffer);
+                if (count < 0) {
+                    throw new IOException("Stream closed");
                 }
-            } catch (IOException e) {
-                Log.e("BluetoothModule", "Error reading Bluetooth data: " + e.getMessage());
-                reconnectBluetooth();  // Attempt reconnection
+                if (connection.firstByteNanos == 0) {
+                    connection.firstByteNanos = Math.max(1, System.nanoTime() - connection.attachedAtNanos);
+                }
+                connection.metrics.received(count);
+                connection.framer.feed(readBuffer, 0, count, listener);
             }
-        }).start();
+        } catch (IOException e) {
+            Log.e("BluetoothModule", "Error reading Bluetooth data from " + connection.address + ": " + e.getMessage());
+            onSocketLost(connection, socket);
+        } finally {
+            synchronized (connection) {
+                if (connection.readingSocket == socket) connection.readingSocket = null;
+            }
+        }
+    }
+
+    private void onFrame(RfcommConnection connection, byte[] buffer, int offset, int length) {
+        if (FrameRecorder.shared().isRecording()) {
+            FrameRecorder.shared().append(connection.address, null, buffer, offset, length, System.currentTimeMillis());
+        }
+        // ✅ Rules see the frame in the framer's buffer, before any String or base64 is built
+        if (!frameRules.isEmpty()
+                && frameRules.evaluate(connection.address, null, buffer, offset, length, System.currentTimeMillis(), ruleActions)) {
+            return;
+        }
+        if (!telemetryDecoder.isEmpty()
+                && telemetryDecoder.decode(connection.address, null, buffer, offset, length, System.currentTimeMillis())) {
+            return;
+        }
+        if (binaryFrames || taggedFrames) {
+            WritableMap frame = Arguments.createMap();
+            frame.putString("deviceId", connection.address);
+            if (binaryFrames) {
+                frame.putString("data", Base64.encodeToString(buffer, offset, length, Base64.NO_WRAP));
+            } else {
+                frame.putString("text", new String(buffer, offset, length, StandardCharsets.UTF_8));
+            }
+            frame.putInt("length", length);
+            sendEvent(FRAME_EVENT_TAG, frame);
+        } else {
+            sendEvent(EVENT_TAG, new String(buffer, offset, length, StandardCharsets.UTF_8));  // Emit event
+        }
+    }
+
+    /**
+     * Selects how the receive stream is split into frames, on every connection.
+     * mode: "delimiter" (default, delimiter byte defaults to '\n'), "length" (lengthBytes 1/2/4,
+     * littleEndian, crc16 trailer) or "cobs". maxFrameLength bounds a frame before resyncing.
+     * output: "text" emits UTF-8 strings as BluetoothData, "binary" emits base64 BluetoothFrame events
+     * and "tagged" BluetoothFrame events with the UTF-8 text. BluetoothFrame events carry the deviceId.
+     */
+    @ReactMethod
+    public void setFraming(ReadableMap options, Promise promise) {
+        String mode = options.hasKey("mode") ? options.getString("mode") : "delimiter";
+        int maxFrameLength = options.hasKey("maxFrameLength") ? options.getInt("maxFrameLength") : StreamFramer.DEFAULT_MAX_FRAME_LENGTH;
+        try {
+            FramerFactory next;
+            if ("length".equals(mode)) {
+                int lengthBytes = options.hasKey("lengthBytes") ? options.getInt("lengthBytes") : 2;
+                boolean littleEndian = options.hasKey("littleEndian") && options.getBoolean("littleEndian");
+                boolean crc16 = options.hasKey("crc16") && options.getBoolean("crc16");
+                next = () -> new LengthPrefixFramer(lengthBytes, littleEndian, crc16, maxFrameLength);
+            } else if ("cobs".equals(mode)) {
+                next = () -> new CobsFramer(maxFrameLength);
+            } else if ("delimiter".equals(mode)) {
+                int delimiter = options.hasKey("delimiter") ? options.getInt("delimiter") : '\n';
+                next = () -> new DelimiterFramer(delimiter, maxFrameLength);
+            } else {
+                promise.reject("Invalid Framing", "Unknown framing mode: " + mode);
+                return;
+            }
+            next.create();  // the constructors validate, before anything is swapped
+            String output = options.hasKey("output") ? options.getString("output") : "text";
+            binaryFrames = "binary".equals(output);
+            taggedFrames = "tagged".equals(output);
+            framerFactory = next;
+            for (RfcommConnection connection : connections.values()) {
+                connection.framer = next.create();
+            }
+            promise.resolve(true);
+        } catch (IllegalArgumentException e) {
+            promise.reject("Invalid Framing", e.getMessage());
+        }
+    }
+
+    /**
+     * Registers a rule evaluated natively on every received frame, with the keys BLEModule.addNotificationRule
+     * takes minus characteristic; a write rule's reply goes back over the socket that matched. Resolves with the rule id.
+     */
+    @ReactMethod
+    public void addNotificationRule(ReadableMap rule, Promise promise) {
+        try {
+            NotificationRules.Rule parsed = RuleOptions.parse(frameRules.nextId(), rule, false);
+            frameRules.add(parsed);
+            promise.resolve(parsed.id);
+        } catch (IllegalArgumentException e) {
+            promise.reject("Invalid Rule", e.getMessage());
+        }
+    }
+
+    @ReactMethod
+    public void removeNotificationRule(int id, Promise promise) {
+        promise.resolve(frameRules.remove(id));
+    }
+
+    @ReactMethod
+    public void clearNotificationRules() {
+        frameRules.clear();
+    }
+
+    @ReactMethod
+    public void getNotificationRules(Promise promise) {
+        promise.resolve(ReactEventSink.unwrap(frameRules.toArray()));
+    }
+
+    /**
+     * Registers a telemetry schema for received frames, with the keys BLEModule.addTelemetrySchema
+     * takes minus characteristic. Offsets are relative to the frame the framer produced. Resolves with the schema id.
+     */
+    @ReactMethod
+    public void addTelemetrySchema(ReadableMap schema, Promise promise) {
+        try {
+            TelemetryDecoder.Schema parsed = TelemetryOptions.parse(telemetryDecoder.nextId(), schema);
+            telemetryDecoder.add(parsed);
+            promise.resolve(parsed.id);
+        } catch (IllegalArgumentException e) {
+            promise.reject("Invalid Schema", e.getMessage());
+        }
+    }
+
+    @ReactMethod
+    public void removeTelemetrySchema(int id, Promise promise) {
+        promise.resolve(telemetryDecoder.remove(id));
+    }
+
+    @ReactMethod
+    public void clearTelemetrySchemas() {
+        telemetryDecoder.clear();
+    }
+
+    @ReactMethod
+    public void getTelemetrySchemas(Promise promise) {
+        promise.resolve(ReactEventSink.unwrap(telemetryDecoder.toArray()));
+    }
+
+    /** Same recorder as BLEModule.startRecording, RFCOMM frames are recorded with an empty characteristic. */
+    @ReactMethod
+    public void startRecording(ReadableMap options, Promise promise) {
+        try {
+            FrameRecorder.shared().start(RecorderOptions.parse(options, getReactApplicationContext().getFilesDir()));
+            promise.resolve(ReactEventSink.unwrap(FrameRecorder.shared().stats(eventSink)));
+        } catch (IllegalArgumentException e) {
+            promise.reject("Invalid Option", e.getMessage());
+        } catch (IOException e) {
+            promise.reject("Recorder Error", e.getMessage());
+        }
+    }
+
+    @ReactMethod
+    public void stopRecording(Promise promise) {
+        FrameRecorder.shared().stop();
+        promise.resolve(ReactEventSink.unwrap(FrameRecorder.shared().stats(eventSink)));
+    }
+
+    @ReactMethod
+    public void queryRecording(ReadableMap options, Promise promise) {
+        try {
+            promise.resolve(ReactEventSink.unwrap(RecorderOptions.query(FrameRecorder.shared(), eventSink, options)));
+        } catch (IllegalArgumentException e) {
+            promise.reject("Invalid Option", e.getMessage());
+        }
+    }
+
+    @ReactMethod
+    public void getRecorderStats(Promise promise) {
+        promise.resolve(ReactEventSink.unwrap(FrameRecorder.shared().stats(eventSink)));
+    }
+
+    @ReactMethod
+    public void deleteRecording(Promise promise) {
+        try {
+            promise.resolve(FrameRecorder.shared().delete());
+        } catch (IllegalStateException e) {
+            promise.reject("Recorder Busy", e.getMessage());
+        }
     }
-    private void sendEvent(String eventName, String eventData) {
+
+    /** Same registry as BLEModule.getMetrics, RFCOMM traffic is counted under the device address. */
+    @ReactMethod
+    public void getMetrics(Promise promise) {
+        promise.resolve(ReactEventSink.unwrap(Metrics.shared().snapshot(eventSink)));
+    }
+
+    @ReactMethod
+    public void resetMetrics() {
+        Metrics.shared().reset();
+        telemetryDecoder.resetCounters();
+        FrameRecorder.shared().resetCounters();
+    }
+
+    @ReactMethod
+    public void setMetricsInterval(int intervalMs) {
+        Metrics.shared().setReporting(eventSink, new HandlerTimer(Looper.getMainLooper()), intervalMs);
+    }
+
+    @ReactMethod
+    public void setLogLevel(String level, Promise promise) {
+        if (LogLevel.set(level)) {
+            promise.resolve(level);
+        } else {
+            promise.reject("Invalid Level", "Unknown log level: " + level);
+        }
+    }
+
+    /** Summed over the framers of all open connections. */
+    @ReactMethod
+    public void getFramingStats(Promise promise) {
+        long bytesRead = 0;
+        long frames = 0;
+        long resyncs = 0;
+        long crcErrors = 0;
+        for (RfcommConnection connection : connections.values()) {
+            StreamFramer current = connection.framer;
+            bytesRead += current.bytesRead;
+            frames += current.frames;
+            resyncs += current.resyncs;
+            crcErrors += current.crcErrors;
+        }
+        WritableMap stats = Arguments.createMap();
+        stats.putDouble("bytesRead", bytesRead);
+        stats.putDouble("frames", frames);
+        stats.putDouble("resyncs", resyncs);
+        stats.putDouble("crcErrors", crcErrors);
+        promise.resolve(stats);
+    }
+
+    private static void closeQuietly(Closeable closeable) {
+        try {
+            closeable.close();
+        } catch (IOException e) {
+            Log.e(TAG, "Error closing socket: " + e.getMessage());
+        }
+    }
+
+    private void sendEvent(String eventName, Object eventData) {
         ReactContext reactContext = getReactApplicationContext();
-        if (reactContext.hasActiveCatalystInstance()) {
-            reactContext.getJSModule(DeviceEventManagerModule.RCTDeviceEventEmitter.class)
-                    .emit(eventName, eventData);
+        if (!reactContext.hasActiveCatalystInstance()) {
+            Metrics.shared().eventsDropped.incrementAndGet();
+            return;
+        }
+        long startedAt = System.nanoTime();
+        reactContext.getJSModule(DeviceEventManagerModule.RCTDeviceEventEmitter.class)
+                .emit(eventName, eventData);
+        Metrics.shared().bridgeEmit.recordNanos(System.nanoTime() - startedAt);
+    }
+
+    /** Numbered daemon threads, so pool threads are recognisable in traces. */
+    private static final class IoThreadFactory implements ThreadFactory {
+        private final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable task) {
+            Thread thread = new Thread(task, "RfcommIo-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
         }
     }
 }
@@ -0,0 +1,267 @@
+package com.jbluepack;
+
+import com.facebook.react.bridge.Arguments;
+import com.facebook.react.bridge.WritableArray;
+import com.facebook.react.bridge.WritableMap;
+
+import android.bluetooth.BluetoothGatt;
+import android.bluetooth.BluetoothGattCharacteristic;
+import android.bluetooth.BluetoothGattService;
+import android.content.SharedPreferences;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Resolved GATT attributes of one device address, kept across connections.
+ *
+ * Lookups by UUID string hit a map of already resolved characteristics instead of
+ * parsing both UUIDs and walking getService/getCharacteristic on every call. Clients
+ * can also register small integer aliases (0-255) for the hot write path; alias
+ * definitions and the discovered layout are persisted per address. Everything
+ * resolved is dropped when the peripheral indicates Service Changed.
+ */
+class GattAttributeCache {
+
+    static final int MAX_ALIASES = 256;
+    static final String PREFS_NAME = "jbluepack.gatt";
+    private static final String ALIASES_KEY = "aliases.";
+    private static final String LAYOUT_KEY = "layout.";
+
+    // UUID strings from JS are parsed once per process, shared by every device. Only strings
+    // that parsed are kept, and at most MAX_PARSED_UUIDS: past that they are parsed every time
+    static final int MAX_PARSED_UUIDS = 512;
+    private static final Map<String, UUID> parsedUuids = new ConcurrentHashMap<>();
+
+    final String address;
+    private final SharedPreferences prefs;
+
+    private final Map<String, Map<String, BluetoothGattCharacteristic>> resolved = new HashMap<>();
+    private final UUID[] aliasServices = new UUID[MAX_ALIASES];
+    private final UUID[] aliasCharacteristics = new UUID[MAX_ALIASES];
+    private final BluetoothGattCharacteristic[] aliasTargets = new BluetoothGattCharacteristic[MAX_ALIASES];
+    // service UUID -> characteristic UUIDs, from the last discovery (or the persisted copy)
+    private Map<String, List<String>> layout = new LinkedHashMap<>();
+    private boolean layoutFromStorage;
+    private BluetoothGatt gatt;
+
+    private long hits;
+    private long misses;
+    private long invalidations;
+
+    GattAttributeCache(String address, SharedPreferences prefs) {
+        this.address = address;
+        this.prefs = prefs;
+        load();
+    }
+
+    /** Parses a UUID string once and returns the cached instance afterwards. Throws IllegalArgumentException if malformed. */
+    static UUID uuid(String value) {
+        UUID cached = parsedUuids.get(value);
+        if (cached == null) {
+            cached = UUID.fromString(value);
+            if (parsedUuids.size() < MAX_PARSED_UUIDS) {
+                parsedUuids.put(value, cached);
+            }
+        }
+        return cached;
+    }
+
+    /** Binds the cache to a freshly discovered gatt: rebuilds the layout and re-resolves aliases. */
+    synchronized void bind(BluetoothGatt gatt) {
+        this.gatt = gatt;
+        resolved.clear();
+
+        Map<String, List<String>> discovered = new LinkedHashMap<>();
+        List<BluetoothGattService> services = gatt.getServices();
+        if (services != null) {
+            for (BluetoothGattService service : services) {
+                List<String> characteristics = new ArrayList<>();
+                for (BluetoothGattCharacteristic characteristic : service.getCharacteristics()) {
+                    characteristics.add(characteristic.getUuid().toString());
+                }
+                discovered.put(service.getUuid().toString(), characteristics);
+            }
+        }
+        boolean changed = !discovered.equals(layout);
+        layout = discovered;
+        layoutFromStorage = false;
+        if (changed) {
+            saveLayout();
+        }
+
+        for (int alias = 0; alias < MAX_ALIASES; alias++) {
+            aliasTargets[alias] = aliasServices[alias] != null ? lookup(aliasServices[alias], aliasCharacteristics[alias]) : null;
+        }
+    }
+
+    /** The connection is gone, handles from the old gatt must not be used. Alias definitions stay. */
+    synchronized void unbind() {
+        gatt = null;
+        resolved.clear();
+        clearTargets();
+    }
+
+    /** Service Changed: the layout may differ, forget every handle until the next discovery. */
+    synchronized void invalidate() {
+        invalidations++;
+        gatt = null;
+        resolved.clear();
+        clearTargets();
+    }
+
+    /** False between connecting (or a Service Changed indication) and the end of discovery. */
+    synchronized boolean isBound() {
+        return gatt != null;
+    }
+
+    /** Returns the characteristic, or null if the gatt isn't bound or either UUID isn't present. */
+    synchronized BluetoothGattCharacteristic resolve(String serviceUUID, String characteristicUUID) {
+        Map<String, BluetoothGattCharacteristic> byCharacteristic = resolved.get(serviceUUID);
+        BluetoothGattCharacteristic characteristic = byCharacteristic != null ? byCharacteristic.get(characteristicUUID) : null;
+        if (characteristic != null) {
+            hits++;
+            return characteristic;
+        }
+        misses++;
+        if (gatt == null) return null;
+        characteristic = lookup(uuid(serviceUUID), uuid(characteristicUUID));
+        if (characteristic != null) {
+            if (byCharacteristic == null) {
+                byCharacteristic = new HashMap<>();
+                resolved.put(serviceUUID, byCharacteristic);
+            }
+            byCharacteristic.put(characteristicUUID, characteristic);
+        }
+        return characteristic;
+    }
+
+    /** Registers an alias. Returns true if it already resolves on the current connection. */
+    synchronized boolean setAlias(int alias, String serviceUUID, String characteristicUUID) {
+        aliasServices[alias] = uuid(serviceUUID);
+        aliasCharacteristics[alias] = uuid(characteristicUUID);
+        aliasTargets[alias] = gatt != null ? lookup(aliasServices[alias], aliasCharacteristics[alias]) : null;
+        saveAliases();
+        return aliasTargets[alias] != null;
+    }
+
+    synchronized void removeAlias(int alias) {
+        aliasServices[alias] = null;
+        aliasCharacteristics[alias] = null;
+        aliasTargets[alias] = null;
+        saveAliases();
+    }
+
+    synchronized boolean hasAlias(int alias) {
+        return aliasServices[alias] != null;
+    }
+
+    /** Hot path for aliased writes: a single array load. Null if undefined or not resolved yet. */
+    synchronized BluetoothGattCharacteristic alias(int alias) {
+        if (aliasTargets[alias] != null) {
+            hits++;
+        } else {
+            misses++;
+        }
+        return aliasTargets[alias];
+    }
+
+    synchronized WritableMap toMap() {
+        WritableMap map = Arguments.createMap();
+        map.putString("deviceId", address);
+        WritableMap services = Arguments.createMap();
+        for (Map.Entry<String, List<String>> service : layout.entrySet()) {
+            WritableArray characteristics = Arguments.createArray();
+            for (String characteristic : service.getValue()) {
+                characteristics.pushString(characteristic);
+            }
+            services.putArray(service.getKey(), characteristics);
+        }
+        map.putMap("services", services);
+        map.putBoolean("fromStorage", layoutFromStorage);
+        WritableMap aliases = Arguments.createMap();
+        for (int alias = 0; alias < MAX_ALIASES; alias++) {
+            if (aliasServices[alias] == null) continue;
+            WritableMap entry = Arguments.createMap();
+            entry.putString("service", aliasServices[alias].toString());
+            entry.putString("characteristic", aliasCharacteristics[alias].toString());
+            entry.putBoolean("resolved", aliasTargets[alias] != null);
+            aliases.putMap(String.valueOf(alias), entry);
+        }
+        map.putMap("aliases", aliases);
+        map.putDouble("hits", hits);
+        map.putDouble("misses", misses);
+        map.putDouble("invalidations", invalidations);
+        return map;
+    }
+
+    private BluetoothGattCharacteristic lookup(UUID serviceUuid, UUID characteristicUuid) {
+        BluetoothGattService service = gatt.getService(serviceUuid);
+        return service != null ? service.getCharacteristic(characteristicUuid) : null;
+    }
+
+    private void clearTargets() {
+        for (int alias = 0; alias < MAX_ALIASES; alias++) {
+            aliasTargets[alias] = null;
+        }
+    }
+
+    // Stored as "alias=service/characteristic,..." and "service=char|char;..." under the device address
+
+    private void load() {
+        if (prefs == null) return;
+        String aliases = prefs.getString(ALIASES_KEY + address, null);
+        if (aliases != null && !aliases.isEmpty()) {
+            for (String entry : aliases.split(",")) {
+                try {
+                    int eq = entry.indexOf('=');
+                    int slash = entry.indexOf('/');
+                    int alias = Integer.parseInt(entry.substring(0, eq));
+                    aliasServices[alias] = uuid(entry.substring(eq + 1, slash));
+                    aliasCharacteristics[alias] = uuid(entry.substring(slash + 1));
+                } catch (RuntimeException e) {
+                    // skip a corrupt entry rather than losing the rest
+                }
+            }
+        }
+        String stored = prefs.getString(LAYOUT_KEY + address, null);
+        if (stored != null && !stored.isEmpty()) {
+            for (String service : stored.split(";")) {
+                int eq = service.indexOf('=');
+                if (eq <= 0) continue;
+                List<String> characteristics = new ArrayList<>();
+                for (String characteristic : service.substring(eq + 1).split("\\|")) {
+                    if (!characteristic.isEmpty()) characteristics.add(characteristic);
+                }
+                layout.put(service.substring(0, eq), characteristics);
+            }
+            layoutFromStorage = true;
+        }
+    }
+
+    private void saveAliases() {
+        if (prefs == null) return;
+        StringBuilder sb = new StringBuilder();
+        for (int alias = 0; alias < MAX_ALIASES; alias++) {
+            if (aliasServices[alias] == null) continue;
+            if (sb.length() > 0) sb.append(',');
+            sb.append(alias).append('=').append(aliasServices[alias]).append('/').append(aliasCharacteristics[alias]);
+        }
+        prefs.edit().putString(ALIASES_KEY + address, sb.toString()).apply();
+    }
+
+    private void saveLayout() {
+        if (prefs == null) return;
+        StringBuilder sb = new StringBuilder();
+        for (Map.Entry<String, List<String>> service : layout.entrySet()) {
+            if (sb.length() > 0) sb.append(';');
+            sb.append(service.getKey()).append('=').append(String.join("|", service.getValue()));
+        }
+        prefs.edit().putString(LAYOUT_KEY + address, sb.toString()).apply();
+    }
+}
@@ -0,0 +1,231 @@
+package com.jbluepack;
+
+import com.facebook.react.bridge.Arguments;
+import com.facebook.react.bridge.Promise;
+import com.facebook.react.bridge.WritableMap;
+
+import android.bluetooth.BluetoothGatt;
+import android.bluetooth.BluetoothGattCharacteristic;
+import android.bluetooth.BluetoothGattDescriptor;
+import android.os.SystemClock;
+import android.util.Log;
+
+/**
+ * Serializes GATT requests for a single connection.
+ *
+ * Android only allows one outstanding GATT operation per connection, so callers
+ * enqueue operations here and the queue issues the next one as soon as the
+ * callback for the previous one arrives. The queueing itself lives in the
+ * platform-independent CommandQueue; this adds the GATT operations, promise
+ * adaptation and MTU tracking.
+ */
+class GattOperationQueue extends CommandQueue<BluetoothGatt, GattOperationQueue.Kind> {
+
+    enum Kind { WRITE, READ, WRITE_DESCRIPTOR, REQUEST_MTU, DISCOVER_SERVICES }
+
+    abstract static class Operation extends CommandQueue.Operation<BluetoothGatt, Kind> {
+        Operation(Kind kind, Promise promise) {
+            super(kind, PromiseCallback.of(promise));
+        }
+
+        Operation(Kind kind, Callback callback) {
+            super(kind, callback);
+        }
+    }
+
+    private static final String TAG = "GattOperationQueue";
+    // ✅ Roughly a connection interval, enough for the stack to free a buffer
+    static final int CHUNK_RETRY_DELAY_MS = 10;
+
+    private int mtu = AttLimits.DEFAULT_MTU;
+
+    /** timer runs the operation timeouts, on the BLE event loop so they can't race the callbacks. */
+    GattOperationQueue(Timer timer) {
+        super(timer, "BLE");
+    }
+
+    @Override
+    synchronized void attach(BluetoothGatt gatt) {
+        super.attach(gatt);
+        this.mtu = AttLimits.DEFAULT_MTU;
+    }
+
+    synchronized int mtu() {
+        return mtu;
+    }
+
+    /** The largest value one write or notification can carry at the current MTU. */
+    synchronized int maxValueLength() {
+        return AttLimits.maxValueLength(mtu);
+    }
+
+    @Override
+    void onComplete(Kind kind, Object value) {
+        if (kind == Kind.REQUEST_MTU && value instanceof Integer) {
+            mtu = (Integer) value;
+        }
+    }
+
+    @Override
+    void onStepCompleted(Kind kind, long elapsedNanos) {
+        if (kind == Kind.WRITE) {
+            Metrics.shared().writeRoundTrip.recordNanos(elapsedNanos);
+        }
+    }
+
+    @Override
+    String busyCode() {
+        return "GATT Busy";
+    }
+
+    @Override
+    void onWarning(String message) {
+        Log.w(TAG, message);
+    }
+
+    static Operation write(BluetoothGattCharacteristic characteristic, byte[] value, Promise promise) {
+        return new Operation(Kind.WRITE, promise) {
+            @Override
+            boolean execute(BluetoothGatt gatt) {
+                // Set the value at issue time, earlier writes to the same characteristic may still be queued
+                characteristic.setWriteType(defaultWriteType(characteristic));
+                characteristic.setValue(value);
+                return gatt.writeCharacteristic(characteristic);
+            }
+        };
+    }
+
+    /** Single write with an explicit write type, for native callers such as BulkTransfer. */
+    static Operation write(BluetoothGattCharacteristic characteristic, byte[] value, int writeType, Callback callback) {
+        return new Operation(Kind.WRITE, callback) {
+            @Override
+            boolean execute(BluetoothGatt gatt) {
+                characteristic.setWriteType(writeType);
+                characteristic.setValue(value);
+                return gatt.writeCharacteristic(characteristic);
+            }
+        };
+    }
+
+    /**
+     * Splits data into (MTU - 3) byte chunks and writes them one after another as a
+     * single queue entry. With withResponse false the chunks go out as
+     * WRITE_TYPE_NO_RESPONSE; the stack still calls onCharacteristicWrite once it has
+     * buffer space for the next packet, which is what paces the stream. A chunk the
+     * stack refuses is retried every CHUNK_RETRY_DELAY_MS until the operation timeout,
+     * and a rejection says how many bytes got through.
+     * Resolves with { bytes, chunks, mtu, chunkSize, durationMs, bytesPerSecond }.
+     */
+    static Operation writeChunked(BluetoothGattCharacteristic characteristic, byte[] data, boolean withResponse, Promise promise) {
+        return new Operation(Kind.WRITE, promise) {
+            private int offset;
+            private int chunkSize;
+            private int mtu;
+            private int chunks;
+            private int sentLength;
+            private long startedAt;
+
+            @Override
+            boolean execute(BluetoothGatt gatt) {
+                if (chunks == 0) {
+                    mtu = ((GattOperationQueue) queue).mtu();
+                    chunkSize = Math.max(1, ((GattOperationQueue) queue).maxValueLength());
+                    startedAt = SystemClock.elapsedRealtime();
+                }
+                sentLength = Math.min(chunkSize, data.length - offset);
+                byte[] chunk = new byte[sentLength];
+                System.arraycopy(data, offset, chunk, 0, sentLength);
+                characteristic.setWriteType(withResponse
+                        ? BluetoothGattCharacteristic.WRITE_TYPE_DEFAULT
+                        : BluetoothGattCharacteristic.WRITE_TYPE_NO_RESPONSE);
+                characteristic.setValue(chunk);
+                return gatt.writeCharacteristic(characteristic);
+            }
+
+            @Override
+            boolean advance() {
+                offset += sentLength;
+                chunks++;
+                return offset < data.length;
+            }
+
+            @Override
+            long retryDelayMs() {
+                return CHUNK_RETRY_DELAY_MS;
+            }
+
+            @Override
+            String progress() {
+                return " " + offset + " of " + data.length + " bytes sent.";
+            }
+
+            @Override
+            Object result(Object value) {
+                long durationMs = Math.max(1, SystemClock.elapsedRealtime() - startedAt);
+                WritableMap stats = Arguments.createMap();
+                stats.putInt("bytes", data.length);
+                stats.putInt("chunks", chunks);
+                stats.putInt("mtu", mtu);
+                stats.putInt("chunkSize", chunkSize);
+                stats.putDouble("durationMs", durationMs);
+                stats.putDouble("bytesPerSecond", data.length * 1000.0 / durationMs);
+                return stats;
+            }
+        };
+    }
+
+    /** Reads a characteristic, resolving with base64 when binary is set and UTF-8 text otherwise. */
+    static Operation read(BluetoothGattCharacteristic characteristic, boolean binary, Promise promise) {
+        return new Operation(Kind.READ, promise) {
+            @Override
+            boolean execute(BluetoothGatt gatt) {
+                return gatt.readCharacteristic(characteristic);
+            }
+
+            @Override
+            Object result(Object value) {
+                byte[] bytes = (byte[]) value;
+                return binary ? BlePayload.toBase64(bytes) : BlePayload.toText(bytes);
+            }
+        };
+    }
+
+    static Operation writeDescriptor(BluetoothGattDescriptor descriptor, byte[] value, Object successValue, Promise promise) {
+        return new Operation(Kind.WRITE_DESCRIPTOR, promise) {
+            @Override
+            boolean execute(BluetoothGatt gatt) {
+                descriptor.setValue(value);
+                return gatt.writeDescriptor(descriptor);
+            }
+
+            @Override
+            Object result(Object value) {
+                return successValue;
+            }
+        };
+    }
+
+    static Operation requestMtu(int mtu, Promise promise) {
+        return new Operation(Kind.REQUEST_MTU, promise) {
+            @Override
+            boolean execute(BluetoothGatt gatt) {
+                return gatt.requestMtu(mtu);
+            }
+        };
+    }
+
+    static Operation discoverServices(Promise promise) {
+        return new Operation(Kind.DISCOVER_SERVICES, promise) {
+            @Override
+            boolean execute(BluetoothGatt gatt) {
+                return gatt.discoverServices();
+            }
+        };
+    }
+
+    static int defaultWriteType(BluetoothGattCharacteristic characteristic) {
+        return (characteristic.getProperties() & BluetoothGattCharacteristic.PROPERTY_WRITE) != 0
+                ? BluetoothGattCharacteristic.WRITE_TYPE_DEFAULT
+                : BluetoothGattCharacteristic.WRITE_TYPE_NO_RESPONSE;
+    }
+}
@@ -0,0 +1,24 @@
+package com.jbluepack;
+
+import android.os.Handler;
+import android.os.Looper;
+
+/** Core Timer backed by a Handler on the given looper. */
+final class HandlerTimer implements Timer {
+
+    private final Handler handler;
+
+    HandlerTimer(Looper looper) {
+        this.handler = new Handler(looper);
+    }
+
+    @Override
+    public void schedule(Runnable task, long delayMs) {
+        handler.postDelayed(task, delayMs);
+    }
+
+    @Override
+    public void cancel(Runnable task) {
+        handler.removeCallbacks(task);
+    }
+}
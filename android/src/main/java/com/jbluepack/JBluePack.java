@@ -1,25 +1,57 @@
 package com.jbluepack;
 
-import com.facebook.react.ReactPackage;
+import com.facebook.react.TurboReactPackage;
 import com.facebook.react.bridge.NativeModule;
 import com.facebook.react.bridge.ReactApplicationContext;
+import com.facebook.react.module.model.ReactModuleInfo;
+import com.facebook.react.module.model.ReactModuleInfoProvider;
 import com.facebook.react.uimanager.ViewManager;
 import android.util.Log;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
-import java.util.Arrays;
+import java.util.Map;
 
 
-public class JBluePack  implements ReactPackage {
+/**
+ * Registers the modules for either architecture. JBluePackModules comes from src/oldarch
+ * or src/newarch depending on newArchEnabled, so old-architecture apps get the bridge
+ * modules and New Architecture apps the TurboModules, under the same names.
+ */
+public class JBluePack extends TurboReactPackage {
     @Override
-    public List<NativeModule> createNativeModules(ReactApplicationContext reactContext) {
-        Log.d("JBlue Package", "Initializing BluetoothModule & BLEModule");
+    public NativeModule getModule(String name, ReactApplicationContext reactContext) {
+        switch (name) {
+            case "BLEModule":
+                Log.d("JBlue Package", "Initializing BLEModule, turbo: " + JBluePackModules.TURBO);
+                return JBluePackModules.ble(reactContext);         // Bluetooth Low Energy (BLE)
+            case "BluetoothModule":
+                return JBluePackModules.bluetooth(reactContext);   // Bluetooth Classic
+            case "AudioModule":
+                return new AudioModule(reactContext);              // bridge module on both, via the interop layer
+            default:
+                return null;
+        }
+    }
 
-        return Arrays.asList(
-            new BLEModule(reactContext),         // Bluetooth Low Energy (BLE)
-            new BluetoothModule(reactContext),         // Bluetooth Classic
-            new AudioModule(reactContext)
-            );
+    @Override
+    public ReactModuleInfoProvider getReactModuleInfoProvider() {
+        return () -> {
+            Map<String, ReactModuleInfo> modules = new HashMap<>();
+            modules.put("BLEModule", moduleInfo("BLEModule", JBluePackModules.TURBO));
+            modules.put("BluetoothModule", moduleInfo("BluetoothModule", JBluePackModules.TURBO));
+            modules.put("AudioModule", moduleInfo("AudioModule", false));
+            return modules;
+        };
+    }
+
+    private static ReactModuleInfo moduleInfo(String name, boolean turbo) {
+        return new ReactModuleInfo(name, name,
+                false,   // canOverrideExistingModule
+                false,   // needsEagerInit
+                false,   // hasConstants
+                false,   // isCxxModule
+                turbo);
     }
 
     @Override
@@ -27,4 +59,3 @@ public class JBluePack  implements ReactPackage {
         return Collections.emptyList();
     }
 }
-
@@ -0,0 +1,55 @@
+package com.jbluepack;
+
+import android.bluetooth.BluetoothDevice;
+import android.bluetooth.BluetoothGatt;
+
+/**
+ * Named radio settings for a BLE link: connection priority (which picks the connection
+ * interval) and preferred PHY. Android only exposes three priority levels, so
+ * "lowLatency" and "highThroughput" share the shortest interval; highThroughput also
+ * makes sure the MTU is at its maximum so each connection event carries full packets.
+ */
+enum LinkProfile {
+    LOW_POWER("lowPower", BluetoothGatt.CONNECTION_PRIORITY_LOW_POWER, BluetoothDevice.PHY_LE_1M_MASK, 100, 125, false),
+    BALANCED("balanced", BluetoothGatt.CONNECTION_PRIORITY_BALANCED, BluetoothDevice.PHY_LE_1M_MASK, 30, 50, false),
+    HIGH_THROUGHPUT("highThroughput", BluetoothGatt.CONNECTION_PRIORITY_HIGH, BluetoothDevice.PHY_LE_2M_MASK, 11.25, 15, true),
+    LOW_LATENCY("lowLatency", BluetoothGatt.CONNECTION_PRIORITY_HIGH, BluetoothDevice.PHY_LE_2M_MASK, 11.25, 15, false);
+
+    final String jsName;
+    final int connectionPriority;
+    final int phyMask;
+    // Interval range the stack asks for at this priority, used until the controller reports the real one
+    final double intervalMinMs;
+    final double intervalMaxMs;
+    final boolean maximizeMtu;
+
+    LinkProfile(String jsName, int connectionPriority, int phyMask, double intervalMinMs, double intervalMaxMs, boolean maximizeMtu) {
+        this.jsName = jsName;
+        this.connectionPriority = connectionPriority;
+        this.phyMask = phyMask;
+        this.intervalMinMs = intervalMinMs;
+        this.intervalMaxMs = intervalMaxMs;
+        this.maximizeMtu = maximizeMtu;
+    }
+
+    /** Returns null for unknown names. */
+    static LinkProfile fromName(String name) {
+        for (LinkProfile profile : values()) {
+            if (profile.jsName.equals(name)) return profile;
+        }
+        return null;
+    }
+
+    static String phyName(int phy) {
+        switch (phy) {
+            case BluetoothDevice.PHY_LE_1M:
+                return "1M";
+            case BluetoothDevice.PHY_LE_2M:
+                return "2M";
+            case BluetoothDevice.PHY_LE_CODED:
+                return "coded";
+            default:
+                return "unknown";
+        }
+    }
+}
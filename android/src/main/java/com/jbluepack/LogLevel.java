@@ -0,0 +1,30 @@
+package com.jbluepack;
+
+/**
+ * Process-wide gate for per-packet logging. Hot paths check debug() before building
+ * the message, so with the default level a notification or write costs no string
+ * concatenation and no Log call. Lifecycle logging is not gated.
+ */
+final class LogLevel {
+
+    private static volatile boolean debug;
+
+    private LogLevel() {
+    }
+
+    static boolean debug() {
+        return debug;
+    }
+
+    /** "debug" turns per-packet logging on, "info" (the default) turns it off. Returns false for unknown names. */
+    static boolean set(String name) {
+        if ("debug".equals(name)) {
+            debug = true;
+        } else if ("info".equals(name)) {
+            debug = false;
+        } else {
+            return false;
+        }
+        return true;
+    }
+}
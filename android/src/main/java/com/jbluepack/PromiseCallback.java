@@ -0,0 +1,28 @@
+package com.jbluepack;
+
+import com.facebook.react.bridge.Promise;
+
+/** Adapts a React Native Promise to the core Callback. */
+final class PromiseCallback implements Callback {
+
+    private final Promise promise;
+
+    private PromiseCallback(Promise promise) {
+        this.promise = promise;
+    }
+
+    /** Returns null for a null promise, so internal operations stay callback-less. */
+    static Callback of(Promise promise) {
+        return promise != null ? new PromiseCallback(promise) : null;
+    }
+
+    @Override
+    public void resolve(Object value) {
+        promise.resolve(value);
+    }
+
+    @Override
+    public void reject(String code, String message) {
+        promise.reject(code, message);
+    }
+}
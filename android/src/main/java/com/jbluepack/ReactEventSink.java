@@ -0,0 +1,97 @@
+package com.jbluepack;
+
+import com.facebook.react.bridge.Arguments;
+import com.facebook.react.bridge.ReactContext;
+import com.facebook.react.bridge.WritableArray;
+import com.facebook.react.bridge.WritableMap;
+import com.facebook.react.modules.core.DeviceEventManagerModule;
+
+/** Core EventSink on top of WritableMap/WritableArray and the device event emitter. */
+final class ReactEventSink implements EventSink {
+
+    static final class ReactMap implements EventMap {
+        final WritableMap map = Arguments.createMap();
+
+        @Override
+        public void putString(String key, String value) {
+            map.putString(key, value);
+        }
+
+        @Override
+        public void putInt(String key, int value) {
+            map.putInt(key, value);
+        }
+
+        @Override
+        public void putDouble(String key, double value) {
+            map.putDouble(key, value);
+        }
+
+        @Override
+        public void putBoolean(String key, boolean value) {
+            map.putBoolean(key, value);
+        }
+
+        @Override
+        public void putMap(String key, EventMap value) {
+            map.putMap(key, ((ReactMap) value).map);
+        }
+
+        @Override
+        public void putArray(String key, EventArray value) {
+            map.putArray(key, ((ReactArray) value).array);
+        }
+    }
+
+    static final class ReactArray implements EventArray {
+        final WritableArray array = Arguments.createArray();
+
+        @Override
+        public void pushMap(EventMap value) {
+            array.pushMap(((ReactMap) value).map);
+        }
+
+        @Override
+        public void pushString(String value) {
+            array.pushString(value);
+        }
+    }
+
+    private final ReactContext reactContext;
+
+    ReactEventSink(ReactContext reactContext) {
+        this.reactContext = reactContext;
+    }
+
+    static WritableMap unwrap(EventMap map) {
+        return ((ReactMap) map).map;
+    }
+
+    static WritableArray unwrap(EventArray array) {
+        return ((ReactArray) array).array;
+    }
+
+    @Override
+    public EventMap createMap() {
+        return new ReactMap();
+    }
+
+    @Override
+    public EventArray createArray() {
+        return new ReactArray();
+    }
+
+    /** Emits through the bridge, recording how long the hand-off took and counting drops. */
+    @Override
+    public boolean emit(String eventName, EventMap payload) {
+        if (reactContext == null || !reactContext.hasActiveCatalystInstance()) {
+            Metrics.shared().eventsDropped.incrementAndGet();
+            return false;
+        }
+        long startedAt = System.nanoTime();
+        reactContext.getJSModule(DeviceEventManagerModule.RCTDeviceEventEmitter.class)
+                .emit(eventName, unwrap(payload));
+        Metrics.shared().bridgeEmit.recordNanos(System.nanoTime() - startedAt);
+        return true;
+    }
+}
@@ -0,0 +1,78 @@
+package com.jbluepack;
+
+import com.facebook.react.bridge.ReadableArray;
+import com.facebook.react.bridge.ReadableMap;
+
+import java.io.File;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Translates JS recorder options into a FrameRecorder.Config and query arguments.
+ *
+ * Recording: path (a directory, file:// prefix allowed, defaults to jbluepack-recording in
+ * the app's files directory), segmentBytes, maxSegments, maxAgeMs, ble and rfcomm (both
+ * default true), deviceIds and characteristics (arrays, default everything).
+ * Query: fromSeq, fromTime and toTime (ms since the epoch), deviceId and max frames.
+ */
+final class RecorderOptions {
+
+    static final String DEFAULT_DIRECTORY = "jbluepack-recording";
+
+    private RecorderOptions() {
+    }
+
+    /** Throws IllegalArgumentException naming the first bad key. */
+    static FrameRecorder.Config parse(ReadableMap options, File filesDir) {
+        String path = string(options, "path");
+        File directory = path != null
+                ? new File(path.startsWith("file://") ? path.substring("file://".length()) : path)
+                : new File(filesDir, DEFAULT_DIRECTORY);
+        Set<String> characteristics = set(options, "characteristics");
+        if (characteristics != null) {
+            Set<String> normalized = new HashSet<>();
+            for (String characteristic : characteristics) {
+                normalized.add(GattAttributeCache.uuid(characteristic).toString());  // same form the notification path uses
+            }
+            characteristics = normalized;
+        }
+        return new FrameRecorder.Config(directory,
+                (int) number(options, "segmentBytes", FrameRecorder.DEFAULT_SEGMENT_BYTES),
+                (int) number(options, "maxSegments", FrameRecorder.DEFAULT_MAX_SEGMENTS),
+                number(options, "maxAgeMs", 0),
+                bool(options, "ble", true), bool(options, "rfcomm", true),
+                set(options, "deviceIds"), characteristics);
+    }
+
+    /** One page of FrameRecorder.query for the query options. */
+    static EventSink.EventMap query(FrameRecorder recorder, EventSink sink, ReadableMap options) {
+        long max = number(options, "max", FrameRecorder.DEFAULT_QUERY_FRAMES);
+        if (max < 1 || max > FrameRecorder.MAX_QUERY_FRAMES) {
+            throw new IllegalArgumentException("max must be between 1 and " + FrameRecorder.MAX_QUERY_FRAMES + ".");
+        }
+        return recorder.query(sink, number(options, "fromSeq", 0), number(options, "fromTime", Long.MIN_VALUE),
+                number(options, "toTime", Long.MAX_VALUE), string(options, "deviceId"), (int) max);
+    }
+
+    private static Set<String> set(ReadableMap options, String key) {
+        if (options == null || !options.hasKey(key) || options.isNull(key)) return null;
+        ReadableArray array = options.getArray(key);
+        Set<String> values = new HashSet<>();
+        for (int i = 0; i < array.size(); i++) {
+            values.add(array.getString(i));
+        }
+        return values;
+    }
+
+    private static String string(ReadableMap options, String key) {
+        return options != null && options.hasKey(key) && !options.isNull(key) ? options.getString(key) : null;
+    }
+
+    private static long number(ReadableMap options, String key, long fallback) {
+        return options != null && options.hasKey(key) && !options.isNull(key) ? (long) options.getDouble(key) : fallback;
+    }
+
+    private static boolean bool(ReadableMap options, String key, boolean fallback) {
+        return options != null && options.hasKey(key) && !options.isNull(key) ? options.getBoolean(key) : fallback;
+    }
+}
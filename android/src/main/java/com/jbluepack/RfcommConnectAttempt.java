@@ -0,0 +1,187 @@
+package com.jbluepack;
+
+import com.facebook.react.bridge.ReadableMap;
+import com.facebook.react.bridge.WritableMap;
+
+import android.bluetooth.BluetoothAdapter;
+import android.bluetooth.BluetoothDevice;
+import android.bluetooth.BluetoothSocket;
+import android.util.Log;
+
+import java.io.IOException;
+import java.util.UUID;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One RFCOMM dial. Cancels discovery (it slows paging down badly), creates the socket and
+ * connects, falling back from a secure to an insecure socket when the secure one fails.
+ *
+ * BluetoothSocket.connect() blocks and has no timeout of its own, so connect() runs on a
+ * pool thread and cancel() closes the socket from another thread, which makes connect()
+ * fail right away. The timeout, a lost race and a disconnect all cancel this way.
+ */
+final class RfcommConnectAttempt {
+
+    static final UUID SPP_UUID = UUID.fromString("00001101-0000-1000-8000-00805F9B34FB");
+    static final long DEFAULT_TIMEOUT_MS = 12000;
+    private static final String TAG = "RfcommConnectAttempt";
+
+    /** uuid (defaults to SPP), timeoutMs, secure (default true) and insecureFallback (default true). */
+    static final class Options {
+        static final Options DEFAULT = new Options(SPP_UUID, DEFAULT_TIMEOUT_MS, true, true);
+
+        final UUID uuid;
+        final long timeoutMs;
+        final boolean secure;
+        final boolean insecureFallback;
+
+        Options(UUID uuid, long timeoutMs, boolean secure, boolean insecureFallback) {
+            this.uuid = uuid;
+            this.timeoutMs = timeoutMs;
+            this.secure = secure;
+            this.insecureFallback = insecureFallback;
+        }
+
+        /** Throws IllegalArgumentException for a malformed uuid or a negative timeout. */
+        static Options parse(ReadableMap options) {
+            if (options == null) return DEFAULT;
+            UUID uuid = options.hasKey("uuid") && !options.isNull("uuid") ? UUID.fromString(options.getString("uuid")) : SPP_UUID;
+            long timeoutMs = options.hasKey("timeoutMs") ? (long) options.getDouble("timeoutMs") : DEFAULT_TIMEOUT_MS;
+            if (timeoutMs < 0) {
+                throw new IllegalArgumentException("timeoutMs must not be negative.");
+            }
+            return new Options(uuid, timeoutMs,
+                    !options.hasKey("secure") || options.getBoolean("secure"),
+                    !options.hasKey("insecureFallback") || options.getBoolean("insecureFallback"));
+        }
+    }
+
+    final String address;
+    final Options options;
+    private final BluetoothAdapter adapter;
+    private final ScheduledExecutorService timer;
+
+    private volatile BluetoothSocket socket;
+    private volatile String cancelCode;
+    private volatile String cancelMessage;
+
+    // Phase timings, written by the dialling thread and read once connect() has returned
+    private long discoveryNanos;
+    private long socketNanos;
+    private long connectNanos;
+    private long totalNanos;
+    private boolean insecure;
+
+    RfcommConnectAttempt(BluetoothAdapter adapter, String address, Options options, ScheduledExecutorService timer) {
+        this.adapter = adapter;
+        this.address = address;
+        this.options = options;
+        this.timer = timer;
+    }
+
+    /** Blocks until connected. Throws with the cancel message when cancelled, see failureCode. */
+    BluetoothSocket connect() throws IOException {
+        long startedAt = System.nanoTime();
+        ScheduledFuture<?> timeout = options.timeoutMs > 0
+                ? timer.schedule(() -> cancel("Connection Timeout", "No connection to " + address + " within " + options.timeoutMs + " ms."),
+                        options.timeoutMs, TimeUnit.MILLISECONDS)
+                : null;
+        try {
+            cancelDiscovery();
+            BluetoothDevice device = adapter.getRemoteDevice(address);
+            if (options.secure) {
+                try {
+                    return open(device, false);
+                } catch (IOException e) {
+                    if (cancelCode != null || !options.insecureFallback) throw e;
+                    Log.w(TAG, "Secure connect to " + address + " failed, trying insecure: " + e.getMessage());
+                }
+            }
+            return open(device, true);
+        } finally {
+            if (timeout != null) {
+                timeout.cancel(false);
+            }
+            totalNanos = System.nanoTime() - startedAt;
+        }
+    }
+
+    /** Aborts a dial in progress, from any thread. The first reason wins. */
+    void cancel(String code, String message) {
+        if (cancelCode == null) {
+            cancelMessage = message;
+            cancelCode = code;
+        }
+        BluetoothSocket current = socket;
+        if (current != null) {
+            closeQuietly(current);
+        }
+    }
+
+    /** "Connection Timeout" or another cancel code, "Connection Failed" when the stack refused. */
+    String failureCode() {
+        String code = cancelCode;
+        return code != null ? code : "Connection Failed";
+    }
+
+    long connectNanos() {
+        return connectNanos;
+    }
+
+    boolean isInsecure() {
+        return insecure;
+    }
+
+    /** discoveryMs, socketMs, connectMs (summed over the secure and insecure tries), totalMs and insecure. */
+    void writeTimings(WritableMap map) {
+        map.putDouble("discoveryMs", discoveryNanos / 1_000_000.0);
+        map.putDouble("socketMs", socketNanos / 1_000_000.0);
+        map.putDouble("connectMs", connectNanos / 1_000_000.0);
+        map.putDouble("totalMs", totalNanos / 1_000_000.0);
+        map.putBoolean("insecure", insecure);
+    }
+
+    private void cancelDiscovery() {
+        long startedAt = System.nanoTime();
+        try {
+            if (adapter.isDiscovering()) {
+                adapter.cancelDiscovery();
+            }
+        } catch (SecurityException e) {
+            Log.w(TAG, "Can't cancel discovery without BLUETOOTH_SCAN: " + e.getMessage());
+        }
+        discoveryNanos = System.nanoTime() - startedAt;
+    }
+
+    private BluetoothSocket open(BluetoothDevice device, boolean insecure) throws IOException {
+        long startedAt = System.nanoTime();
+        BluetoothSocket next = insecure
+                ? device.createInsecureRfcommSocketToServiceRecord(options.uuid)
+                : device.createRfcommSocketToServiceRecord(options.uuid);
+        long createdAt = System.nanoTime();
+        socketNanos += createdAt - startedAt;
+        socket = next;
+        try {
+            if (cancelCode != null) throw new IOException(cancelMessage);
+            next.connect();
+            if (cancelCode != null) throw new IOException(cancelMessage);  // cancelled as it connected
+        } catch (IOException e) {
+            closeQuietly(next);
+            throw cancelCode != null ? new IOException(cancelMessage, e) : e;
+        } finally {
+            connectNanos += System.nanoTime() - createdAt;
+        }
+        this.insecure = insecure;
+        return next;
+    }
+
+    private static void closeQuietly(BluetoothSocket socket) {
+        try {
+            socket.close();
+        } catch (IOException e) {
+            Log.w(TAG, "Error closing socket: " + e.getMessage());
+        }
+    }
+}
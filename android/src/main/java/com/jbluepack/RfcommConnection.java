@@ -0,0 +1,78 @@
+package com.jbluepack;
+
+import com.facebook.react.bridge.Arguments;
+import com.facebook.react.bridge.WritableMap;
+
+import android.bluetooth.BluetoothSocket;
+
+/**
+ * One RFCOMM link of BluetoothModule, keyed by the remote device address. Outbound links
+ * are dialled by connectToDevice and reconnect through their own supervisor; inbound links
+ * come from the server's accept loop and are dropped when they close.
+ *
+ * Socket, writer and framer are swapped as a whole (reconnect, setFraming), so they are
+ * volatile and every thread works on the instance it read.
+ */
+class RfcommConnection {
+
+    enum Direction {
+        OUTBOUND("outbound"),
+        INBOUND("inbound");
+
+        final String jsName;
+
+        Direction(String jsName) {
+            this.jsName = jsName;
+        }
+    }
+
+    final String address;
+    final Direction direction;
+    final Metrics.Device metrics;
+
+    volatile BluetoothSocket socket;
+    volatile RfcommWriter writer;
+    // The reader thread picks up a replaced framer on its next read
+    volatile StreamFramer framer;
+    volatile BluetoothSocket readingSocket;  // the socket a reader task is on, guarded by this for hand-over
+    volatile boolean closed;
+    ReconnectSupervisor supervisor;  // outbound only
+    RfcommConnectAttempt.Options connectOptions;  // outbound only, reused by reconnects
+    // The dial in progress (cancelled by close) and the one that made the current socket
+    volatile RfcommConnectAttempt dial;
+    volatile RfcommConnectAttempt connectedBy;
+    volatile long attachedAtNanos;
+    volatile long firstByteNanos;  // attach to first received byte, 0 until then
+
+    RfcommConnection(String address, Direction direction, StreamFramer framer) {
+        this.address = address;
+        this.direction = direction;
+        this.framer = framer;
+        this.metrics = Metrics.shared().device(address);
+    }
+
+    boolean isConnected() {
+        BluetoothSocket current = socket;
+        return current != null && current.isConnected();
+    }
+
+    WritableMap toMap() {
+        RfcommWriter currentWriter = writer;
+        WritableMap map = Arguments.createMap();
+        map.putString("deviceId", address);
+        map.putString("direction", direction.jsName);
+        map.putBoolean("connected", isConnected());
+        BluetoothSocket current = socket;
+        map.putBoolean("listening", current != null && readingSocket == current);
+        map.putInt("depth", currentWriter != null ? currentWriter.depth() : 0);
+        map.putDouble("queuedBytes", currentWriter != null ? currentWriter.queuedBytes() : 0);
+        map.putBoolean("backpressure", currentWriter != null && currentWriter.isBackpressured());
+        RfcommConnectAttempt attempt = connectedBy;
+        if (attempt != null) {
+            attempt.writeTimings(map);
+        }
+        long firstByte = firstByteNanos;
+        map.putDouble("firstByteMs", firstByte > 0 ? firstByte / 1_000_000.0 : -1);
+        return map;
+    }
+}
@@ -0,0 +1,98 @@
+package com.jbluepack;
+
+import com.facebook.react.bridge.ReadableMap;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Translates a JS rule object into a NotificationRules.Rule.
+ *
+ * Match: deviceId, characteristic, prefix (hex) with optional mask (hex, same length)
+ * at offset, text (UTF-8 fragment). At least one of prefix or text is required.
+ * Action: "sound" with sound (a preloaded AudioModule sound), "write" with reply
+ * (base64) or replyText, plus service and replyCharacteristic on BLE, or "event".
+ * consume (default false) and cooldownMs apply to every action.
+ */
+final class RuleOptions {
+
+    private RuleOptions() {
+    }
+
+    /** Throws IllegalArgumentException naming the first bad key. */
+    static NotificationRules.Rule parse(int id, ReadableMap options, boolean ble) {
+        String characteristic = string(options, "characteristic");
+        if (characteristic != null) {
+            characteristic = GattAttributeCache.uuid(characteristic).toString();  // same form the notification path uses
+        }
+        byte[] prefix = bytes(options, "prefix");
+        byte[] mask = bytes(options, "mask");
+        if (mask != null && (prefix == null || mask.length != prefix.length)) {
+            throw new IllegalArgumentException("mask must be hex of the same length as prefix.");
+        }
+        String text = string(options, "text");
+        if (prefix == null && text == null) {
+            throw new IllegalArgumentException("A rule needs a prefix or a text pattern.");
+        }
+        long offset = number(options, "offset");
+        if (offset < 0) {
+            throw new IllegalArgumentException("offset must not be negative.");
+        }
+
+        NotificationRules.Action action = NotificationRules.Action.fromJs(string(options, "action"));
+        if (action == null) {
+            throw new IllegalArgumentException("action must be sound, write or event.");
+        }
+        String sound = string(options, "sound");
+        if (action == NotificationRules.Action.SOUND && sound == null) {
+            throw new IllegalArgumentException("A sound rule needs a sound.");
+        }
+        byte[] reply = null;
+        // ✅ Parsed here so a malformed UUID rejects the rule instead of failing on every matching packet
+        String service = uuid(options, "service");
+        String replyCharacteristic = uuid(options, "replyCharacteristic");
+        if (action == NotificationRules.Action.WRITE) {
+            String replyText = string(options, "replyText");
+            String base64 = string(options, "reply");
+            reply = replyText != null ? replyText.getBytes(StandardCharsets.UTF_8)
+                    : base64 != null ? BlePayload.fromBase64(base64) : null;
+            if (reply == null) {
+                throw new IllegalArgumentException("A write rule needs reply (base64) or replyText.");
+            }
+            if (ble && (service == null || replyCharacteristic == null)) {
+                throw new IllegalArgumentException("A BLE write rule needs service and replyCharacteristic.");
+            }
+        }
+
+        boolean consume = options.hasKey("consume") && !options.isNull("consume") && options.getBoolean("consume");
+        return new NotificationRules.Rule(id, string(options, "deviceId"), characteristic, (int) offset, prefix, mask, text,
+                action, sound, service, replyCharacteristic, reply, consume, number(options, "cooldownMs"));
+    }
+
+    private static byte[] bytes(ReadableMap options, String key) {
+        String value = string(options, key);
+        if (value == null) return null;
+        byte[] bytes = NotificationRules.hex(value);
+        if (bytes == null || bytes.length == 0) {
+            throw new IllegalArgumentException(key + " must be a non-empty hex string.");
+        }
+        return bytes;
+    }
+
+    private static String uuid(ReadableMap options, String key) {
+        String value = string(options, key);
+        if (value == null) return null;
+        try {
+            return GattAttributeCache.uuid(value).toString();
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException(key + " is not a valid UUID: " + value);
+        }
+    }
+
+    private static String string(ReadableMap options, String key) {
+        return options != null && options.hasKey(key) && !options.isNull(key) ? options.getString(key) : null;
+    }
+
+    private static long number(ReadableMap options, String key) {
+        return options != null && options.hasKey(key) && !options.isNull(key) ? (long) options.getDouble(key) : 0;
+    }
+}
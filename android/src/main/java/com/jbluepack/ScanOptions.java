@@ -0,0 +1,106 @@
+package com.jbluepack;
+
+import com.facebook.react.bridge.ReadableArray;
+import com.facebook.react.bridge.ReadableMap;
+
+import android.bluetooth.le.ScanFilter;
+import android.bluetooth.le.ScanSettings;
+import android.os.ParcelUuid;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Translates the JS scan options object into hardware ScanFilters and ScanSettings.
+ *
+ * Supported keys: serviceUuids, names, addresses (arrays of strings, each entry becomes
+ * its own filter so they OR together), scanMode ("lowPower" | "balanced" | "lowLatency" |
+ * "opportunistic"), matchMode ("aggressive" | "sticky"), numOfMatches ("one" | "few" | "max"),
+ * reportDelayMs and durationMs.
+ */
+final class ScanOptions {
+
+    private ScanOptions() {
+    }
+
+    /** Returns null when no filters were given, so the scan stays unfiltered. */
+    static List<ScanFilter> filters(ReadableMap options) {
+        if (options == null) return null;
+        List<ScanFilter> filters = new ArrayList<>();
+
+        ReadableArray uuids = array(options, "serviceUuids");
+        for (int i = 0; uuids != null && i < uuids.size(); i++) {
+            filters.add(new ScanFilter.Builder().setServiceUuid(ParcelUuid.fromString(uuids.getString(i))).build());
+        }
+        ReadableArray names = array(options, "names");
+        for (int i = 0; names != null && i < names.size(); i++) {
+            filters.add(new ScanFilter.Builder().setDeviceName(names.getString(i)).build());
+        }
+        ReadableArray addresses = array(options, "addresses");
+        for (int i = 0; addresses != null && i < addresses.size(); i++) {
+            filters.add(new ScanFilter.Builder().setDeviceAddress(addresses.getString(i).toUpperCase()).build());
+        }
+        return filters.isEmpty() ? null : filters;
+    }
+
+    /** Throws IllegalArgumentException for a scanMode, matchMode or numOfMatches it doesn't know. */
+    static ScanSettings settings(ReadableMap options) {
+        ScanSettings.Builder builder = new ScanSettings.Builder();
+        String scanMode = string(options, "scanMode");
+        if (scanMode == null || "lowPower".equals(scanMode)) {
+            builder.setScanMode(ScanSettings.SCAN_MODE_LOW_POWER);  // same default as startScan(callback)
+        } else if ("balanced".equals(scanMode)) {
+            builder.setScanMode(ScanSettings.SCAN_MODE_BALANCED);
+        } else if ("lowLatency".equals(scanMode)) {
+            builder.setScanMode(ScanSettings.SCAN_MODE_LOW_LATENCY);
+        } else if ("opportunistic".equals(scanMode)) {
+            builder.setScanMode(ScanSettings.SCAN_MODE_OPPORTUNISTIC);
+        } else {
+            throw new IllegalArgumentException("scanMode must be lowPower, balanced, lowLatency or opportunistic, not " + scanMode + ".");
+        }
+
+        String matchMode = string(options, "matchMode");
+        if ("sticky".equals(matchMode)) {
+            builder.setMatchMode(ScanSettings.MATCH_MODE_STICKY);
+        } else if ("aggressive".equals(matchMode)) {
+            builder.setMatchMode(ScanSettings.MATCH_MODE_AGGRESSIVE);
+        } else if (matchMode != null) {
+            throw new IllegalArgumentException("matchMode must be aggressive or sticky, not " + matchMode + ".");
+        }
+
+        String numOfMatches = string(options, "numOfMatches");
+        if ("one".equals(numOfMatches)) {
+            builder.setNumOfMatches(ScanSettings.MATCH_NUM_ONE_ADVERTISEMENT);
+        } else if ("few".equals(numOfMatches)) {
+            builder.setNumOfMatches(ScanSettings.MATCH_NUM_FEW_ADVERTISEMENT);
+        } else if ("max".equals(numOfMatches)) {
+            builder.setNumOfMatches(ScanSettings.MATCH_NUM_MAX_ADVERTISEMENT);
+        } else if (numOfMatches != null) {
+            throw new IllegalArgumentException("numOfMatches must be one, few or max, not " + numOfMatches + ".");
+        }
+
+        // > 0 makes the controller queue results and deliver them through onBatchScanResults
+        long reportDelay = number(options, "reportDelayMs");
+        if (reportDelay > 0) {
+            builder.setReportDelay(reportDelay);
+        }
+        return builder.build();
+    }
+
+    /** Auto-stop duration in ms, 0 to scan until stopBLEScan. */
+    static long durationMs(ReadableMap options) {
+        return number(options, "durationMs");
+    }
+
+    private static ReadableArray array(ReadableMap options, String key) {
+        return options.hasKey(key) && !options.isNull(key) ? options.getArray(key) : null;
+    }
+
+    private static String string(ReadableMap options, String key) {
+        return options != null && options.hasKey(key) && !options.isNull(key) ? options.getString(key) : null;
+    }
+
+    private static long number(ReadableMap options, String key) {
+        return options != null && options.hasKey(key) && !options.isNull(key) ? (long) options.getDouble(key) : 0;
+    }
+}
@@ -0,0 +1,267 @@
+package com.jbluepack;
+
+import com.facebook.react.bridge.Arguments;
+import com.facebook.react.bridge.WritableArray;
+import com.facebook.react.bridge.WritableMap;
+
+import android.bluetooth.le.ScanRecord;
+import android.bluetooth.le.ScanResult;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.ParcelUuid;
+import android.os.SystemClock;
+import android.util.SparseArray;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Device table for BLE scanning, keyed by MAC address.
+ *
+ * Every advertisement updates the table in place; JS only hears about changes.
+ * Once per emit interval the cache sends a single "BLEScanDelta" event with the
+ * devices that were added, the ones whose data or smoothed RSSI moved, and the
+ * ones that haven't been seen within the TTL (which are evicted). New devices also get
+ * the older per-device "BLEDeviceFound" event, sent with the delta rather than from the
+ * scan callback. Events are built under the lock and sent after releasing it.
+ */
+class ScanResultCache {
+
+    interface Listener {
+        void onDelta(WritableMap delta);
+
+        void onDeviceAdded(WritableMap device);
+    }
+
+    static final int DEFAULT_TTL_MS = 10000;
+    static final int DEFAULT_EMIT_INTERVAL_MS = 500;
+    static final int DEFAULT_RSSI_THRESHOLD = 4;     // dBm of smoothed change worth reporting
+    private static final double RSSI_SMOOTHING = 0.25;  // EMA weight of the newest sample
+
+    /** One interval's worth of events, collected under the lock. */
+    private static final class Pending {
+        WritableMap delta;
+        final List<WritableMap> found = new ArrayList<>();
+    }
+
+    private static final class Entry {
+        final String address;
+        String name;
+        double rssi;
+        double reportedRssi;
+        long firstSeen;
+        long lastSeen;
+        byte[] rawRecord;
+        String[] serviceUuids;
+        int[] manufacturerIds;
+        String[] manufacturerData;  // base64, parallel to manufacturerIds
+        boolean added;
+        boolean dirty;
+
+        Entry(String address) {
+            this.address = address;
+        }
+    }
+
+    private final Map<String, Entry> devices = new HashMap<>();
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private final Runnable tick = this::tick;
+    private final Listener listener;
+
+    private int ttlMs = DEFAULT_TTL_MS;
+    private int emitIntervalMs = DEFAULT_EMIT_INTERVAL_MS;
+    private int rssiThreshold = DEFAULT_RSSI_THRESHOLD;
+    private boolean running;
+
+    ScanResultCache(Listener listener) {
+        this.listener = listener;
+    }
+
+    synchronized void configure(int ttlMs, int emitIntervalMs, int rssiThreshold) {
+        if (ttlMs > 0) this.ttlMs = ttlMs;
+        if (emitIntervalMs > 0) this.emitIntervalMs = emitIntervalMs;
+        if (rssiThreshold >= 0) this.rssiThreshold = rssiThreshold;
+    }
+
+    synchronized void start() {
+        if (running) return;
+        running = true;
+        handler.postDelayed(tick, emitIntervalMs);
+    }
+
+    /** Stops periodic deltas after emitting whatever is pending. The table is kept for getScanSnapshot. */
+    void stop() {
+        Pending pending;
+        synchronized (this) {
+            if (!running) return;
+            running = false;
+            handler.removeCallbacks(tick);
+            pending = collectDelta(SystemClock.elapsedRealtime());
+        }
+        deliver(pending);
+    }
+
+    synchronized void onScanResult(ScanResult result) {
+        String address = result.getDevice().getAddress();
+        if (address == null) return;
+
+        long now = SystemClock.elapsedRealtime();
+        Entry entry = devices.get(address);
+        if (entry == null) {
+            entry = new Entry(address);
+            entry.firstSeen = now;
+            entry.rssi = result.getRssi();
+            entry.reportedRssi = entry.rssi;
+            devices.put(address, entry);
+        } else {
+            entry.rssi += RSSI_SMOOTHING * (result.getRssi() - entry.rssi);
+        }
+        entry.lastSeen = now;
+
+        ScanRecord record = result.getScanRecord();
+        byte[] raw = record != null ? record.getBytes() : null;
+        // Most adverts repeat byte for byte, only re-parse the record when it actually changed
+        if (raw != null && !Arrays.equals(raw, entry.rawRecord)) {
+            entry.rawRecord = raw;
+            parseRecord(entry, record);
+            entry.dirty = true;
+        }
+        if (entry.name == null) {
+            String deviceName = result.getDevice().getName();
+            if (deviceName != null) {
+                entry.name = deviceName;
+                entry.dirty = true;
+            }
+        }
+        if (Math.abs(entry.rssi - entry.reportedRssi) >= rssiThreshold) {
+            entry.dirty = true;
+        }
+    }
+
+    synchronized WritableArray snapshot() {
+        WritableArray array = Arguments.createArray();
+        for (Entry entry : devices.values()) {
+            array.pushMap(toMap(entry));
+        }
+        return array;
+    }
+
+    synchronized void clear() {
+        devices.clear();
+    }
+
+    private void tick() {
+        Pending pending;
+        synchronized (this) {
+            if (!running) return;
+            pending = collectDelta(SystemClock.elapsedRealtime());
+            handler.postDelayed(tick, emitIntervalMs);
+        }
+        deliver(pending);
+    }
+
+    private void deliver(Pending pending) {
+        if (pending == null) return;
+        for (WritableMap device : pending.found) {
+            listener.onDeviceAdded(device);
+        }
+        listener.onDelta(pending.delta);
+    }
+
+    /** Called with the lock held, returns null when nothing changed. */
+    private Pending collectDelta(long now) {
+        Pending pending = new Pending();
+        WritableArray added = null;
+        WritableArray updated = null;
+        WritableArray lost = null;
+
+        Iterator<Entry> it = devices.values().iterator();
+        while (it.hasNext()) {
+            Entry entry = it.next();
+            if (now - entry.lastSeen > ttlMs) {
+                it.remove();
+                if (entry.added) {
+                    if (lost == null) lost = Arguments.createArray();
+                    lost.pushString(entry.address);
+                }
+            } else if (!entry.added) {
+                entry.added = true;
+                entry.dirty = false;
+                entry.reportedRssi = entry.rssi;
+                if (added == null) added = Arguments.createArray();
+                added.pushMap(toMap(entry));
+                pending.found.add(toMap(entry));  // a map can only be sent once
+            } else if (entry.dirty) {
+                entry.dirty = false;
+                entry.reportedRssi = entry.rssi;
+                if (updated == null) updated = Arguments.createArray();
+                updated.pushMap(toMap(entry));
+            }
+        }
+
+        if (added == null && updated == null && lost == null) return null;
+        WritableMap delta = Arguments.createMap();
+        delta.putArray("added", added != null ? added : Arguments.createArray());
+        delta.putArray("updated", updated != null ? updated : Arguments.createArray());
+        delta.putArray("lost", lost != null ? lost : Arguments.createArray());
+        pending.delta = delta;
+        return pending;
+    }
+
+    private static void parseRecord(Entry entry, ScanRecord record) {
+        if (record.getDeviceName() != null) {
+            entry.name = record.getDeviceName();
+        }
+
+        List<ParcelUuid> uuids = record.getServiceUuids();
+        entry.serviceUuids = null;
+        if (uuids != null) {
+            entry.serviceUuids = new String[uuids.size()];
+            for (int i = 0; i < uuids.size(); i++) {
+                entry.serviceUuids[i] = uuids.get(i).getUuid().toString();
+            }
+        }
+
+        SparseArray<byte[]> manufacturer = record.getManufacturerSpecificData();
+        entry.manufacturerIds = null;
+        entry.manufacturerData = null;
+        if (manufacturer != null && manufacturer.size() > 0) {
+            entry.manufacturerIds = new int[manufacturer.size()];
+            entry.manufacturerData = new String[manufacturer.size()];
+            for (int i = 0; i < manufacturer.size(); i++) {
+                entry.manufacturerIds[i] = manufacturer.keyAt(i);
+                entry.manufacturerData[i] = BlePayload.toBase64(manufacturer.valueAt(i));
+            }
+        }
+    }
+
+    private static WritableMap toMap(Entry entry) {
+        // Times are tracked on the monotonic clock, JS gets wall-clock milliseconds
+        long wallOffset = System.currentTimeMillis() - SystemClock.elapsedRealtime();
+        WritableMap map = Arguments.createMap();
+        map.putString("address", entry.address);
+        map.putString("name", entry.name != null ? entry.name : "Unnamed");
+        map.putInt("rssi", (int) Math.round(entry.rssi));
+        map.putDouble("firstSeen", entry.firstSeen + wallOffset);
+        map.putDouble("lastSeen", entry.lastSeen + wallOffset);
+        if (entry.serviceUuids != null) {
+            WritableArray uuids = Arguments.createArray();
+            for (String uuid : entry.serviceUuids) {
+                uuids.pushString(uuid);
+            }
+            map.putArray("serviceUuids", uuids);
+        }
+        if (entry.manufacturerIds != null) {
+            WritableMap data = Arguments.createMap();
+            for (int i = 0; i < entry.manufacturerIds.length; i++) {
+                data.putString(String.valueOf(entry.manufacturerIds[i]), entry.manufacturerData[i]);
+            }
+            map.putMap("manufacturerData", data);
+        }
+        return map;
+    }
+}
@@ -0,0 +1,296 @@
+package com.jbluepack;
+
+import android.content.Context;
+import android.content.res.AssetFileDescriptor;
+import android.media.AudioAttributes;
+import android.media.MediaExtractor;
+import android.media.MediaFormat;
+import android.media.SoundPool;
+import android.os.SystemClock;
+import android.util.Log;
+
+import com.facebook.react.bridge.Arguments;
+import com.facebook.react.bridge.Promise;
+import com.facebook.react.bridge.WritableMap;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Raw resources decoded once into a SoundPool, so playing one is a mixer call instead
+ * of a MediaPlayer build. Several voices play at once; when all are busy SoundPool
+ * steals the lowest-priority one. Decoded PCM is capped at maxBytes, evicting the
+ * least recently played sounds first. Resource ids are looked up once per name.
+ */
+class SoundCache {
+
+    static final int DEFAULT_MAX_VOICES = 4;
+    static final long DEFAULT_MAX_BYTES = 4L * 1024 * 1024;
+    private static final String TAG = "SoundCache";
+
+    static final class Sound {
+        final String name;
+        final int soundId;
+        final long bytes;
+        float volume;
+        int priority;
+        boolean loaded;
+        long loadStartedMs;
+        long loadMs;
+        final List<Promise> waiting = new ArrayList<>();
+
+        Sound(String name, int soundId, long bytes) {
+            this.name = name;
+            this.soundId = soundId;
+            this.bytes = bytes;
+        }
+    }
+
+    private final Context context;
+    private final Map<String, Integer> resourceIds = new HashMap<>();
+    // Access order, so iteration starts at the least recently played sound
+    private final LinkedHashMap<String, Sound> sounds = new LinkedHashMap<>(16, 0.75f, true);
+    private final Map<Integer, Sound> bySoundId = new HashMap<>();
+    // Recently started streams, so stopAll can stop them; SoundPool ignores ids that already finished
+    private final int[] streams = new int[32];
+    private int nextStream;
+
+    private SoundPool pool;
+    private int maxVoices = DEFAULT_MAX_VOICES;
+    private long maxBytes = DEFAULT_MAX_BYTES;
+    private long bytes;
+
+    private long hits;
+    private long misses;
+    private long evictions;
+    private double lastPlayMs;
+
+    private static SoundCache shared;
+
+    SoundCache(Context context) {
+        this.context = context;
+    }
+
+    /** One cache per process, so notification rules in the Bluetooth modules can play what AudioModule preloaded. */
+    static synchronized SoundCache shared(Context context) {
+        if (shared == null) {
+            shared = new SoundCache(context.getApplicationContext());
+        }
+        return shared;
+    }
+
+    /** Resource id of a raw resource, 0 if there is none. Cached, getIdentifier is a reflective lookup. */
+    synchronized int resourceId(String name) {
+        Integer cached = resourceIds.get(name);
+        if (cached != null) return cached;
+        int resId = context.getResources().getIdentifier(name, "raw", context.getPackageName());
+        resourceIds.put(name, resId);
+        return resId;
+    }
+
+    /** A new voice count takes effect by rebuilding the pool, which drops every loaded sound. */
+    synchronized void configure(int maxVoices, long maxBytes) {
+        if (maxBytes > 0) this.maxBytes = maxBytes;
+        if (maxVoices > 0 && maxVoices != this.maxVoices) {
+            this.maxVoices = maxVoices;
+            release();
+        }
+        evictOver(this.maxBytes);
+    }
+
+    /** Resolves with the sound's stats once it is decoded and playable. */
+    void preload(String name, float volume, int priority, Promise promise) {
+        int resId;
+        synchronized (this) {
+            Sound sound = sounds.get(name);
+            if (sound != null) {
+                settle(sound, volume, priority, promise);
+                return;
+            }
+            resId = resourceId(name);
+        }
+        if (resId == 0) {
+            promise.reject("ERROR", "Audio file not found: " + name);
+            return;
+        }
+        // Probing the file is I/O, done outside the lock so play() from a rule never waits on it
+        long estimate = decodedBytes(resId);
+        synchronized (this) {
+            Sound sound = sounds.get(name);
+            if (sound == null) {  // a concurrent preload of the same name may have won
+                if (estimate > maxBytes) {
+                    promise.reject("Sound Too Large", name + " needs " + estimate + " bytes decoded, the cache holds " + maxBytes + ".");
+                    return;
+                }
+                evictOver(maxBytes - estimate);
+                long started = SystemClock.elapsedRealtime();
+                sound = new Sound(name, pool().load(context, resId, 1), estimate);
+                sound.loadStartedMs = started;
+                sounds.put(name, sound);
+                bySoundId.put(sound.soundId, sound);
+                bytes += estimate;
+            }
+            settle(sound, volume, priority, promise);
+        }
+    }
+
+    private void settle(Sound sound, float volume, int priority, Promise promise) {
+        sound.volume = volume;
+        sound.priority = priority;
+        if (sound.loaded) {
+            promise.resolve(toMap(sound));
+        } else {
+            sound.waiting.add(promise);
+        }
+    }
+
+    /** Stream id, or 0 when the sound isn't decoded yet (the caller falls back to MediaPlayer). */
+    synchronized int play(String name) {
+        Sound sound = sounds.get(name);  // counts as a use for eviction
+        if (sound == null || !sound.loaded) {
+            misses++;
+            return 0;
+        }
+        long started = System.nanoTime();
+        int streamId = pool.play(sound.soundId, sound.volume, sound.volume, sound.priority, 0, 1f);
+        lastPlayMs = (System.nanoTime() - started) / 1_000_000.0;
+        hits++;
+        streams[nextStream] = streamId;
+        nextStream = (nextStream + 1) % streams.length;
+        return streamId;
+    }
+
+    synchronized void stopAll() {
+        if (pool == null) return;
+        for (int i = 0; i < streams.length; i++) {
+            if (streams[i] != 0) pool.stop(streams[i]);
+            streams[i] = 0;
+        }
+    }
+
+    synchronized boolean unload(String name) {
+        Sound sound = sounds.remove(name);
+        if (sound == null) return false;
+        rejectWaiting(sound, sound.name + " was unloaded before it finished loading.");
+        drop(sound);
+        return true;
+    }
+
+    synchronized WritableMap stats() {
+        WritableMap stats = Arguments.createMap();
+        stats.putInt("sounds", sounds.size());
+        stats.putDouble("bytes", bytes);
+        stats.putDouble("maxBytes", maxBytes);
+        stats.putInt("maxVoices", maxVoices);
+        stats.putDouble("hits", hits);
+        stats.putDouble("misses", misses);
+        stats.putDouble("evictions", evictions);
+        stats.putDouble("lastPlayMs", lastPlayMs);
+        return stats;
+    }
+
+    synchronized void release() {
+        for (Sound sound : sounds.values()) {
+            rejectWaiting(sound, "Sound cache was rebuilt before " + sound.name + " finished loading.");
+        }
+        sounds.clear();
+        bySoundId.clear();
+        bytes = 0;
+        if (pool != null) {
+            pool.release();
+            pool = null;
+        }
+    }
+
+    private SoundPool pool() {
+        if (pool == null) {
+            AudioAttributes attributes = new AudioAttributes.Builder()
+                    .setUsage(AudioAttributes.USAGE_ASSISTANCE_SONIFICATION)
+                    .setContentType(AudioAttributes.CONTENT_TYPE_SONIFICATION)
+                    .build();
+            pool = new SoundPool.Builder().setMaxStreams(maxVoices).setAudioAttributes(attributes).build();
+            pool.setOnLoadCompleteListener(this::onLoadComplete);
+        }
+        return pool;
+    }
+
+    private synchronized void onLoadComplete(SoundPool source, int soundId, int status) {
+        Sound sound = bySoundId.get(soundId);
+        if (source != pool || sound == null) return;  // unloaded or evicted while decoding
+        if (status != 0) {
+            sounds.remove(sound.name);
+            rejectWaiting(sound, "Could not decode " + sound.name + " (status " + status + ").");
+            drop(sound);
+            return;
+        }
+        sound.loaded = true;
+        sound.loadMs = SystemClock.elapsedRealtime() - sound.loadStartedMs;
+        Log.d(TAG, "Preloaded " + sound.name + " in " + sound.loadMs + " ms, ~" + sound.bytes + " bytes");
+        for (Promise promise : sound.waiting) {
+            promise.resolve(toMap(sound));
+        }
+        sound.waiting.clear();
+    }
+
+    /** Evicts least recently played sounds until at most limit bytes are held. */
+    private void evictOver(long limit) {
+        Iterator<Sound> it = sounds.values().iterator();
+        while (bytes > limit && it.hasNext()) {
+            Sound sound = it.next();
+            it.remove();
+            rejectWaiting(sound, sound.name + " was evicted before it finished loading.");
+            drop(sound);
+            evictions++;
+            Log.d(TAG, "Evicted " + sound.name);
+        }
+    }
+
+    private void drop(Sound sound) {
+        bySoundId.remove(sound.soundId);
+        bytes -= sound.bytes;
+        if (pool != null) pool.unload(sound.soundId);
+    }
+
+    private static void rejectWaiting(Sound sound, String message) {
+        for (Promise promise : sound.waiting) {
+            promise.reject("Sound Unloaded", message);
+        }
+        sound.waiting.clear();
+    }
+
+    /** SoundPool keeps 16-bit PCM; estimated from the track format, the file size if that can't be read. */
+    private long decodedBytes(int resId) {
+        MediaExtractor extractor = new MediaExtractor();
+        try (AssetFileDescriptor fd = context.getResources().openRawResourceFd(resId)) {
+            extractor.setDataSource(fd.getFileDescriptor(), fd.getStartOffset(), fd.getLength());
+            MediaFormat format = extractor.getTrackFormat(0);
+            long durationUs = format.getLong(MediaFormat.KEY_DURATION);
+            int rate = format.getInteger(MediaFormat.KEY_SAMPLE_RATE);
+            int channels = format.getInteger(MediaFormat.KEY_CHANNEL_COUNT);
+            return durationUs * rate / 1_000_000 * channels * 2;
+        } catch (Exception e) {
+            Log.w(TAG, "Could not read the format of resource " + resId + ": " + e.getMessage());
+            try (AssetFileDescriptor fd = context.getResources().openRawResourceFd(resId)) {
+                return fd.getLength();
+            } catch (Exception ignored) {
+                return 0;
+            }
+        } finally {
+            extractor.release();
+        }
+    }
+
+    private static WritableMap toMap(Sound sound) {
+        WritableMap map = Arguments.createMap();
+        map.putString("name", sound.name);
+        map.putDouble("bytes", sound.bytes);
+        map.putDouble("loadMs", sound.loadMs);
+        map.putDouble("volume", sound.volume);
+        map.putInt("priority", sound.priority);
+        return map;
+    }
+}
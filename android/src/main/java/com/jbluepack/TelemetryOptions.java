@@ -0,0 +1,134 @@
+package com.jbluepack;
+
+import com.facebook.react.bridge.ReadableArray;
+import com.facebook.react.bridge.ReadableMap;
+
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Translates a JS schema object into a compiled TelemetryDecoder.Schema.
+ *
+ * Schema: name, fields, optional deviceId, characteristic (BLE), match (hex) at
+ * matchOffset, length (exact frame length), littleEndian (default true) and keepRaw.
+ * Field: name, type (u8, i8, u16, i16, u32, i32, f32, f64), offset, optional
+ * littleEndian, bits ({shift, width}) for packed flags, scale (default 1), add,
+ * bool, and enum, a table of integer values to names.
+ */
+final class TelemetryOptions {
+
+    private TelemetryOptions() {
+    }
+
+    /** Throws IllegalArgumentException naming the first bad key. */
+    static TelemetryDecoder.Schema parse(int id, ReadableMap options) {
+        String name = string(options, "name");
+        if (name == null) {
+            throw new IllegalArgumentException("A schema needs a name.");
+        }
+        String characteristic = string(options, "characteristic");
+        if (characteristic != null) {
+            characteristic = GattAttributeCache.uuid(characteristic).toString();  // same form the notification path uses
+        }
+        byte[] match = null;
+        String hex = string(options, "match");
+        if (hex != null) {
+            match = NotificationRules.hex(hex);
+            if (match == null || match.length == 0) {
+                throw new IllegalArgumentException("match must be a non-empty hex string.");
+            }
+        }
+        long matchOffset = number(options, "matchOffset", 0);
+        long length = number(options, "length", 0);
+        if (matchOffset < 0 || length < 0) {
+            throw new IllegalArgumentException("matchOffset and length must not be negative.");
+        }
+        boolean littleEndian = bool(options, "littleEndian", true);
+
+        ReadableArray list = options.hasKey("fields") && !options.isNull("fields") ? options.getArray("fields") : null;
+        if (list == null || list.size() == 0) {
+            throw new IllegalArgumentException("A schema needs at least one field.");
+        }
+        Set<String> names = new HashSet<>();
+        for (String reserved : TelemetryDecoder.RESERVED_KEYS) {
+            names.add(reserved);
+        }
+        TelemetryDecoder.Field[] fields = new TelemetryDecoder.Field[list.size()];
+        for (int i = 0; i < fields.length; i++) {
+            fields[i] = field(list.getMap(i), littleEndian, names);
+        }
+
+        TelemetryDecoder.Schema schema = new TelemetryDecoder.Schema(id, name, string(options, "deviceId"), characteristic,
+                (int) matchOffset, match, (int) length, fields, bool(options, "keepRaw", false));
+        if (length > 0 && length < schema.minLength) {
+            throw new IllegalArgumentException("length " + length + " is shorter than the fields need (" + schema.minLength + ").");
+        }
+        return schema;
+    }
+
+    private static TelemetryDecoder.Field field(ReadableMap options, boolean littleEndian, Set<String> names) {
+        String name = string(options, "name");
+        if (name == null) {
+            throw new IllegalArgumentException("Every field needs a name.");
+        }
+        if (!names.add(name)) {
+            throw new IllegalArgumentException("Field name " + name + " is reserved or used twice.");
+        }
+        TelemetryDecoder.Type type = TelemetryDecoder.Type.fromJs(string(options, "type"));
+        if (type == null) {
+            throw new IllegalArgumentException(name + ": type must be u8, i8, u16, i16, u32, i32, f32 or f64.");
+        }
+        long offset = number(options, "offset", -1);
+        if (offset < 0) {
+            throw new IllegalArgumentException(name + ": offset is required and must not be negative.");
+        }
+
+        long mask = 0;
+        int shift = 0;
+        if (options.hasKey("bits") && !options.isNull("bits")) {
+            ReadableMap bits = options.getMap("bits");
+            shift = (int) number(bits, "shift", 0);
+            long width = number(bits, "width", 1);
+            if (type == TelemetryDecoder.Type.F32 || type == TelemetryDecoder.Type.F64
+                    || shift < 0 || width < 1 || shift + width > 8L * type.width) {
+                throw new IllegalArgumentException(name + ": bits must fit inside an integer field.");
+            }
+            mask = (1L << width) - 1;
+        }
+
+        int[] enumKeys = null;
+        String[] enumNames = null;
+        if (options.hasKey("enum") && !options.isNull("enum")) {
+            Map<String, Object> table = options.getMap("enum").toHashMap();
+            enumKeys = new int[table.size()];
+            enumNames = new String[table.size()];
+            int i = 0;
+            for (Map.Entry<String, Object> entry : table.entrySet()) {
+                try {
+                    enumKeys[i] = Integer.decode(entry.getKey());
+                } catch (NumberFormatException e) {
+                    throw new IllegalArgumentException(name + ": enum key " + entry.getKey() + " is not an integer.");
+                }
+                enumNames[i++] = String.valueOf(entry.getValue());
+            }
+        }
+
+        return new TelemetryDecoder.Field(name, type, (int) offset, bool(options, "littleEndian", littleEndian), mask, shift,
+                options.hasKey("scale") && !options.isNull("scale") ? options.getDouble("scale") : 1,
+                options.hasKey("add") && !options.isNull("add") ? options.getDouble("add") : 0,
+                bool(options, "bool", false), enumKeys, enumNames);
+    }
+
+    private static String string(ReadableMap options, String key) {
+        return options != null && options.hasKey(key) && !options.isNull(key) ? options.getString(key) : null;
+    }
+
+    private static long number(ReadableMap options, String key, long fallback) {
+        return options != null && options.hasKey(key) && !options.isNull(key) ? (long) options.getDouble(key) : fallback;
+    }
+
+    private static boolean bool(ReadableMap options, String key, boolean fallback) {
+        return options != null && options.hasKey(key) && !options.isNull(key) ? options.getBoolean(key) : fallback;
+    }
+}
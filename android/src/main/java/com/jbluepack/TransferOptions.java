@@ -0,0 +1,67 @@
+package com.jbluepack;
+
+import com.facebook.react.bridge.ReadableMap;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Translates the JS options of uploadToBLEDevice/downloadFromBLEDevice.
+ *
+ * Source: { path } (file:// prefix allowed, mapped read-only) or { base64 }.
+ * Options: blockSize, window, ackTimeoutMs, maxRetries, resumeTimeoutMs,
+ * progressIntervalMs, resume (default true) and, for downloads, path.
+ */
+final class TransferOptions {
+
+    private TransferOptions() {
+    }
+
+    /** Returns null if the source has neither a path nor valid base64. */
+    static ByteBuffer source(ReadableMap source) throws IOException {
+        String path = string(source, "path");
+        if (path != null) {
+            try (RandomAccessFile file = new RandomAccessFile(file(path), "r")) {
+                // The mapping stays valid after the channel is closed
+                return file.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, file.length());
+            }
+        }
+        String base64 = string(source, "base64");
+        byte[] bytes = base64 != null ? BlePayload.fromBase64(base64) : null;
+        return bytes != null ? ByteBuffer.wrap(bytes) : null;
+    }
+
+    /** Download destination, null to collect the image in memory. */
+    static File target(ReadableMap options) {
+        String path = string(options, "path");
+        return path != null ? file(path) : null;
+    }
+
+    static void apply(BulkTransfer transfer, ReadableMap options) {
+        if (options == null) return;
+        transfer.configure((int) number(options, "blockSize"), (int) number(options, "window"));
+        transfer.configureTimeouts((int) number(options, "ackTimeoutMs"), (int) number(options, "maxRetries"),
+                (int) number(options, "resumeTimeoutMs"));
+        if (options.hasKey("progressIntervalMs") && !options.isNull("progressIntervalMs")) {
+            transfer.setProgressInterval((int) number(options, "progressIntervalMs"));
+        }
+        if (options.hasKey("resume") && !options.isNull("resume")) {
+            transfer.setResume(options.getBoolean("resume"));
+        }
+    }
+
+    private static File file(String path) {
+        return new File(path.startsWith("file://") ? path.substring("file://".length()) : path);
+    }
+
+    private static String string(ReadableMap options, String key) {
+        return options != null && options.hasKey(key) && !options.isNull(key) ? options.getString(key) : null;
+    }
+
+    private static long number(ReadableMap options, String key) {
+        return options != null && options.hasKey(key) && !options.isNull(key) ? (long) options.getDouble(key) : 0;
+    }
+}
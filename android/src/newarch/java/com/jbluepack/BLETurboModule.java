@@ -0,0 +1,440 @@
+package com.jbluepack;
+
+import com.facebook.react.bridge.Promise;
+import com.facebook.react.bridge.ReactApplicationContext;
+import com.facebook.react.bridge.ReadableMap;
+
+/**
+ * New Architecture face of BLEModule: implements the codegen spec generated from
+ * src/NativeBLEModule.ts and forwards every call to a BLEModule that does the work,
+ * so both architectures share one implementation. Calls arrive over JSI with typed
+ * arguments, and the synchronous getters return without a bridge round trip.
+ */
+public class BLETurboModule extends NativeBLEModuleSpec {
+
+    private final BLEModule module;
+
+    public BLETurboModule(ReactApplicationContext reactContext) {
+        super(reactContext);
+        module = new BLEModule(reactContext);
+    }
+
+    @Override
+    public void scanBLEDevices(Promise promise) {
+        module.scanBLEDevices(promise);
+    }
+
+    @Override
+    public void scanBLEDevicesWithOptions(ReadableMap options, Promise promise) {
+        module.scanBLEDevicesWithOptions(options, promise);
+    }
+
+    @Override
+    public void stopBLEScan() {
+        module.stopBLEScan();
+    }
+
+    @Override
+    public void getScanSnapshot(Promise promise) {
+        module.getScanSnapshot(promise);
+    }
+
+    @Override
+    public void configureScanCache(double ttlMs, double emitIntervalMs, double rssiThreshold) {
+        module.configureScanCache((int) ttlMs, (int) emitIntervalMs, (int) rssiThreshold);
+    }
+
+    @Override
+    public void clearScanCache() {
+        module.clearScanCache();
+    }
+
+    @Override
+    public void setNotificationBatching(boolean enabled, double maxPackets, double windowMs) {
+        module.setNotificationBatching(enabled, (int) maxPackets, (int) windowMs);
+    }
+
+    @Override
+    public void getMetrics(Promise promise) {
+        module.getMetrics(promise);
+    }
+
+    @Override
+    public void resetMetrics() {
+        module.resetMetrics();
+    }
+
+    @Override
+    public void getBLEEventLoopStats(Promise promise) {
+        module.getBLEEventLoopStats(promise);
+    }
+
+    @Override
+    public void setMetricsInterval(double intervalMs) {
+        module.setMetricsInterval((int) intervalMs);
+    }
+
+    @Override
+    public void setLogLevel(String level, Promise promise) {
+        module.setLogLevel(level, promise);
+    }
+
+    @Override
+    public void getNotificationBatchStats(Promise promise) {
+        module.getNotificationBatchStats(promise);
+    }
+
+    @Override
+    public void configureNotificationBuffer(ReadableMap options, Promise promise) {
+        module.configureNotificationBuffer(options, promise);
+    }
+
+    @Override
+    public void setBLENotificationBuffering(String deviceId, String characteristicUUID, boolean enabled, Promise promise) {
+        module.setBLENotificationBuffering(deviceId, characteristicUUID, enabled, promise);
+    }
+
+    @Override
+    public void readBuffered(double max, Promise promise) {
+        module.readBuffered((int) max, promise);
+    }
+
+    @Override
+    public String readBufferedPacked(double max) {
+        return module.readBufferedPacked(max);
+    }
+
+    @Override
+    public double getBufferedNotificationCount() {
+        return module.getBufferedNotificationCount();
+    }
+
+    @Override
+    public void getNotificationBufferStats(Promise promise) {
+        module.getNotificationBufferStats(promise);
+    }
+
+    @Override
+    public void addNotificationRule(ReadableMap rule, Promise promise) {
+        module.addNotificationRule(rule, promise);
+    }
+
+    @Override
+    public void removeNotificationRule(double id, Promise promise) {
+        module.removeNotificationRule((int) id, promise);
+    }
+
+    @Override
+    public void clearNotificationRules() {
+        module.clearNotificationRules();
+    }
+
+    @Override
+    public void getNotificationRules(Promise promise) {
+        module.getNotificationRules(promise);
+    }
+
+    @Override
+    public void addTelemetrySchema(ReadableMap schema, Promise promise) {
+        module.addTelemetrySchema(schema, promise);
+    }
+
+    @Override
+    public void removeTelemetrySchema(double id, Promise promise) {
+        module.removeTelemetrySchema((int) id, promise);
+    }
+
+    @Override
+    public void clearTelemetrySchemas() {
+        module.clearTelemetrySchemas();
+    }
+
+    @Override
+    public void getTelemetrySchemas(Promise promise) {
+        module.getTelemetrySchemas(promise);
+    }
+
+    @Override
+    public void startRecording(ReadableMap options, Promise promise) {
+        module.startRecording(options, promise);
+    }
+
+    @Override
+    public void stopRecording(Promise promise) {
+        module.stopRecording(promise);
+    }
+
+    @Override
+    public void queryRecording(ReadableMap options, Promise promise) {
+        module.queryRecording(options, promise);
+    }
+
+    @Override
+    public void getRecorderStats(Promise promise) {
+        module.getRecorderStats(promise);
+    }
+
+    @Override
+    public void deleteRecording(Promise promise) {
+        module.deleteRecording(promise);
+    }
+
+    @Override
+    public void connectToKnownBLEDevice(Promise promise) {
+        module.connectToKnownBLEDevice(promise);
+    }
+
+    @Override
+    public void connectToBLEDevice(String deviceId, Promise promise) {
+        module.connectToBLEDevice(deviceId, promise);
+    }
+
+    @Override
+    public void connectToBLEDeviceWithProfile(String deviceId, String profileName, Promise promise) {
+        module.connectToBLEDeviceWithProfile(deviceId, profileName, promise);
+    }
+
+    @Override
+    public void configureReconnect(ReadableMap options) {
+        module.configureReconnect(options);
+    }
+
+    @Override
+    public void disconnectBLE(Promise promise) {
+        module.disconnectBLE(promise);
+    }
+
+    @Override
+    public void disconnectBLEDevice(String deviceId, Promise promise) {
+        module.disconnectBLEDevice(deviceId, promise);
+    }
+
+    @Override
+    public void getConnectedBLEDevices(Promise promise) {
+        module.getConnectedBLEDevices(promise);
+    }
+
+    @Override
+    public void writeToBLECharacteristic(String serviceUUID, String characteristicUUID, String data, Promise promise) {
+        module.writeToBLECharacteristic(serviceUUID, characteristicUUID, data, promise);
+    }
+
+    @Override
+    public void writeToBLEDeviceCharacteristic(String deviceId, String serviceUUID, String characteristicUUID, String data, Promise promise) {
+        module.writeToBLEDeviceCharacteristic(deviceId, serviceUUID, characteristicUUID, data, promise);
+    }
+
+    @Override
+    public void writeBase64ToBLECharacteristic(String serviceUUID, String characteristicUUID, String base64Data, Promise promise) {
+        module.writeBase64ToBLECharacteristic(serviceUUID, characteristicUUID, base64Data, promise);
+    }
+
+    @Override
+    public void writeBase64ToBLEDeviceCharacteristic(String deviceId, String serviceUUID, String characteristicUUID, String base64Data, Promise promise) {
+        module.writeBase64ToBLEDeviceCharacteristic(deviceId, serviceUUID, characteristicUUID, base64Data, promise);
+    }
+
+    @Override
+    public void setBLECharacteristicAlias(double alias, String serviceUUID, String characteristicUUID, Promise promise) {
+        module.setBLECharacteristicAlias((int) alias, serviceUUID, characteristicUUID, promise);
+    }
+
+    @Override
+    public void setBLEDeviceCharacteristicAlias(String deviceId, double alias, String serviceUUID, String characteristicUUID, Promise promise) {
+        module.setBLEDeviceCharacteristicAlias(deviceId, (int) alias, serviceUUID, characteristicUUID, promise);
+    }
+
+    @Override
+    public void removeBLEDeviceCharacteristicAlias(String deviceId, double alias) {
+        module.removeBLEDeviceCharacteristicAlias(deviceId, (int) alias);
+    }
+
+    @Override
+    public void getBLEDeviceAttributes(String deviceId, Promise promise) {
+        module.getBLEDeviceAttributes(deviceId, promise);
+    }
+
+    @Override
+    public void writeToBLEAlias(double alias, String data, Promise promise) {
+        module.writeToBLEAlias((int) alias, data, promise);
+    }
+
+    @Override
+    public void writeToBLEDeviceAlias(String deviceId, double alias, String data, Promise promise) {
+        module.writeToBLEDeviceAlias(deviceId, (int) alias, data, promise);
+    }
+
+    @Override
+    public void writeBase64ToBLEDeviceAlias(String deviceId, double alias, String base64Data, Promise promise) {
+        module.writeBase64ToBLEDeviceAlias(deviceId, (int) alias, base64Data, promise);
+    }
+
+    @Override
+    public void readBLECharacteristic(String serviceUUID, String characteristicUUID, Promise promise) {
+        module.readBLECharacteristic(serviceUUID, characteristicUUID, promise);
+    }
+
+    @Override
+    public void readBLECharacteristicBase64(String serviceUUID, String characteristicUUID, Promise promise) {
+        module.readBLECharacteristicBase64(serviceUUID, characteristicUUID, promise);
+    }
+
+    @Override
+    public void readBLEDeviceCharacteristic(String deviceId, String serviceUUID, String characteristicUUID, Promise promise) {
+        module.readBLEDeviceCharacteristic(deviceId, serviceUUID, characteristicUUID, promise);
+    }
+
+    @Override
+    public void readBLEDeviceCharacteristicBase64(String deviceId, String serviceUUID, String characteristicUUID, Promise promise) {
+        module.readBLEDeviceCharacteristicBase64(deviceId, serviceUUID, characteristicUUID, promise);
+    }
+
+    @Override
+    public void requestBLEMtu(double mtu, Promise promise) {
+        module.requestBLEMtu((int) mtu, promise);
+    }
+
+    @Override
+    public void requestBLEDeviceMtu(String deviceId, double mtu, Promise promise) {
+        module.requestBLEDeviceMtu(deviceId, (int) mtu, promise);
+    }
+
+    @Override
+    public void setBLELinkProfile(String profileName, Promise promise) {
+        module.setBLELinkProfile(profileName, promise);
+    }
+
+    @Override
+    public void setBLEDeviceLinkProfile(String deviceId, String profileName, Promise promise) {
+        module.setBLEDeviceLinkProfile(deviceId, profileName, promise);
+    }
+
+    @Override
+    public void getBLELinkInfo(Promise promise) {
+        module.getBLELinkInfo(promise);
+    }
+
+    @Override
+    public void getBLEDeviceLinkInfo(String deviceId, Promise promise) {
+        module.getBLEDeviceLinkInfo(deviceId, promise);
+    }
+
+    @Override
+    public void getBLEMtu(Promise promise) {
+        module.getBLEMtu(promise);
+    }
+
+    @Override
+    public void getBLEDeviceMtu(String deviceId, Promise promise) {
+        module.getBLEDeviceMtu(deviceId, promise);
+    }
+
+    @Override
+    public boolean isBLEDeviceConnected(String deviceId) {
+        return module.isBLEDeviceConnected(deviceId);
+    }
+
+    @Override
+    public String getBLEDeviceConnectionState(String deviceId) {
+        return module.getBLEDeviceConnectionState(deviceId);
+    }
+
+    @Override
+    public double getBLEDeviceMtuSync(String deviceId) {
+        return module.getBLEDeviceMtuSync(deviceId);
+    }
+
+    @Override
+    public void streamToBLECharacteristic(String serviceUUID, String characteristicUUID, String data, boolean withResponse, Promise promise) {
+        module.streamToBLECharacteristic(serviceUUID, characteristicUUID, data, withResponse, promise);
+    }
+
+    @Override
+    public void streamToBLEDeviceCharacteristic(String deviceId, String serviceUUID, String characteristicUUID, String data, boolean withResponse, Promise promise) {
+        module.streamToBLEDeviceCharacteristic(deviceId, serviceUUID, characteristicUUID, data, withResponse, promise);
+    }
+
+    @Override
+    public void streamBase64ToBLECharacteristic(String serviceUUID, String characteristicUUID, String base64Data, boolean withResponse, Promise promise) {
+        module.streamBase64ToBLECharacteristic(serviceUUID, characteristicUUID, base64Data, withResponse, promise);
+    }
+
+    @Override
+    public void streamBase64ToBLEDeviceCharacteristic(String deviceId, String serviceUUID, String characteristicUUID, String base64Data, boolean withResponse, Promise promise) {
+        module.streamBase64ToBLEDeviceCharacteristic(deviceId, serviceUUID, characteristicUUID, base64Data, withResponse, promise);
+    }
+
+    @Override
+    public void uploadToBLEDevice(String deviceId, String serviceUUID, String controlUUID, String dataUUID, ReadableMap source, ReadableMap options, Promise promise) {
+        module.uploadToBLEDevice(deviceId, serviceUUID, controlUUID, dataUUID, source, options, promise);
+    }
+
+    @Override
+    public void downloadFromBLEDevice(String deviceId, String serviceUUID, String controlUUID, String dataUUID, ReadableMap options, Promise promise) {
+        module.downloadFromBLEDevice(deviceId, serviceUUID, controlUUID, dataUUID, options, promise);
+    }
+
+    @Override
+    public void cancelBLETransfer(String deviceId, Promise promise) {
+        module.cancelBLETransfer(deviceId, promise);
+    }
+
+    @Override
+    public void getBLETransferStatus(String deviceId, Promise promise) {
+        module.getBLETransferStatus(deviceId, promise);
+    }
+
+    @Override
+    public void configureGattQueue(double maxDepth, double timeoutMs) {
+        module.configureGattQueue((int) maxDepth, (int) timeoutMs);
+    }
+
+    @Override
+    public void getGattQueueStatus(Promise promise) {
+        module.getGattQueueStatus(promise);
+    }
+
+    @Override
+    public void subscribeToBLENotifications(String serviceUUID, String characteristicUUID, Promise promise) {
+        module.subscribeToBLENotifications(serviceUUID, characteristicUUID, promise);
+    }
+
+    @Override
+    public void subscribeToBLENotificationsBase64(String serviceUUID, String characteristicUUID, Promise promise) {
+        module.subscribeToBLENotificationsBase64(serviceUUID, characteristicUUID, promise);
+    }
+
+    @Override
+    public void subscribeToBLEDeviceNotifications(String deviceId, String serviceUUID, String characteristicUUID, Promise promise) {
+        module.subscribeToBLEDeviceNotifications(deviceId, serviceUUID, characteristicUUID, promise);
+    }
+
+    @Override
+    public void subscribeToBLEDeviceNotificationsBase64(String deviceId, String serviceUUID, String characteristicUUID, Promise promise) {
+        module.subscribeToBLEDeviceNotificationsBase64(deviceId, serviceUUID, characteristicUUID, promise);
+    }
+
+    @Override
+    public void unsubscribeFromBLENotifications(String serviceUUID, String characteristicUUID, Promise promise) {
+        module.unsubscribeFromBLENotifications(serviceUUID, characteristicUUID, promise);
+    }
+
+    @Override
+    public void unsubscribeFromBLEDeviceNotifications(String deviceId, String serviceUUID, String characteristicUUID, Promise promise) {
+        module.unsubscribeFromBLEDeviceNotifications(deviceId, serviceUUID, characteristicUUID, promise);
+    }
+
+    @Override
+    public void addListener(String eventName) {
+        // Events go out through the device event emitter, nothing to track here
+    }
+
+    @Override
+    public void removeListeners(double count) {
+    }
+
+    @Override
+    public void invalidate() {
+        module.invalidate();
+    }
+}
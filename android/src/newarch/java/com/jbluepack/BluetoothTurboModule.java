@@ -0,0 +1,230 @@
+package com.jbluepack;
+
+import com.facebook.react.bridge.Promise;
+import com.facebook.react.bridge.ReactApplicationContext;
+import com.facebook.react.bridge.ReadableArray;
+import com.facebook.react.bridge.ReadableMap;
+
+/** New Architecture face of BluetoothModule, forwarding to it like BLETurboModule does for BLEModule. */
+public class BluetoothTurboModule extends NativeBluetoothModuleSpec {
+
+    private final BluetoothModule module;
+
+    public BluetoothTurboModule(ReactApplicationContext reactContext) {
+        super(reactContext);
+        module = new BluetoothModule(reactContext);
+    }
+
+    @Override
+    public void isBluetoothAvailable(Promise promise) {
+        module.isBluetoothAvailable(promise);
+    }
+
+    @Override
+    public void isBluetoothEnabled(Promise promise) {
+        module.isBluetoothEnabled(promise);
+    }
+
+    @Override
+    public boolean isConnected() {
+        return module.isConnected();
+    }
+
+    @Override
+    public boolean isDeviceConnected(String deviceId) {
+        return module.isDeviceConnected(deviceId);
+    }
+
+    @Override
+    public String getConnectionState() {
+        return module.getConnectionState();
+    }
+
+    @Override
+    public void enableBluetooth(Promise promise) {
+        module.enableBluetooth(promise);
+    }
+
+    @Override
+    public void scanDevices(Promise promise) {
+        module.scanDevices(promise);
+    }
+
+    @Override
+    public void sendData(String message, Promise promise) {
+        module.sendData(message, promise);
+    }
+
+    @Override
+    public void sendDataToDevice(String deviceId, String message, Promise promise) {
+        module.sendDataToDevice(deviceId, message, promise);
+    }
+
+    @Override
+    public void configureWriter(ReadableMap options) {
+        module.configureWriter(options);
+    }
+
+    @Override
+    public void getWriteQueueStatus(Promise promise) {
+        module.getWriteQueueStatus(promise);
+    }
+
+    @Override
+    public void getConnections(Promise promise) {
+        module.getConnections(promise);
+    }
+
+    @Override
+    public void connectToDevice(String deviceAddress, Promise promise) {
+        module.connectToDevice(deviceAddress, promise);
+    }
+
+    @Override
+    public void connectToDeviceWithOptions(String deviceId, ReadableMap options, Promise promise) {
+        module.connectToDeviceWithOptions(deviceId, options, promise);
+    }
+
+    @Override
+    public void connectToFirstDevice(ReadableArray deviceIds, ReadableMap options, Promise promise) {
+        module.connectToFirstDevice(deviceIds, options, promise);
+    }
+
+    @Override
+    public void disconnectFromDevice(Promise promise) {
+        module.disconnectFromDevice(promise);
+    }
+
+    @Override
+    public void disconnectDevice(String deviceId, Promise promise) {
+        module.disconnectDevice(deviceId, promise);
+    }
+
+    @Override
+    public void startServer(ReadableMap options, Promise promise) {
+        module.startServer(options, promise);
+    }
+
+    @Override
+    public void stopServer(Promise promise) {
+        module.stopServer(promise);
+    }
+
+    @Override
+    public void configureReconnect(ReadableMap options) {
+        module.configureReconnect(options);
+    }
+
+    @Override
+    public void startListeningForData() {
+        module.startListeningForData();
+    }
+
+    @Override
+    public void setFraming(ReadableMap options, Promise promise) {
+        module.setFraming(options, promise);
+    }
+
+    @Override
+    public void addNotificationRule(ReadableMap rule, Promise promise) {
+        module.addNotificationRule(rule, promise);
+    }
+
+    @Override
+    public void removeNotificationRule(double id, Promise promise) {
+        module.removeNotificationRule((int) id, promise);
+    }
+
+    @Override
+    public void clearNotificationRules() {
+        module.clearNotificationRules();
+    }
+
+    @Override
+    public void getNotificationRules(Promise promise) {
+        module.getNotificationRules(promise);
+    }
+
+    @Override
+    public void addTelemetrySchema(ReadableMap schema, Promise promise) {
+        module.addTelemetrySchema(schema, promise);
+    }
+
+    @Override
+    public void removeTelemetrySchema(double id, Promise promise) {
+        module.removeTelemetrySchema((int) id, promise);
+    }
+
+    @Override
+    public void clearTelemetrySchemas() {
+        module.clearTelemetrySchemas();
+    }
+
+    @Override
+    public void getTelemetrySchemas(Promise promise) {
+        module.getTelemetrySchemas(promise);
+    }
+
+    @Override
+    public void startRecording(ReadableMap options, Promise promise) {
+        module.startRecording(options, promise);
+    }
+
+    @Override
+    public void stopRecording(Promise promise) {
+        module.stopRecording(promise);
+    }
+
+    @Override
+    public void queryRecording(ReadableMap options, Promise promise) {
+        module.queryRecording(options, promise);
+    }
+
+    @Override
+    public void getRecorderStats(Promise promise) {
+        module.getRecorderStats(promise);
+    }
+
+    @Override
+    public void deleteRecording(Promise promise) {
+        module.deleteRecording(promise);
+    }
+
+    @Override
+    public void getMetrics(Promise promise) {
+        module.getMetrics(promise);
+    }
+
+    @Override
+    public void resetMetrics() {
+        module.resetMetrics();
+    }
+
+    @Override
+    public void setMetricsInterval(double intervalMs) {
+        module.setMetricsInterval((int) intervalMs);
+    }
+
+    @Override
+    public void setLogLevel(String level, Promise promise) {
+        module.setLogLevel(level, promise);
+    }
+
+    @Override
+    public void getFramingStats(Promise promise) {
+        module.getFramingStats(promise);
+    }
+
+    @Override
+    public void addListener(String eventName) {
+    }
+
+    @Override
+    public void removeListeners(double count) {
+    }
+
+    @Override
+    public void invalidate() {
+        module.invalidate();
+    }
+}
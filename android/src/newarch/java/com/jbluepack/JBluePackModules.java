@@ -0,0 +1,21 @@
+package com.jbluepack;
+
+import com.facebook.react.bridge.NativeModule;
+import com.facebook.react.bridge.ReactApplicationContext;
+
+/** New Architecture: the TurboModules generated from src/Native*.ts, wrapping the same implementations. */
+final class JBluePackModules {
+
+    static final boolean TURBO = true;
+
+    private JBluePackModules() {
+    }
+
+    static NativeModule ble(ReactApplicationContext reactContext) {
+        return new BLETurboModule(reactContext);
+    }
+
+    static NativeModule bluetooth(ReactApplicationContext reactContext) {
+        return new BluetoothTurboModule(reactContext);
+    }
+}
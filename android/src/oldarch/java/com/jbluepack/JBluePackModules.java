@@ -0,0 +1,21 @@
+package com.jbluepack;
+
+import com.facebook.react.bridge.NativeModule;
+import com.facebook.react.bridge.ReactApplicationContext;
+
+/** Old Architecture: the bridge modules, exactly as before the TurboModule spec existed. */
+final class JBluePackModules {
+
+    static final boolean TURBO = false;
+
+    private JBluePackModules() {
+    }
+
+    static NativeModule ble(ReactApplicationContext reactContext) {
+        return new BLEModule(reactContext);
+    }
+
+    static NativeModule bluetooth(ReactApplicationContext reactContext) {
+        return new BluetoothModule(reactContext);
+    }
+}
@@ -0,0 +1,12 @@
+package com.jbluepack;
+
+/** Timer that never fires, benchmarks drive flushes and completions themselves. */
+final class BenchmarkTimer implements Timer {
+    @Override
+    public void schedule(Runnable task, long delayMs) {
+    }
+
+    @Override
+    public void cancel(Runnable task) {
+    }
+}
@@ -0,0 +1,77 @@
+package com.jbluepack;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Dispatch latency of the command queue: enqueue, execute against the transport,
+ * complete and resolve the callback, with a given number of operations already waiting.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class CommandQueueBenchmark {
+
+    enum Kind { WRITE }
+
+    /** Transport stand-in that accepts every request. */
+    static final class Link {
+        long requests;
+    }
+
+    @Param({"0", "16"})
+    public int backlog;
+
+    private CommandQueue<Link, Kind> queue;
+    private Callback callback;
+    private byte[] value;
+
+    @Setup(Level.Trial)
+    public void setup(Blackhole blackhole) {
+        queue = new CommandQueue<>(new BenchmarkTimer(), "Benchmark");
+        queue.configure(backlog + 2, CommandQueue.DEFAULT_TIMEOUT_MS);
+        queue.attach(new Link());
+        value = new byte[20];
+        callback = new Callback() {
+            @Override
+            public void resolve(Object result) {
+                blackhole.consume(result);
+            }
+
+            @Override
+            public void reject(String code, String message) {
+                throw new IllegalStateException(code + ": " + message);
+            }
+        };
+        // Park a backlog behind the in-flight head so each dispatch runs against a non-empty queue
+        for (int i = 0; i < backlog; i++) {
+            queue.enqueue(write());
+        }
+    }
+
+    @Benchmark
+    public void enqueueAndComplete() {
+        queue.enqueue(write());
+        queue.complete(Kind.WRITE, value);
+    }
+
+    private CommandQueue.Operation<Link, Kind> write() {
+        return new CommandQueue.Operation<Link, Kind>(Kind.WRITE, callback) {
+            @Override
+            boolean execute(Link link) {
+                link.requests++;
+                return true;
+            }
+        };
+    }
+}
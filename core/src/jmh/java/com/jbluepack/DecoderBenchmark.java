@@ -0,0 +1,84 @@
+package com.jbluepack;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decoding a 16-byte sensor frame into typed fields against the base64 binary event JS
+ * would otherwise decode itself. The decoder's allocations should be the event map alone,
+ * and a frame of the wrong length should cost a counter increment.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class DecoderBenchmark {
+
+    private static final String DEVICE = "A0:B7:65:DD:47:AA";
+    private static final String CHARACTERISTIC = "beb5483e-36e1-4688-b7f5-ea07361b26a8";
+
+    private MapEventSink sink;
+    private TelemetryDecoder decoder;
+    private byte[] frame;
+    private byte[] truncated;
+
+    @Setup(Level.Trial)
+    public void setup(Blackhole blackhole) {
+        sink = new MapEventSink((name, payload) -> blackhole.consume(payload));
+        decoder = new TelemetryDecoder(sink);
+        // 0x54 tag, i16 temperature in 0.01 °C, u16 humidity in 0.1 %, u32 uptime, f32 pressure,
+        // u8 mode enum, u8 flags with the heater bit at 3, one spare byte
+        decoder.add(new TelemetryDecoder.Schema(decoder.nextId(), "env", null, CHARACTERISTIC, 0, new byte[]{0x54}, 16,
+                new TelemetryDecoder.Field[]{
+                        field("temperature", TelemetryDecoder.Type.I16, 1, 0, 0, 0.01),
+                        field("humidity", TelemetryDecoder.Type.U16, 3, 0, 0, 0.1),
+                        field("uptime", TelemetryDecoder.Type.U32, 5, 0, 0, 1),
+                        field("pressure", TelemetryDecoder.Type.F32, 9, 0, 0, 1),
+                        new TelemetryDecoder.Field("mode", TelemetryDecoder.Type.U8, 13, true, 0, 0, 1, 0, false,
+                                new int[]{2, 0, 1}, new String[]{"boost", "idle", "run"}),
+                        new TelemetryDecoder.Field("heater", TelemetryDecoder.Type.U8, 14, true, 1, 3, 1, 0, true, null, null),
+                }, false));
+        frame = new byte[16];
+        frame[0] = 0x54;
+        frame[1] = (byte) 0x66;  // -2458 → -24.58
+        frame[2] = (byte) 0xF6;
+        frame[3] = (byte) 0xC5;  // 453 → 45.3
+        frame[4] = 0x01;
+        frame[5] = 0x40;
+        frame[6] = (byte) 0xE2;
+        frame[7] = 0x01;
+        int pressure = Float.floatToIntBits(1013.25f);
+        for (int i = 0; i < 4; i++) frame[9 + i] = (byte) (pressure >>> (8 * i));
+        frame[13] = 1;
+        frame[14] = 0x08;
+        truncated = new byte[12];
+        System.arraycopy(frame, 0, truncated, 0, truncated.length);
+    }
+
+    private static TelemetryDecoder.Field field(String name, TelemetryDecoder.Type type, int offset, long mask, int shift, double scale) {
+        return new TelemetryDecoder.Field(name, type, offset, true, mask, shift, scale, 0, false, null, null);
+    }
+
+    @Benchmark
+    public boolean decode() {
+        return decoder.decode(DEVICE, CHARACTERISTIC, frame, 0, frame.length, 0L);
+    }
+
+    @Benchmark
+    public boolean lengthMismatch() {
+        return decoder.decode(DEVICE, CHARACTERISTIC, truncated, 0, truncated.length, 0L);
+    }
+
+    @Benchmark
+    public EventSink.EventMap base64Event() {
+        return NotificationEncoder.binaryEvent(sink, DEVICE, CHARACTERISTIC, frame);
+    }
+}
@@ -0,0 +1,121 @@
+package com.jbluepack;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.ByteArrayOutputStream;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Stream framing throughput. Each invocation feeds one RFCOMM read's worth of bytes
+ * (readSize) from a pre-encoded stream; the "megabytes" counter reads as MB/s.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class FramerBenchmark {
+
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    @State(Scope.Thread)
+    public static class Counters {
+        public double megabytes;
+        public long frames;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            megabytes = 0;
+            frames = 0;
+        }
+    }
+
+    @Param({"delimiter", "length", "lengthCrc", "cobs"})
+    public String mode;
+
+    @Param({"64"})
+    public int frameSize;
+
+    @Param({"990"})
+    public int readSize;
+
+    private StreamFramer framer;
+    private byte[] stream;
+    private int position;
+    private long frameCount;
+    private final StreamFramer.FrameListener listener = (buffer, offset, length) -> frameCount++;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        byte[] payload = new byte[frameSize];
+        for (int i = 0; i < frameSize; i++) {
+            // printable and never 0x00/'\n', so every mode can carry it
+            payload[i] = (byte) ('A' + i % 26);
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        while (out.size() < 1 << 20) {
+            encode(payload, out);
+        }
+        stream = out.toByteArray();
+        switch (mode) {
+            case "length":
+                framer = new LengthPrefixFramer(2, false, false, StreamFramer.DEFAULT_MAX_FRAME_LENGTH);
+                break;
+            case "lengthCrc":
+                framer = new LengthPrefixFramer(2, false, true, StreamFramer.DEFAULT_MAX_FRAME_LENGTH);
+                break;
+            case "cobs":
+                framer = new CobsFramer(StreamFramer.DEFAULT_MAX_FRAME_LENGTH);
+                break;
+            default:
+                framer = new DelimiterFramer('\n', StreamFramer.DEFAULT_MAX_FRAME_LENGTH);
+        }
+    }
+
+    @Benchmark
+    public void feed(Counters counters) {
+        int length = Math.min(readSize, stream.length - position);
+        long before = frameCount;
+        framer.feed(stream, position, length, listener);
+        position += length;
+        if (position == stream.length) {
+            position = 0;
+        }
+        counters.megabytes += length / 1e6;
+        counters.frames += frameCount - before;
+    }
+
+    private void encode(byte[] payload, ByteArrayOutputStream out) {
+        switch (mode) {
+            case "length":
+            case "lengthCrc":
+                byte[] frame = new byte[2 + payload.length];
+                frame[0] = (byte) (payload.length >>> 8);
+                frame[1] = (byte) payload.length;
+                System.arraycopy(payload, 0, frame, 2, payload.length);
+                out.write(frame, 0, frame.length);
+                if ("lengthCrc".equals(mode)) {
+                    // the CRC covers the length header and the payload
+                    int crc = StreamFramer.crc16(frame, 0, frame.length);
+                    out.write(crc >>> 8);
+                    out.write(crc);
+                }
+                break;
+            case "cobs":
+                // no zero bytes in the payload, so the whole frame is a single code block
+                out.write(payload.length + 1);
+                out.write(payload, 0, payload.length);
+                out.write(0);
+                break;
+            default:
+                out.write(payload, 0, payload.length);
+                out.write('\n');
+        }
+    }
+}
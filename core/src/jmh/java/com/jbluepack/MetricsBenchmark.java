@@ -0,0 +1,52 @@
+package com.jbluepack;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * What the metrics add to each notification: one histogram record, and the per-packet
+ * accounting (counters plus inter-arrival) done in onCharacteristicChanged. Should stay
+ * well under a microsecond with no allocation, also when two threads record at once.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class MetricsBenchmark {
+
+    private static final String DEVICE = "A0:B7:65:DD:47:AA";
+
+    private Metrics metrics;
+    private LatencyHistogram histogram;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        metrics = Metrics.shared();
+        metrics.reset();
+        histogram = new LatencyHistogram();
+    }
+
+    @Benchmark
+    public void record() {
+        histogram.recordNanos(System.nanoTime() & 0xFFFFFF);
+    }
+
+    @Benchmark
+    public void packetIn() {
+        metrics.packetIn(DEVICE, 20, System.nanoTime());
+    }
+
+    @Benchmark
+    @Threads(2)
+    public void packetInContended() {
+        metrics.packetIn(DEVICE, 20, System.nanoTime());
+    }
+}
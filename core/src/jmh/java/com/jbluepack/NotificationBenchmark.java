@@ -0,0 +1,103 @@
+package com.jbluepack;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-notification cost: decoding the value and building the event payload, single,
+ * batched and through the pull-mode ring. Run with the gc profiler (the default in build.gradle) for allocations per
+ * notification.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class NotificationBenchmark {
+
+    private static final String DEVICE = "A0:B7:65:DD:47:AA";
+    private static final String CHARACTERISTIC = "beb5483e-36e1-4688-b7f5-ea07361b26a8";
+
+    @Param({"20", "244"})
+    public int size;
+
+    private byte[] binaryValue;
+    private byte[] textValue;
+    private EventSink sink;
+    private NotificationBatcher batcher;
+    private NotificationRing ring;
+    private int buffered;
+
+    @Setup(Level.Trial)
+    public void setup(Blackhole blackhole) {
+        binaryValue = new byte[size];
+        for (int i = 0; i < size; i++) {
+            binaryValue[i] = (byte) (i * 31);
+        }
+        char[] text = new char[size];
+        Arrays.fill(text, 'x');
+        textValue = new String(text).getBytes(StandardCharsets.UTF_8);
+        sink = new MapEventSink((name, payload) -> blackhole.consume(payload));
+        batcher = new NotificationBatcher(sink, new BenchmarkTimer());
+        batcher.configure(true, NotificationBatcher.DEFAULT_MAX_PACKETS, NotificationBatcher.DEFAULT_WINDOW_MS);
+        ring = new NotificationRing(sink);
+        ring.configure(NotificationRing.DEFAULT_CAPACITY, NotificationRing.Overflow.DROP_OLDEST, false);
+    }
+
+    @Benchmark
+    public Object textNotification() {
+        String message = NotificationEncoder.text(textValue);
+        return NotificationEncoder.textEvent(sink, DEVICE, message);
+    }
+
+    @Benchmark
+    public Object binaryNotification() {
+        return NotificationEncoder.binaryEvent(sink, DEVICE, CHARACTERISTIC, binaryValue);
+    }
+
+    /** One packet into the batcher; every 64th call pays for the flush. */
+    @Benchmark
+    public void batchedNotification() {
+        batcher.add(DEVICE, CHARACTERISTIC, binaryValue, true, 0L);
+    }
+
+    /** One packet into the ring; every 64th call reads 64 back the way readBuffered does. */
+    @Benchmark
+    public Object bufferedNotification() {
+        ring.add(DEVICE, CHARACTERISTIC, binaryValue, true, 0L);
+        if (++buffered == 64) {
+            buffered = 0;
+            return ring.read(64);
+        }
+        return null;
+    }
+
+    /** bufferedNotification, but read back with readPacked as readBufferedPacked does: one string, no maps. */
+    @Benchmark
+    public Object packedNotification() {
+        ring.add(DEVICE, CHARACTERISTIC, binaryValue, true, 0L);
+        if (++buffered == 64) {
+            buffered = 0;
+            StringBuilder out = new StringBuilder();
+            ring.readPacked(64, out);
+            return out.toString();
+        }
+        return null;
+    }
+
+    /** The ring's hot path alone: a full ring overwriting its oldest packet. */
+    @Benchmark
+    public void ringOverflow() {
+        ring.add(DEVICE, CHARACTERISTIC, binaryValue, true, 0L);
+    }
+}
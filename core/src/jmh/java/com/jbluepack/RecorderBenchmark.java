@@ -0,0 +1,65 @@
+package com.jbluepack;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Appending a 20-byte notification to the frame recorder, which runs on the BLE event loop
+ * for every packet while recording and should show 0 B/op between segment rolls, and
+ * reading a 1000-frame page the way queryRecording does.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class RecorderBenchmark {
+
+    private static final String DEVICE = "A0:B7:65:DD:47:AA";
+    private static final String CHARACTERISTIC = "beb5483e-36e1-4688-b7f5-ea07361b26a8";
+
+    private File directory;
+    private FrameRecorder recorder;
+    private MapEventSink sink;
+    private byte[] value;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        directory = Files.createTempDirectory("jbluepack-bench").toFile();
+        recorder = new FrameRecorder();
+        recorder.start(new FrameRecorder.Config(directory, 16 * 1024 * 1024, 4, 0, true, true, null, null));
+        sink = new MapEventSink((name, payload) -> { });
+        value = new byte[20];
+        for (int i = 0; i < 2000; i++) {
+            recorder.append(DEVICE, CHARACTERISTIC, value, 0, value.length, i);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        recorder.stop();
+        recorder.delete();
+        directory.delete();
+    }
+
+    @Benchmark
+    public boolean append() {
+        return recorder.append(DEVICE, CHARACTERISTIC, value, 0, value.length, 0L);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public EventSink.EventMap queryPage() {
+        return recorder.query(sink, 1, Long.MIN_VALUE, Long.MAX_VALUE, null, 1000);
+    }
+}
@@ -0,0 +1,77 @@
+package com.jbluepack;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of notification rules on a packet none of them match, which is what every
+ * packet pays, and on one that fires a sound rule. Both should show 0 B/op.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class RulesBenchmark {
+
+    private static final String DEVICE = "A0:B7:65:DD:47:AA";
+    private static final String CHARACTERISTIC = "beb5483e-36e1-4688-b7f5-ea07361b26a8";
+
+    @Param({"1", "8"})
+    public int rules;
+
+    private NotificationRules notificationRules;
+    private NotificationRules.Actions actions;
+    private byte[] quiet;
+    private byte[] alarm;
+
+    @Setup(Level.Trial)
+    public void setup(Blackhole blackhole) {
+        notificationRules = new NotificationRules(new MapEventSink((name, payload) -> blackhole.consume(payload)));
+        for (int i = 0; i < rules - 1; i++) {
+            notificationRules.add(new NotificationRules.Rule(notificationRules.nextId(), null, CHARACTERISTIC, 0,
+                    new byte[]{(byte) 0xE0, (byte) i}, null, null, NotificationRules.Action.EVENT,
+                    null, null, null, null, false, 0));
+        }
+        // Temperature alarm: status byte 0xA1 with the high nibble of the flags set, or "OVERHEAT" anywhere
+        notificationRules.add(new NotificationRules.Rule(notificationRules.nextId(), null, CHARACTERISTIC, 1,
+                new byte[]{(byte) 0xA1, (byte) 0xF0}, new byte[]{(byte) 0xFF, (byte) 0xF0}, "OVERHEAT",
+                NotificationRules.Action.SOUND, "alarm", null, null, null, false, 0));
+        actions = new NotificationRules.Actions() {
+            @Override
+            public void playSound(NotificationRules.Rule rule) {
+                blackhole.consume(rule);
+            }
+
+            @Override
+            public void write(NotificationRules.Rule rule, String deviceId) {
+                blackhole.consume(rule);
+            }
+        };
+        quiet = "T=21.5;H=40".getBytes(StandardCharsets.UTF_8);
+        byte[] text = " OVERHEAT".getBytes(StandardCharsets.UTF_8);
+        alarm = new byte[3 + text.length];
+        alarm[1] = (byte) 0xA1;
+        alarm[2] = (byte) 0xF3;
+        System.arraycopy(text, 0, alarm, 3, text.length);
+    }
+
+    @Benchmark
+    public boolean noMatch() {
+        return notificationRules.evaluate(DEVICE, CHARACTERISTIC, quiet, 0, quiet.length, 0L, actions);
+    }
+
+    @Benchmark
+    public boolean soundRuleFires() {
+        return notificationRules.evaluate(DEVICE, CHARACTERISTIC, alarm, 0, alarm.length, 0L, actions);
+    }
+}
@@ -0,0 +1,23 @@
+package com.jbluepack;
+
+/**
+ * ATT sizes shared by the GATT client queue and the simulated peripheral, so chunking
+ * off-device follows the same arithmetic as on the phone.
+ */
+final class AttLimits {
+
+    static final int DEFAULT_MTU = 23;
+    // ✅ ATT maximum, requested on connect; the ESP32C3 settles on what it supports
+    static final int MAX_MTU = 517;
+    static final int HEADER_SIZE = 3;
+    // ✅ An attribute value is at most 512 bytes whatever the MTU, API 33+ throws above it
+    static final int MAX_ATTRIBUTE_LENGTH = 512;
+
+    private AttLimits() {
+    }
+
+    /** The largest value one write or notification can carry at this MTU. */
+    static int maxValueLength(int mtu) {
+        return Math.min(mtu - HEADER_SIZE, MAX_ATTRIBUTE_LENGTH);
+    }
+}
@@ -0,0 +1,87 @@
+package com.jbluepack;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Standard base64 without line wrapping (the NO_WRAP flavour JS expects). Lives in
+ * core because java.util.Base64 needs API 26 and android.util.Base64 is Android-only.
+ */
+final class Base64Encoder {
+
+    private static final char[] ALPHABET =
+            "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/".toCharArray();
+
+    private Base64Encoder() {
+    }
+
+    static String encode(byte[] data) {
+        return encode(data, 0, data.length);
+    }
+
+    static String encode(byte[] data, int offset, int length) {
+        char[] out = new char[(length + 2) / 3 * 4];
+        int end = offset + length;
+        int i = offset;
+        int o = 0;
+        while (end - i >= 3) {
+            int bits = (data[i] & 0xFF) << 16 | (data[i + 1] & 0xFF) << 8 | (data[i + 2] & 0xFF);
+            out[o++] = ALPHABET[bits >>> 18];
+            out[o++] = ALPHABET[(bits >>> 12) & 0x3F];
+            out[o++] = ALPHABET[(bits >>> 6) & 0x3F];
+            out[o++] = ALPHABET[bits & 0x3F];
+            i += 3;
+        }
+        int remaining = end - i;
+        if (remaining > 0) {
+            int bits = (data[i] & 0xFF) << 16 | (remaining == 2 ? (data[i + 1] & 0xFF) << 8 : 0);
+            out[o++] = ALPHABET[bits >>> 18];
+            out[o++] = ALPHABET[(bits >>> 12) & 0x3F];
+            out[o++] = remaining == 2 ? ALPHABET[(bits >>> 6) & 0x3F] : '=';
+            out[o] = '=';
+        }
+        return new String(out);
+    }
+
+    /** Appends the encoding to out, skipping the intermediate String. */
+    static void encode(byte[] data, StringBuilder out) {
+        int i = 0;
+        while (data.length - i >= 3) {
+            int bits = (data[i] & 0xFF) << 16 | (data[i + 1] & 0xFF) << 8 | (data[i + 2] & 0xFF);
+            out.append(ALPHABET[bits >>> 18])
+                    .append(ALPHABET[(bits >>> 12) & 0x3F])
+                    .append(ALPHABET[(bits >>> 6) & 0x3F])
+                    .append(ALPHABET[bits & 0x3F]);
+            i += 3;
+        }
+        int remaining = data.length - i;
+        if (remaining > 0) {
+            int bits = (data[i] & 0xFF) << 16 | (remaining == 2 ? (data[i + 1] & 0xFF) << 8 : 0);
+            out.append(ALPHABET[bits >>> 18])
+                    .append(ALPHABET[(bits >>> 12) & 0x3F])
+                    .append(remaining == 2 ? ALPHABET[(bits >>> 6) & 0x3F] : '=')
+                    .append('=');
+        }
+    }
+
+    /** Appends the encoding of length bytes of data at offset, read with absolute gets (mapped files). */
+    static void encode(ByteBuffer data, int offset, int length, StringBuilder out) {
+        int end = offset + length;
+        int i = offset;
+        while (end - i >= 3) {
+            int bits = (data.get(i) & 0xFF) << 16 | (data.get(i + 1) & 0xFF) << 8 | (data.get(i + 2) & 0xFF);
+            out.append(ALPHABET[bits >>> 18])
+                    .append(ALPHABET[(bits >>> 12) & 0x3F])
+                    .append(ALPHABET[(bits >>> 6) & 0x3F])
+                    .append(ALPHABET[bits & 0x3F]);
+            i += 3;
+        }
+        int remaining = end - i;
+        if (remaining > 0) {
+            int bits = (data.get(i) & 0xFF) << 16 | (remaining == 2 ? (data.get(i + 1) & 0xFF) << 8 : 0);
+            out.append(ALPHABET[bits >>> 18])
+                    .append(ALPHABET[(bits >>> 12) & 0x3F])
+                    .append(remaining == 2 ? ALPHABET[(bits >>> 6) & 0x3F] : '=')
+                    .append('=');
+        }
+    }
+}
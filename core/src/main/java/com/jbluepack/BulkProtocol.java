@@ -0,0 +1,149 @@
+package com.jbluepack;
+
+import java.util.zip.CRC32;
+
+/**
+ * Wire format of the bulk transfer protocol spoken with the ESP32 firmware over two
+ * characteristics: a control characteristic (written with response, notifies replies)
+ * and a data characteristic (written without response for uploads, notified for
+ * downloads). Integers are little-endian, CRCs are CRC-32 (zlib / esp_crc32_le).
+ *
+ * Control, phone to device:
+ *   START  01 dir:u8 size:u32 crc:u32 blockSize:u16 window:u8 offset:u32
+ *          upload: size and crc of the image, offset 0 (the device decides where to resume)
+ *          download: size and crc 0, offset = bytes the phone already holds
+ *   ACK    02 nextBlock:u32      download, cumulative
+ *   NAK    03 block:u32          download, resend from this block
+ *   END    04 status:u8          upload: all blocks acknowledged, verify the image;
+ *                                download: the phone's verdict on the whole image
+ *   ABORT  05 0
+ *
+ * Control, device to phone:
+ *   READY  81 offset:u32 blockSize:u16 window:u8 size:u32 crc:u32
+ *          offset is where the transfer continues, block size and window may be lowered
+ *   ACK    82 nextBlock:u32      upload, cumulative
+ *   NAK    83 block:u32          upload, resend from this block
+ *   DONE   84 status:u8          upload verified (or not)
+ *   ERROR  85 status:u8
+ *
+ * Data packet, either direction:
+ *   block:u32 offset:u16 payload [blockCrc:u32]
+ *   offset is the payload's position in the block; its top bit marks the block's last
+ *   packet, which carries the CRC of the whole block after the payload.
+ *
+ * The sender keeps up to 'window' blocks unacknowledged (go-back-N): a NAK or an
+ * acknowledgement timeout rewinds it to the first block the receiver is missing.
+ */
+final class BulkProtocol {
+
+    static final int START = 0x01;
+    static final int ACK = 0x02;
+    static final int NAK = 0x03;
+    static final int END = 0x04;
+    static final int ABORT = 0x05;
+    static final int READY = 0x81;
+    static final int DEVICE_ACK = 0x82;
+    static final int DEVICE_NAK = 0x83;
+    static final int DONE = 0x84;
+    static final int ERROR = 0x85;
+
+    static final int DIRECTION_UPLOAD = 0;
+    static final int DIRECTION_DOWNLOAD = 1;
+
+    static final int STATUS_OK = 0;
+    static final int STATUS_CRC_MISMATCH = 1;
+    static final int STATUS_STORAGE = 2;
+    static final int STATUS_REJECTED = 3;
+
+    static final int DATA_HEADER = 6;
+    static final int CRC_BYTES = 4;
+    static final int LAST_PACKET = 0x8000;
+    static final int MAX_BLOCK_SIZE = 16384;  // offsets have 15 bits
+    static final int MAX_WINDOW = 32;
+
+    private BulkProtocol() {
+    }
+
+    static byte[] start(int direction, long size, long crc, int blockSize, int window, long offset) {
+        byte[] message = new byte[17];
+        message[0] = START;
+        message[1] = (byte) direction;
+        putU32(message, 2, size);
+        putU32(message, 6, crc);
+        putU16(message, 10, blockSize);
+        message[12] = (byte) window;
+        putU32(message, 13, offset);
+        return message;
+    }
+
+    static byte[] ready(long offset, int blockSize, int window, long size, long crc) {
+        byte[] message = new byte[16];
+        message[0] = (byte) READY;
+        putU32(message, 1, offset);
+        putU16(message, 5, blockSize);
+        message[7] = (byte) window;
+        putU32(message, 8, size);
+        putU32(message, 12, crc);
+        return message;
+    }
+
+    /** ACK, NAK and their device counterparts. */
+    static byte[] block(int op, long block) {
+        byte[] message = new byte[5];
+        message[0] = (byte) op;
+        putU32(message, 1, block);
+        return message;
+    }
+
+    /** END, ABORT, DONE and ERROR. */
+    static byte[] status(int op, int status) {
+        return new byte[] {(byte) op, (byte) status};
+    }
+
+    /** Payload bytes per data packet. Room for the block CRC is always left so any packet can be the last. */
+    static int payloadSize(int maxPacketSize) {
+        return Math.max(1, maxPacketSize - DATA_HEADER - CRC_BYTES);
+    }
+
+    static byte[] data(long block, int offset, boolean last, byte[] source, int sourceOffset, int length, long blockCrc) {
+        byte[] packet = new byte[DATA_HEADER + length + (last ? CRC_BYTES : 0)];
+        putU32(packet, 0, block);
+        putU16(packet, 4, offset | (last ? LAST_PACKET : 0));
+        System.arraycopy(source, sourceOffset, packet, DATA_HEADER, length);
+        if (last) {
+            putU32(packet, DATA_HEADER + length, blockCrc);
+        }
+        return packet;
+    }
+
+    static long crc32(byte[] data, int offset, int length) {
+        CRC32 crc = new CRC32();
+        crc.update(data, offset, length);
+        return crc.getValue();
+    }
+
+    static int u8(byte[] data, int offset) {
+        return data[offset] & 0xFF;
+    }
+
+    static int u16(byte[] data, int offset) {
+        return (data[offset] & 0xFF) | (data[offset + 1] & 0xFF) << 8;
+    }
+
+    static long u32(byte[] data, int offset) {
+        return (data[offset] & 0xFFL) | (data[offset + 1] & 0xFFL) << 8
+                | (data[offset + 2] & 0xFFL) << 16 | (data[offset + 3] & 0xFFL) << 24;
+    }
+
+    static void putU16(byte[] data, int offset, int value) {
+        data[offset] = (byte) value;
+        data[offset + 1] = (byte) (value >>> 8);
+    }
+
+    static void putU32(byte[] data, int offset, long value) {
+        data[offset] = (byte) value;
+        data[offset + 1] = (byte) (value >>> 8);
+        data[offset + 2] = (byte) (value >>> 16);
+        data[offset + 3] = (byte) (value >>> 24);
+    }
+}
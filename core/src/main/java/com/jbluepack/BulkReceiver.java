@@ -0,0 +1,146 @@
+package com.jbluepack;
+
+/**
+ * Receiving half of a bulk transfer: reassembles data packets into blocks and checks
+ * each block's CRC. Blocks are only accepted in order; a missing packet or a bad CRC
+ * asks for a NAK and then ignores everything until the retransmission of that block
+ * starts, so the stale packets still in flight don't trigger a NAK each.
+ * Not thread-safe, owned by one transfer thread.
+ */
+class BulkReceiver {
+
+    enum Result { NONE, BLOCK, NAK }
+
+    final long size;
+    final int blockSize;
+    final long blocks;
+    private final byte[] block;
+
+    private long expected;
+    private int filled;
+    private boolean awaitingRetransmit;
+    private long completedBlock = -1;
+    private int completedLength;
+
+    private long crcErrors;
+    private long outOfOrder;
+    private long malformed;
+
+    BulkReceiver(long size, int blockSize, long startBlock) {
+        this.size = size;
+        this.blockSize = blockSize;
+        this.blocks = (size + blockSize - 1) / blockSize;
+        this.block = new byte[blockSize];
+        this.expected = Math.min(startBlock, blocks);
+    }
+
+    /**
+     * BLOCK: a block passed its CRC, its bytes are in block()[0, completedLength()).
+     * NAK: ask the sender to go back to nextBlock().
+     */
+    Result onPacket(byte[] packet) {
+        if (packet.length < BulkProtocol.DATA_HEADER) {
+            malformed++;
+            return Result.NONE;
+        }
+        long index = BulkProtocol.u32(packet, 0);
+        int word = BulkProtocol.u16(packet, 4);
+        boolean last = (word & BulkProtocol.LAST_PACKET) != 0;
+        int offset = word & ~BulkProtocol.LAST_PACKET;
+        int length = packet.length - BulkProtocol.DATA_HEADER - (last ? BulkProtocol.CRC_BYTES : 0);
+        if (length < 0) {
+            malformed++;
+            return Result.NONE;
+        }
+        if (index < expected || expected >= blocks) {
+            return Result.NONE;  // duplicate of a block we already have
+        }
+        if (awaitingRetransmit) {
+            if (index != expected || offset != 0) return Result.NONE;
+            awaitingRetransmit = false;
+            filled = 0;
+        }
+        int expectedLength = blockLength(expected);
+        if (index != expected || offset != filled || filled + length > expectedLength) {
+            outOfOrder++;
+            return nak();
+        }
+        System.arraycopy(packet, BulkProtocol.DATA_HEADER, block, filled, length);
+        filled += length;
+        if (!last) return Result.NONE;
+
+        long crc = BulkProtocol.u32(packet, packet.length - BulkProtocol.CRC_BYTES);
+        if (filled != expectedLength || BulkProtocol.crc32(block, 0, filled) != crc) {
+            crcErrors++;
+            return nak();
+        }
+        completedBlock = expected;
+        completedLength = filled;
+        expected++;
+        filled = 0;
+        return Result.BLOCK;
+    }
+
+    /** After a resume: the next block to expect, dropping any partial block. */
+    void resumeAt(long block) {
+        expected = Math.min(block, blocks);
+        filled = 0;
+        awaitingRetransmit = false;
+    }
+
+    /** Asks for the current block again, e.g. when packets stopped arriving. */
+    void requestRetransmit() {
+        awaitingRetransmit = true;
+        filled = 0;
+    }
+
+    boolean awaitingRetransmit() {
+        return awaitingRetransmit;
+    }
+
+    byte[] block() {
+        return block;
+    }
+
+    long completedBlock() {
+        return completedBlock;
+    }
+
+    int completedLength() {
+        return completedLength;
+    }
+
+    long nextBlock() {
+        return expected;
+    }
+
+    boolean complete() {
+        return expected >= blocks;
+    }
+
+    long receivedBytes() {
+        return Math.min(size, expected * blockSize);
+    }
+
+    long crcErrors() {
+        return crcErrors;
+    }
+
+    long outOfOrder() {
+        return outOfOrder;
+    }
+
+    long malformed() {
+        return malformed;
+    }
+
+    private int blockLength(long index) {
+        return (int) Math.min(blockSize, size - index * blockSize);
+    }
+
+    private Result nak() {
+        awaitingRetransmit = true;
+        filled = 0;
+        return Result.NAK;
+    }
+}
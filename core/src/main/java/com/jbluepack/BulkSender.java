@@ -0,0 +1,111 @@
+package com.jbluepack;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Sending half of a bulk transfer: cuts the source into blocks and blocks into data
+ * packets, keeping at most 'window' blocks unacknowledged. Go-back-N: a rewind (NAK or
+ * acknowledgement timeout) restarts from the first block the receiver is missing.
+ * Not thread-safe, owned by one transfer thread.
+ */
+class BulkSender {
+
+    final long size;
+    final int blockSize;
+    final long blocks;
+    private final ByteBuffer source;
+    private final byte[] blockBuffer;
+    private int window;
+
+    private long base;        // first unacknowledged block
+    private long nextBlock;   // block of the next packet
+    private int nextOffset;   // offset of the next packet within nextBlock
+    private int blockLength;  // length of nextBlock, valid while nextOffset > 0
+    private long blockCrc;
+    private long retransmittedBlocks;
+
+    BulkSender(ByteBuffer source, int blockSize, int window) {
+        this.source = source.duplicate();
+        this.size = source.remaining();
+        this.blockSize = blockSize;
+        this.window = Math.max(1, window);
+        this.blocks = (size + blockSize - 1) / blockSize;
+        this.blockBuffer = new byte[blockSize];
+    }
+
+    /** Starts over at a block the receiver already has everything before (resume or rewind). */
+    void rewind(long block) {
+        long target = Math.max(base, Math.min(block, blocks));
+        if (target < nextBlock || (target == nextBlock && nextOffset > 0)) {
+            retransmittedBlocks += nextBlock - target + (nextOffset > 0 ? 1 : 0);
+        }
+        nextBlock = target;
+        nextOffset = 0;
+    }
+
+    /** Resume point from the receiver: everything before this block is already there. */
+    void resumeAt(long block) {
+        base = Math.min(block, blocks);
+        nextBlock = base;
+        nextOffset = 0;
+    }
+
+    /** Cumulative acknowledgement. Returns true if the window moved. */
+    boolean acknowledge(long nextExpected) {
+        if (nextExpected <= base || nextExpected > blocks) return false;
+        base = nextExpected;
+        if (nextBlock < base) {
+            nextBlock = base;
+            nextOffset = 0;
+        }
+        return true;
+    }
+
+    /** The next data packet, or null while the window is full or everything has been sent. */
+    byte[] next(int maxPacketSize) {
+        if (nextBlock >= blocks || nextBlock >= base + window) return null;
+        if (nextOffset == 0) {
+            long position = nextBlock * blockSize;
+            blockLength = (int) Math.min(blockSize, size - position);
+            ByteBuffer view = source.duplicate();
+            view.position((int) position);
+            view.get(blockBuffer, 0, blockLength);
+            blockCrc = BulkProtocol.crc32(blockBuffer, 0, blockLength);
+        }
+        int length = Math.min(BulkProtocol.payloadSize(maxPacketSize), blockLength - nextOffset);
+        boolean last = nextOffset + length == blockLength;
+        byte[] packet = BulkProtocol.data(nextBlock, nextOffset, last, blockBuffer, nextOffset, length, blockCrc);
+        if (last) {
+            nextBlock++;
+            nextOffset = 0;
+        } else {
+            nextOffset += length;
+        }
+        return packet;
+    }
+
+    void setWindow(int window) {
+        this.window = Math.max(1, window);
+    }
+
+    long base() {
+        return base;
+    }
+
+    /** True once packets up to the window (or the end) have been handed out. */
+    boolean windowFull() {
+        return nextBlock >= blocks || nextBlock >= base + window;
+    }
+
+    boolean complete() {
+        return base >= blocks;
+    }
+
+    long acknowledgedBytes() {
+        return Math.min(size, base * blockSize);
+    }
+
+    long retransmittedBlocks() {
+        return retransmittedBlocks;
+    }
+}
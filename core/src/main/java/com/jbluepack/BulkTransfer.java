@@ -0,0 +1,687 @@
+package com.jbluepack;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+
+/**
+ * One upload or download over the BulkProtocol. Drives the handshake, the sliding
+ * window, acknowledgement timeouts and the whole-image CRC, and survives a lost link:
+ * onLinkLost pauses it, onLinkRestored sends START again and the device answers with
+ * the offset to continue from.
+ *
+ * Every entry point posts to the timer's thread and all state is touched there, so
+ * writes are never issued from a GATT callback and packet completions (which arrive
+ * with the command queue's lock held) never wait on the transfer.
+ */
+class BulkTransfer {
+
+    static final String PROGRESS_EVENT = "BLETransferProgress";
+    static final int DEFAULT_BLOCK_SIZE = 4096;
+    static final int DEFAULT_WINDOW = 4;
+    static final int DEFAULT_ACK_TIMEOUT_MS = 3000;
+    static final int DEFAULT_MAX_RETRIES = 5;
+    static final int DEFAULT_RESUME_TIMEOUT_MS = 60000;
+    static final int DEFAULT_PROGRESS_INTERVAL_MS = 250;
+    static final int MAX_PACKETS_IN_FLIGHT = 8;
+
+    enum Direction {
+        UPLOAD("upload"),
+        DOWNLOAD("download");
+
+        final String jsName;
+
+        Direction(String jsName) {
+            this.jsName = jsName;
+        }
+    }
+
+    enum State {
+        STARTING("starting"),
+        TRANSFERRING("transferring"),
+        VERIFYING("verifying"),
+        PAUSED("paused"),
+        DONE("done"),
+        FAILED("failed"),
+        CANCELLED("cancelled");
+
+        final String jsName;
+
+        State(String jsName) {
+            this.jsName = jsName;
+        }
+
+        boolean finished() {
+            return this == DONE || this == FAILED || this == CANCELLED;
+        }
+    }
+
+    interface Link {
+        /** Control message, written with response. The callback is called either way, also when the write is refused. */
+        void sendControl(byte[] message, Callback callback);
+
+        /** Data packet, written without response on uploads. Same callback contract as sendControl. */
+        void sendData(byte[] packet, Callback callback);
+
+        /** Largest value one write can carry, MTU - 3. */
+        int maxPacketSize();
+    }
+
+    /** Where a download goes. Only whole, CRC-checked blocks are written, in order. */
+    interface Target {
+        long length() throws IOException;
+
+        int read(long position, byte[] buffer, int offset, int length) throws IOException;
+
+        void write(long position, byte[] data, int offset, int length) throws IOException;
+
+        void truncate(long length) throws IOException;
+
+        void close();
+    }
+
+    private static final Callback IGNORE = new Callback() {
+        @Override
+        public void resolve(Object value) {
+        }
+
+        @Override
+        public void reject(String code, String message) {
+        }
+    };
+
+    final String deviceId;
+    final Direction direction;
+    private final Link link;
+    private final EventSink sink;
+    private final Timer timer;
+    private final Callback callback;
+    private final ByteBuffer source;
+    private final Target target;
+    private final CRC32 imageCrc = new CRC32();
+    private final Runnable timeoutTask = this::onTimeout;
+    private final Runnable resumeTimeoutTask = this::onResumeTimeout;
+
+    private int blockSize = DEFAULT_BLOCK_SIZE;
+    private int window = DEFAULT_WINDOW;
+    private int ackTimeoutMs = DEFAULT_ACK_TIMEOUT_MS;
+    private int maxRetries = DEFAULT_MAX_RETRIES;
+    private int resumeTimeoutMs = DEFAULT_RESUME_TIMEOUT_MS;
+    private int progressIntervalMs = DEFAULT_PROGRESS_INTERVAL_MS;
+    private boolean resume = true;
+
+    private State state = State.STARTING;
+    private BulkSender sender;
+    private BulkReceiver receiver;
+    private long size;
+    private long expectedCrc;
+    private long crcBytes;          // bytes fed into imageCrc
+    private long resumedFrom = -1;  // offset of the first READY
+    private int resumes;
+    private long retransmits;
+    private long sendFailures;
+    private int generation;         // bumped on link loss, stale packet completions are ignored
+    private int inFlight;
+    private int retries;
+    private long startedAtNanos;
+    private long lastActivityNanos;
+    private long lastProgressNanos;
+
+    private BulkTransfer(String deviceId, Direction direction, ByteBuffer source, Target target,
+                         Link link, EventSink sink, Timer timer, Callback callback) {
+        this.deviceId = deviceId;
+        this.direction = direction;
+        this.source = source;
+        this.target = target;
+        this.link = link;
+        this.sink = sink;
+        this.timer = timer;
+        this.callback = callback;
+    }
+
+    static BulkTransfer upload(String deviceId, ByteBuffer source, Link link, EventSink sink, Timer timer, Callback callback) {
+        BulkTransfer transfer = new BulkTransfer(deviceId, Direction.UPLOAD, source.slice(), null, link, sink, timer, callback);
+        transfer.size = source.remaining();
+        return transfer;
+    }
+
+    static BulkTransfer download(String deviceId, Target target, Link link, EventSink sink, Timer timer, Callback callback) {
+        return new BulkTransfer(deviceId, Direction.DOWNLOAD, null, target, link, sink, timer, callback);
+    }
+
+    /** Proposed block size and window, the device may lower both. Values <= 0 keep the current setting. */
+    synchronized void configure(int blockSize, int window) {
+        if (blockSize > 0) this.blockSize = Math.min(blockSize, BulkProtocol.MAX_BLOCK_SIZE);
+        if (window > 0) this.window = Math.min(window, BulkProtocol.MAX_WINDOW);
+    }
+
+    /** Values <= 0 keep the current setting. */
+    synchronized void configureTimeouts(int ackTimeoutMs, int maxRetries, int resumeTimeoutMs) {
+        if (ackTimeoutMs > 0) this.ackTimeoutMs = ackTimeoutMs;
+        if (maxRetries > 0) this.maxRetries = maxRetries;
+        if (resumeTimeoutMs > 0) this.resumeTimeoutMs = resumeTimeoutMs;
+    }
+
+    /** Minimum time between progress events; 0 emits on every acknowledged block. */
+    synchronized void setProgressInterval(int progressIntervalMs) {
+        this.progressIntervalMs = Math.max(0, progressIntervalMs);
+    }
+
+    /** Whether a lost link pauses the transfer (default) or fails it. */
+    synchronized void setResume(boolean resume) {
+        this.resume = resume;
+    }
+
+    synchronized State state() {
+        return state;
+    }
+
+    void start() {
+        post(this::begin);
+    }
+
+    void cancel() {
+        post(this::cancelNow);
+    }
+
+    /** Fails the transfer without talking to the device, e.g. after a user disconnect. */
+    void abort(String code, String message) {
+        post(() -> finish(State.FAILED, code, message));
+    }
+
+    void onControl(byte[] value) {
+        byte[] message = value.clone();
+        post(() -> handleControl(message));
+    }
+
+    void onData(byte[] value) {
+        byte[] packet = value.clone();
+        post(() -> handleData(packet));
+    }
+
+    void onLinkLost() {
+        post(this::pause);
+    }
+
+    /** Called once the link is usable again (services discovered, notifications re-enabled). */
+    void onLinkRestored() {
+        post(() -> {
+            if (state != State.PAUSED) return;
+            timer.cancel(resumeTimeoutTask);
+            resumes++;
+            sendStart();
+        });
+    }
+
+    synchronized void writeStatus(EventSink.EventMap map) {
+        map.putString("deviceId", deviceId);
+        map.putString("direction", direction.jsName);
+        map.putString("state", state.jsName);
+        writeProgress(map);
+    }
+
+    private synchronized void cancelNow() {
+        if (state.finished()) return;
+        if (state != State.PAUSED) {
+            link.sendControl(BulkProtocol.status(BulkProtocol.ABORT, 0), IGNORE);
+        }
+        finish(State.CANCELLED, "Transfer Cancelled", "Transfer was cancelled.");
+    }
+
+    private void post(Runnable task) {
+        timer.schedule(task, 0);
+    }
+
+    private synchronized void begin() {
+        if (state.finished()) return;
+        startedAtNanos = System.nanoTime();
+        if (direction == Direction.UPLOAD) {
+            imageCrc.update(source.duplicate());
+            expectedCrc = imageCrc.getValue();
+            crcBytes = size;
+        } else {
+            try {
+                long have = resume ? target.length() / blockSize * blockSize : 0;
+                target.truncate(have);
+                feedCrc(have);
+            } catch (IOException e) {
+                finish(State.FAILED, "Storage Error", e.getMessage());
+                return;
+            }
+        }
+        sendStart();
+    }
+
+    private void sendStart() {
+        state = State.STARTING;
+        generation++;
+        inFlight = 0;
+        byte[] start = direction == Direction.UPLOAD
+                ? BulkProtocol.start(BulkProtocol.DIRECTION_UPLOAD, size, expectedCrc, blockSize, window, 0)
+                : BulkProtocol.start(BulkProtocol.DIRECTION_DOWNLOAD, 0, 0, blockSize, window, crcBytes);
+        link.sendControl(start, IGNORE);
+        arm();
+    }
+
+    private synchronized void handleControl(byte[] message) {
+        if (state.finished() || state == State.PAUSED || message.length == 0) return;
+        int op = BulkProtocol.u8(message, 0);
+        if (op == BulkProtocol.READY && message.length >= 16) {
+            if (state == State.STARTING) onReady(message);
+        } else if (op == BulkProtocol.DEVICE_ACK && message.length >= 5) {
+            if (sender != null && state == State.TRANSFERRING && sender.acknowledge(BulkProtocol.u32(message, 1))) {
+                touch();
+                emitProgress(false);
+                if (sender.complete()) {
+                    state = State.VERIFYING;
+                    link.sendControl(BulkProtocol.status(BulkProtocol.END, BulkProtocol.STATUS_OK), IGNORE);
+                } else {
+                    pump();
+                }
+            }
+        } else if (op == BulkProtocol.DEVICE_NAK && message.length >= 5) {
+            if (sender != null && state == State.TRANSFERRING) {
+                touch();
+                long before = sender.retransmittedBlocks();
+                sender.rewind(BulkProtocol.u32(message, 1));
+                retransmits += sender.retransmittedBlocks() - before;
+                pump();
+            }
+        } else if (op == BulkProtocol.DONE && message.length >= 2 && direction == Direction.UPLOAD) {
+            int status = BulkProtocol.u8(message, 1);
+            if (status == BulkProtocol.STATUS_OK && sender != null && sender.complete()) {
+                finish(State.DONE, null, null);
+            } else {
+                finish(State.FAILED, "Verify Failed", "Device rejected the image (status " + status + ").");
+            }
+        } else if (op == BulkProtocol.ERROR) {
+            int status = message.length >= 2 ? BulkProtocol.u8(message, 1) : -1;
+            finish(State.FAILED, "Device Error", "Device aborted the transfer (status " + status + ").");
+        }
+    }
+
+    private void onReady(byte[] message) {
+        long offset = BulkProtocol.u32(message, 1);
+        int readyBlockSize = BulkProtocol.u16(message, 5);
+        int readyWindow = BulkProtocol.u8(message, 7);
+        long readySize = BulkProtocol.u32(message, 8);
+        long readyCrc = BulkProtocol.u32(message, 12);
+        if (readyBlockSize == 0 || readyBlockSize > BulkProtocol.MAX_BLOCK_SIZE
+                || offset % readyBlockSize != 0 || offset > readySize) {
+            finish(State.FAILED, "Transfer Rejected", "Device sent an invalid READY (offset " + offset + ", block " + readyBlockSize + ").");
+            return;
+        }
+        if (resumedFrom < 0) resumedFrom = offset;
+        retries = 0;
+        touch();
+
+        if (direction == Direction.UPLOAD) {
+            if (readySize != size || readyCrc != expectedCrc) {
+                finish(State.FAILED, "Transfer Rejected", "Device is expecting a different image.");
+                return;
+            }
+            if (sender == null || sender.blockSize != readyBlockSize) {
+                sender = new BulkSender(source, readyBlockSize, readyWindow);
+            }
+            sender.setWindow(Math.min(window, Math.max(1, readyWindow)));
+            sender.resumeAt(offset / readyBlockSize);
+            state = State.TRANSFERRING;
+            if (sender.complete()) {
+                state = State.VERIFYING;
+                link.sendControl(BulkProtocol.status(BulkProtocol.END, BulkProtocol.STATUS_OK), IGNORE);
+            } else {
+                pump();
+            }
+        } else {
+            if (offset > crcBytes) {
+                finish(State.FAILED, "Transfer Rejected", "Device resumed past the data we have.");
+                return;
+            }
+            try {
+                if (offset < crcBytes) {
+                    target.truncate(offset);
+                    feedCrc(offset);
+                }
+            } catch (IOException e) {
+                finish(State.FAILED, "Storage Error", e.getMessage());
+                return;
+            }
+            size = readySize;
+            expectedCrc = readyCrc;
+            if (receiver == null || receiver.blockSize != readyBlockSize || receiver.size != readySize) {
+                receiver = new BulkReceiver(readySize, readyBlockSize, offset / readyBlockSize);
+            } else {
+                receiver.resumeAt(offset / readyBlockSize);
+            }
+            state = State.TRANSFERRING;
+            if (receiver.complete()) {
+                verifyDownload();
+            }
+        }
+        emitProgress(true);
+    }
+
+    private synchronized void handleData(byte[] packet) {
+        if (state != State.TRANSFERRING || receiver == null) return;
+        touch();
+        switch (receiver.onPacket(packet)) {
+            case BLOCK:
+                try {
+                    int length = receiver.completedLength();
+                    target.write(receiver.completedBlock() * receiver.blockSize, receiver.block(), 0, length);
+                    imageCrc.update(receiver.block(), 0, length);
+                    crcBytes += length;
+                } catch (IOException e) {
+                    link.sendControl(BulkProtocol.status(BulkProtocol.ABORT, BulkProtocol.STATUS_STORAGE), IGNORE);
+                    finish(State.FAILED, "Storage Error", e.getMessage());
+                    return;
+                }
+                retries = 0;
+                link.sendControl(BulkProtocol.block(BulkProtocol.ACK, receiver.nextBlock()), IGNORE);
+                if (receiver.complete()) {
+                    verifyDownload();
+                } else {
+                    emitProgress(false);
+                }
+                break;
+            case NAK:
+                retransmits++;
+                link.sendControl(BulkProtocol.block(BulkProtocol.NAK, receiver.nextBlock()), IGNORE);
+                break;
+            default:
+                break;
+        }
+    }
+
+    /** Tells the device the verdict and settles once that write has gone out (or failed, the image is complete either way). */
+    private void verifyDownload() {
+        state = State.VERIFYING;
+        timer.cancel(timeoutTask);
+        boolean ok = crcBytes == size && imageCrc.getValue() == expectedCrc;
+        String message = String.format("Image CRC %08x does not match %08x.", imageCrc.getValue(), expectedCrc);
+        Runnable settle = () -> finish(ok ? State.DONE : State.FAILED, "Verify Failed", message);
+        link.sendControl(BulkProtocol.status(BulkProtocol.END, ok ? BulkProtocol.STATUS_OK : BulkProtocol.STATUS_CRC_MISMATCH), new Callback() {
+            @Override
+            public void resolve(Object value) {
+                post(settle);
+            }
+
+            @Override
+            public void reject(String code, String message) {
+                post(settle);
+            }
+        });
+    }
+
+    /** Hands packets to the link until the window or the in-flight limit is reached. */
+    private void pump() {
+        int maxPacketSize = link.maxPacketSize();
+        while (state == State.TRANSFERRING && inFlight < MAX_PACKETS_IN_FLIGHT) {
+            byte[] packet = sender.next(maxPacketSize);
+            if (packet == null) break;
+            inFlight++;
+            link.sendData(packet, packetCallback(generation));
+        }
+    }
+
+    private Callback packetCallback(int sentGeneration) {
+        return new Callback() {
+            @Override
+            public void resolve(Object value) {
+                post(() -> onPacketDone(sentGeneration, true));
+            }
+
+            @Override
+            public void reject(String code, String message) {
+                post(() -> onPacketDone(sentGeneration, false));
+            }
+        };
+    }
+
+    private synchronized void onPacketDone(int sentGeneration, boolean written) {
+        if (sentGeneration != generation) return;
+        inFlight--;
+        if (written) {
+            pump();
+        } else {
+            // The device will NAK the gap, or the ack timeout rewinds
+            sendFailures++;
+        }
+    }
+
+    private synchronized void pause() {
+        if (state.finished() || state == State.PAUSED) return;
+        if (!resume) {
+            finish(State.FAILED, "BLE Disconnected", "Link lost during the transfer.");
+            return;
+        }
+        state = State.PAUSED;
+        generation++;
+        inFlight = 0;
+        timer.cancel(timeoutTask);
+        timer.schedule(resumeTimeoutTask, resumeTimeoutMs);
+        emitProgress(true);
+    }
+
+    private synchronized void onResumeTimeout() {
+        if (state == State.PAUSED) {
+            finish(State.FAILED, "BLE Disconnected", "Link did not come back within " + resumeTimeoutMs + " ms.");
+        }
+    }
+
+    private void touch() {
+        lastActivityNanos = System.nanoTime();
+    }
+
+    private void arm() {
+        touch();
+        timer.schedule(timeoutTask, ackTimeoutMs);
+    }
+
+    /** Checks for a stalled transfer; activity only stamps a time, the timer is rescheduled here. */
+    private synchronized void onTimeout() {
+        if (state.finished() || state == State.PAUSED) return;
+        long idleMs = (System.nanoTime() - lastActivityNanos) / 1_000_000;
+        if (idleMs < ackTimeoutMs) {
+            timer.schedule(timeoutTask, ackTimeoutMs - idleMs);
+            return;
+        }
+        if (++retries > maxRetries) {
+            finish(State.FAILED, "Transfer Timeout", "No answer from the device after " + maxRetries + " retries.");
+            return;
+        }
+        switch (state) {
+            case STARTING:
+                sendStart();
+                return;
+            case VERIFYING:
+                link.sendControl(BulkProtocol.status(BulkProtocol.END, BulkProtocol.STATUS_OK), IGNORE);
+                break;
+            case TRANSFERRING:
+                if (direction == Direction.UPLOAD) {
+                    long before = sender.retransmittedBlocks();
+                    sender.rewind(sender.base());
+                    retransmits += sender.retransmittedBlocks() - before;
+                    generation++;
+                    inFlight = 0;
+                    pump();
+                } else {
+                    receiver.requestRetransmit();
+                    link.sendControl(BulkProtocol.block(BulkProtocol.NAK, receiver.nextBlock()), IGNORE);
+                }
+                break;
+            default:
+                break;
+        }
+        arm();
+    }
+
+    /** Rebuilds the running image CRC from what the target already holds. */
+    private void feedCrc(long length) throws IOException {
+        imageCrc.reset();
+        byte[] buffer = new byte[8192];
+        long position = 0;
+        while (position < length) {
+            int read = target.read(position, buffer, 0, (int) Math.min(buffer.length, length - position));
+            if (read <= 0) throw new IOException("Target is shorter than " + length + " bytes.");
+            imageCrc.update(buffer, 0, read);
+            position += read;
+        }
+        crcBytes = length;
+    }
+
+    private synchronized void finish(State finalState, String code, String message) {
+        if (state.finished()) return;
+        state = finalState;
+        timer.cancel(timeoutTask);
+        timer.cancel(resumeTimeoutTask);
+        generation++;
+        if (target != null) {
+            target.close();
+        }
+        emitProgress(true);
+        if (finalState == State.DONE) {
+            EventSink.EventMap result = sink.createMap();
+            writeStatus(result);
+            result.putString("crc32", String.format("%08x", expectedCrc));
+            callback.resolve(result);
+        } else {
+            callback.reject(code, message);
+        }
+    }
+
+    private long transferredBytes() {
+        if (direction == Direction.UPLOAD) {
+            return sender == null ? 0 : sender.acknowledgedBytes();
+        }
+        return crcBytes;
+    }
+
+    private void emitProgress(boolean force) {
+        long now = System.nanoTime();
+        if (!force && (now - lastProgressNanos) / 1_000_000 < progressIntervalMs) return;
+        lastProgressNanos = now;
+        EventSink.EventMap params = sink.createMap();
+        writeStatus(params);
+        sink.emit(PROGRESS_EVENT, params);
+    }
+
+    private void writeProgress(EventSink.EventMap map) {
+        long bytes = transferredBytes();
+        double elapsedMs = startedAtNanos == 0 ? 0 : (System.nanoTime() - startedAtNanos) / 1e6;
+        long moved = bytes - Math.max(0, resumedFrom);
+        map.putDouble("bytes", bytes);
+        map.putDouble("total", size);
+        map.putDouble("percent", size == 0 ? 0 : Math.floor(bytes * 1000.0 / size) / 10);
+        map.putDouble("bytesPerSecond", elapsedMs <= 0 ? 0 : Math.round(moved * 1000.0 / elapsedMs));
+        map.putDouble("elapsedMs", Math.round(elapsedMs));
+        map.putDouble("resumedFrom", Math.max(0, resumedFrom));
+        map.putInt("resumes", resumes);
+        map.putDouble("retransmits", retransmits);
+        map.putDouble("sendFailures", sendFailures);
+        if (receiver != null) {
+            map.putDouble("crcErrors", receiver.crcErrors());
+        }
+    }
+
+    /** Download target backed by a file, kept across transfers so an interrupted one can resume. */
+    static final class FileTarget implements Target {
+        private final File file;
+        private RandomAccessFile raf;
+
+        FileTarget(File file) {
+            this.file = file;
+        }
+
+        private RandomAccessFile open() throws IOException {
+            if (raf == null) {
+                File parent = file.getParentFile();
+                if (parent != null && !parent.isDirectory() && !parent.mkdirs()) {
+                    throw new IOException("Cannot create " + parent);
+                }
+                raf = new RandomAccessFile(file, "rw");
+            }
+            return raf;
+        }
+
+        @Override
+        public long length() throws IOException {
+            return file.exists() ? file.length() : 0;
+        }
+
+        @Override
+        public int read(long position, byte[] buffer, int offset, int length) throws IOException {
+            RandomAccessFile f = open();
+            f.seek(position);
+            return f.read(buffer, offset, length);
+        }
+
+        @Override
+        public void write(long position, byte[] data, int offset, int length) throws IOException {
+            RandomAccessFile f = open();
+            f.seek(position);
+            f.write(data, offset, length);
+        }
+
+        @Override
+        public void truncate(long length) throws IOException {
+            open().setLength(length);
+        }
+
+        @Override
+        public void close() {
+            if (raf == null) return;
+            try {
+                raf.close();
+            } catch (IOException ignored) {
+            }
+            raf = null;
+        }
+    }
+
+    /** Download target in memory, for small images handed to JS as base64. */
+    static final class MemoryTarget implements Target {
+        private byte[] data = new byte[4096];
+        private int length;
+
+        @Override
+        public synchronized long length() {
+            return length;
+        }
+
+        @Override
+        public synchronized int read(long position, byte[] buffer, int offset, int count) {
+            int n = (int) Math.min(count, length - position);
+            if (n <= 0) return -1;
+            System.arraycopy(data, (int) position, buffer, offset, n);
+            return n;
+        }
+
+        @Override
+        public synchronized void write(long position, byte[] bytes, int offset, int count) throws IOException {
+            long end = position + count;
+            if (end > Integer.MAX_VALUE - 8) throw new IOException("Image too large for memory.");
+            if (end > data.length) {
+                data = Arrays.copyOf(data, (int) Math.max(end, Math.min(Integer.MAX_VALUE - 8, data.length * 2L)));
+            }
+            System.arraycopy(bytes, offset, data, (int) position, count);
+            length = (int) Math.max(length, end);
+        }
+
+        @Override
+        public synchronized void truncate(long newLength) {
+            length = (int) Math.min(length, newLength);
+        }
+
+        @Override
+        public void close() {
+        }
+
+        synchronized byte[] toByteArray() {
+            return Arrays.copyOf(data, length);
+        }
+    }
+}
@@ -0,0 +1,11 @@
+package com.jbluepack;
+
+/**
+ * Completion of a queued command. The Android modules adapt a React Native Promise
+ * to this; off-device code (benchmarks, the simulator) implements it directly.
+ */
+interface Callback {
+    void resolve(Object value);
+
+    void reject(String code, String message);
+}
@@ -0,0 +1,67 @@
+package com.jbluepack;
+
+/**
+ * COBS encoded frames separated by 0x00. Frames are decoded into a second reused
+ * buffer; a malformed block counts as a resync and is skipped.
+ */
+class CobsFramer extends StreamFramer {
+    private final byte[] decoded;
+    private int scan;
+    private boolean discarding;
+
+    CobsFramer(int maxFrameLength) {
+        super(maxFrameLength);
+        decoded = new byte[this.maxFrameLength];
+    }
+
+    @Override
+    protected void decode(FrameListener listener) {
+        byte[] buf = buffer;
+        for (int i = Math.max(scan, start); i < end; i++) {
+            if (buf[i] != 0) continue;
+            if (discarding) {
+                discarding = false;
+            } else if (i > start) {
+                int length = decodeBlock(buf, start, i);
+                if (length < 0) {
+                    resyncs++;
+                } else {
+                    frames++;
+                    listener.onFrame(decoded, 0, length);
+                }
+            }
+            start = i + 1;
+        }
+        scan = end;
+
+        // COBS adds one byte per 254, anything longer than that without a delimiter is garbage
+        if (end - start > maxFrameLength + maxFrameLength / 254 + 1) {
+            resyncs++;
+            discarding = true;
+            start = end;
+        }
+    }
+
+    /** Decodes buf[from, to) into 'decoded'. Returns the decoded length, or -1 if the block is malformed. */
+    private int decodeBlock(byte[] buf, int from, int to) {
+        int out = 0;
+        int i = from;
+        while (i < to) {
+            int code = buf[i++] & 0xFF;
+            if (code == 0 || i + code - 1 > to || out + code - 1 > decoded.length) return -1;
+            for (int j = 1; j < code; j++) {
+                decoded[out++] = buf[i++];
+            }
+            if (code < 0xFF && i < to) {
+                if (out >= decoded.length) return -1;
+                decoded[out++] = 0;
+            }
+        }
+        return out;
+    }
+
+    @Override
+    protected void onCompacted(int shift) {
+        scan = Math.max(0, scan - shift);
+    }
+}
@@ -0,0 +1,252 @@
+package com.jbluepack;
+
+import java.util.ArrayDeque;
+
+/**
+ * Serializes commands against a transport that allows only one outstanding request,
+ * such as a GATT client connection.
+ *
+ * Callers enqueue operations and the queue issues the next one as soon as the
+ * completion for the previous one arrives. Every operation carries its own callback
+ * and timeout, and the queue depth is bounded so producers get a "Queue Full"
+ * rejection instead of unbounded latency. Completions are matched by kind.
+ *
+ * @param <T> the transport operations execute against
+ * @param <K> the operation kinds
+ */
+class CommandQueue<T, K extends Enum<K>> {
+
+    abstract static class Operation<T, K extends Enum<K>> {
+        final K kind;
+        final Callback callback;  // null for internal operations (e.g. the connect handshake)
+        long timeoutMs;
+        long startedAtNanos;  // when the current step was issued to the transport
+        Runnable timeoutTask;
+        Runnable retryTask;
+        CommandQueue<T, K> queue;
+
+        Operation(K kind, Callback callback) {
+            this.kind = kind;
+            this.callback = callback;
+        }
+
+        /** Issues the request. Returns false if the transport refused to start it. */
+        abstract boolean execute(T transport);
+
+        /**
+         * Called after a successful completion. Multi-step operations (chunked writes)
+         * return true to be executed again for their next step.
+         */
+        boolean advance() {
+            return false;
+        }
+
+        /** Maps the completion value to what the caller's callback resolves with. */
+        Object result(Object value) {
+            return value;
+        }
+
+        /**
+         * Delay before issuing a refused step again, or 0 to reject it straight away. Retries
+         * stop when the step's timeout passes.
+         */
+        long retryDelayMs() {
+            return 0;
+        }
+
+        /** Appended to rejection messages, e.g. how much of a chunked write got through. */
+        String progress() {
+            return "";
+        }
+    }
+
+    static final int DEFAULT_MAX_DEPTH = 64;
+    static final int DEFAULT_TIMEOUT_MS = 5000;
+
+    private final ArrayDeque<Operation<T, K>> pending = new ArrayDeque<>();
+    private final Timer timer;
+    private final String name;  // transport name for error codes and messages, e.g. "BLE"
+    private T transport;
+    private Operation<T, K> current;
+    private int maxDepth = DEFAULT_MAX_DEPTH;
+    private int timeoutMs = DEFAULT_TIMEOUT_MS;
+
+    CommandQueue(Timer timer, String name) {
+        this.timer = timer;
+        this.name = name;
+    }
+
+    synchronized void attach(T transport) {
+        this.transport = transport;
+    }
+
+    synchronized void configure(int maxDepth, int timeoutMs) {
+        if (maxDepth > 0) this.maxDepth = maxDepth;
+        if (timeoutMs > 0) this.timeoutMs = timeoutMs;
+    }
+
+    synchronized int depth() {
+        return pending.size() + (current != null ? 1 : 0);
+    }
+
+    synchronized int maxDepth() {
+        return maxDepth;
+    }
+
+    /** Adds an operation. Returns false (and rejects its callback) if it was not accepted. */
+    synchronized boolean enqueue(Operation<T, K> op) {
+        if (transport == null) {
+            reject(op, name + " Not Connected", "No active " + name + " connection.");
+            return false;
+        }
+        if (depth() >= maxDepth) {
+            onWarning("Queue full, rejecting " + op.kind);
+            reject(op, "Queue Full", name + " queue is full (" + maxDepth + " pending operations).");
+            return false;
+        }
+        op.timeoutMs = timeoutMs;
+        op.queue = this;
+        pending.add(op);
+        next();
+        return true;
+    }
+
+    /** Called when the in-flight operation of this kind succeeded. */
+    synchronized void complete(K kind, Object value) {
+        onComplete(kind, value);
+        if (current != null && current.kind == kind) {
+            onStepCompleted(kind, System.nanoTime() - current.startedAtNanos);
+        }
+        if (current != null && current.kind == kind && current.advance()) {
+            Operation<T, K> op = current;
+            cancelTimers(op);
+            current = null;
+            start(op);
+            next();
+            return;
+        }
+        Operation<T, K> op = take(kind);
+        if (op != null && op.callback != null) {
+            op.callback.resolve(op.result(value));
+        }
+        next();
+    }
+
+    /** Called when the in-flight operation of this kind failed. */
+    synchronized void fail(K kind, String code, String message) {
+        Operation<T, K> op = take(kind);
+        if (op != null) {
+            reject(op, code, message + op.progress());
+        }
+        next();
+    }
+
+    /** Rejects everything in flight and queued, e.g. when the link goes down. */
+    synchronized void clear(String code, String message) {
+        if (current != null) {
+            cancelTimers(current);
+            reject(current, code, message + current.progress());
+            current = null;
+        }
+        Operation<T, K> op;
+        while ((op = pending.poll()) != null) {
+            reject(op, code, message);
+        }
+        transport = null;
+    }
+
+    /** Hook for transport state carried by completions (e.g. the negotiated MTU). Runs under the queue lock. */
+    void onComplete(K kind, Object value) {
+    }
+
+    /** Round trip of one request (or one step of a multi-step operation), issue to completion. */
+    void onStepCompleted(K kind, long elapsedNanos) {
+    }
+
+    /** Rejection code for operations the transport refused to start. */
+    String busyCode() {
+        return name + " Busy";
+    }
+
+    void onWarning(String message) {
+    }
+
+    private Operation<T, K> take(K kind) {
+        if (current == null || current.kind != kind) {
+            onWarning("Ignoring " + kind + " completion with no matching operation in flight");
+            return null;
+        }
+        Operation<T, K> op = current;
+        current = null;
+        cancelTimers(op);
+        return op;
+    }
+
+    private void next() {
+        while (current == null && transport != null && !pending.isEmpty()) {
+            start(pending.poll());
+        }
+    }
+
+    private void start(Operation<T, K> op) {
+        current = op;
+        if (op.timeoutTask == null) {
+            op.timeoutTask = () -> onTimeout(op);
+        }
+        timer.schedule(op.timeoutTask, op.timeoutMs);
+        issue(op);
+    }
+
+    /** Executes the current step. A refused step is retried while it stays current, or rejected. */
+    private void issue(Operation<T, K> op) {
+        boolean started;
+        op.startedAtNanos = System.nanoTime();
+        try {
+            started = op.execute(transport);
+        } catch (RuntimeException e) {
+            onWarning(op.kind + " threw: " + e.getMessage());
+            started = false;
+        }
+        if (started) return;
+        long retryDelayMs = op.retryDelayMs();
+        if (retryDelayMs > 0) {
+            // Stays current so nothing interleaves with it, the step timeout bounds the retries
+            if (op.retryTask == null) {
+                op.retryTask = () -> onRetry(op);
+            }
+            timer.schedule(op.retryTask, retryDelayMs);
+            return;
+        }
+        current = null;
+        timer.cancel(op.timeoutTask);
+        reject(op, busyCode(), "Failed to start " + name + " " + op.kind + "." + op.progress());
+    }
+
+    private synchronized void onRetry(Operation<T, K> op) {
+        if (current != op || transport == null) return;
+        issue(op);
+        next();
+    }
+
+    private synchronized void onTimeout(Operation<T, K> op) {
+        if (current != op) return;
+        onWarning(op.kind + " timed out after " + op.timeoutMs + " ms");
+        current = null;
+        cancelTimers(op);
+        reject(op, "Timeout", name + " " + op.kind + " timed out after " + op.timeoutMs + " ms." + op.progress());
+        next();
+    }
+
+    private void cancelTimers(Operation<T, K> op) {
+        timer.cancel(op.timeoutTask);
+        if (op.retryTask != null) {
+            timer.cancel(op.retryTask);
+        }
+    }
+
+    private static void reject(Operation<?, ?> op, String code, String message) {
+        if (op.callback != null) {
+            op.callback.reject(code, message);
+        }
+    }
+}
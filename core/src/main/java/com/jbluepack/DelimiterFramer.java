@@ -0,0 +1,52 @@
+package com.jbluepack;
+
+/**
+ * Frames terminated by a single delimiter byte. With the default '\n' a trailing
+ * '\r' is stripped as well, which matches what BufferedReader.readLine() produced.
+ */
+class DelimiterFramer extends StreamFramer {
+    private final byte delimiter;
+    private final boolean stripCarriageReturn;
+    private int scan;          // bytes before this offset are known not to be delimiters
+    private boolean discarding;  // dropping an over-long frame until the next delimiter
+
+    DelimiterFramer(int delimiter, int maxFrameLength) {
+        super(maxFrameLength);
+        this.delimiter = (byte) delimiter;
+        this.stripCarriageReturn = delimiter == '\n';
+    }
+
+    @Override
+    protected void decode(FrameListener listener) {
+        byte[] buf = buffer;
+        for (int i = Math.max(scan, start); i < end; i++) {
+            if (buf[i] != delimiter) continue;
+            int length = i - start;
+            if (stripCarriageReturn && length > 0 && buf[i - 1] == '\r') {
+                length--;
+            }
+            if (discarding) {
+                discarding = false;
+            } else if (length > maxFrameLength) {
+                resyncs++;
+            } else {
+                frames++;
+                listener.onFrame(buf, start, length);
+            }
+            start = i + 1;
+        }
+        scan = end;
+
+        if (end - start > maxFrameLength) {
+            // No delimiter within the limit, skip to the next one
+            resyncs++;
+            discarding = true;
+            start = end;
+        }
+    }
+
+    @Override
+    protected void onCompacted(int shift) {
+        scan = Math.max(0, scan - shift);
+    }
+}
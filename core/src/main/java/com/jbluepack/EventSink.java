@@ -0,0 +1,35 @@
+package com.jbluepack;
+
+/**
+ * Where events to JS go. On device this wraps the React Native event emitter and
+ * its WritableMap/WritableArray types; off-device it builds plain Java collections.
+ */
+interface EventSink {
+
+    interface EventMap {
+        void putString(String key, String value);
+
+        void putInt(String key, int value);
+
+        void putDouble(String key, double value);
+
+        void putBoolean(String key, boolean value);
+
+        void putMap(String key, EventMap value);
+
+        void putArray(String key, EventArray value);
+    }
+
+    interface EventArray {
+        void pushMap(EventMap value);
+
+        void pushString(String value);
+    }
+
+    EventMap createMap();
+
+    EventArray createArray();
+
+    /** Returns false if nobody was listening and the event was dropped. */
+    boolean emit(String eventName, EventMap payload);
+}
@@ -0,0 +1,475 @@
+package com.jbluepack;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Records raw BLE notifications and RFCOMM frames into rolling segment files through
+ * memory-mapped I/O, so a capture keeps running while JS is stalled or the app is in the
+ * background. An append is a copy into the mapped segment under the recorder lock; the
+ * kernel writes the pages back, so recorded frames survive the process being killed.
+ *
+ * A segment is a 16-byte header (magic, version, first sequence number) followed by records:
+ * [int length][byte kind][byte 0][short stream][long seq][long timestampMs][payload]. Each
+ * segment defines a stream (deviceId plus characteristic, "" for RFCOMM) in a STREAM record
+ * before its first frame, so a segment can be read or deleted on its own. A record's
+ * length is written last and a zero length ends the segment; the unused tail of a
+ * mapped file stays zeros.
+ */
+final class FrameRecorder {
+
+    static final int DEFAULT_SEGMENT_BYTES = 4 * 1024 * 1024;
+    static final int MIN_SEGMENT_BYTES = 64 * 1024;
+    static final int MAX_SEGMENT_BYTES = 256 * 1024 * 1024;
+    static final int DEFAULT_MAX_SEGMENTS = 32;
+    static final int DEFAULT_QUERY_FRAMES = 1000;
+    static final int MAX_QUERY_FRAMES = 50000;
+
+    private static final int MAGIC = 0x4A425231;  // "JBR1"
+    private static final int VERSION = 1;
+    private static final int SEGMENT_HEADER = 16;
+    private static final int RECORD_HEADER = 24;
+    private static final byte KIND_FRAME = 0;
+    private static final byte KIND_STREAM = 1;
+    private static final String SUFFIX = ".jbr";
+    private static final String RFCOMM = "";
+
+    private static final FrameRecorder SHARED = new FrameRecorder();
+
+    /** Where and what to record. Null sets record every device or characteristic. */
+    static final class Config {
+        final File directory;
+        final int segmentBytes;
+        final int maxSegments;
+        final long maxAgeMs;  // 0: keep segments until maxSegments pushes them out
+        final boolean ble;
+        final boolean rfcomm;
+        final Set<String> deviceIds;
+        final Set<String> characteristics;
+
+        Config(File directory, int segmentBytes, int maxSegments, long maxAgeMs, boolean ble, boolean rfcomm,
+               Set<String> deviceIds, Set<String> characteristics) {
+            if (segmentBytes < MIN_SEGMENT_BYTES || segmentBytes > MAX_SEGMENT_BYTES) {
+                throw new IllegalArgumentException("segmentBytes must be between " + MIN_SEGMENT_BYTES + " and " + MAX_SEGMENT_BYTES + ".");
+            }
+            if (maxSegments < 2) {
+                throw new IllegalArgumentException("maxSegments must be at least 2.");
+            }
+            if (maxAgeMs < 0) {
+                throw new IllegalArgumentException("maxAgeMs must not be negative.");
+            }
+            this.directory = directory;
+            this.segmentBytes = segmentBytes;
+            this.maxSegments = maxSegments;
+            this.maxAgeMs = maxAgeMs;
+            this.ble = ble;
+            this.rfcomm = rfcomm;
+            this.deviceIds = deviceIds;
+            this.characteristics = characteristics;
+        }
+    }
+
+    /** Receives the frames of a scan. buffer is only valid during the call. */
+    interface Visitor {
+        void frame(long seq, long timestampMs, String deviceId, String characteristic, ByteBuffer buffer, int offset, int length);
+    }
+
+    /** A segment file and what it holds. Mutated under the recorder lock, scans work on copies. */
+    private static final class Segment {
+        final File file;
+        final long firstSeq;
+        long lastSeq;  // firstSeq - 1 while empty
+        long minTime = Long.MAX_VALUE;
+        long maxTime = Long.MIN_VALUE;
+        int end = SEGMENT_HEADER;
+        ByteBuffer view;  // on a scan's copy of the active segment, its mapping
+
+        Segment(File file, long firstSeq) {
+            this.file = file;
+            this.firstSeq = firstSeq;
+            this.lastSeq = firstSeq - 1;
+        }
+
+        boolean isEmpty() {
+            return lastSeq < firstSeq;
+        }
+
+        void recorded(long seq, long timestampMs) {
+            lastSeq = seq;
+            if (timestampMs < minTime) minTime = timestampMs;
+            if (timestampMs > maxTime) maxTime = timestampMs;
+        }
+
+        Segment copy(MappedByteBuffer active) {
+            Segment copy = new Segment(file, firstSeq);
+            copy.lastSeq = lastSeq;
+            copy.minTime = minTime;
+            copy.maxTime = maxTime;
+            copy.end = end;
+            copy.view = active != null ? active.duplicate() : null;
+            return copy;
+        }
+    }
+
+    private volatile Config config;  // null while stopped
+    private File directory;          // of the last recording, still queryable after stop
+    private final List<Segment> segments = new ArrayList<>();  // oldest first, the active one last
+    private Segment active;
+    private MappedByteBuffer buffer;
+
+    // Streams are numbered once per process; each segment defines the ones it uses
+    private final Map<String, Map<String, Integer>> streamIds = new HashMap<>();
+    private final List<byte[]> streamDefinitions = new ArrayList<>();
+    private final BitSet defined = new BitSet();  // streams defined in the active segment
+    private long nextSeq = 1;
+
+    private long frames;
+    private long bytes;
+    private long oversized;
+    private long writeErrors;
+    private long segmentsDeleted;
+
+    static FrameRecorder shared() {
+        return SHARED;
+    }
+
+    boolean isRecording() {
+        return config != null;
+    }
+
+    /**
+     * Starts recording into config.directory, picking up the segments already there (their
+     * frames stay queryable and count towards retention) and continuing their numbering.
+     */
+    synchronized void start(Config config) throws IOException {
+        if (this.config != null) {
+            stop();
+        }
+        File dir = config.directory;
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            throw new IOException("Can't create " + dir);
+        }
+        if (!dir.equals(directory)) {
+            load(dir);
+        }
+        directory = dir;
+        this.config = config;
+        if (!roll(config, System.currentTimeMillis())) {
+            this.config = null;
+            throw new IOException("Can't create a segment in " + dir);
+        }
+    }
+
+    /** Flushes the active segment to storage and stops. Recorded frames stay queryable. */
+    synchronized void stop() {
+        if (config == null) return;
+        config = null;
+        if (buffer != null) {
+            buffer.force();
+        }
+        buffer = null;
+        active = null;
+    }
+
+    /** Deletes every segment of the last recording. Throws IllegalStateException while recording. */
+    synchronized int delete() {
+        if (config != null) {
+            throw new IllegalStateException("Stop the recording before deleting it.");
+        }
+        int deleted = 0;
+        for (Segment segment : segments) {
+            if (segment.file.delete()) deleted++;
+        }
+        segments.clear();
+        return deleted;
+    }
+
+    /**
+     * Appends a frame, returning false when it was filtered out or couldn't be stored. Called
+     * from the BLE event loop and the RFCOMM readers; no allocation unless a new segment or
+     * stream is needed.
+     */
+    synchronized boolean append(String deviceId, String characteristic, byte[] value, int offset, int length, long nowMs) {
+        Config config = this.config;
+        if (config == null) return false;
+        if (characteristic == null ? !config.rfcomm : !config.ble) return false;
+        if (config.deviceIds != null && !config.deviceIds.contains(deviceId)) return false;
+        if (characteristic != null && config.characteristics != null && !config.characteristics.contains(characteristic)) return false;
+
+        int stream = stream(deviceId, characteristic != null ? characteristic : RFCOMM);
+        byte[] definition = streamDefinitions.get(stream);
+        int needed = RECORD_HEADER + length;
+        if (needed + RECORD_HEADER + definition.length > config.segmentBytes - SEGMENT_HEADER || stream > Short.MAX_VALUE) {
+            oversized++;
+            return false;
+        }
+        if (!defined.get(stream)) {
+            needed += RECORD_HEADER + definition.length;
+        }
+        if (buffer.capacity() - active.end < needed && !roll(config, nowMs)) {
+            return false;
+        }
+        if (!defined.get(stream)) {
+            write(KIND_STREAM, stream, 0, nowMs, definition, 0, definition.length);
+            defined.set(stream);
+        }
+        long seq = nextSeq++;
+        write(KIND_FRAME, stream, seq, nowMs, value, offset, length);
+        active.recorded(seq, nowMs);
+        frames++;
+        bytes += length;
+        return true;
+    }
+
+    /**
+     * Visits up to max frames with seq >= fromSeq and fromMs <= timestamp <= toMs, oldest
+     * first, optionally of one device. Returns the seq to continue from: after the last frame
+     * visited when max was reached, otherwise the next seq the recorder will assign.
+     * Segments are read outside the lock; retention deleting one mid-scan doesn't disturb
+     * a mapping that is already open.
+     */
+    long scan(long fromSeq, long fromMs, long toMs, String deviceId, int max, Visitor visitor) {
+        Segment[] snapshot;
+        long next;
+        synchronized (this) {
+            snapshot = new Segment[segments.size()];
+            for (int i = 0; i < snapshot.length; i++) {
+                Segment segment = segments.get(i);
+                snapshot[i] = segment.copy(segment == active ? buffer : null);
+            }
+            next = nextSeq;
+        }
+        int count = 0;
+        for (Segment segment : snapshot) {
+            if (count >= max) break;
+            if (segment.isEmpty() || segment.lastSeq < fromSeq || segment.maxTime < fromMs || segment.minTime > toMs) continue;
+            ByteBuffer view = segment.view;
+            if (view == null) {
+                try {
+                    view = map(segment.file, false, 0);
+                } catch (IOException e) {
+                    continue;  // deleted by retention since the snapshot
+                }
+            }
+            String[] devices = new String[8];
+            String[] characteristics = new String[8];
+            int at = SEGMENT_HEADER;
+            while (at < segment.end && count < max) {
+                int length = view.getInt(at);
+                if (length < RECORD_HEADER || at + length > segment.end) break;
+                int stream = view.getShort(at + 6);
+                if (view.get(at + 4) == KIND_STREAM) {
+                    if (stream >= devices.length) {
+                        devices = Arrays.copyOf(devices, Math.max(stream + 1, devices.length * 2));
+                        characteristics = Arrays.copyOf(characteristics, devices.length);
+                    }
+                    String definition = string(view, at + RECORD_HEADER, length - RECORD_HEADER);
+                    int split = definition.indexOf('\n');
+                    devices[stream] = definition.substring(0, split);
+                    characteristics[stream] = definition.substring(split + 1);
+                } else {
+                    long seq = view.getLong(at + 8);
+                    long timestampMs = view.getLong(at + 16);
+                    if (seq >= fromSeq && timestampMs >= fromMs && timestampMs <= toMs && stream < devices.length && devices[stream] != null
+                            && (deviceId == null || deviceId.equals(devices[stream]))) {
+                        visitor.frame(seq, timestampMs, devices[stream], characteristics[stream], view, at + RECORD_HEADER, length - RECORD_HEADER);
+                        if (++count == max) {
+                            next = seq + 1;
+                        }
+                    }
+                }
+                at += length;
+            }
+        }
+        return next;
+    }
+
+    /**
+     * A page of frames for JS: data holds "seq,timestamp,deviceId,characteristic,base64" lines
+     * (characteristic empty for RFCOMM), count, nextSeq to pass as fromSeq for the next page, and done.
+     */
+    EventSink.EventMap query(EventSink sink, long fromSeq, long fromMs, long toMs, String deviceId, int max) {
+        StringBuilder out = new StringBuilder(Math.min(max, 4096) * 64);
+        int[] count = new int[1];
+        long next = scan(fromSeq, fromMs, toMs, deviceId, max, (seq, timestampMs, device, characteristic, buffer, offset, length) -> {
+            out.append(seq).append(',')
+                    .append(timestampMs).append(',')
+                    .append(device).append(',')
+                    .append(characteristic).append(',');
+            Base64Encoder.encode(buffer, offset, length, out);
+            out.append('\n');
+            count[0]++;
+        });
+        EventSink.EventMap page = sink.createMap();
+        page.putString("data", out.toString());
+        page.putInt("count", count[0]);
+        page.putDouble("nextSeq", next);
+        page.putBoolean("done", count[0] < max);
+        return page;
+    }
+
+    synchronized EventSink.EventMap stats(EventSink sink) {
+        EventSink.EventMap map = sink.createMap();
+        Config current = config;
+        map.putBoolean("recording", current != null);
+        if (directory != null) map.putString("directory", directory.getPath());
+        if (current != null) {
+            map.putInt("segmentBytes", current.segmentBytes);
+            map.putInt("maxSegments", current.maxSegments);
+            map.putDouble("maxAgeMs", current.maxAgeMs);
+        }
+        long diskBytes = 0;
+        long firstSeq = -1;
+        long oldestMs = -1;
+        for (Segment segment : segments) {
+            diskBytes += segment.file.length();
+            if (segment.isEmpty()) continue;
+            if (firstSeq < 0) {
+                firstSeq = segment.firstSeq;
+                oldestMs = segment.minTime;
+            }
+            oldestMs = Math.min(oldestMs, segment.minTime);
+        }
+        map.putInt("segments", segments.size());
+        map.putDouble("diskBytes", diskBytes);
+        map.putDouble("firstSeq", firstSeq);
+        map.putDouble("lastSeq", firstSeq < 0 ? -1 : nextSeq - 1);
+        map.putDouble("oldestMs", oldestMs);
+        map.putDouble("frames", frames);
+        map.putDouble("bytes", bytes);
+        map.putDouble("oversized", oversized);
+        map.putDouble("writeErrors", writeErrors);
+        map.putDouble("segmentsDeleted", segmentsDeleted);
+        return map;
+    }
+
+    synchronized void resetCounters() {
+        frames = 0;
+        bytes = 0;
+        oversized = 0;
+        writeErrors = 0;
+        segmentsDeleted = 0;
+    }
+
+    private int stream(String deviceId, String characteristic) {
+        Map<String, Integer> byCharacteristic = streamIds.get(deviceId);
+        if (byCharacteristic == null) {
+            byCharacteristic = new HashMap<>();
+            streamIds.put(deviceId, byCharacteristic);
+        }
+        Integer id = byCharacteristic.get(characteristic);
+        if (id == null) {
+            id = streamDefinitions.size();
+            streamDefinitions.add((deviceId + "\n" + characteristic).getBytes(StandardCharsets.UTF_8));
+            byCharacteristic.put(characteristic, id);
+        }
+        return id;
+    }
+
+    private void write(byte kind, int stream, long seq, long timestampMs, byte[] value, int offset, int length) {
+        int at = active.end;
+        buffer.put(at + 4, kind);
+        buffer.putShort(at + 6, (short) stream);
+        buffer.putLong(at + 8, seq);
+        buffer.putLong(at + 16, timestampMs);
+        buffer.position(at + RECORD_HEADER);
+        buffer.put(value, offset, length);
+        buffer.putInt(at, RECORD_HEADER + length);  // last, a scan stops at a zero length
+        active.end = at + RECORD_HEADER + length;
+    }
+
+    /** Closes the active segment, maps a new one and applies retention. The new mapping costs a file create. */
+    private boolean roll(Config config, long nowMs) {
+        File file = new File(directory, String.format(Locale.ROOT, "%020d%s", nextSeq, SUFFIX));
+        MappedByteBuffer next;
+        try {
+            next = map(file, true, config.segmentBytes);
+        } catch (IOException e) {
+            writeErrors++;
+            return false;
+        }
+        next.putInt(0, MAGIC);
+        next.putInt(4, VERSION);
+        next.putLong(8, nextSeq);
+        // A restart with no frames since the last roll names the same file: keep appending to
+        // the listed segment (after any stream records it already holds) instead of listing it twice
+        Segment last = segments.isEmpty() ? null : segments.get(segments.size() - 1);
+        if (last != null && last.isEmpty() && last.file.equals(file)) {
+            active = last;
+        } else {
+            active = new Segment(file, nextSeq);
+            segments.add(active);
+        }
+        buffer = next;
+        defined.clear();
+
+        while (segments.size() > 1) {
+            Segment oldest = segments.get(0);
+            boolean expired = config.maxAgeMs > 0 && (oldest.isEmpty() || oldest.maxTime < nowMs - config.maxAgeMs);
+            if (segments.size() <= config.maxSegments && !expired) break;
+            segments.remove(0);
+            if (oldest.file.delete()) segmentsDeleted++;
+        }
+        return true;
+    }
+
+    /** Rebuilds the segment list of a directory from its files, oldest first. */
+    private void load(File dir) {
+        segments.clear();
+        File[] files = dir.listFiles((parent, name) -> name.endsWith(SUFFIX));
+        if (files == null) return;
+        Arrays.sort(files);  // zero-padded first seq, so name order is seq order
+        for (File file : files) {
+            ByteBuffer view;
+            try {
+                view = map(file, false, 0);
+            } catch (IOException e) {
+                continue;
+            }
+            if (view.capacity() < SEGMENT_HEADER || view.getInt(0) != MAGIC || view.getInt(4) != VERSION) continue;
+            Segment segment = new Segment(file, view.getLong(8));
+            int at = SEGMENT_HEADER;
+            while (at + RECORD_HEADER <= view.capacity()) {
+                int length = view.getInt(at);
+                if (length < RECORD_HEADER || at + length > view.capacity()) break;
+                if (view.get(at + 4) == KIND_FRAME) {
+                    segment.recorded(view.getLong(at + 8), view.getLong(at + 16));
+                }
+                at += length;
+            }
+            segment.end = at;
+            segments.add(segment);
+            nextSeq = Math.max(nextSeq, segment.lastSeq + 1);
+        }
+    }
+
+    private static MappedByteBuffer map(File file, boolean write, int size) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(file, write ? "rw" : "r");
+             FileChannel channel = raf.getChannel()) {
+            // The mapping stays valid after the channel is closed
+            return channel.map(write ? FileChannel.MapMode.READ_WRITE : FileChannel.MapMode.READ_ONLY,
+                    0, write ? size : channel.size());
+        }
+    }
+
+    private static String string(ByteBuffer view, int offset, int length) {
+        byte[] bytes = new byte[length];
+        for (int i = 0; i < length; i++) {
+            bytes[i] = view.get(offset + i);
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,89 @@
+package com.jbluepack;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free latency histogram in microseconds. Buckets are log-linear: 8 sub-buckets
+ * per power of two, so percentiles are within ~12% while recording is one index
+ * computation and an atomic increment, with no allocation.
+ */
+final class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 3;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int BUCKETS = (64 - SUB_BUCKET_BITS + 1) * SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong sum = new AtomicLong();
+    private final AtomicLong max = new AtomicLong();
+
+    void recordNanos(long nanos) {
+        recordMicros(nanos / 1000);
+    }
+
+    void recordMicros(long micros) {
+        if (micros < 0) micros = 0;
+        counts.incrementAndGet(index(micros));
+        count.incrementAndGet();
+        sum.addAndGet(micros);
+        long seen;
+        while (micros > (seen = max.get()) && !max.compareAndSet(seen, micros)) {
+            // retry until max holds the larger value
+        }
+    }
+
+    long count() {
+        return count.get();
+    }
+
+    void reset() {
+        for (int i = 0; i < BUCKETS; i++) {
+            counts.set(i, 0);
+        }
+        count.set(0);
+        sum.set(0);
+        max.set(0);
+    }
+
+    /** Writes count, meanMs, p50Ms, p90Ms, p99Ms and maxMs into the map. */
+    void writeTo(EventSink.EventMap map) {
+        long total = count.get();
+        map.putDouble("count", total);
+        map.putDouble("meanMs", total > 0 ? sum.get() / 1000.0 / total : 0);
+        map.putDouble("p50Ms", percentile(total, 0.50) / 1000.0);
+        map.putDouble("p90Ms", percentile(total, 0.90) / 1000.0);
+        map.putDouble("p99Ms", percentile(total, 0.99) / 1000.0);
+        map.putDouble("maxMs", max.get() / 1000.0);
+    }
+
+    /** Upper bound of the bucket holding the given quantile, in microseconds. */
+    long percentile(long total, double quantile) {
+        if (total == 0) return 0;
+        long rank = (long) Math.ceil(total * quantile);
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts.get(i);
+            if (seen >= rank) {
+                return Math.min(upperBound(i), max.get());
+            }
+        }
+        return max.get();
+    }
+
+    static int index(long value) {
+        if (value < SUB_BUCKETS) return (int) value;
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int sub = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + sub;
+    }
+
+    static long upperBound(int index) {
+        if (index < SUB_BUCKETS) return index;
+        int exponent = index / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+        int sub = index % SUB_BUCKETS;
+        long width = 1L << (exponent - SUB_BUCKET_BITS);
+        return (1L << exponent) + (sub + 1) * width - 1;
+    }
+}
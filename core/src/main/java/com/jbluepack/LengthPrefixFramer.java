@@ -0,0 +1,59 @@
+package com.jbluepack;
+
+/**
+ * Frames made of a 1, 2 or 4 byte length header followed by the payload, optionally
+ * with a CRC-16 trailer over header and payload. On an implausible length or a CRC
+ * mismatch the framer slides forward one byte and tries again.
+ */
+class LengthPrefixFramer extends StreamFramer {
+    private final int headerBytes;
+    private final boolean littleEndian;
+    private final boolean crc;
+
+    LengthPrefixFramer(int headerBytes, boolean littleEndian, boolean crc, int maxFrameLength) {
+        super(maxFrameLength);
+        if (headerBytes != 1 && headerBytes != 2 && headerBytes != 4) {
+            throw new IllegalArgumentException("Length header must be 1, 2 or 4 bytes.");
+        }
+        this.headerBytes = headerBytes;
+        this.littleEndian = littleEndian;
+        this.crc = crc;
+    }
+
+    @Override
+    protected void decode(FrameListener listener) {
+        byte[] buf = buffer;
+        int trailer = crc ? 2 : 0;
+        while (end - start >= headerBytes) {
+            long length = readLength(buf, start);
+            if (length > maxFrameLength) {
+                resyncs++;
+                start++;
+                continue;
+            }
+            int total = headerBytes + (int) length + trailer;
+            if (end - start < total) break;
+
+            if (crc) {
+                int expected = ((buf[start + total - 2] & 0xFF) << 8) | (buf[start + total - 1] & 0xFF);
+                if (crc16(buf, start, total - 2) != expected) {
+                    crcErrors++;
+                    start++;
+                    continue;
+                }
+            }
+            frames++;
+            listener.onFrame(buf, start + headerBytes, (int) length);
+            start += total;
+        }
+    }
+
+    private long readLength(byte[] buf, int offset) {
+        long value = 0;
+        for (int i = 0; i < headerBytes; i++) {
+            int b = buf[offset + (littleEndian ? headerBytes - 1 - i : i)] & 0xFF;
+            value = (value << 8) | b;
+        }
+        return value;
+    }
+}
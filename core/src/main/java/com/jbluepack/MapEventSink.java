@@ -0,0 +1,83 @@
+package com.jbluepack;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+
+/**
+ * EventSink that builds HashMaps and ArrayLists and hands every event to a consumer.
+ * Used off-device, where there is no React Native bridge.
+ */
+class MapEventSink implements EventSink {
+
+    interface Consumer {
+        void onEvent(String eventName, HashMap<String, Object> payload);
+    }
+
+    @SuppressWarnings("serial")  // handed to in-process consumers only, never serialized
+    static final class Map extends HashMap<String, Object> implements EventMap {
+        @Override
+        public void putString(String key, String value) {
+            put(key, value);
+        }
+
+        @Override
+        public void putInt(String key, int value) {
+            put(key, value);
+        }
+
+        @Override
+        public void putDouble(String key, double value) {
+            put(key, value);
+        }
+
+        @Override
+        public void putBoolean(String key, boolean value) {
+            put(key, value);
+        }
+
+        @Override
+        public void putMap(String key, EventMap value) {
+            put(key, value);
+        }
+
+        @Override
+        public void putArray(String key, EventArray value) {
+            put(key, value);
+        }
+    }
+
+    @SuppressWarnings("serial")
+    static final class Array extends ArrayList<Object> implements EventArray {
+        @Override
+        public void pushMap(EventMap value) {
+            add(value);
+        }
+
+        @Override
+        public void pushString(String value) {
+            add(value);
+        }
+    }
+
+    private final Consumer consumer;
+
+    MapEventSink(Consumer consumer) {
+        this.consumer = consumer;
+    }
+
+    @Override
+    public EventMap createMap() {
+        return new Map();
+    }
+
+    @Override
+    public EventArray createArray() {
+        return new Array();
+    }
+
+    @Override
+    public boolean emit(String eventName, EventMap payload) {
+        consumer.onEvent(eventName, (Map) payload);
+        return true;
+    }
+}
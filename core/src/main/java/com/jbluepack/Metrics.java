@@ -0,0 +1,152 @@
+package com.jbluepack;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Process-wide counters and latency histograms for both transports. Recording is
+ * lock-free and allocation-free once a device has been seen; JS reads a snapshot
+ * with getMetrics() or receives one periodically as a "BluetoothMetrics" event.
+ */
+final class Metrics {
+
+    static final String EVENT = "BluetoothMetrics";
+
+    /** Per-device traffic and recovery counters. */
+    static final class Device {
+        final AtomicLong bytesIn = new AtomicLong();
+        final AtomicLong bytesOut = new AtomicLong();
+        final AtomicLong packetsIn = new AtomicLong();
+        final AtomicLong packetsOut = new AtomicLong();
+        final AtomicLong reconnects = new AtomicLong();
+        final AtomicLong reconnectAttempts = new AtomicLong();
+        volatile long lastPacketInNanos;
+
+        void received(int bytes) {
+            bytesIn.addAndGet(bytes);
+            packetsIn.incrementAndGet();
+        }
+
+        void sent(int bytes) {
+            bytesOut.addAndGet(bytes);
+            packetsOut.incrementAndGet();
+        }
+
+        void reset() {
+            bytesIn.set(0);
+            bytesOut.set(0);
+            packetsIn.set(0);
+            packetsOut.set(0);
+            reconnects.set(0);
+            reconnectAttempts.set(0);
+            lastPacketInNanos = 0;
+        }
+    }
+
+    private static final Metrics SHARED = new Metrics();
+
+    final LatencyHistogram connect = new LatencyHistogram();
+    final LatencyHistogram serviceDiscovery = new LatencyHistogram();
+    final LatencyHistogram writeRoundTrip = new LatencyHistogram();
+    final LatencyHistogram notificationInterArrival = new LatencyHistogram();
+    final LatencyHistogram bridgeEmit = new LatencyHistogram();
+    final AtomicLong eventsDropped = new AtomicLong();
+
+    private final Map<String, Device> devices = new ConcurrentHashMap<>();
+    private long resetAtMillis = System.currentTimeMillis();
+
+    private EventSink reportSink;
+    private Timer reportTimer;
+    private long reportIntervalMs;
+    private final Runnable reportTask = this::report;
+
+    static Metrics shared() {
+        return SHARED;
+    }
+
+    Device device(String address) {
+        Device device = devices.get(address);
+        if (device == null) {
+            device = devices.computeIfAbsent(address, key -> new Device());
+        }
+        return device;
+    }
+
+    /** Records an incoming packet and the time since the previous one from the same device. */
+    void packetIn(String address, int bytes, long nowNanos) {
+        Device device = device(address);
+        device.received(bytes);
+        long previous = device.lastPacketInNanos;
+        device.lastPacketInNanos = nowNanos;
+        if (previous != 0) {
+            notificationInterArrival.recordNanos(nowNanos - previous);
+        }
+    }
+
+    synchronized void reset() {
+        connect.reset();
+        serviceDiscovery.reset();
+        writeRoundTrip.reset();
+        notificationInterArrival.reset();
+        bridgeEmit.reset();
+        eventsDropped.set(0);
+        // In place: open connections keep the Device they looked up and count into it
+        for (Device device : devices.values()) {
+            device.reset();
+        }
+        resetAtMillis = System.currentTimeMillis();
+    }
+
+    synchronized EventSink.EventMap snapshot(EventSink sink) {
+        EventSink.EventMap map = sink.createMap();
+        map.putDouble("timestamp", System.currentTimeMillis());
+        map.putDouble("sinceMs", System.currentTimeMillis() - resetAtMillis);
+        map.putMap("connect", histogram(sink, connect));
+        map.putMap("serviceDiscovery", histogram(sink, serviceDiscovery));
+        map.putMap("writeRoundTrip", histogram(sink, writeRoundTrip));
+        map.putMap("notificationInterArrival", histogram(sink, notificationInterArrival));
+        map.putMap("bridgeEmit", histogram(sink, bridgeEmit));
+        map.putDouble("eventsDropped", eventsDropped.get());
+
+        EventSink.EventMap perDevice = sink.createMap();
+        for (Map.Entry<String, Device> entry : devices.entrySet()) {
+            Device device = entry.getValue();
+            EventSink.EventMap counters = sink.createMap();
+            counters.putDouble("bytesIn", device.bytesIn.get());
+            counters.putDouble("bytesOut", device.bytesOut.get());
+            counters.putDouble("packetsIn", device.packetsIn.get());
+            counters.putDouble("packetsOut", device.packetsOut.get());
+            counters.putDouble("reconnects", device.reconnects.get());
+            counters.putDouble("reconnectAttempts", device.reconnectAttempts.get());
+            perDevice.putMap(entry.getKey(), counters);
+        }
+        map.putMap("devices", perDevice);
+        return map;
+    }
+
+    /** Emits a snapshot every intervalMs through the sink; 0 stops reporting. */
+    synchronized void setReporting(EventSink sink, Timer timer, long intervalMs) {
+        if (reportTimer != null) {
+            reportTimer.cancel(reportTask);
+        }
+        reportSink = sink;
+        reportTimer = timer;
+        reportIntervalMs = intervalMs;
+        if (intervalMs > 0) {
+            timer.schedule(reportTask, intervalMs);
+        }
+    }
+
+    private synchronized void report() {
+        if (reportIntervalMs <= 0) return;
+        reportSink.emit(EVENT, snapshot(reportSink));
+        reportTimer.schedule(reportTask, reportIntervalMs);
+    }
+
+    private static EventSink.EventMap histogram(EventSink sink, LatencyHistogram histogram) {
+        EventSink.EventMap map = sink.createMap();
+        histogram.writeTo(map);
+        return map;
+    }
+}
@@ -0,0 +1,105 @@
+package com.jbluepack;
+
+/**
+ * Collects BLE notifications natively and hands them to JS as one array event,
+ * flushed when maxPackets have been collected or windowMs after the first packet
+ * of a batch, whichever comes first. Packets are held in preallocated parallel
+ * arrays so the per-packet cost is a few stores.
+ */
+class NotificationBatcher {
+
+    static final String EVENT = "BluetoothNotificationBatch";
+    static final int DEFAULT_MAX_PACKETS = 64;
+    static final int DEFAULT_WINDOW_MS = 50;
+
+    private final EventSink sink;
+    private final Timer timer;
+    private final Runnable flushTask = this::flush;
+
+    private boolean enabled;
+    private int maxPackets = DEFAULT_MAX_PACKETS;
+    private int windowMs = DEFAULT_WINDOW_MS;
+
+    private byte[][] values = new byte[DEFAULT_MAX_PACKETS][];
+    private String[] deviceIds = new String[DEFAULT_MAX_PACKETS];
+    private String[] characteristics = new String[DEFAULT_MAX_PACKETS];
+    private boolean[] binary = new boolean[DEFAULT_MAX_PACKETS];
+    private long[] timestamps = new long[DEFAULT_MAX_PACKETS];
+    private int size;
+
+    private long totalCoalesced;
+    private long totalDropped;
+
+    NotificationBatcher(EventSink sink, Timer timer) {
+        this.sink = sink;
+        this.timer = timer;
+    }
+
+    synchronized boolean isEnabled() {
+        return enabled;
+    }
+
+    /** Turns batching on or off. Values <= 0 keep the current setting. Disabling flushes what is pending. */
+    synchronized void configure(boolean enabled, int maxPackets, int windowMs) {
+        flush();
+        if (windowMs > 0) this.windowMs = windowMs;
+        if (maxPackets > 0 && maxPackets != this.maxPackets) {
+            this.maxPackets = maxPackets;
+            values = new byte[maxPackets][];
+            deviceIds = new String[maxPackets];
+            characteristics = new String[maxPackets];
+            binary = new boolean[maxPackets];
+            timestamps = new long[maxPackets];
+        }
+        this.enabled = enabled;
+    }
+
+    synchronized void add(String deviceId, String characteristic, byte[] value, boolean isBinary, long timestamp) {
+        values[size] = value;
+        deviceIds[size] = deviceId;
+        characteristics[size] = characteristic;
+        binary[size] = isBinary;
+        timestamps[size] = timestamp;
+        size++;
+
+        if (size >= maxPackets) {
+            flush();
+        } else if (size == 1) {
+            timer.schedule(flushTask, windowMs);
+        }
+    }
+
+    synchronized void flush() {
+        timer.cancel(flushTask);
+        if (size == 0) return;
+
+        EventSink.EventArray packets = sink.createArray();
+        for (int i = 0; i < size; i++) {
+            packets.pushMap(NotificationEncoder.packet(sink, deviceIds[i], characteristics[i], values[i], binary[i], timestamps[i]));
+            values[i] = null;
+        }
+
+        EventSink.EventMap batch = sink.createMap();
+        batch.putArray("packets", packets);
+        batch.putInt("coalesced", size);
+        batch.putDouble("dropped", totalDropped);  // packets lost so far because JS wasn't attached
+        batch.putString("origin", NotificationEncoder.ORIGIN);
+        if (sink.emit(EVENT, batch)) {
+            totalCoalesced += size;
+        } else {
+            totalDropped += size;
+        }
+        size = 0;
+    }
+
+    synchronized EventSink.EventMap stats() {
+        EventSink.EventMap stats = sink.createMap();
+        stats.putBoolean("enabled", enabled);
+        stats.putInt("maxPackets", maxPackets);
+        stats.putInt("windowMs", windowMs);
+        stats.putInt("pending", size);
+        stats.putDouble("coalesced", totalCoalesced);
+        stats.putDouble("dropped", totalDropped);
+        return stats;
+    }
+}
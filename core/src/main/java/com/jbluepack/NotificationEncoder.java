@@ -0,0 +1,53 @@
+package com.jbluepack;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Turns an incoming notification into its "BluetoothNotification" payload: UTF-8 text
+ * in "message", or base64 bytes in "data" plus the characteristic for binary subscribers.
+ */
+final class NotificationEncoder {
+
+    static final String EVENT = "BluetoothNotification";
+    static final String ORIGIN = "esp32";
+
+    private NotificationEncoder() {
+    }
+
+    static String text(byte[] value) {
+        return new String(value, StandardCharsets.UTF_8);
+    }
+
+    static EventSink.EventMap textEvent(EventSink sink, String deviceId, String message) {
+        EventSink.EventMap params = sink.createMap();
+        params.putString("message", message);
+        params.putString("origin", ORIGIN);
+        params.putString("deviceId", deviceId);
+        return params;
+    }
+
+    static EventSink.EventMap binaryEvent(EventSink sink, String deviceId, String characteristic, byte[] value) {
+        EventSink.EventMap params = sink.createMap();
+        // Binary subscribers get the bytes as base64, no intermediate text decode
+        params.putString("data", Base64Encoder.encode(value));
+        params.putString("characteristic", characteristic);
+        params.putString("origin", ORIGIN);
+        params.putString("deviceId", deviceId);
+        return params;
+    }
+
+    /** One entry of a batch or buffered read: the event fields plus the arrival time. */
+    static EventSink.EventMap packet(EventSink sink, String deviceId, String characteristic, byte[] value,
+                                     boolean binary, long timestamp) {
+        EventSink.EventMap packet = sink.createMap();
+        if (binary) {
+            packet.putString("data", Base64Encoder.encode(value));
+        } else {
+            packet.putString("message", text(value));
+        }
+        packet.putString("deviceId", deviceId);
+        packet.putString("characteristic", characteristic);
+        packet.putDouble("timestamp", timestamp);
+        return packet;
+    }
+}
@@ -0,0 +1,205 @@
+package com.jbluepack;
+
+/**
+ * Pull-mode delivery: notifications go into a fixed-capacity ring and JS takes them
+ * with read(max) when it has time, instead of one bridge event each. The slots are
+ * preallocated parallel arrays like NotificationBatcher's, so a full ring costs no
+ * more memory than an empty one and a busy JS thread can't make it grow.
+ *
+ * When the ring is full, DROP_OLDEST overwrites the oldest packet (freshest data wins)
+ * and DROP_NEWEST discards the incoming one (nothing already queued is lost). With wake
+ * on, one AVAILABLE event fires when the first packet arrives after a read.
+ */
+class NotificationRing {
+
+    static final String AVAILABLE_EVENT = "BluetoothNotificationsAvailable";
+    static final int DEFAULT_CAPACITY = 256;
+
+    enum Overflow {
+        DROP_OLDEST("dropOldest"),
+        DROP_NEWEST("dropNewest");
+
+        final String jsName;
+
+        Overflow(String jsName) {
+            this.jsName = jsName;
+        }
+
+        static Overflow fromJs(String name) {
+            for (Overflow overflow : values()) {
+                if (overflow.jsName.equals(name)) return overflow;
+            }
+            return null;
+        }
+    }
+
+    private final EventSink sink;
+
+    private Overflow overflow = Overflow.DROP_OLDEST;
+    private boolean wake = true;
+    private boolean signalled;  // AVAILABLE sent, not read since
+
+    private byte[][] values;
+    private String[] deviceIds;
+    private String[] characteristics;
+    private boolean[] binary;
+    private long[] timestamps;
+    private int head;  // oldest packet
+    private int size;
+
+    private long added;
+    private long delivered;
+    private long overflows;
+    private int highWater;
+
+    NotificationRing(EventSink sink) {
+        this.sink = sink;
+        allocate(DEFAULT_CAPACITY);
+    }
+
+    /** capacity <= 0 and a null overflow keep the current setting. A smaller capacity keeps the newest packets. */
+    synchronized void configure(int capacity, Overflow overflow, boolean wake) {
+        if (overflow != null) this.overflow = overflow;
+        this.wake = wake;
+        if (capacity <= 0 || capacity == values.length) return;
+
+        byte[][] oldValues = values;
+        String[] oldDeviceIds = deviceIds;
+        String[] oldCharacteristics = characteristics;
+        boolean[] oldBinary = binary;
+        long[] oldTimestamps = timestamps;
+        int kept = Math.min(size, capacity);
+        int skipped = size - kept;
+        overflows += skipped;
+        allocate(capacity);
+        for (int i = 0; i < kept; i++) {
+            int from = (head + skipped + i) % oldValues.length;
+            values[i] = oldValues[from];
+            deviceIds[i] = oldDeviceIds[from];
+            characteristics[i] = oldCharacteristics[from];
+            binary[i] = oldBinary[from];
+            timestamps[i] = oldTimestamps[from];
+        }
+        head = 0;
+        size = kept;
+    }
+
+    void add(String deviceId, String characteristic, byte[] value, boolean isBinary, long timestamp) {
+        boolean signal;
+        int available;
+        synchronized (this) {
+            added++;
+            int capacity = values.length;
+            if (size == capacity) {
+                overflows++;
+                if (overflow == Overflow.DROP_NEWEST) return;
+                head = (head + 1) % capacity;
+                size--;
+            }
+            int slot = (head + size) % capacity;
+            values[slot] = value;
+            deviceIds[slot] = deviceId;
+            characteristics[slot] = characteristic;
+            binary[slot] = isBinary;
+            timestamps[slot] = timestamp;
+            size++;
+            if (size > highWater) highWater = size;
+            signal = wake && !signalled;
+            if (signal) signalled = true;
+            available = size;
+        }
+        if (signal) {
+            EventSink.EventMap params = sink.createMap();
+            params.putInt("available", available);
+            params.putString("origin", NotificationEncoder.ORIGIN);
+            sink.emit(AVAILABLE_EVENT, params);
+        }
+    }
+
+    /** Takes up to max packets, oldest first, in the same shape as a batch event's packets. Re-arms the wake event. */
+    synchronized EventSink.EventArray read(int max) {
+        EventSink.EventArray packets = sink.createArray();
+        int count = Math.min(size, Math.max(0, max));
+        for (int i = 0; i < count; i++) {
+            int slot = head;
+            packets.pushMap(NotificationEncoder.packet(sink, deviceIds[slot], characteristics[slot], values[slot], binary[slot], timestamps[slot]));
+            values[slot] = null;
+            head = (head + 1) % values.length;
+        }
+        size -= count;
+        delivered += count;
+        signalled = false;
+        return packets;
+    }
+
+    /**
+     * Like read, but appends one "deviceId,characteristic,timestamp,base64\n" line per
+     * packet instead of building a map each, for the synchronous readBufferedPacked.
+     * Payloads are always base64 so the separators can't appear in them. Returns the count.
+     */
+    synchronized int readPacked(int max, StringBuilder out) {
+        int count = Math.min(size, Math.max(0, max));
+        int length = 0;
+        for (int i = 0; i < count; i++) {
+            int slot = (head + i) % values.length;
+            length += deviceIds[slot].length() + characteristics[slot].length() + (values[slot].length + 2) / 3 * 4 + 24;
+        }
+        out.ensureCapacity(out.length() + length);  // one allocation for the whole read
+        for (int i = 0; i < count; i++) {
+            int slot = head;
+            out.append(deviceIds[slot]).append(',')
+                    .append(characteristics[slot]).append(',')
+                    .append(timestamps[slot]).append(',');
+            Base64Encoder.encode(values[slot], out);
+            out.append('\n');
+            values[slot] = null;
+            head = (head + 1) % values.length;
+        }
+        size -= count;
+        delivered += count;
+        signalled = false;
+        return count;
+    }
+
+    synchronized int size() {
+        return size;
+    }
+
+    synchronized void clear() {
+        for (int i = 0; i < size; i++) {
+            values[(head + i) % values.length] = null;
+        }
+        head = 0;
+        size = 0;
+        signalled = false;
+    }
+
+    /** Zeroes the counters; the high-water mark starts again from the current fill. */
+    synchronized void resetCounters() {
+        added = 0;
+        delivered = 0;
+        overflows = 0;
+        highWater = size;
+    }
+
+    synchronized EventSink.EventMap stats() {
+        EventSink.EventMap stats = sink.createMap();
+        stats.putInt("capacity", values.length);
+        stats.putString("overflow", overflow.jsName);
+        stats.putBoolean("wake", wake);
+        stats.putInt("size", size);
+        stats.putInt("highWater", highWater);
+        stats.putDouble("added", added);
+        stats.putDouble("delivered", delivered);
+        stats.putDouble("overflows", overflows);
+        return stats;
+    }
+
+    private void allocate(int capacity) {
+        values = new byte[capacity][];
+        deviceIds = new String[capacity];
+        characteristics = new String[capacity];
+        binary = new boolean[capacity];
+        timestamps = new long[capacity];
+    }
+}
@@ -0,0 +1,237 @@
+package com.jbluepack;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Native event-to-action rules, checked against every notification or RFCOMM frame
+ * before it is encoded for JS. A rule matches on device, characteristic, a masked byte
+ * prefix at an offset and/or a UTF-8 text fragment, and fires its action right here:
+ * play a preloaded sound, write a canned reply, or emit ALERT_EVENT ahead of the batcher
+ * and ring. consume keeps the packet from also going out the normal way.
+ *
+ * Evaluation allocates nothing: rules are an array swapped whole on change, and matching
+ * compares bytes in place. Only a rule that fires pays for its action.
+ */
+class NotificationRules {
+
+    static final String ALERT_EVENT = "BluetoothAlert";
+
+    enum Action {
+        SOUND("sound"),
+        WRITE("write"),
+        EVENT("event");
+
+        final String jsName;
+
+        Action(String jsName) {
+            this.jsName = jsName;
+        }
+
+        static Action fromJs(String name) {
+            for (Action action : values()) {
+                if (action.jsName.equals(name)) return action;
+            }
+            return null;
+        }
+    }
+
+    /** What the platform does for SOUND and WRITE; EVENT is emitted by the rules themselves. */
+    interface Actions {
+        void playSound(Rule rule);
+
+        void write(Rule rule, String deviceId);
+    }
+
+    static final class Rule {
+        final int id;
+        final String deviceId;        // null matches any device
+        final String characteristic;  // null matches any characteristic, RFCOMM frames have none
+        final int offset;
+        final byte[] prefix;          // null: no byte match
+        final byte[] mask;            // null: prefix compared exactly
+        final byte[] text;            // UTF-8 fragment anywhere in the packet, null: no text match
+        final Action action;
+        final String sound;
+        final String service;         // WRITE on BLE: where the reply goes
+        final String replyCharacteristic;
+        final byte[] reply;
+        final boolean consume;
+        final long cooldownMs;
+
+        private long lastFiredMs = Long.MIN_VALUE;
+        private long matches;
+        private long suppressed;
+
+        Rule(int id, String deviceId, String characteristic, int offset, byte[] prefix, byte[] mask, String text,
+             Action action, String sound, String service, String replyCharacteristic, byte[] reply,
+             boolean consume, long cooldownMs) {
+            this.id = id;
+            this.deviceId = deviceId;
+            this.characteristic = characteristic;
+            this.offset = offset;
+            this.prefix = prefix;
+            this.mask = mask;
+            this.text = text != null ? text.getBytes(StandardCharsets.UTF_8) : null;
+            this.action = action;
+            this.sound = sound;
+            this.service = service;
+            this.replyCharacteristic = replyCharacteristic;
+            this.reply = reply;
+            this.consume = consume;
+            this.cooldownMs = cooldownMs;
+        }
+
+        boolean matches(String device, String uuid, byte[] value, int start, int length) {
+            if (deviceId != null && !deviceId.equals(device)) return false;
+            if (characteristic != null && !characteristic.equals(uuid)) return false;
+            if (prefix != null) {
+                if (offset + prefix.length > length) return false;
+                int at = start + offset;
+                for (int i = 0; i < prefix.length; i++) {
+                    int m = mask != null ? mask[i] : 0xFF;
+                    if (((value[at + i] ^ prefix[i]) & m) != 0) return false;
+                }
+            }
+            return text == null || indexOf(value, start, length, text) >= 0;
+        }
+
+        /** False while the cooldown since the last firing hasn't passed. */
+        synchronized boolean fire(long nowMs) {
+            matches++;
+            if (cooldownMs > 0 && lastFiredMs != Long.MIN_VALUE && nowMs - lastFiredMs < cooldownMs) {
+                suppressed++;
+                return false;
+            }
+            lastFiredMs = nowMs;
+            return true;
+        }
+
+        synchronized EventSink.EventMap toMap(EventSink sink) {
+            EventSink.EventMap map = sink.createMap();
+            map.putInt("id", id);
+            map.putString("action", action.jsName);
+            if (deviceId != null) map.putString("deviceId", deviceId);
+            if (characteristic != null) map.putString("characteristic", characteristic);
+            map.putBoolean("consume", consume);
+            map.putDouble("cooldownMs", cooldownMs);
+            map.putDouble("matches", matches);
+            map.putDouble("suppressed", suppressed);
+            return map;
+        }
+    }
+
+    private final EventSink sink;
+    private volatile Rule[] rules = new Rule[0];
+    private int nextId = 1;
+
+    NotificationRules(EventSink sink) {
+        this.sink = sink;
+    }
+
+    synchronized int nextId() {
+        return nextId++;
+    }
+
+    synchronized void add(Rule rule) {
+        Rule[] current = rules;
+        Rule[] next = new Rule[current.length + 1];
+        System.arraycopy(current, 0, next, 0, current.length);
+        next[current.length] = rule;
+        rules = next;
+    }
+
+    synchronized boolean remove(int id) {
+        Rule[] current = rules;
+        for (int i = 0; i < current.length; i++) {
+            if (current[i].id != id) continue;
+            Rule[] next = new Rule[current.length - 1];
+            System.arraycopy(current, 0, next, 0, i);
+            System.arraycopy(current, i + 1, next, i, current.length - i - 1);
+            rules = next;
+            return true;
+        }
+        return false;
+    }
+
+    synchronized void clear() {
+        rules = new Rule[0];
+    }
+
+    boolean isEmpty() {
+        return rules.length == 0;
+    }
+
+    /**
+     * Fires every matching rule in the order they were added. Returns true if one of
+     * them consumes the packet, so the caller skips its normal event.
+     */
+    boolean evaluate(String deviceId, String characteristic, byte[] value, int offset, int length,
+                     long nowMs, Actions actions) {
+        Rule[] current = rules;
+        boolean consumed = false;
+        for (int i = 0; i < current.length; i++) {
+            Rule rule = current[i];
+            if (!rule.matches(deviceId, characteristic, value, offset, length)) continue;
+            consumed |= rule.consume;
+            if (!rule.fire(nowMs)) continue;
+            switch (rule.action) {
+                case SOUND:
+                    actions.playSound(rule);
+                    break;
+                case WRITE:
+                    actions.write(rule, deviceId);
+                    break;
+                case EVENT:
+                    alert(rule, deviceId, characteristic, value, offset, length, nowMs);
+                    break;
+                default:
+                    break;
+            }
+        }
+        return consumed;
+    }
+
+    EventSink.EventArray toArray() {
+        EventSink.EventArray array = sink.createArray();
+        for (Rule rule : rules) {
+            array.pushMap(rule.toMap(sink));
+        }
+        return array;
+    }
+
+    private void alert(Rule rule, String deviceId, String characteristic, byte[] value, int offset, int length, long nowMs) {
+        EventSink.EventMap params = sink.createMap();
+        params.putInt("ruleId", rule.id);
+        if (deviceId != null) params.putString("deviceId", deviceId);
+        if (characteristic != null) params.putString("characteristic", characteristic);
+        params.putString("data", Base64Encoder.encode(value, offset, length));
+        params.putDouble("timestamp", nowMs);
+        params.putString("origin", NotificationEncoder.ORIGIN);
+        sink.emit(ALERT_EVENT, params);
+    }
+
+    /** Parses "A1ff00"-style hex, null if it isn't an even number of hex digits. */
+    static byte[] hex(String value) {
+        if (value == null || value.length() % 2 != 0) return null;
+        byte[] bytes = new byte[value.length() / 2];
+        for (int i = 0; i < bytes.length; i++) {
+            int high = Character.digit(value.charAt(2 * i), 16);
+            int low = Character.digit(value.charAt(2 * i + 1), 16);
+            if (high < 0 || low < 0) return null;
+            bytes[i] = (byte) (high << 4 | low);
+        }
+        return bytes;
+    }
+
+    private static int indexOf(byte[] value, int start, int length, byte[] fragment) {
+        int last = start + length - fragment.length;
+        outer:
+        for (int i = start; i <= last; i++) {
+            for (int j = 0; j < fragment.length; j++) {
+                if (value[i + j] != fragment[j]) continue outer;
+            }
+            return i - start;
+        }
+        return -1;
+    }
+}
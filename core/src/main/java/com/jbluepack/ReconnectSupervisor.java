@@ -0,0 +1,165 @@
+package com.jbluepack;
+
+import java.util.Random;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Owns the reconnect lifecycle of one link (a BLE connection or the RFCOMM socket).
+ *
+ * The link reports what happened (connected, attempt failed, connection lost) and the
+ * supervisor decides when to try again: attempts are scheduled on the shared scheduler,
+ * never on the caller's thread, with exponential backoff plus jitter, until the link is
+ * back or maxAttempts consecutive attempts have failed. Every transition is reported to
+ * the listener, and reconnects carry how long the outage lasted.
+ */
+class ReconnectSupervisor {
+
+    enum State {
+        CONNECTING("connecting"),
+        CONNECTED("connected"),
+        BACKING_OFF("backingOff"),
+        GIVEN_UP("givenUp"),
+        STOPPED("stopped");
+
+        final String jsName;
+
+        State(String jsName) {
+            this.jsName = jsName;
+        }
+    }
+
+    interface Link {
+        /**
+         * Starts one connection attempt, called on the scheduler thread. The link reports the
+         * outcome through onConnected/onConnectFailed, either before returning (blocking
+         * connects) or later from its own callback (BLE).
+         */
+        void connect();
+    }
+
+    interface Listener {
+        /** outageMs is set once the link is back, nextAttemptMs while backing off. */
+        void onStateChanged(State state, int attempt, long outageMs, long nextAttemptMs);
+    }
+
+    static final long DEFAULT_BASE_DELAY_MS = 500;
+    static final long DEFAULT_MAX_DELAY_MS = 30000;
+    static final int DEFAULT_MAX_ATTEMPTS = 10;
+
+    private final Link link;
+    private final Listener listener;
+    private final ScheduledExecutorService scheduler;
+    private final Random random = new Random();
+
+    private long baseDelayMs = DEFAULT_BASE_DELAY_MS;
+    private long maxDelayMs = DEFAULT_MAX_DELAY_MS;
+    private int maxAttempts = DEFAULT_MAX_ATTEMPTS;
+    private boolean enabled = true;
+
+    private State state = State.STOPPED;
+    private int attempt;
+    private long outageStartedAt;
+    private ScheduledFuture<?> pending;
+
+    ReconnectSupervisor(Link link, Listener listener, ScheduledExecutorService scheduler) {
+        this.link = link;
+        this.listener = listener;
+        this.scheduler = scheduler;
+    }
+
+    /** Values <= 0 keep the current setting. */
+    synchronized void configure(boolean enabled, long baseDelayMs, long maxDelayMs, int maxAttempts) {
+        this.enabled = enabled;
+        if (baseDelayMs > 0) this.baseDelayMs = baseDelayMs;
+        if (maxDelayMs > 0) this.maxDelayMs = maxDelayMs;
+        if (maxAttempts > 0) this.maxAttempts = maxAttempts;
+    }
+
+    synchronized State state() {
+        return state;
+    }
+
+    synchronized void onConnected() {
+        cancelPending();
+        long outageMs = outageStartedAt > 0 ? System.currentTimeMillis() - outageStartedAt : 0;
+        int attempts = attempt;
+        state = State.CONNECTED;
+        attempt = 0;
+        outageStartedAt = 0;
+        listener.onStateChanged(state, attempts, outageMs, 0);
+    }
+
+    /** The link dropped without the user asking for it. Ignored unless the link was up. */
+    synchronized void onConnectionLost() {
+        if (state != State.CONNECTED) return;
+        outageStartedAt = System.currentTimeMillis();
+        attempt = 0;
+        if (!enabled) {
+            giveUp();
+            return;
+        }
+        // First retry goes out right away, backoff only starts once attempts fail
+        state = State.CONNECTING;
+        listener.onStateChanged(state, 0, 0, 0);
+        pending = scheduler.schedule(this::attempt, 0, TimeUnit.MILLISECONDS);
+    }
+
+    synchronized void onConnectFailed() {
+        if (state != State.CONNECTING) return;
+        attempt++;
+        if (!enabled || attempt >= maxAttempts) {
+            giveUp();
+            return;
+        }
+        long delay = nextDelay();
+        state = State.BACKING_OFF;
+        listener.onStateChanged(state, attempt, 0, delay);
+        pending = scheduler.schedule(this::attempt, delay, TimeUnit.MILLISECONDS);
+    }
+
+    /** User-initiated disconnect, no more attempts. */
+    synchronized void stop() {
+        cancelPending();
+        state = State.STOPPED;
+        attempt = 0;
+        outageStartedAt = 0;
+    }
+
+    private void attempt() {
+        synchronized (this) {
+            if (state != State.CONNECTING && state != State.BACKING_OFF) return;
+            pending = null;
+            if (state == State.BACKING_OFF) {
+                state = State.CONNECTING;
+                listener.onStateChanged(state, attempt, 0, 0);
+            }
+        }
+        // Outside the lock, blocking links report back from inside connect()
+        try {
+            link.connect();
+        } catch (RuntimeException e) {
+            onConnectFailed();
+        }
+    }
+
+    private void giveUp() {
+        cancelPending();
+        state = State.GIVEN_UP;
+        listener.onStateChanged(state, attempt, 0, 0);
+    }
+
+    /** Exponential backoff with "equal jitter": half the capped delay plus a random half. */
+    private long nextDelay() {
+        long capped = Math.min(maxDelayMs, baseDelayMs << Math.min(attempt - 1, 20));
+        return capped / 2 + (long) (random.nextDouble() * (capped / 2 + 1));
+    }
+
+    private void cancelPending() {
+        if (pending != null) {
+            pending.cancel(false);
+            pending = null;
+        }
+    }
+}
@@ -0,0 +1,239 @@
+package com.jbluepack;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+/**
+ * Outbound side of an RFCOMM link. sendData only enqueues; a dedicated writer
+ * thread coalesces queued messages into larger writes according to the flush
+ * policy and resolves each callback once its bytes have been written to the socket.
+ *
+ * The queue is bounded in bytes. Crossing the high-water mark (and dropping back
+ * under the low-water mark) is reported to the listener so JS producers can slow
+ * down, and enqueues beyond the limit are rejected with "Queue Full".
+ *
+ * The writer loop either gets its own thread or runs on a pool thread borrowed
+ * for the life of the connection, so several sockets can share one bounded pool.
+ */
+class RfcommWriter {
+
+    enum FlushPolicy { IMMEDIATE, SIZE, TIME }
+
+    interface Listener {
+        void onBackpressure(boolean active, int depth, long queuedBytes);
+
+        void onWriteError(IOException e);
+    }
+
+    static final int DEFAULT_FLUSH_BYTES = 512;
+    static final int DEFAULT_FLUSH_INTERVAL_MS = 20;
+    static final int DEFAULT_MAX_QUEUED_BYTES = 64 * 1024;
+    private static final int MAX_BATCH_BYTES = 4096;
+
+    private static final class Pending {
+        final byte[] data;
+        final Callback callback;
+        final Object result;
+
+        Pending(byte[] data, Callback callback, Object result) {
+            this.data = data;
+            this.callback = callback;
+            this.result = result;
+        }
+    }
+
+    private final OutputStream outputStream;
+    private final Listener listener;
+    private final ArrayDeque<Pending> queue = new ArrayDeque<>();
+    private final byte[] batchBuffer = new byte[MAX_BATCH_BYTES];
+    private final List<Pending> batch = new ArrayList<>();
+    private Thread thread;  // guarded by this, set while the loop runs
+
+    private FlushPolicy policy = FlushPolicy.IMMEDIATE;
+    private int flushBytes = DEFAULT_FLUSH_BYTES;
+    private int flushIntervalMs = DEFAULT_FLUSH_INTERVAL_MS;
+    private int maxQueuedBytes = DEFAULT_MAX_QUEUED_BYTES;
+
+    private long queuedBytes;
+    private long firstQueuedAt;
+    private boolean backpressure;
+    private volatile boolean running = true;
+
+    RfcommWriter(OutputStream outputStream, Listener listener) {
+        this(outputStream, listener, task -> new Thread(task, "RfcommWriter").start());
+    }
+
+    /** Runs the writer loop on executor, which throws RejectedExecutionException when it has no thread to spare. */
+    RfcommWriter(OutputStream outputStream, Listener listener, Executor executor) {
+        this.outputStream = outputStream;
+        this.listener = listener;
+        executor.execute(this::run);
+    }
+
+    /** Values <= 0 keep the current setting. */
+    synchronized void configure(FlushPolicy policy, int flushBytes, int flushIntervalMs, int maxQueuedBytes) {
+        if (policy != null) this.policy = policy;
+        if (flushBytes > 0) this.flushBytes = flushBytes;
+        if (flushIntervalMs > 0) this.flushIntervalMs = flushIntervalMs;
+        if (maxQueuedBytes > 0) this.maxQueuedBytes = maxQueuedBytes;
+        notifyAll();
+    }
+
+    /**
+     * Queues data for the writer thread. The callback resolves with result once the bytes are written.
+     * Returns false (and rejects the callback) if the data was not accepted.
+     */
+    synchronized boolean enqueue(byte[] data, Callback callback, Object result) {
+        if (!running) {
+            callback.reject("Not Connected", "No active Bluetooth connection.");
+            return false;
+        }
+        if (queuedBytes + data.length > maxQueuedBytes && !queue.isEmpty()) {
+            callback.reject("Queue Full", "Outbound queue is full (" + queuedBytes + " bytes pending).");
+            return false;
+        }
+        if (queue.isEmpty()) {
+            firstQueuedAt = System.currentTimeMillis();
+        }
+        queue.add(new Pending(data, callback, result));
+        queuedBytes += data.length;
+        if (!backpressure && queuedBytes >= maxQueuedBytes * 3L / 4) {
+            backpressure = true;
+            listener.onBackpressure(true, queue.size(), queuedBytes);
+        }
+        notifyAll();
+        return true;
+    }
+
+    synchronized int depth() {
+        return queue.size();
+    }
+
+    synchronized long queuedBytes() {
+        return queuedBytes;
+    }
+
+    synchronized boolean isBackpressured() {
+        return backpressure;
+    }
+
+    /** Stops the writer thread and rejects everything still queued. */
+    void close(String reason) {
+        synchronized (this) {
+            running = false;
+            rejectAll(queue, reason);
+            queue.clear();
+            queuedBytes = 0;
+            notifyAll();
+            if (thread != null) {
+                thread.interrupt();
+            }
+        }
+    }
+
+    private void run() {
+        synchronized (this) {
+            thread = Thread.currentThread();
+        }
+        try {
+            loop();
+        } finally {
+            synchronized (this) {
+                thread = null;  // a pool thread moves on to other work, don't interrupt it later
+            }
+        }
+    }
+
+    private void loop() {
+        while (running) {
+            try {
+                int length = takeBatch();
+                if (length == 0) continue;
+
+                if (length > 0) {
+                    outputStream.write(batchBuffer, 0, length);
+                } else {
+                    outputStream.write(batch.get(0).data);  // single message larger than the batch buffer
+                }
+                outputStream.flush();
+                for (Pending pending : batch) {
+                    pending.callback.resolve(pending.result);
+                }
+            } catch (InterruptedException e) {
+                break;
+            } catch (IOException e) {
+                rejectAll(batch, e.getMessage());
+                if (running) {
+                    listener.onWriteError(e);
+                }
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    /**
+     * Waits until the flush policy allows a write, then moves queued messages into the batch.
+     * Returns the number of bytes copied into batchBuffer, or -1 when the batch is a single
+     * oversized message that has to be written from its own array.
+     */
+    private synchronized int takeBatch() throws InterruptedException {
+        while (running && !readyToFlush()) {
+            long waitMs = queue.isEmpty() ? 0 : Math.max(1, firstQueuedAt + flushIntervalMs - System.currentTimeMillis());
+            wait(waitMs);
+        }
+        if (!running) return 0;
+
+        int length = 0;
+        Pending next;
+        while ((next = queue.peek()) != null) {
+            if (next.data.length > batchBuffer.length) {
+                if (length > 0) break;  // write what we have first, the big one goes alone next time
+                batch.add(queue.poll());
+                length = -1;
+                break;
+            }
+            if (length + next.data.length > batchBuffer.length) break;
+            queue.poll();
+            System.arraycopy(next.data, 0, batchBuffer, length, next.data.length);
+            length += next.data.length;
+            batch.add(next);
+        }
+
+        for (Pending pending : batch) {
+            queuedBytes -= pending.data.length;
+        }
+        if (!queue.isEmpty()) {
+            firstQueuedAt = System.currentTimeMillis();
+        }
+        if (backpressure && queuedBytes <= maxQueuedBytes / 4) {
+            backpressure = false;
+            listener.onBackpressure(false, queue.size(), queuedBytes);
+        }
+        return length;
+    }
+
+    private boolean readyToFlush() {
+        if (queue.isEmpty()) return false;
+        boolean intervalElapsed = System.currentTimeMillis() - firstQueuedAt >= flushIntervalMs;
+        switch (policy) {
+            case SIZE:
+                // the interval still applies so a short tail doesn't sit in the queue forever
+                return queuedBytes >= flushBytes || intervalElapsed;
+            case TIME:
+                return intervalElapsed;
+            default:
+                return true;
+        }
+    }
+
+    private static void rejectAll(Iterable<Pending> pendings, String reason) {
+        for (Pending pending : pendings) {
+            pending.callback.reject("Send Failed", reason);
+        }
+    }
+}
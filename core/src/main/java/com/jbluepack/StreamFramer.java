@@ -0,0 +1,96 @@
+package com.jbluepack;
+
+/**
+ * Splits a byte stream into frames.
+ *
+ * Incoming reads are appended to one reused receive buffer and complete frames are
+ * handed to the listener as (buffer, offset, length) views into it, so the framing
+ * itself never allocates per byte or per frame. A frame view is only valid for the
+ * duration of the callback; listeners copy whatever they keep.
+ *
+ * Not thread-safe, each reader thread owns its framer. The counters are plain
+ * fields and may be read from other threads as approximate statistics.
+ */
+abstract class StreamFramer {
+
+    interface FrameListener {
+        void onFrame(byte[] buffer, int offset, int length);
+    }
+
+    static final int DEFAULT_MAX_FRAME_LENGTH = 4096;
+
+    final int maxFrameLength;
+    protected byte[] buffer;
+    protected int start;  // first unconsumed byte
+    protected int end;    // one past the last received byte
+
+    volatile long bytesRead;
+    volatile long frames;
+    volatile long resyncs;    // bytes or partial frames discarded to find the next frame boundary
+    volatile long crcErrors;
+
+    StreamFramer(int maxFrameLength) {
+        this.maxFrameLength = maxFrameLength > 0 ? maxFrameLength : DEFAULT_MAX_FRAME_LENGTH;
+        this.buffer = new byte[this.maxFrameLength * 2];
+    }
+
+    final void feed(byte[] data, int offset, int length, FrameListener listener) {
+        if (length <= 0) return;
+        bytesRead += length;
+        reserve(length);
+        System.arraycopy(data, offset, buffer, end, length);
+        end += length;
+        decode(listener);
+        if (start == end) {
+            int shift = start;
+            start = 0;
+            end = 0;
+            onCompacted(shift);
+        }
+    }
+
+    /** Drops any partial frame, e.g. after the link was re-established. */
+    void reset() {
+        int shift = end;
+        start = 0;
+        end = 0;
+        onCompacted(shift);
+    }
+
+    /** Consumes as many complete frames as the buffer holds between start and end. */
+    protected abstract void decode(FrameListener listener);
+
+    /** Called after buffered bytes moved down by 'shift' positions, so subclasses can fix up scan offsets. */
+    protected void onCompacted(int shift) {
+    }
+
+    private void reserve(int length) {
+        if (buffer.length - end >= length) return;
+        int pending = end - start;
+        if (start > 0) {
+            System.arraycopy(buffer, start, buffer, 0, pending);
+            int shift = start;
+            start = 0;
+            end = pending;
+            onCompacted(shift);
+        }
+        if (buffer.length - end < length) {
+            // Only when a single read is larger than the headroom, grows once and is then reused
+            byte[] grown = new byte[Math.max(buffer.length * 2, pending + length)];
+            System.arraycopy(buffer, 0, grown, 0, pending);
+            buffer = grown;
+        }
+    }
+
+    /** CRC-16/CCITT-FALSE (poly 0x1021, init 0xFFFF), as used by the ESP32 logger firmware. */
+    static int crc16(byte[] data, int offset, int length) {
+        int crc = 0xFFFF;
+        for (int i = offset; i < offset + length; i++) {
+            crc ^= (data[i] & 0xFF) << 8;
+            for (int bit = 0; bit < 8; bit++) {
+                crc = (crc & 0x8000) != 0 ? (crc << 1) ^ 0x1021 : crc << 1;
+            }
+        }
+        return crc & 0xFFFF;
+    }
+}
@@ -0,0 +1,342 @@
+package com.jbluepack;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Decodes binary telemetry frames natively into EVENT maps of typed fields, so JS gets
+ * numbers instead of strings to parse. Schemas are registered from JS and compiled once:
+ * offsets, widths, byte order, scale and enum tables become final fields of immutable
+ * Field objects, and enum tables become sorted key arrays for a binary search.
+ *
+ * A frame belongs to the first schema whose device, characteristic and match bytes fit.
+ * Decoding reads the fields straight out of the packet buffer; the event map is the only
+ * allocation. A frame with the right match bytes but the wrong length is counted as a
+ * mismatch and left to the normal event path.
+ */
+class TelemetryDecoder {
+
+    static final String EVENT = "BluetoothTelemetry";
+
+    enum Type {
+        U8("u8", 1, false),
+        I8("i8", 1, true),
+        U16("u16", 2, false),
+        I16("i16", 2, true),
+        U32("u32", 4, false),
+        I32("i32", 4, true),
+        F32("f32", 4, false),
+        F64("f64", 8, false);
+
+        final String jsName;
+        final int width;
+        final boolean signed;
+
+        Type(String jsName, int width, boolean signed) {
+            this.jsName = jsName;
+            this.width = width;
+            this.signed = signed;
+        }
+
+        static Type fromJs(String name) {
+            for (Type type : values()) {
+                if (type.jsName.equals(name)) return type;
+            }
+            return null;
+        }
+    }
+
+    /** Keys every event carries; field names may not reuse them. */
+    static final String[] RESERVED_KEYS = {"schema", "schemaId", "deviceId", "characteristic", "timestamp"};
+
+    static final class Field {
+        final String name;
+        final Type type;
+        final int offset;
+        final boolean littleEndian;
+        final long mask;     // applied after shift, 0: whole value
+        final int shift;
+        final double scale;
+        final double add;
+        final boolean bool;  // emit value != 0
+        final int[] enumKeys;      // sorted, null: no enum table
+        final String[] enumNames;  // parallel to enumKeys
+
+        Field(String name, Type type, int offset, boolean littleEndian, long mask, int shift,
+              double scale, double add, boolean bool, int[] enumKeys, String[] enumNames) {
+            this.name = name;
+            this.type = type;
+            this.offset = offset;
+            this.littleEndian = littleEndian;
+            this.mask = mask;
+            this.shift = shift;
+            this.scale = scale;
+            this.add = add;
+            this.bool = bool;
+            if (enumKeys != null) {
+                // Sort once here so decoding can binary search
+                Integer[] order = new Integer[enumKeys.length];
+                for (int i = 0; i < order.length; i++) order[i] = i;
+                Arrays.sort(order, (a, b) -> Integer.compare(enumKeys[a], enumKeys[b]));
+                this.enumKeys = new int[enumKeys.length];
+                this.enumNames = new String[enumKeys.length];
+                for (int i = 0; i < order.length; i++) {
+                    this.enumKeys[i] = enumKeys[order[i]];
+                    this.enumNames[i] = enumNames[order[i]];
+                }
+            } else {
+                this.enumKeys = null;
+                this.enumNames = null;
+            }
+        }
+
+        /** Raw integer bits of the field, sign-extended for signed types without a mask. */
+        long raw(byte[] value, int start) {
+            int at = start + offset;
+            int width = type.width;
+            long raw = 0;
+            if (littleEndian) {
+                for (int i = width - 1; i >= 0; i--) raw = raw << 8 | (value[at + i] & 0xFF);
+            } else {
+                for (int i = 0; i < width; i++) raw = raw << 8 | (value[at + i] & 0xFF);
+            }
+            if (mask != 0) {
+                return raw >>> shift & mask;
+            }
+            if (type.signed) {
+                int unused = 64 - 8 * width;
+                raw = raw << unused >> unused;
+            }
+            return raw;
+        }
+
+        /** Scaled numeric value. */
+        double number(long raw) {
+            double number;
+            if (mask == 0 && type == Type.F32) {
+                number = Float.intBitsToFloat((int) raw);
+            } else if (mask == 0 && type == Type.F64) {
+                number = Double.longBitsToDouble(raw);
+            } else {
+                number = raw;
+            }
+            return number * scale + add;
+        }
+
+        /** The enum name for raw, or null when the table has none. */
+        String enumName(long raw) {
+            if (raw < Integer.MIN_VALUE || raw > Integer.MAX_VALUE) return null;
+            int index = Arrays.binarySearch(enumKeys, (int) raw);
+            return index >= 0 ? enumNames[index] : null;
+        }
+
+        EventSink.EventMap toMap(EventSink sink) {
+            EventSink.EventMap map = sink.createMap();
+            map.putString("name", name);
+            map.putString("type", type.jsName);
+            map.putInt("offset", offset);
+            map.putBoolean("littleEndian", littleEndian);
+            if (mask != 0) {
+                map.putDouble("mask", mask);
+                map.putInt("shift", shift);
+            }
+            map.putDouble("scale", scale);
+            map.putDouble("add", add);
+            if (bool) map.putBoolean("bool", true);
+            if (enumKeys != null) {
+                EventSink.EventMap table = sink.createMap();
+                for (int i = 0; i < enumKeys.length; i++) {
+                    table.putString(Integer.toString(enumKeys[i]), enumNames[i]);
+                }
+                map.putMap("enum", table);
+            }
+            return map;
+        }
+    }
+
+    static final class Schema {
+        final int id;
+        final String name;
+        final String deviceId;        // null matches any device
+        final String characteristic;  // null matches any characteristic, RFCOMM frames have none
+        final int matchOffset;
+        final byte[] match;           // null: every frame of the device/characteristic
+        final int length;             // exact frame length, 0: at least minLength
+        final int minLength;
+        final Field[] fields;
+        final boolean keepRaw;        // also deliver the frame the normal way
+
+        final AtomicLong decoded = new AtomicLong();
+        final AtomicLong lengthMismatches = new AtomicLong();
+        final AtomicLong enumMisses = new AtomicLong();
+
+        Schema(int id, String name, String deviceId, String characteristic, int matchOffset, byte[] match,
+               int length, Field[] fields, boolean keepRaw) {
+            this.id = id;
+            this.name = name;
+            this.deviceId = deviceId;
+            this.characteristic = characteristic;
+            this.matchOffset = matchOffset;
+            this.match = match;
+            this.length = length;
+            this.fields = fields;
+            this.keepRaw = keepRaw;
+            int min = match != null ? matchOffset + match.length : 0;
+            for (Field field : fields) {
+                min = Math.max(min, field.offset + field.type.width);
+            }
+            this.minLength = min;
+        }
+
+        boolean claims(String device, String uuid, byte[] value, int start, int frameLength) {
+            if (deviceId != null && !deviceId.equals(device)) return false;
+            if (characteristic != null && !characteristic.equals(uuid)) return false;
+            if (match == null) return true;
+            if (matchOffset + match.length > frameLength) return false;
+            int at = start + matchOffset;
+            for (int i = 0; i < match.length; i++) {
+                if (value[at + i] != match[i]) return false;
+            }
+            return true;
+        }
+
+        boolean fits(int frameLength) {
+            return length > 0 ? frameLength == length : frameLength >= minLength;
+        }
+
+        EventSink.EventMap toMap(EventSink sink) {
+            EventSink.EventMap map = sink.createMap();
+            map.putInt("id", id);
+            map.putString("name", name);
+            if (deviceId != null) map.putString("deviceId", deviceId);
+            if (characteristic != null) map.putString("characteristic", characteristic);
+            map.putInt("length", length);
+            map.putInt("minLength", minLength);
+            map.putBoolean("keepRaw", keepRaw);
+            EventSink.EventArray array = sink.createArray();
+            for (Field field : fields) {
+                array.pushMap(field.toMap(sink));
+            }
+            map.putArray("fields", array);
+            map.putDouble("decoded", decoded.get());
+            map.putDouble("lengthMismatches", lengthMismatches.get());
+            map.putDouble("enumMisses", enumMisses.get());
+            return map;
+        }
+    }
+
+    private final EventSink sink;
+    private volatile Schema[] schemas = new Schema[0];
+    private int nextId = 1;
+    // Frames no schema claimed while at least one was registered
+    private final AtomicLong unclaimed = new AtomicLong();
+
+    TelemetryDecoder(EventSink sink) {
+        this.sink = sink;
+    }
+
+    synchronized int nextId() {
+        return nextId++;
+    }
+
+    synchronized void add(Schema schema) {
+        Schema[] current = schemas;
+        Schema[] next = Arrays.copyOf(current, current.length + 1);
+        next[current.length] = schema;
+        schemas = next;
+    }
+
+    synchronized boolean remove(int id) {
+        Schema[] current = schemas;
+        for (int i = 0; i < current.length; i++) {
+            if (current[i].id != id) continue;
+            Schema[] next = new Schema[current.length - 1];
+            System.arraycopy(current, 0, next, 0, i);
+            System.arraycopy(current, i + 1, next, i, current.length - i - 1);
+            schemas = next;
+            return true;
+        }
+        return false;
+    }
+
+    synchronized void clear() {
+        schemas = new Schema[0];
+    }
+
+    boolean isEmpty() {
+        return schemas.length == 0;
+    }
+
+    /**
+     * Emits EVENT for the first schema that claims and fits the frame. Returns true when the
+     * frame was decoded and its schema doesn't keep the raw frame, so the caller skips its normal event.
+     */
+    boolean decode(String deviceId, String characteristic, byte[] value, int offset, int length, long nowMs) {
+        Schema[] current = schemas;
+        for (int i = 0; i < current.length; i++) {
+            Schema schema = current[i];
+            if (!schema.claims(deviceId, characteristic, value, offset, length)) continue;
+            if (!schema.fits(length)) {
+                schema.lengthMismatches.incrementAndGet();
+                continue;
+            }
+            sink.emit(EVENT, decode(schema, deviceId, characteristic, value, offset, nowMs));
+            schema.decoded.incrementAndGet();
+            return !schema.keepRaw;
+        }
+        if (current.length > 0) {
+            unclaimed.incrementAndGet();
+        }
+        return false;
+    }
+
+    /** The event payload for a frame the schema fits. */
+    EventSink.EventMap decode(Schema schema, String deviceId, String characteristic, byte[] value, int offset, long nowMs) {
+        EventSink.EventMap params = sink.createMap();
+        params.putString("schema", schema.name);
+        params.putInt("schemaId", schema.id);
+        if (deviceId != null) params.putString("deviceId", deviceId);
+        if (characteristic != null) params.putString("characteristic", characteristic);
+        params.putDouble("timestamp", nowMs);
+        Field[] fields = schema.fields;
+        for (int i = 0; i < fields.length; i++) {
+            Field field = fields[i];
+            long raw = field.raw(value, offset);
+            if (field.bool) {
+                params.putBoolean(field.name, raw != 0);
+            } else if (field.enumKeys != null) {
+                String name = field.enumName(raw);
+                if (name != null) {
+                    params.putString(field.name, name);
+                } else {
+                    schema.enumMisses.incrementAndGet();
+                    params.putDouble(field.name, raw);  // unknown value, passed through as a number
+                }
+            } else {
+                params.putDouble(field.name, field.number(raw));
+            }
+        }
+        return params;
+    }
+
+    long unclaimed() {
+        return unclaimed.get();
+    }
+
+    void resetCounters() {
+        unclaimed.set(0);
+        for (Schema schema : schemas) {
+            schema.decoded.set(0);
+            schema.lengthMismatches.set(0);
+            schema.enumMisses.set(0);
+        }
+    }
+
+    EventSink.EventArray toArray() {
+        EventSink.EventArray array = sink.createArray();
+        for (Schema schema : schemas) {
+            array.pushMap(schema.toMap(sink));
+        }
+        return array;
+    }
+}
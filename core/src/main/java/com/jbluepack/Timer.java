@@ -0,0 +1,11 @@
+package com.jbluepack;
+
+/**
+ * Delayed execution for timeouts and flush windows. Same contract as Handler's
+ * postDelayed/removeCallbacks: the task instance is the key for cancel.
+ */
+interface Timer {
+    void schedule(Runnable task, long delayMs);
+
+    void cancel(Runnable task);
+}
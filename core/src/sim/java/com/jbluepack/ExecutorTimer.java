@@ -0,0 +1,46 @@
+package com.jbluepack;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Timer on a ScheduledExecutorService, standing in for the main-looper Handler
+ * off-device. Each task has at most one pending run; scheduling it again replaces it.
+ */
+final class ExecutorTimer implements Timer {
+
+    private final ScheduledExecutorService executor;
+    private final Map<Runnable, ScheduledFuture<?>> scheduled = new HashMap<>();
+
+    ExecutorTimer(ScheduledExecutorService executor) {
+        this.executor = executor;
+    }
+
+    @Override
+    public synchronized void schedule(Runnable task, long delayMs) {
+        ScheduledFuture<?>[] self = new ScheduledFuture<?>[1];
+        // The run takes the lock first, so self[0] is always assigned by the time it's compared
+        self[0] = executor.schedule(() -> {
+            synchronized (this) {
+                if (scheduled.get(task) != self[0]) return;
+                scheduled.remove(task);
+            }
+            task.run();
+        }, delayMs, TimeUnit.MILLISECONDS);
+        ScheduledFuture<?> previous = scheduled.put(task, self[0]);
+        if (previous != null) {
+            previous.cancel(false);
+        }
+    }
+
+    @Override
+    public synchronized void cancel(Runnable task) {
+        ScheduledFuture<?> future = scheduled.remove(task);
+        if (future != null) {
+            future.cancel(false);
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package com.jbluepack;
+
+import java.io.ByteArrayOutputStream;
+
+/** The sending side of the StreamFramer formats, as the ESP32 firmware writes them. */
+final class FrameEncoder {
+
+    private FrameEncoder() {
+    }
+
+    static byte[] delimited(byte[] payload, int delimiter) {
+        byte[] frame = new byte[payload.length + 1];
+        System.arraycopy(payload, 0, frame, 0, payload.length);
+        frame[payload.length] = (byte) delimiter;
+        return frame;
+    }
+
+    /** 2 byte big-endian length header, with crc a CRC-16 trailer over header and payload. */
+    static byte[] lengthPrefixed(byte[] payload, boolean crc) {
+        byte[] frame = new byte[2 + payload.length + (crc ? 2 : 0)];
+        frame[0] = (byte) (payload.length >>> 8);
+        frame[1] = (byte) payload.length;
+        System.arraycopy(payload, 0, frame, 2, payload.length);
+        if (crc) {
+            int value = StreamFramer.crc16(frame, 0, 2 + payload.length);
+            frame[frame.length - 2] = (byte) (value >>> 8);
+            frame[frame.length - 1] = (byte) value;
+        }
+        return frame;
+    }
+
+    /** COBS encoding followed by the 0x00 separator. */
+    static byte[] cobs(byte[] payload) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(payload.length + payload.length / 254 + 2);
+        int codeIndex = 0;
+        byte[] block = new byte[255];
+        int code = 1;
+        for (byte b : payload) {
+            if (b == 0) {
+                block[codeIndex] = (byte) code;
+                out.write(block, 0, code);
+                code = 1;
+            } else {
+                block[code++] = b;
+                if (code == 255) {
+                    block[codeIndex] = (byte) code;
+                    out.write(block, 0, code);
+                    code = 1;
+                }
+            }
+        }
+        block[codeIndex] = (byte) code;
+        out.write(block, 0, code);
+        out.write(0);
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,883 @@
+package com.jbluepack;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Repeatable load and soak scenarios against the simulated peripherals, on a plain JVM:
+ *
+ *   gradle -p core simulate --args="--scenario=reconnect --seconds=30"
+ *
+ * Scenarios: throughput (BLE notifications plus pipelined writes), reconnect (the same
+ * with link drops and failed connects), backpressure (RFCOMM writer against a slow link),
+ * rfcomm (inbound framed stream, every framing mode under "all"), bulk (an upload and a
+ * download through BulkTransfer with link drops and packet loss), record (BLE and RFCOMM
+ * streams into the frame recorder with small segments, a reader tailing it and a reopen),
+ * soak (BLE and RFCOMM together with drops, metrics every 5 s) and all (everything but soak). Each run checks
+ * its invariants and the process exits with 1 if any failed.
+ */
+final class LoadTest {
+
+    static final String SERVICE = "4fafc201-1fb5-459e-8fcc-c5c9c331914b";
+    static final String NOTIFY_CHARACTERISTIC = "beb5483e-36e1-4688-b7f5-ea07361b26a8";
+    static final String WRITE_CHARACTERISTIC = "e3223119-9445-4e96-a4a1-85358c4046a2";
+    static final String BULK_CONTROL = "6e400010-b5a3-f393-e0a9-e50e24dcca9e";
+    static final String BULK_DATA = "6e400011-b5a3-f393-e0a9-e50e24dcca9e";
+
+    private static final long SETTLE_MS = 6000;  // longer than the default queue timeout
+
+    private LoadTest() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        Options options = new Options(args);
+        String scenario = options.string("scenario", "all");
+        List<String> failures = new ArrayList<>();
+        switch (scenario) {
+            case "throughput":
+                runBle(options, false, failures);
+                break;
+            case "reconnect":
+                runBle(options, true, failures);
+                break;
+            case "backpressure":
+                runBackpressure(options, failures);
+                break;
+            case "rfcomm":
+                runRfcomm(options, framing(options.string("framing", "delimiter")), failures);
+                break;
+            case "bulk":
+                runBulk(options, failures);
+                break;
+            case "record":
+                runRecord(options, failures);
+                break;
+            case "soak":
+                runSoak(options, failures);
+                break;
+            case "all":
+                runBle(options, false, failures);
+                runBle(options, true, failures);
+                runBackpressure(options, failures);
+                for (SimulatedRfcommPeripheral.Framing framing : SimulatedRfcommPeripheral.Framing.values()) {
+                    runRfcomm(options, framing, failures);
+                }
+                runBulk(options, failures);
+                runRecord(options, failures);
+                break;
+            default:
+                System.err.println("Unknown scenario: " + scenario);
+                System.exit(2);
+        }
+        if (failures.isEmpty()) {
+            System.out.println("PASS");
+            System.exit(0);
+        }
+        System.out.println("FAIL");
+        for (String failure : failures) {
+            System.out.println("  " + failure);
+        }
+        System.exit(1);
+    }
+
+    // Scenarios
+
+    private static void runBle(Options options, boolean faults, List<String> failures) throws Exception {
+        Metrics.shared().reset();
+        String name = faults ? "reconnect" : "throughput";
+        long seconds = options.number("seconds", faults ? 20 : 10);
+        BleRun run = new BleRun(options, faults, 0);
+        run.start();
+        Thread.sleep(seconds * 1000);
+        run.stop();
+        run.report(name, seconds, failures);
+        printMetrics();
+    }
+
+    private static void runBackpressure(Options options, List<String> failures) throws Exception {
+        Metrics.shared().reset();
+        long seconds = options.number("seconds", 10);
+        RfcommRun run = new RfcommRun(options, SimulatedRfcommPeripheral.Framing.DELIMITER, false, true, 0);
+        run.start();
+        Thread.sleep(seconds * 1000);
+        run.stop();
+        run.report("backpressure", seconds, failures);
+        printMetrics();
+    }
+
+    private static void runRfcomm(Options options, SimulatedRfcommPeripheral.Framing framing, List<String> failures) throws Exception {
+        Metrics.shared().reset();
+        long seconds = options.number("seconds", 5);
+        RfcommRun run = new RfcommRun(options, framing, false, false, 0);
+        run.start();
+        Thread.sleep(seconds * 1000);
+        run.stop();
+        run.report("rfcomm/" + framing.name().toLowerCase(Locale.ROOT), seconds, failures);
+        printMetrics();
+    }
+
+    private static void runBulk(Options options, List<String> failures) throws Exception {
+        Metrics.shared().reset();
+        BulkRun run = new BulkRun(options);
+        if (run.connect()) {
+            run.transfer(BulkTransfer.Direction.UPLOAD, failures);
+            run.transfer(BulkTransfer.Direction.DOWNLOAD, failures);
+        } else {
+            failures.add("bulk: never connected");
+        }
+        run.stop();
+        printMetrics();
+    }
+
+    private static void runRecord(Options options, List<String> failures) throws Exception {
+        long seconds = options.number("seconds", 5);
+        int size = (int) options.number("size", 64);
+        int maxSegments = (int) options.number("max-segments", 8);
+        File dir = Files.createTempDirectory("jbluepack-record").toFile();
+        FrameRecorder recorder = new FrameRecorder();
+        recorder.start(new FrameRecorder.Config(dir, (int) options.number("segment-bytes", FrameRecorder.MIN_SEGMENT_BYTES),
+                maxSegments, 0, true, true, null, null));
+
+        // Two BLE characteristics and one RFCOMM link, each with its own payload numbering
+        String[][] streams = {
+                {"SIM:BLE", NOTIFY_CHARACTERISTIC},
+                {"SIM:BLE", WRITE_CHARACTERISTIC},
+                {SimulatedRfcommClient.ADDRESS, null},
+        };
+        long rate = options.number("rate", 2000);  // frames per second per stream
+        long deadline = System.currentTimeMillis() + seconds * 1000;
+        Thread[] producers = new Thread[streams.length];
+        AtomicLong appended = new AtomicLong();
+        for (int i = 0; i < streams.length; i++) {
+            String[] stream = streams[i];
+            producers[i] = new Thread(() -> {
+                long sequence = 0;
+                long startedAt = System.nanoTime();
+                while (System.currentTimeMillis() < deadline) {
+                    byte[] payload = SequencePayload.create(sequence, size);
+                    if (recorder.append(stream[0], stream[1], payload, 0, payload.length, System.currentTimeMillis())) {
+                        appended.incrementAndGet();
+                    }
+                    sequence++;
+                    long due = startedAt + sequence * 1_000_000_000L / rate;
+                    long wait = due - System.nanoTime();
+                    if (wait > 1_000_000) sleep(wait / 1_000_000);
+                }
+            }, "SimRecordProducer-" + i);
+            producers[i].start();
+        }
+
+        // A JS-like consumer paging through the recording while it grows
+        long[] tail = {0, 0, 0, 0};  // next seq, frames read, pages, out-of-order
+        Thread reader = new Thread(() -> {
+            long last = 0;
+            while (System.currentTimeMillis() < deadline + 200) {
+                long[] previous = {last};
+                long next = recorder.scan(tail[0], Long.MIN_VALUE, Long.MAX_VALUE, null, 5000,
+                        (seq, timestampMs, deviceId, characteristic, buffer, offset, length) -> {
+                            if (seq <= previous[0]) tail[3]++;
+                            previous[0] = seq;
+                            tail[1]++;
+                        });
+                last = previous[0];
+                tail[0] = next;
+                tail[2]++;
+                sleep(20);
+            }
+        }, "SimRecordReader");
+        reader.start();
+        for (Thread producer : producers) {
+            producer.join();
+        }
+        reader.join();
+        recorder.stop();
+
+        Map<String, SequenceTracker> trackers = new HashMap<>();
+        long[] full = {0, -1, 0, 0, Long.MAX_VALUE, Long.MIN_VALUE};  // frames, previous seq, seq gaps, malformed, oldest and newest ms
+        byte[] scratch = new byte[size];
+        recorder.scan(0, Long.MIN_VALUE, Long.MAX_VALUE, null, Integer.MAX_VALUE,
+                (seq, timestampMs, deviceId, characteristic, buffer, offset, length) -> {
+                    if (full[1] >= 0 && seq != full[1] + 1) full[2]++;
+                    full[1] = seq;
+                    full[0]++;
+                    full[4] = Math.min(full[4], timestampMs);
+                    full[5] = Math.max(full[5], timestampMs);
+                    if (length != size) {
+                        full[3]++;
+                        return;
+                    }
+                    for (int i = 0; i < length; i++) scratch[i] = buffer.get(offset + i);
+                    trackers.computeIfAbsent(deviceId + "/" + characteristic, key -> new SequenceTracker()).onPayload(scratch, 0, length);
+                });
+        Map<?, ?> values = (Map<?, ?>) recorder.stats(new MapEventSink((name, payload) -> { }));
+        long firstSeq = ((Number) values.get("firstSeq")).longValue();
+        long lastSeq = ((Number) values.get("lastSeq")).longValue();
+        int segments = ((Number) values.get("segments")).intValue();
+
+        // A time window in the middle of what is retained returns only frames inside it
+        long middle = (full[4] + full[5]) / 2;
+        long[] window = {0, 0};
+        recorder.scan(0, middle - 100, middle + 100, null, Integer.MAX_VALUE,
+                (seq, timestampMs, deviceId, characteristic, buffer, offset, length) -> {
+                    window[0]++;
+                    if (timestampMs < middle - 100 || timestampMs > middle + 100) window[1]++;
+                });
+
+        // Reopening the directory recovers the segments and continues the numbering. It starts
+        // a new segment, so allow one more to keep retention from deleting the oldest
+        FrameRecorder reopened = new FrameRecorder();
+        reopened.start(new FrameRecorder.Config(dir, FrameRecorder.MIN_SEGMENT_BYTES, maxSegments + 1, 0, true, true, null, null));
+        long[] recovered = {0};
+        reopened.scan(0, Long.MIN_VALUE, Long.MAX_VALUE, null, Integer.MAX_VALUE,
+                (seq, timestampMs, deviceId, characteristic, buffer, offset, length) -> recovered[0]++);
+        byte[] probe = SequencePayload.create(0, size);
+        reopened.append(SimulatedRfcommClient.ADDRESS, null, probe, 0, probe.length, System.currentTimeMillis());
+        long[] resumed = {-1};
+        reopened.scan(lastSeq + 1, Long.MIN_VALUE, Long.MAX_VALUE, null, 1,
+                (seq, timestampMs, deviceId, characteristic, buffer, offset, length) -> resumed[0] = seq);
+        reopened.stop();
+        reopened.delete();
+        recorder.delete();
+        dir.delete();
+
+        long gaps = 0;
+        for (SequenceTracker tracker : trackers.values()) {
+            gaps += tracker.gaps() + tracker.duplicates() + tracker.malformed();
+        }
+        System.out.printf(Locale.ROOT, "record: %d s, %d frames appended (%.0f/s), %d retained in %d segments (seq %d..%d), %d deleted%n",
+                seconds, appended.get(), appended.get() / (double) seconds, full[0], segments, firstSeq, lastSeq,
+                ((Number) values.get("segmentsDeleted")).longValue());
+        System.out.printf(Locale.ROOT, "  tail: %d frames in %d pages, %d in the middle 200 ms window, %d recovered on reopen%n",
+                tail[1], tail[2], window[0], recovered[0]);
+
+        Check check = new Check("record", failures);
+        check.that(appended.get() > 0, "nothing was recorded");
+        check.that(segments <= maxSegments, segments + " segments kept, retention is " + maxSegments);
+        check.that(full[0] == lastSeq - firstSeq + 1 && full[2] == 0, "retained frames " + firstSeq + ".." + lastSeq + " have " + full[2] + " gaps");
+        check.that(full[3] == 0 && gaps == 0, full[3] + " frames with the wrong length, " + gaps + " payload gaps or duplicates");
+        check.that(trackers.size() == streams.length, "frames of " + trackers.size() + " streams retained, expected " + streams.length);
+        check.that(tail[3] == 0, tail[3] + " frames out of order while tailing");
+        check.that(window[0] > 0 && window[1] == 0, window[0] + " frames in the queried time window, " + window[1] + " outside it");
+        check.that(recovered[0] == full[0], "reopen recovered " + recovered[0] + " of " + full[0] + " frames");
+        check.that(resumed[0] == lastSeq + 1, "reopened recorder continued at " + resumed[0] + ", expected " + (lastSeq + 1));
+    }
+
+    private static void runSoak(Options options, List<String> failures) throws Exception {
+        Metrics.shared().reset();
+        long seconds = options.number("seconds", 60);
+        ScheduledExecutorService reporter = Executors.newSingleThreadScheduledExecutor();
+        EventSink printer = new MapEventSink((eventName, payload) -> System.out.println(
+                "  metrics: notificationInterArrival " + histogram(payload.get("notificationInterArrival"))
+                        + ", writeRoundTrip " + histogram(payload.get("writeRoundTrip"))));
+        Metrics.shared().setReporting(printer, new ExecutorTimer(reporter), 5000);
+
+        BleRun ble = new BleRun(options, true, 5000);
+        RfcommRun rfcomm = new RfcommRun(options, framing(options.string("framing", "lengthCrc")), true, true, 5000);
+        ble.start();
+        rfcomm.start();
+        Thread.sleep(seconds * 1000);
+        Metrics.shared().setReporting(printer, new ExecutorTimer(reporter), 0);
+        ble.stop();
+        rfcomm.stop();
+        reporter.shutdownNow();
+        ble.report("soak/ble", seconds, failures);
+        rfcomm.report("soak/rfcomm", seconds, failures);
+        printMetrics();
+    }
+
+    /** BLE peripheral streaming notifications while a producer keeps a window of writes in flight. */
+    private static final class BleRun {
+        private final boolean faults;
+        private final ScheduledExecutorService radio = Executors.newSingleThreadScheduledExecutor(daemon("SimRadio"));
+        private final ScheduledExecutorService main = Executors.newSingleThreadScheduledExecutor(daemon("SimMain"));
+        private final ScheduledExecutorService reconnects = Executors.newSingleThreadScheduledExecutor(daemon("SimReconnect"));
+        private final EventCounter events = new EventCounter();
+        private final Tally writes = new Tally();
+        private final SimulatedGattPeripheral peripheral;
+        private final SimulatedBleClient client;
+        private final int window;
+        private final int writeSize;
+        private final Semaphore inFlight;
+        private volatile boolean running;
+        private Thread producer;
+        private boolean connected;
+
+        BleRun(Options options, boolean faults, long defaultDropMs) {
+            this.faults = faults;
+            long[] latency = options.range("latency", 5, 15);
+            peripheral = new SimulatedGattPeripheral("SIM:BLE", radio, options.number("seed", 1));
+            peripheral.addCharacteristic(SERVICE, NOTIFY_CHARACTERISTIC, true);
+            peripheral.addCharacteristic(SERVICE, WRITE_CHARACTERISTIC, false);
+            peripheral.configureFaults(latency[0], latency[1],
+                    options.decimal("connect-failures", faults ? 0.2 : 0),
+                    options.number("drop-every", faults ? (defaultDropMs > 0 ? defaultDropMs : 2000) : 0));
+            peripheral.configureLink((int) options.number("max-mtu", AttLimits.MAX_MTU), -1);
+            peripheral.configureStream((int) options.number("rate", 200), (int) options.number("size", 20));
+
+            client = new SimulatedBleClient(peripheral, new MapEventSink(events), new ExecutorTimer(main), reconnects,
+                    (int) options.number("mtu", SimulatedBleClient.PREFERRED_MTU));
+            client.supervisor.configure(true, 100, 2000, 1000);
+            client.batcher.configure(options.flag("batch"), 0, 0);
+            window = (int) options.number("writes", 4);
+            writeSize = (int) options.number("write-size", 20);
+            inFlight = new Semaphore(window);
+        }
+
+        void start() throws InterruptedException {
+            // Initial connects can fail too when faults are on, retry like an app would
+            for (int attempt = 0; attempt < 20 && !connected; attempt++) {
+                Tally connect = new Tally();
+                CountDownLatch done = new CountDownLatch(1);
+                connect.onSettled = done::countDown;
+                client.connect(connect);
+                done.await(5, TimeUnit.SECONDS);
+                connected = connect.resolved.get() == 1;
+            }
+            if (!connected) return;
+            client.subscribe(NOTIFY_CHARACTERISTIC, new Tally());
+            running = true;
+            producer = new Thread(this::produce, "SimBleProducer");
+            producer.start();
+        }
+
+        void stop() throws InterruptedException {
+            running = false;
+            if (producer != null) {
+                producer.join();
+            }
+            // Every write callback has to settle, resolved or rejected
+            boolean settled = inFlight.tryAcquire(window, SETTLE_MS, TimeUnit.MILLISECONDS);
+            writes.settledInTime = settled;
+            client.disconnect();
+            Thread.sleep(100);
+            radio.shutdownNow();
+            main.shutdownNow();
+            reconnects.shutdownNow();
+        }
+
+        private void produce() {
+            long sequence = 0;
+            while (running) {
+                try {
+                    if (client.state() != SimulatedBleClient.State.CONNECTED) {
+                        Thread.sleep(10);  // waiting for BLEConnectionState "connected"
+                        continue;
+                    }
+                    if (!inFlight.tryAcquire(100, TimeUnit.MILLISECONDS)) continue;
+                } catch (InterruptedException e) {
+                    return;
+                }
+                Tally.Release callback = writes.release(inFlight);
+                client.write(WRITE_CHARACTERISTIC, SequencePayload.create(sequence++, writeSize), true, callback);
+            }
+        }
+
+        void report(String name, long seconds, List<String> failures) {
+            SequenceTracker sequences = client.sequences;
+            long sent = peripheral.notificationsSent();
+            System.out.printf(Locale.ROOT, "%s: %d s, mtu %d%n", name, seconds, client.mtu());
+            System.out.printf(Locale.ROOT, "  notifications: %d sent, %d received (%.0f/s), %d gaps, %d lost in outages, %d events, %d batches%n",
+                    sent, sequences.received(), sequences.received() / (double) seconds, sequences.gaps(),
+                    sequences.outageLoss(), events.count(NotificationEncoder.EVENT), events.count(NotificationBatcher.EVENT));
+            System.out.printf(Locale.ROOT, "  writes: %d resolved (%.0f/s), %d rejected %s%n",
+                    writes.resolved.get(), writes.resolved.get() / (double) seconds, writes.rejected.get(), writes.codes);
+            System.out.printf(Locale.ROOT, "  link: %d drops, %d reconnects, supervisor %s, %d queue warnings%n",
+                    peripheral.drops(), Metrics.shared().device(peripheral.address).reconnects.get(),
+                    client.supervisor.state().jsName, client.queueWarnings.get());
+
+            Check check = new Check(name, failures);
+            check.that(connected, "never connected");
+            check.that(sequences.gaps() == 0, sequences.gaps() + " notifications missing while connected");
+            check.that(sequences.duplicates() == 0 && sequences.malformed() == 0, "duplicate or malformed notifications");
+            check.that(writes.settledInTime, "write callbacks still pending after " + SETTLE_MS + " ms");
+            check.that(client.timeouts.get() == 0, client.timeouts.get() + " queue timeouts");
+            check.that(peripheral.busyRejections() == 0, peripheral.busyRejections() + " requests issued while another was outstanding");
+            check.that(peripheral.truncatedWrites() == 0, peripheral.truncatedWrites() + " writes longer than MTU - 3");
+            check.that(client.supervisor.state() != ReconnectSupervisor.State.GIVEN_UP, "reconnect supervisor gave up");
+            if (!faults) {
+                check.that(writes.rejected.get() == 0, "writes rejected on a clean link " + writes.codes);
+                check.that(sent - sequences.received() <= Math.max(10, sent / 1000), "notifications lost on a clean link");
+            }
+        }
+    }
+
+    /** RFCOMM link: an inbound framed stream and, optionally, a producer pushing into a slow link. */
+    private static final class RfcommRun {
+        private final boolean faults;
+        private final boolean outbound;
+        private final ScheduledExecutorService reconnects = Executors.newSingleThreadScheduledExecutor(daemon("SimReconnect"));
+        private final Tally sends = new Tally();
+        private final SimulatedRfcommPeripheral peripheral;
+        private final SimulatedRfcommClient client;
+        private final int messageSize;
+        private final long linkRate;
+        private final boolean respectBackpressure;
+        private final AtomicLong queueFull = new AtomicLong();
+        private final AtomicLong accepted = new AtomicLong();
+        private volatile boolean running;
+        private Thread producer;
+        private boolean connected;
+        private long bytesAtStop;
+
+        RfcommRun(Options options, SimulatedRfcommPeripheral.Framing framing, boolean faults, boolean outbound, long defaultDropMs) {
+            this.faults = faults;
+            this.outbound = outbound;
+            long[] latency = options.range("latency", 20, 60);
+            peripheral = new SimulatedRfcommPeripheral(options.number("seed", 1));
+            messageSize = (int) options.number("size", 64);
+            linkRate = options.number("link-rate", 20000);
+            peripheral.configureStream(framing, (int) options.number("rate", outbound ? 20 : 500), messageSize, linkRate);
+            peripheral.configureFaults(latency[0], latency[1],
+                    options.decimal("connect-failures", faults ? 0.2 : 0),
+                    options.number("drop-every", faults ? defaultDropMs : 0));
+            client = new SimulatedRfcommClient(peripheral, reconnects);
+            client.supervisor.configure(true, 100, 2000, 1000);
+            client.configureWriter(null, (int) options.number("max-queued", 16 * 1024));
+            respectBackpressure = !options.flag("ignore-backpressure");
+        }
+
+        void start() {
+            for (int attempt = 0; attempt < 20 && !connected; attempt++) {
+                try {
+                    client.connect();
+                    connected = true;
+                } catch (IOException e) {
+                    // retry
+                }
+            }
+            if (!connected || !outbound) return;
+            running = true;
+            producer = new Thread(this::produce, "SimRfcommProducer");
+            producer.start();
+        }
+
+        void stop() throws InterruptedException {
+            running = false;
+            if (producer != null) {
+                producer.join();
+            }
+            peripheral.pauseStream(true);
+            bytesAtStop = peripheral.bytesReceived.get();
+            // Let the writer drain what it accepted, the link rate bounds how long that takes
+            long deadline = System.currentTimeMillis() + SETTLE_MS;
+            while (sends.pending() > 0 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            // Written is not yet parsed: wait for the peripheral to see every accepted message
+            // (messages lost in an outage never arrive, so the same deadline bounds this)
+            while (peripheral.received.received() < accepted.get() && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            client.disconnect();
+            reconnects.shutdownNow();
+        }
+
+        private void produce() {
+            long sequence = 0;
+            while (running) {
+                if (client.isBackpressured() && respectBackpressure) {
+                    sleep(5);  // what a JS producer does on the BluetoothWriteQueue event
+                    continue;
+                }
+                byte[] message = FrameEncoder.delimited(SequencePayload.create(sequence, messageSize - 1), '\n');
+                if (client.send(message, sends.counting())) {
+                    sequence++;  // only accepted messages use up a number, so the peripheral sees no gaps
+                    accepted.incrementAndGet();
+                } else if (sends.codes.containsKey("Queue Full")) {
+                    queueFull.set(sends.codes.get("Queue Full").get());
+                    sleep(1);
+                } else {
+                    sleep(10);  // not connected, wait for the supervisor
+                }
+            }
+        }
+
+        void report(String name, long seconds, List<String> failures) {
+            SequenceTracker inbound = client.sequences;
+            SequenceTracker delivered = peripheral.received;
+            System.out.printf(Locale.ROOT, "%s: %d s, framing %s%n", name, seconds, peripheral.framing().name().toLowerCase(Locale.ROOT));
+            System.out.printf(Locale.ROOT, "  inbound: %d frames sent, %d received (%.0f/s), %d gaps, %d lost in outages, %d resyncs, %d crc errors%n",
+                    peripheral.framesSent.get(), inbound.received(), inbound.received() / (double) seconds, inbound.gaps(),
+                    inbound.outageLoss(), client.framingResyncs(), client.crcErrors());
+            if (outbound) {
+                System.out.printf(Locale.ROOT, "  outbound: %d accepted, %d delivered (%.0f B/s of %d), %d gaps, backpressure %d times, rejected %s%n",
+                        accepted.get(), delivered.received(), bytesAtStop / (double) seconds, linkRate,
+                        delivered.gaps(), client.backpressureOn.get(), sends.codes);
+            }
+            System.out.printf(Locale.ROOT, "  link: %d drops, %d reconnects, supervisor %s%n",
+                    peripheral.drops.get(), Metrics.shared().device(SimulatedRfcommClient.ADDRESS).reconnects.get(),
+                    client.supervisor.state().jsName);
+
+            Check check = new Check(name, failures);
+            check.that(connected, "never connected");
+            check.that(inbound.gaps() == 0, inbound.gaps() + " inbound frames missing while connected");
+            check.that(inbound.duplicates() == 0 && inbound.malformed() == 0, "duplicate or malformed inbound frames");
+            check.that(client.crcErrors() == 0, client.crcErrors() + " crc errors on an uncorrupted stream");
+            check.that(sends.pending() == 0, sends.pending() + " send callbacks never settled");
+            check.that(client.supervisor.state() != ReconnectSupervisor.State.GIVEN_UP, "reconnect supervisor gave up");
+            if (outbound) {
+                check.that(delivered.duplicates() == 0 && delivered.malformed() == 0, "duplicate or malformed outbound messages");
+                if (!faults) {
+                    check.that(delivered.gaps() == 0, delivered.gaps() + " accepted messages never arrived");
+                    check.that(delivered.received() == accepted.get(),
+                            "peripheral received " + delivered.received() + " of " + accepted.get() + " accepted messages");
+                    if (respectBackpressure) {
+                        check.that(queueFull.get() == 0, queueFull.get() + " Queue Full rejections despite backpressure");
+                    }
+                }
+            }
+            if (!faults) {
+                check.that(inbound.received() == peripheral.framesSent.get(), "inbound frames lost on a clean link");
+                check.that(client.framingResyncs() == 0, client.framingResyncs() + " framing resyncs on a clean link");
+            }
+        }
+    }
+
+    /** One upload and one download of a random image over a link that drops and loses packets. */
+    private static final class BulkRun {
+        private final ScheduledExecutorService radio = Executors.newSingleThreadScheduledExecutor(daemon("SimRadio"));
+        private final ScheduledExecutorService main = Executors.newSingleThreadScheduledExecutor(daemon("SimMain"));
+        private final ScheduledExecutorService engine = Executors.newSingleThreadScheduledExecutor(daemon("SimTransfer"));
+        private final ScheduledExecutorService reconnects = Executors.newSingleThreadScheduledExecutor(daemon("SimReconnect"));
+        private final ScheduledExecutorService pacer = Executors.newSingleThreadScheduledExecutor(daemon("SimFirmware"));
+        private final SimulatedGattPeripheral peripheral;
+        private final SimulatedBulkFirmware firmware;
+        private final SimulatedBleClient client;
+        private final Random random;
+        private final int imageSize;
+        private final int blockSize;
+        private final int window;
+        private final int progressIntervalMs;
+        private final long timeoutSeconds;
+
+        BulkRun(Options options) {
+            long[] latency = options.range("latency", 5, 15);
+            long seed = options.number("seed", 1);
+            long packetIntervalMicros = options.number("packet-interval-us", 1250);
+            random = new Random(seed);
+            peripheral = new SimulatedGattPeripheral("SIM:BULK", radio, seed);
+            peripheral.addFirmwareCharacteristic(SERVICE, BULK_CONTROL);
+            peripheral.addFirmwareCharacteristic(SERVICE, BULK_DATA);
+            peripheral.configureFaults(latency[0], latency[1], options.decimal("connect-failures", 0),
+                    options.number("drop-every", 3000));
+            peripheral.configureLink((int) options.number("max-mtu", AttLimits.MAX_MTU), packetIntervalMicros);
+            peripheral.configureLoss(options.decimal("loss", 0.002));
+            firmware = new SimulatedBulkFirmware(peripheral, BULK_CONTROL, BULK_DATA, pacer, packetIntervalMicros);
+            peripheral.setFirmware(firmware);
+
+            client = new SimulatedBleClient(peripheral, new MapEventSink(new EventCounter()), new ExecutorTimer(main), reconnects,
+                    (int) options.number("mtu", SimulatedBleClient.PREFERRED_MTU));
+            client.supervisor.configure(true, 100, 2000, 1000);
+            imageSize = (int) options.number("image-kb", 512) * 1024;
+            blockSize = (int) options.number("block-size", BulkTransfer.DEFAULT_BLOCK_SIZE);
+            window = (int) options.number("window", SimulatedBulkFirmware.MAX_WINDOW);
+            progressIntervalMs = (int) options.number("progress-ms", BulkTransfer.DEFAULT_PROGRESS_INTERVAL_MS);
+            timeoutSeconds = options.number("seconds", 120);
+        }
+
+        boolean connect() throws InterruptedException {
+            for (int attempt = 0; attempt < 20; attempt++) {
+                Tally connect = new Tally();
+                CountDownLatch done = new CountDownLatch(1);
+                connect.onSettled = done::countDown;
+                client.connect(connect);
+                done.await(5, TimeUnit.SECONDS);
+                if (connect.resolved.get() == 1) return true;
+            }
+            return false;
+        }
+
+        void transfer(BulkTransfer.Direction direction, List<String> failures) throws InterruptedException {
+            String name = "bulk/" + direction.jsName;
+            byte[] image = new byte[imageSize];
+            random.nextBytes(image);
+            EventCounter events = new EventCounter();
+            EventSink sink = new MapEventSink(events);
+            Outcome outcome = new Outcome();
+            BulkTransfer.MemoryTarget target = new BulkTransfer.MemoryTarget();
+            BulkTransfer.Link link = client.transferLink(BULK_CONTROL, BULK_DATA);
+            BulkTransfer transfer;
+            if (direction == BulkTransfer.Direction.UPLOAD) {
+                transfer = BulkTransfer.upload(peripheral.address, ByteBuffer.wrap(image), link, sink, new ExecutorTimer(engine), outcome);
+            } else {
+                firmware.setImage(image);
+                transfer = BulkTransfer.download(peripheral.address, target, link, sink, new ExecutorTimer(engine), outcome);
+            }
+            transfer.configure(blockSize, window);
+            transfer.setProgressInterval(progressIntervalMs);
+            long drops = peripheral.drops();
+            long lost = peripheral.packetsLost();
+            long startedAt = System.nanoTime();
+            client.startTransfer(transfer, BULK_CONTROL, BULK_DATA);
+            boolean settled = outcome.done.await(timeoutSeconds, TimeUnit.SECONDS);
+            double seconds = (System.nanoTime() - startedAt) / 1e9;
+            client.transferFinished();
+            if (!settled) {
+                transfer.cancel();
+            }
+
+            MapEventSink.Map result = outcome.value instanceof MapEventSink.Map ? (MapEventSink.Map) outcome.value : null;
+            long progressEvents = events.count(BulkTransfer.PROGRESS_EVENT);
+            System.out.printf(Locale.ROOT, "%s: %d KiB in %.1f s (%.0f KiB/s), mtu %d%n", name, imageSize / 1024, seconds,
+                    imageSize / 1024.0 / seconds, client.mtu());
+            System.out.printf(Locale.ROOT, "  link: %d drops, %d packets lost; transfer: %s resumes, %s retransmitted blocks, %d progress events%n",
+                    peripheral.drops() - drops, peripheral.packetsLost() - lost,
+                    result != null ? format(result.get("resumes")) : "-", result != null ? format(result.get("retransmits")) : "-",
+                    progressEvents);
+
+            Check check = new Check(name, failures);
+            check.that(settled, "did not finish within " + timeoutSeconds + " s");
+            check.that(outcome.code == null, "rejected: " + outcome.code + " " + outcome.message);
+            if (direction == BulkTransfer.Direction.UPLOAD) {
+                check.that(firmware.uploadStatus() == BulkProtocol.STATUS_OK, "device status " + firmware.uploadStatus());
+                check.that(Arrays.equals(firmware.uploaded(), image), "device image differs from the source");
+            } else {
+                // -1: the END write went down with the link, the phone had already verified the image
+                int status = firmware.downloadStatus();
+                check.that(status == BulkProtocol.STATUS_OK || (status == -1 && peripheral.drops() > drops), "phone reported status " + status);
+                check.that(Arrays.equals(target.toByteArray(), image), "downloaded image differs from the device's");
+            }
+            // Throttled: one per interval plus the forced ones at pauses, resumes and the end
+            long allowed = (long) (seconds * 1000 / Math.max(1, progressIntervalMs)) + 4 * (peripheral.drops() - drops) + 4;
+            check.that(progressEvents > 0 && progressEvents <= allowed, progressEvents + " progress events, expected 1.." + allowed);
+        }
+
+        void stop() {
+            client.disconnect();
+            sleep(100);
+            radio.shutdownNow();
+            main.shutdownNow();
+            engine.shutdownNow();
+            reconnects.shutdownNow();
+            pacer.shutdownNow();
+        }
+    }
+
+    // Helpers
+
+    /** Remembers how a one-off callback settled. */
+    private static final class Outcome implements Callback {
+        final CountDownLatch done = new CountDownLatch(1);
+        volatile Object value;
+        volatile String code;
+        volatile String message;
+
+        @Override
+        public void resolve(Object value) {
+            this.value = value;
+            done.countDown();
+        }
+
+        @Override
+        public void reject(String code, String message) {
+            this.code = code;
+            this.message = message;
+            done.countDown();
+        }
+    }
+
+    private static String format(Object number) {
+        return number instanceof Number ? String.format(Locale.ROOT, "%.0f", ((Number) number).doubleValue()) : String.valueOf(number);
+    }
+
+    /** Counts callback outcomes, by rejection code. */
+    private static final class Tally implements Callback {
+        final AtomicLong issued = new AtomicLong();
+        final AtomicLong resolved = new AtomicLong();
+        final AtomicLong rejected = new AtomicLong();
+        final Map<String, AtomicLong> codes = new ConcurrentHashMap<>();
+        volatile boolean settledInTime = true;
+        volatile Runnable onSettled;
+
+        /** Also frees a window slot when it settles. */
+        final class Release implements Callback {
+            private final Semaphore window;
+
+            Release(Semaphore window) {
+                this.window = window;
+            }
+
+            @Override
+            public void resolve(Object value) {
+                Tally.this.resolve(value);
+                window.release();
+            }
+
+            @Override
+            public void reject(String code, String message) {
+                Tally.this.reject(code, message);
+                window.release();
+            }
+        }
+
+        Release release(Semaphore window) {
+            issued.incrementAndGet();
+            return new Release(window);
+        }
+
+        Tally counting() {
+            issued.incrementAndGet();
+            return this;
+        }
+
+        long pending() {
+            return issued.get() - resolved.get() - rejected.get();
+        }
+
+        @Override
+        public void resolve(Object value) {
+            resolved.incrementAndGet();
+            settled();
+        }
+
+        @Override
+        public void reject(String code, String message) {
+            rejected.incrementAndGet();
+            codes.computeIfAbsent(code, key -> new AtomicLong()).incrementAndGet();
+            settled();
+        }
+
+        private void settled() {
+            Runnable callback = onSettled;
+            if (callback != null) {
+                callback.run();
+            }
+        }
+    }
+
+    /** Counts events by name; batch events count once per batch. */
+    private static final class EventCounter implements MapEventSink.Consumer {
+        private final Map<String, AtomicLong> counts = new ConcurrentHashMap<>();
+
+        @Override
+        public void onEvent(String eventName, HashMap<String, Object> payload) {
+            counts.computeIfAbsent(eventName, key -> new AtomicLong()).incrementAndGet();
+        }
+
+        long count(String eventName) {
+            AtomicLong count = counts.get(eventName);
+            return count != null ? count.get() : 0;
+        }
+    }
+
+    private static final class Check {
+        private final String scenario;
+        private final List<String> failures;
+
+        Check(String scenario, List<String> failures) {
+            this.scenario = scenario;
+            this.failures = failures;
+        }
+
+        void that(boolean ok, String failure) {
+            if (!ok) {
+                failures.add(scenario + ": " + failure);
+            }
+        }
+    }
+
+    /** --key=value and --flag arguments. */
+    private static final class Options {
+        private final Map<String, String> values = new HashMap<>();
+
+        Options(String[] args) {
+            for (String arg : args) {
+                if (!arg.startsWith("--")) continue;
+                int eq = arg.indexOf('=');
+                if (eq < 0) {
+                    values.put(arg.substring(2), "true");
+                } else {
+                    values.put(arg.substring(2, eq), arg.substring(eq + 1));
+                }
+            }
+        }
+
+        String string(String key, String fallback) {
+            return values.getOrDefault(key, fallback);
+        }
+
+        long number(String key, long fallback) {
+            return values.containsKey(key) ? Long.parseLong(values.get(key)) : fallback;
+        }
+
+        double decimal(String key, double fallback) {
+            return values.containsKey(key) ? Double.parseDouble(values.get(key)) : fallback;
+        }
+
+        boolean flag(String key) {
+            return Boolean.parseBoolean(values.get(key));
+        }
+
+        /** "min..max" or a single value. */
+        long[] range(String key, long min, long max) {
+            String value = values.get(key);
+            if (value == null) return new long[] {min, max};
+            int dots = value.indexOf("..");
+            if (dots < 0) {
+                long single = Long.parseLong(value);
+                return new long[] {single, single};
+            }
+            return new long[] {Long.parseLong(value.substring(0, dots)), Long.parseLong(value.substring(dots + 2))};
+        }
+    }
+
+    private static SimulatedRfcommPeripheral.Framing framing(String name) {
+        switch (name) {
+            case "length":
+                return SimulatedRfcommPeripheral.Framing.LENGTH;
+            case "lengthCrc":
+                return SimulatedRfcommPeripheral.Framing.LENGTH_CRC;
+            case "cobs":
+                return SimulatedRfcommPeripheral.Framing.COBS;
+            default:
+                return SimulatedRfcommPeripheral.Framing.DELIMITER;
+        }
+    }
+
+    private static void printMetrics() {
+        MapEventSink.Map snapshot = (MapEventSink.Map) Metrics.shared().snapshot(new MapEventSink((eventName, payload) -> { }));
+        for (String name : new String[] {"connect", "writeRoundTrip", "notificationInterArrival"}) {
+            System.out.println("  " + name + ": " + histogram(snapshot.get(name)));
+        }
+        System.out.println();
+    }
+
+    private static String histogram(Object value) {
+        Map<?, ?> histogram = (Map<?, ?>) value;
+        return String.format(Locale.ROOT, "n=%.0f p50 %.2f ms, p99 %.2f ms, max %.2f ms",
+                (Double) histogram.get("count"), (Double) histogram.get("p50Ms"),
+                (Double) histogram.get("p99Ms"), (Double) histogram.get("maxMs"));
+    }
+
+    private static java.util.concurrent.ThreadFactory daemon(String name) {
+        return runnable -> {
+            Thread thread = new Thread(runnable, name);
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    private static void sleep(long ms) {
+        try {
+            Thread.sleep(ms);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package com.jbluepack;
+
+import java.util.Arrays;
+
+/**
+ * Payload used by the simulated peripherals and load scenarios: a 10 digit sequence
+ * number, a comma and filler letters. It's plain ASCII without 0x00 or '\n', so it
+ * travels unchanged as a BLE notification, a text event and in every framing mode.
+ */
+final class SequencePayload {
+
+    static final int DIGITS = 10;
+    static final int MIN_SIZE = DIGITS + 1;
+
+    private SequencePayload() {
+    }
+
+    /** size is clamped to at least MIN_SIZE. */
+    static byte[] create(long sequence, int size) {
+        byte[] payload = new byte[Math.max(MIN_SIZE, size)];
+        long value = sequence;
+        for (int i = DIGITS - 1; i >= 0; i--) {
+            payload[i] = (byte) ('0' + value % 10);
+            value /= 10;
+        }
+        payload[DIGITS] = ',';
+        for (int i = MIN_SIZE; i < payload.length; i++) {
+            payload[i] = (byte) ('A' + i % 26);
+        }
+        return payload;
+    }
+
+    /** Cuts a payload down to what fits in one packet, keeping the sequence number intact. */
+    static byte[] clip(byte[] payload, int maxLength) {
+        return payload.length <= maxLength ? payload : Arrays.copyOf(payload, Math.max(MIN_SIZE, maxLength));
+    }
+
+    /** Returns the sequence number, or -1 if the bytes don't start with one. */
+    static long sequenceOf(byte[] buffer, int offset, int length) {
+        if (length < MIN_SIZE || buffer[offset + DIGITS] != ',') return -1;
+        long value = 0;
+        for (int i = offset; i < offset + DIGITS; i++) {
+            int digit = buffer[i] - '0';
+            if (digit < 0 || digit > 9) return -1;
+            value = value * 10 + digit;
+        }
+        return value;
+    }
+}
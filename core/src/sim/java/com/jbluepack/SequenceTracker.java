@@ -0,0 +1,76 @@
+package com.jbluepack;
+
+/**
+ * Checks the sequence numbers arriving over one link. Within a connection every number
+ * must follow the previous one; what goes missing while the link is down is counted
+ * separately, since the peripheral keeps counting during an outage.
+ */
+final class SequenceTracker {
+
+    private long last = -1;
+    private boolean linkRestarted;
+
+    private long received;
+    private long gaps;         // numbers skipped while connected, should stay 0 on a clean link
+    private long outageLoss;   // numbers sent while the link was down
+    private long duplicates;   // repeated or going backwards
+    private long malformed;
+
+    synchronized void onPayload(byte[] buffer, int offset, int length) {
+        long sequence = SequencePayload.sequenceOf(buffer, offset, length);
+        if (sequence < 0) {
+            malformed++;
+            return;
+        }
+        received++;
+        if (last >= 0) {
+            if (sequence <= last) {
+                duplicates++;
+                return;
+            }
+            long missing = sequence - last - 1;
+            if (linkRestarted) {
+                outageLoss += missing;
+            } else {
+                gaps += missing;
+            }
+        }
+        linkRestarted = false;
+        last = sequence;
+    }
+
+    /** The link dropped, the next jump in the sequence is outage loss rather than a gap. */
+    synchronized void onLinkRestarted() {
+        linkRestarted = true;
+    }
+
+    synchronized long received() {
+        return received;
+    }
+
+    synchronized long gaps() {
+        return gaps;
+    }
+
+    synchronized long outageLoss() {
+        return outageLoss;
+    }
+
+    synchronized long duplicates() {
+        return duplicates;
+    }
+
+    synchronized long malformed() {
+        return malformed;
+    }
+
+    synchronized EventSink.EventMap stats(EventSink sink) {
+        EventSink.EventMap stats = sink.createMap();
+        stats.putDouble("received", received);
+        stats.putDouble("gaps", gaps);
+        stats.putDouble("outageLoss", outageLoss);
+        stats.putDouble("duplicates", duplicates);
+        stats.putDouble("malformed", malformed);
+        return stats;
+    }
+}
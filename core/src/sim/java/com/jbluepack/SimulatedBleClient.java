@@ -0,0 +1,365 @@
+package com.jbluepack;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+
+/**
+ * BLEModule's per-connection wiring (command queue, reconnect supervisor, notification
+ * path, metrics) running against a SimulatedGattPeripheral instead of BluetoothGatt.
+ * The callbacks follow gattCallback: on connect the MTU is requested, services are
+ * discovered and the subscription is restored; on a drop everything queued is failed
+ * and the supervisor decides whether this was a lost link or a failed attempt. A bulk
+ * transfer is paused on a lost link and picked up again once discovery has finished.
+ */
+class SimulatedBleClient implements SimulatedGattPeripheral.Client {
+
+    enum Kind { WRITE, READ, WRITE_DESCRIPTOR, REQUEST_MTU, DISCOVER_SERVICES }
+
+    enum State { DISCONNECTED, CONNECTING, CONNECTED, DISCONNECTING }
+
+    static final int PREFERRED_MTU = AttLimits.MAX_MTU;  // what BLEModule requests
+
+    final SimulatedGattPeripheral peripheral;
+    final ReconnectSupervisor supervisor;
+    final NotificationBatcher batcher;
+    final SequenceTracker sequences = new SequenceTracker();
+    final AtomicLong queueWarnings = new AtomicLong();
+    final AtomicLong timeouts = new AtomicLong();
+
+    private final CommandQueue<SimulatedGattPeripheral, Kind> queue;
+    private final EventSink sink;
+    private final int preferredMtu;
+
+    private volatile State state = State.DISCONNECTED;
+    private volatile int mtu = AttLimits.DEFAULT_MTU;
+    private final Set<String> subscribed = ConcurrentHashMap.newKeySet();
+    private volatile BulkTransfer transfer;
+    private volatile String transferControl;
+    private volatile String transferData;
+    private volatile Callback connectCallback;
+    private volatile long connectStartedNanos;
+
+    SimulatedBleClient(SimulatedGattPeripheral peripheral, EventSink sink, Timer timer, ScheduledExecutorService scheduler, int preferredMtu) {
+        this.peripheral = peripheral;
+        this.sink = sink;
+        this.preferredMtu = preferredMtu > 0 ? preferredMtu : PREFERRED_MTU;
+        this.batcher = new NotificationBatcher(sink, timer);
+        this.supervisor = new ReconnectSupervisor(this::reconnect, this::onLinkStateChanged, scheduler);
+        this.queue = new CommandQueue<SimulatedGattPeripheral, Kind>(timer, "BLE") {
+            @Override
+            void onComplete(Kind kind, Object value) {
+                if (kind == Kind.REQUEST_MTU && value instanceof Integer) {
+                    mtu = (Integer) value;
+                }
+            }
+
+            @Override
+            void onStepCompleted(Kind kind, long elapsedNanos) {
+                if (kind == Kind.WRITE) {
+                    Metrics.shared().writeRoundTrip.recordNanos(elapsedNanos);
+                }
+            }
+
+            @Override
+            String busyCode() {
+                return "GATT Busy";
+            }
+
+            @Override
+            void onWarning(String message) {
+                queueWarnings.incrementAndGet();
+                if (message.contains("timed out")) {
+                    timeouts.incrementAndGet();
+                }
+            }
+        };
+    }
+
+    /** Resolves once the link is up, like connectToBLEDevice. */
+    void connect(Callback callback) {
+        connectCallback = callback;
+        state = State.CONNECTING;
+        connectStartedNanos = System.nanoTime();
+        if (!peripheral.connect(this)) {
+            connectCallback = null;
+            state = State.DISCONNECTED;
+            callback.reject("Connection Failed", "Peripheral refused the connection.");
+        }
+    }
+
+    void disconnect() {
+        state = State.DISCONNECTING;
+        supervisor.stop();
+        peripheral.disconnect();
+    }
+
+    void configureQueue(int maxDepth, int timeoutMs) {
+        queue.configure(maxDepth, timeoutMs);
+    }
+
+    State state() {
+        return state;
+    }
+
+    int mtu() {
+        return mtu;
+    }
+
+    int depth() {
+        return queue.depth();
+    }
+
+    boolean subscribe(String characteristic, Callback callback) {
+        subscribed.add(characteristic);
+        return queue.enqueue(descriptor(characteristic, true, callback));
+    }
+
+    /** Same wiring as BLEModule.startTransfer: notifications on both characteristics, then START. */
+    void startTransfer(BulkTransfer bulk, String control, String data) {
+        subscribe(control, null);
+        subscribe(data, null);
+        transferControl = control;
+        transferData = data;
+        transfer = bulk;
+        bulk.start();
+    }
+
+    void transferFinished() {
+        transfer = null;
+    }
+
+    /** BleTransferLink's counterpart: control with response, data without. */
+    BulkTransfer.Link transferLink(String control, String data) {
+        return new BulkTransfer.Link() {
+            @Override
+            public void sendControl(byte[] message, Callback callback) {
+                write(control, message, true, callback);
+            }
+
+            @Override
+            public void sendData(byte[] packet, Callback callback) {
+                write(data, packet, false, callback);
+            }
+
+            @Override
+            public int maxPacketSize() {
+                return AttLimits.maxValueLength(mtu);
+            }
+        };
+    }
+
+    boolean write(String characteristic, byte[] value, boolean withResponse, Callback callback) {
+        boolean accepted = queue.enqueue(operation(Kind.WRITE, callback,
+                p -> p.writeCharacteristic(characteristic, value, withResponse)));
+        if (accepted) {
+            Metrics.shared().device(peripheral.address).sent(value.length);
+        }
+        return accepted;
+    }
+
+    /** Same shape as GattOperationQueue.writeChunked: one queue entry, min(MTU - 3, 512) byte chunks. */
+    boolean stream(String characteristic, byte[] data, boolean withResponse, Callback callback) {
+        boolean accepted = queue.enqueue(new CommandQueue.Operation<SimulatedGattPeripheral, Kind>(Kind.WRITE, callback) {
+            private int offset;
+            private int sentLength;
+
+            @Override
+            boolean execute(SimulatedGattPeripheral transport) {
+                int chunkSize = Math.max(1, AttLimits.maxValueLength(mtu));
+                sentLength = Math.min(chunkSize, data.length - offset);
+                byte[] chunk = new byte[sentLength];
+                System.arraycopy(data, offset, chunk, 0, sentLength);
+                return transport.writeCharacteristic(characteristic, chunk, withResponse);
+            }
+
+            @Override
+            boolean advance() {
+                offset += sentLength;
+                return offset < data.length;
+            }
+
+            @Override
+            Object result(Object value) {
+                return data.length;
+            }
+        });
+        if (accepted) {
+            Metrics.shared().device(peripheral.address).sent(data.length);
+        }
+        return accepted;
+    }
+
+    boolean read(String characteristic, Callback callback) {
+        return queue.enqueue(operation(Kind.READ, callback, p -> p.readCharacteristic(characteristic)));
+    }
+
+    // SimulatedGattPeripheral.Client, called on the radio thread
+
+    @Override
+    public void onConnectionStateChange(boolean connected) {
+        if (connected) {
+            state = State.CONNECTED;
+            mtu = AttLimits.DEFAULT_MTU;
+            queue.attach(peripheral);
+            Metrics.shared().connect.recordNanos(System.nanoTime() - connectStartedNanos);
+            supervisor.onConnected();
+            sequences.onLinkRestarted();
+            Callback callback = connectCallback;
+            connectCallback = null;
+            if (callback != null) {
+                callback.resolve(peripheral.address);
+            }
+            queue.enqueue(operation(Kind.REQUEST_MTU, null, p -> p.requestMtu(preferredMtu)));
+            queue.enqueue(operation(Kind.DISCOVER_SERVICES, null, SimulatedGattPeripheral::discoverServices));
+            for (String characteristic : subscribed) {
+                queue.enqueue(descriptor(characteristic, true, null));
+            }
+            return;
+        }
+
+        boolean userInitiated = state == State.DISCONNECTING;
+        boolean wasConnected = state == State.CONNECTED;
+        queue.clear("BLE Disconnected", "BLE connection closed before the operation completed.");
+        Callback callback = connectCallback;
+        if (callback != null) {
+            connectCallback = null;
+            callback.reject("Connection Failed", "Simulated connect failure.");
+            userInitiated = true;
+        }
+        BulkTransfer bulk = transfer;
+        if (userInitiated) {
+            state = State.DISCONNECTED;
+            supervisor.stop();
+            if (bulk != null) {
+                bulk.abort("BLE Disconnected", "Disconnected during the transfer.");
+            }
+        } else {
+            state = State.CONNECTING;
+            if (bulk != null) {
+                bulk.onLinkLost();
+            }
+            if (wasConnected) {
+                supervisor.onConnectionLost();
+            } else {
+                supervisor.onConnectFailed();
+            }
+        }
+    }
+
+    @Override
+    public void onServicesDiscovered(boolean success) {
+        if (success) {
+            queue.complete(Kind.DISCOVER_SERVICES, null);
+            BulkTransfer bulk = transfer;
+            if (bulk != null) {
+                bulk.onLinkRestored();
+            }
+        } else {
+            queue.fail(Kind.DISCOVER_SERVICES, "Discovery Failed", "Service discovery failed.");
+        }
+    }
+
+    @Override
+    public void onMtuChanged(int mtu, boolean success) {
+        if (success) {
+            queue.complete(Kind.REQUEST_MTU, mtu);
+        } else {
+            queue.fail(Kind.REQUEST_MTU, "MTU Failed", "MTU request failed.");
+        }
+    }
+
+    @Override
+    public void onCharacteristicRead(String characteristic, byte[] value, boolean success) {
+        if (success) {
+            Metrics.shared().device(peripheral.address).received(value.length);
+            queue.complete(Kind.READ, value);
+        } else {
+            queue.fail(Kind.READ, "Read Failed", "Characteristic read failed.");
+        }
+    }
+
+    @Override
+    public void onCharacteristicWrite(String characteristic, boolean success) {
+        if (success) {
+            queue.complete(Kind.WRITE, null);
+        } else {
+            queue.fail(Kind.WRITE, "Write Failed", "Characteristic write failed.");
+        }
+    }
+
+    @Override
+    public void onDescriptorWrite(String characteristic, boolean success) {
+        if (success) {
+            queue.complete(Kind.WRITE_DESCRIPTOR, null);
+        } else {
+            queue.fail(Kind.WRITE_DESCRIPTOR, "Descriptor Write Failed", "Subscription failed.");
+        }
+    }
+
+    @Override
+    public void onCharacteristicChanged(String characteristic, byte[] value) {
+        Metrics.shared().packetIn(peripheral.address, value.length, System.nanoTime());
+        BulkTransfer bulk = transfer;
+        if (bulk != null) {
+            if (characteristic.equals(transferControl)) {
+                bulk.onControl(value);
+                return;
+            }
+            if (characteristic.equals(transferData)) {
+                bulk.onData(value);
+                return;
+            }
+        }
+        sequences.onPayload(value, 0, value.length);
+        if (batcher.isEnabled()) {
+            batcher.add(peripheral.address, characteristic, value, true, System.currentTimeMillis());
+        } else {
+            sink.emit(NotificationEncoder.EVENT, NotificationEncoder.binaryEvent(sink, peripheral.address, characteristic, value));
+        }
+    }
+
+    private void reconnect() {
+        Metrics.shared().device(peripheral.address).reconnectAttempts.incrementAndGet();
+        connectStartedNanos = System.nanoTime();
+        if (!peripheral.connect(this)) {
+            throw new IllegalStateException("Peripheral refused the connection.");
+        }
+    }
+
+    private void onLinkStateChanged(ReconnectSupervisor.State linkState, int attempt, long outageMs, long nextAttemptMs) {
+        EventSink.EventMap params = sink.createMap();
+        params.putString("deviceId", peripheral.address);
+        params.putString("state", linkState.jsName);
+        params.putInt("attempt", attempt);
+        params.putDouble("outageMs", outageMs);
+        params.putDouble("nextAttemptMs", nextAttemptMs);
+        sink.emit("BLEConnectionState", params);
+        if (linkState == ReconnectSupervisor.State.CONNECTED && outageMs > 0) {
+            Metrics.shared().device(peripheral.address).reconnects.incrementAndGet();
+        }
+        if (linkState == ReconnectSupervisor.State.GIVEN_UP) {
+            state = State.DISCONNECTED;
+            BulkTransfer bulk = transfer;
+            if (bulk != null) {
+                bulk.abort("BLE Disconnected", "Gave up reconnecting during the transfer.");
+            }
+        }
+    }
+
+    private CommandQueue.Operation<SimulatedGattPeripheral, Kind> descriptor(String characteristic, boolean enable, Callback callback) {
+        return operation(Kind.WRITE_DESCRIPTOR, callback, p -> p.writeDescriptor(characteristic, enable));
+    }
+
+    private static CommandQueue.Operation<SimulatedGattPeripheral, Kind> operation(Kind kind, Callback callback,
+                                                                                   Predicate<SimulatedGattPeripheral> request) {
+        return new CommandQueue.Operation<SimulatedGattPeripheral, Kind>(kind, callback) {
+            @Override
+            boolean execute(SimulatedGattPeripheral transport) {
+                return request.test(transport);
+            }
+        };
+    }
+}
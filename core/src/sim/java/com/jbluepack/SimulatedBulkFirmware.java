@@ -0,0 +1,220 @@
+package com.jbluepack;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Device side of the BulkProtocol, as the ESP32 firmware runs it: uploads land in a
+ * buffer that survives a dropped link so a repeated START for the same image resumes,
+ * downloads stream an image as notifications paced by the link's packet interval.
+ * Block size and window are capped like a device with little RAM would.
+ */
+class SimulatedBulkFirmware implements SimulatedGattPeripheral.Firmware {
+
+    static final int MAX_BLOCK_SIZE = 4096;
+    static final int MAX_WINDOW = 8;
+    private static final long RESEND_AFTER_MS = 1000;
+
+    private final SimulatedGattPeripheral peripheral;
+    private final String control;
+    private final String data;
+    private final ScheduledExecutorService pacer;
+    private final long packetIntervalMicros;
+
+    // Phone to device
+    private byte[] uploaded;
+    private long uploadCrc;
+    private BulkReceiver receiver;
+    private int uploadStatus = -1;
+
+    // Device to phone
+    private byte[] image = new byte[0];
+    private long imageCrc;
+    private BulkSender sender;
+    private ScheduledFuture<?> sendTask;
+    private long lastAckNanos;
+    private int downloadStatus = -1;
+
+    private long resumes;
+    private long naksSent;
+    private long rewinds;
+
+    SimulatedBulkFirmware(SimulatedGattPeripheral peripheral, String control, String data,
+                          ScheduledExecutorService pacer, long packetIntervalMicros) {
+        this.peripheral = peripheral;
+        this.control = control;
+        this.data = data;
+        this.pacer = pacer;
+        this.packetIntervalMicros = packetIntervalMicros;
+    }
+
+    /** The image a download hands out. */
+    synchronized void setImage(byte[] image) {
+        this.image = image.clone();
+        this.imageCrc = BulkProtocol.crc32(image, 0, image.length);
+    }
+
+    @Override
+    public synchronized void onWrite(String characteristic, byte[] value) {
+        if (characteristic.equals(data)) {
+            onUploadPacket(value);
+            return;
+        }
+        if (!characteristic.equals(control) || value.length == 0) return;
+        switch (BulkProtocol.u8(value, 0)) {
+            case BulkProtocol.START:
+                if (value.length < 17) return;
+                if (BulkProtocol.u8(value, 1) == BulkProtocol.DIRECTION_UPLOAD) {
+                    startUpload(value);
+                } else {
+                    startDownload(value);
+                }
+                break;
+            case BulkProtocol.ACK:
+                if (sender != null && value.length >= 5) {
+                    sender.acknowledge(BulkProtocol.u32(value, 1));
+                    lastAckNanos = System.nanoTime();
+                }
+                break;
+            case BulkProtocol.NAK:
+                if (sender != null && value.length >= 5) {
+                    sender.rewind(BulkProtocol.u32(value, 1));
+                    rewinds++;
+                    lastAckNanos = System.nanoTime();
+                }
+                break;
+            case BulkProtocol.END:
+                if (value.length < 2) return;
+                if (sender != null) {
+                    downloadStatus = BulkProtocol.u8(value, 1);
+                    stopSending();
+                    sender = null;
+                } else if (receiver != null) {
+                    boolean ok = receiver.complete() && BulkProtocol.crc32(uploaded, 0, uploaded.length) == uploadCrc;
+                    uploadStatus = ok ? BulkProtocol.STATUS_OK : BulkProtocol.STATUS_CRC_MISMATCH;
+                    peripheral.notify(control, BulkProtocol.status(BulkProtocol.DONE, uploadStatus));
+                }
+                break;
+            case BulkProtocol.ABORT:
+                stopSending();
+                sender = null;
+                receiver = null;
+                break;
+            default:
+                break;
+        }
+    }
+
+    @Override
+    public synchronized void onLinkDown() {
+        stopSending();  // the phone restarts a download with START, an upload's receiver is kept for resume
+    }
+
+    synchronized byte[] uploaded() {
+        return uploaded != null ? uploaded.clone() : null;
+    }
+
+    synchronized int uploadStatus() {
+        return uploadStatus;
+    }
+
+    synchronized int downloadStatus() {
+        return downloadStatus;
+    }
+
+    synchronized long resumes() {
+        return resumes;
+    }
+
+    synchronized long naksSent() {
+        return naksSent;
+    }
+
+    synchronized long rewinds() {
+        return rewinds;
+    }
+
+    private void startUpload(byte[] start) {
+        long size = BulkProtocol.u32(start, 2);
+        long crc = BulkProtocol.u32(start, 6);
+        int blockSize = Math.min(MAX_BLOCK_SIZE, BulkProtocol.u16(start, 10));
+        int window = Math.min(MAX_WINDOW, BulkProtocol.u8(start, 12));
+        if (blockSize == 0 || window == 0) {
+            peripheral.notify(control, BulkProtocol.status(BulkProtocol.ERROR, BulkProtocol.STATUS_REJECTED));
+            return;
+        }
+        stopSending();
+        sender = null;
+        if (receiver != null && uploaded != null && uploaded.length == size && uploadCrc == crc && receiver.blockSize == blockSize) {
+            receiver.resumeAt(receiver.nextBlock());
+            if (receiver.nextBlock() > 0) resumes++;
+        } else {
+            uploaded = new byte[(int) size];
+            uploadCrc = crc;
+            receiver = new BulkReceiver(size, blockSize, 0);
+        }
+        uploadStatus = -1;
+        peripheral.notify(control, BulkProtocol.ready(receiver.receivedBytes(), blockSize, window, size, crc));
+    }
+
+    private void onUploadPacket(byte[] packet) {
+        if (receiver == null) return;
+        switch (receiver.onPacket(packet)) {
+            case BLOCK:
+                System.arraycopy(receiver.block(), 0, uploaded, (int) (receiver.completedBlock() * receiver.blockSize),
+                        receiver.completedLength());
+                peripheral.notify(control, BulkProtocol.block(BulkProtocol.DEVICE_ACK, receiver.nextBlock()));
+                break;
+            case NAK:
+                naksSent++;
+                peripheral.notify(control, BulkProtocol.block(BulkProtocol.DEVICE_NAK, receiver.nextBlock()));
+                break;
+            default:
+                break;
+        }
+    }
+
+    private void startDownload(byte[] start) {
+        int blockSize = Math.min(MAX_BLOCK_SIZE, BulkProtocol.u16(start, 10));
+        int window = Math.min(MAX_WINDOW, BulkProtocol.u8(start, 12));
+        if (blockSize == 0 || window == 0) {
+            peripheral.notify(control, BulkProtocol.status(BulkProtocol.ERROR, BulkProtocol.STATUS_REJECTED));
+            return;
+        }
+        receiver = null;
+        long offset = Math.min(BulkProtocol.u32(start, 13), image.length) / blockSize * blockSize;
+        if (offset > 0) resumes++;
+        sender = new BulkSender(ByteBuffer.wrap(image), blockSize, window);
+        sender.resumeAt(offset / blockSize);
+        downloadStatus = -1;
+        lastAckNanos = System.nanoTime();
+        peripheral.notify(control, BulkProtocol.ready(offset, blockSize, window, image.length, imageCrc));
+        stopSending();
+        sendTask = pacer.scheduleAtFixedRate(this::sendNext, packetIntervalMicros, packetIntervalMicros, TimeUnit.MICROSECONDS);
+    }
+
+    private synchronized void sendNext() {
+        if (sender == null || sender.complete()) return;
+        if (sender.windowFull()) {
+            if ((System.nanoTime() - lastAckNanos) / 1_000_000 > RESEND_AFTER_MS) {
+                sender.rewind(sender.base());  // the phone went quiet, go back to what it last acknowledged
+                rewinds++;
+                lastAckNanos = System.nanoTime();
+            }
+            return;
+        }
+        byte[] packet = sender.next(AttLimits.maxValueLength(peripheral.mtu()));
+        if (packet != null && !peripheral.notify(data, packet)) {
+            sender.rewind(sender.base());
+        }
+    }
+
+    private void stopSending() {
+        if (sendTask != null) {
+            sendTask.cancel(false);
+            sendTask = null;
+        }
+    }
+}
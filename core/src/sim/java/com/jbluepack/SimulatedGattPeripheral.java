@@ -0,0 +1,455 @@
+package com.jbluepack;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Software stand-in for the ESP32 GATT server, driven the way BluetoothGatt is: requests
+ * return false when they can't be started (not connected, or another request still
+ * outstanding) and complete later through the Client callbacks, all delivered on one
+ * "radio" thread like the binder thread on a phone.
+ *
+ * Faults come from a seeded Random so a scenario replays the same way: request latency,
+ * connect failures (the status 133 case), link loss with an exponential time between
+ * drops and an MTU ceiling. Notifications stream at a configured rate and size, each
+ * carrying a SequencePayload so the client can count what went missing.
+ *
+ * Characteristics added with addFirmwareCharacteristic don't stream; their writes go to
+ * a Firmware, which answers through notify(). Loss applies to those writes without
+ * response and to firmware notifications, the way a device drops packets when its
+ * buffers are full.
+ */
+class SimulatedGattPeripheral {
+
+    /** Mirrors the BluetoothGattCallback methods BLEModule uses. */
+    interface Client {
+        void onConnectionStateChange(boolean connected);
+
+        void onServicesDiscovered(boolean success);
+
+        void onMtuChanged(int mtu, boolean success);
+
+        void onCharacteristicRead(String characteristic, byte[] value, boolean success);
+
+        void onCharacteristicWrite(String characteristic, boolean success);
+
+        void onDescriptorWrite(String characteristic, boolean success);
+
+        void onCharacteristicChanged(String characteristic, byte[] value);
+    }
+
+    /** Device-side protocol logic, called on the radio thread. */
+    interface Firmware {
+        void onWrite(String characteristic, byte[] value);
+
+        void onLinkDown();
+    }
+
+    static final class Characteristic {
+        final String service;
+        final String uuid;
+        final boolean notify;
+        final boolean firmware;
+        byte[] value = new byte[0];
+        boolean subscribed;
+
+        Characteristic(String service, String uuid, boolean notify, boolean firmware) {
+            this.service = service;
+            this.uuid = uuid;
+            this.notify = notify;
+            this.firmware = firmware;
+        }
+    }
+
+    // Most notifications one tick may catch up with after a scheduler stall
+    private static final int MAX_BURST = 256;
+
+    final String address;
+    private final ScheduledExecutorService radio;
+    private final Random random;
+    private final Map<String, Characteristic> characteristics = new LinkedHashMap<>();
+
+    private long minLatencyMicros = 5000;
+    private long maxLatencyMicros = 15000;
+    private long packetIntervalMicros = 1250;  // how fast write-without-response drains
+    private double connectFailureRate;
+    private long meanTimeToDropMs;             // 0 = the link never drops on its own
+    private int maxMtu = AttLimits.MAX_MTU;
+    private double lossRate;
+    private Firmware firmware;
+
+    private int notifyRate = 100;
+    private int notifySize = 20;
+    private long sequence;
+
+    private Client client;
+    private boolean connecting;
+    private boolean connected;
+    private boolean busy;
+    private int generation;  // bumped on every link change, callbacks scheduled for an older link are dropped
+    private int mtu = AttLimits.DEFAULT_MTU;
+    private Characteristic streaming;
+    private ScheduledFuture<?> streamTask;
+    private long streamStartedNanos;
+    private long streamSent;
+    private ScheduledFuture<?> dropTask;
+
+    private long connects;
+    private long connectFailures;
+    private long drops;
+    private long writes;
+    private long bytesWritten;
+    private long truncatedWrites;
+    private long notificationsSent;
+    private long busyRejections;
+    private long packetsLost;
+
+    SimulatedGattPeripheral(String address, ScheduledExecutorService radio, long seed) {
+        this.address = address;
+        this.radio = radio;
+        this.random = new Random(seed);
+    }
+
+    synchronized void addCharacteristic(String service, String uuid, boolean notify) {
+        characteristics.put(uuid, new Characteristic(service, uuid, notify, false));
+    }
+
+    synchronized void addFirmwareCharacteristic(String service, String uuid) {
+        characteristics.put(uuid, new Characteristic(service, uuid, true, true));
+    }
+
+    synchronized void setFirmware(Firmware firmware) {
+        this.firmware = firmware;
+    }
+
+    /** Share of firmware writes without response and firmware notifications that silently vanish. */
+    synchronized void configureLoss(double lossRate) {
+        this.lossRate = Math.max(0, lossRate);
+    }
+
+    /** Values < 0 keep the current setting. */
+    synchronized void configureFaults(long minLatencyMs, long maxLatencyMs, double connectFailureRate, long meanTimeToDropMs) {
+        if (minLatencyMs >= 0) this.minLatencyMicros = minLatencyMs * 1000;
+        if (maxLatencyMs >= 0) this.maxLatencyMicros = Math.max(this.minLatencyMicros, maxLatencyMs * 1000);
+        if (connectFailureRate >= 0) this.connectFailureRate = connectFailureRate;
+        if (meanTimeToDropMs >= 0) this.meanTimeToDropMs = meanTimeToDropMs;
+    }
+
+    /** Values <= 0 keep the current setting. */
+    synchronized void configureLink(int maxMtu, long packetIntervalMicros) {
+        if (maxMtu > 0) this.maxMtu = Math.max(AttLimits.DEFAULT_MTU, Math.min(AttLimits.MAX_MTU, maxMtu));
+        if (packetIntervalMicros > 0) this.packetIntervalMicros = packetIntervalMicros;
+    }
+
+    /** Notification rate per second and payload size. Payloads are clipped to MTU - 3 when sent. */
+    synchronized void configureStream(int ratePerSecond, int size) {
+        if (ratePerSecond > 0) this.notifyRate = ratePerSecond;
+        if (size > 0) this.notifySize = size;
+        if (streaming != null) {
+            startStream(streaming);
+        }
+    }
+
+    // Requests, same contract as BluetoothGatt
+
+    synchronized boolean connect(Client client) {
+        if (connecting || connected) return false;
+        this.client = client;
+        connecting = true;
+        int gen = ++generation;
+        radio.schedule(() -> finishConnect(gen), latencyMicros(), TimeUnit.MICROSECONDS);
+        return true;
+    }
+
+    /** User-initiated, onConnectionStateChange(false) follows. */
+    synchronized void disconnect() {
+        if (!connecting && !connected) return;
+        dropLink();
+        Client current = client;
+        Firmware device = firmware;
+        radio.execute(() -> {
+            if (device != null) device.onLinkDown();
+            current.onConnectionStateChange(false);
+        });
+    }
+
+    /** Firmware side: sends a notification if the client has it enabled. Returns false when it can't be sent. */
+    synchronized boolean notify(String uuid, byte[] value) {
+        Characteristic characteristic = characteristics.get(uuid);
+        if (!connected || characteristic == null || !characteristic.subscribed || value.length > AttLimits.maxValueLength(mtu)) return false;
+        notificationsSent++;
+        if (lossRate > 0 && random.nextDouble() < lossRate) {
+            packetsLost++;
+            return true;
+        }
+        int gen = generation;
+        Client current = client;
+        radio.execute(() -> {
+            synchronized (this) {
+                if (gen != generation) return;
+            }
+            current.onCharacteristicChanged(uuid, value);
+        });
+        return true;
+    }
+
+    synchronized int mtu() {
+        return mtu;
+    }
+
+    synchronized boolean discoverServices() {
+        if (!startRequest()) return false;
+        respond(latencyMicros(), () -> client.onServicesDiscovered(true));
+        return true;
+    }
+
+    synchronized boolean requestMtu(int requested) {
+        if (!startRequest()) return false;
+        int negotiated = Math.max(AttLimits.DEFAULT_MTU, Math.min(requested, maxMtu));
+        respond(latencyMicros(), () -> {
+            setMtu(negotiated);
+            client.onMtuChanged(negotiated, true);
+        });
+        return true;
+    }
+
+    synchronized boolean writeCharacteristic(String uuid, byte[] value, boolean withResponse) {
+        Characteristic characteristic = characteristics.get(uuid);
+        if (characteristic == null || !startRequest()) return false;
+
+        long delayMicros;
+        // Whatever the write type, the attribute can't hold more than 512 bytes
+        boolean accepted = value.length <= AttLimits.MAX_ATTRIBUTE_LENGTH;
+        byte[] stored = value;
+        if (withResponse) {
+            // Longer values go out as a prepared write, one round trip per (MTU - 5) byte segment plus the execute
+            int payload = mtu - AttLimits.HEADER_SIZE;
+            int roundTrips = value.length <= payload ? 1 : (value.length + mtu - 6) / (mtu - 5) + 1;
+            delayMicros = latencyMicros() * roundTrips;
+        } else {
+            if (accepted && value.length > mtu - AttLimits.HEADER_SIZE) {
+                truncatedWrites++;  // what the stack does to an oversized write without response
+                stored = Arrays.copyOf(value, mtu - AttLimits.HEADER_SIZE);
+            }
+            delayMicros = packetIntervalMicros;
+        }
+        if (accepted) {
+            characteristic.value = stored;
+            writes++;
+            bytesWritten += stored.length;
+        }
+        boolean success = accepted;
+        Firmware device = characteristic.firmware && accepted ? firmware : null;
+        if (device != null && !withResponse && lossRate > 0 && random.nextDouble() < lossRate) {
+            packetsLost++;
+            device = null;
+        }
+        Firmware target = device;
+        byte[] delivered = stored;
+        respond(delayMicros, () -> {
+            if (target != null) target.onWrite(uuid, delivered);
+            client.onCharacteristicWrite(uuid, success);
+        });
+        return true;
+    }
+
+    synchronized boolean readCharacteristic(String uuid) {
+        Characteristic characteristic = characteristics.get(uuid);
+        if (characteristic == null || !startRequest()) return false;
+        byte[] value = characteristic.value.clone();
+        respond(latencyMicros(), () -> client.onCharacteristicRead(uuid, value, true));
+        return true;
+    }
+
+    /** The CCCD write: turns the notification stream for this characteristic on or off. */
+    synchronized boolean writeDescriptor(String uuid, boolean enable) {
+        Characteristic characteristic = characteristics.get(uuid);
+        if (characteristic == null || !startRequest()) return false;
+        boolean success = characteristic.notify || !enable;
+        respond(latencyMicros(), () -> {
+            if (characteristic.firmware) {
+                setSubscribed(characteristic, enable && success);
+            } else {
+                setStreaming(characteristic, enable && success);
+            }
+            client.onDescriptorWrite(uuid, success);
+        });
+        return true;
+    }
+
+    synchronized EventSink.EventMap stats(EventSink sink) {
+        EventSink.EventMap stats = sink.createMap();
+        stats.putDouble("connects", connects);
+        stats.putDouble("connectFailures", connectFailures);
+        stats.putDouble("drops", drops);
+        stats.putDouble("writes", writes);
+        stats.putDouble("bytesWritten", bytesWritten);
+        stats.putDouble("truncatedWrites", truncatedWrites);
+        stats.putDouble("notificationsSent", notificationsSent);
+        stats.putDouble("busyRejections", busyRejections);
+        stats.putDouble("packetsLost", packetsLost);
+        return stats;
+    }
+
+    synchronized long notificationsSent() {
+        return notificationsSent;
+    }
+
+    synchronized long drops() {
+        return drops;
+    }
+
+    synchronized long busyRejections() {
+        return busyRejections;
+    }
+
+    synchronized long truncatedWrites() {
+        return truncatedWrites;
+    }
+
+    synchronized long packetsLost() {
+        return packetsLost;
+    }
+
+    private boolean startRequest() {
+        if (!connected) return false;
+        if (busy) {
+            busyRejections++;
+            return false;
+        }
+        busy = true;
+        return true;
+    }
+
+    /** Delivers a request's callback after the delay, unless the link changed in between. */
+    private void respond(long delayMicros, Runnable callback) {
+        int gen = generation;
+        radio.schedule(() -> {
+            synchronized (this) {
+                if (gen != generation) return;
+                busy = false;
+            }
+            callback.run();
+        }, delayMicros, TimeUnit.MICROSECONDS);
+    }
+
+    private void finishConnect(int gen) {
+        boolean success;
+        synchronized (this) {
+            if (gen != generation) return;
+            connecting = false;
+            success = random.nextDouble() >= connectFailureRate;
+            if (success) {
+                connected = true;
+                busy = false;
+                mtu = AttLimits.DEFAULT_MTU;
+                connects++;
+                scheduleDrop();
+            } else {
+                connectFailures++;
+            }
+        }
+        client.onConnectionStateChange(success);
+    }
+
+    private void scheduleDrop() {
+        if (meanTimeToDropMs <= 0) return;
+        long delayMs = (long) (-Math.log(1 - random.nextDouble()) * meanTimeToDropMs);
+        int gen = generation;
+        dropTask = radio.schedule(() -> {
+            Firmware device;
+            synchronized (this) {
+                if (gen != generation) return;
+                drops++;
+                dropLink();
+                device = firmware;
+            }
+            if (device != null) device.onLinkDown();
+            client.onConnectionStateChange(false);
+        }, delayMs, TimeUnit.MILLISECONDS);
+    }
+
+    private void dropLink() {
+        generation++;
+        connecting = false;
+        connected = false;
+        busy = false;
+        stopStream();
+        for (Characteristic characteristic : characteristics.values()) {
+            characteristic.subscribed = false;  // CCCDs of an unbonded client reset with the link
+        }
+        if (dropTask != null) {
+            dropTask.cancel(false);
+            dropTask = null;
+        }
+    }
+
+    private synchronized void setMtu(int negotiated) {
+        mtu = negotiated;
+    }
+
+    private synchronized void setStreaming(Characteristic characteristic, boolean enable) {
+        if (enable) {
+            startStream(characteristic);
+        } else if (streaming == characteristic) {
+            stopStream();
+        }
+    }
+
+    private synchronized void setSubscribed(Characteristic characteristic, boolean enable) {
+        characteristic.subscribed = enable;
+    }
+
+    private void startStream(Characteristic characteristic) {
+        stopStream();
+        streaming = characteristic;
+        streamStartedNanos = System.nanoTime();
+        streamSent = 0;
+        // Ticks no faster than 1 ms, higher rates send several notifications per tick
+        long periodMicros = Math.max(1000, 1_000_000L / notifyRate);
+        int gen = generation;
+        streamTask = radio.scheduleAtFixedRate(() -> tick(gen), periodMicros, periodMicros, TimeUnit.MICROSECONDS);
+    }
+
+    private void stopStream() {
+        streaming = null;
+        if (streamTask != null) {
+            streamTask.cancel(false);
+            streamTask = null;
+        }
+    }
+
+    private void tick(int gen) {
+        String uuid;
+        byte[][] due;
+        synchronized (this) {
+            if (gen != generation || streaming == null) return;
+            long target = (System.nanoTime() - streamStartedNanos) * notifyRate / 1_000_000_000L;
+            if (target - streamSent > MAX_BURST) {
+                streamSent = target - MAX_BURST;
+            }
+            int count = (int) (target - streamSent);
+            if (count <= 0) return;
+            streamSent = target;
+            uuid = streaming.uuid;
+            due = new byte[count][];
+            for (int i = 0; i < count; i++) {
+                due[i] = SequencePayload.clip(SequencePayload.create(sequence++, notifySize), AttLimits.maxValueLength(mtu));
+            }
+            notificationsSent += count;
+        }
+        for (byte[] value : due) {
+            client.onCharacteristicChanged(uuid, value);
+        }
+    }
+
+    private long latencyMicros() {
+        if (maxLatencyMicros <= minLatencyMicros) return minLatencyMicros;
+        return minLatencyMicros + (long) (random.nextDouble() * (maxLatencyMicros - minLatencyMicros));
+    }
+}
@@ -0,0 +1,197 @@
+package com.jbluepack;
+
+import java.io.IOException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * BluetoothModule's RFCOMM wiring (reader thread feeding a StreamFramer, RfcommWriter,
+ * reconnect supervisor with a blocking connect) running against a
+ * SimulatedRfcommPeripheral instead of a BluetoothSocket.
+ */
+class SimulatedRfcommClient {
+
+    static final String ADDRESS = "SIM:RFCOMM";
+
+    final SimulatedRfcommPeripheral peripheral;
+    final ReconnectSupervisor supervisor;
+    final SequenceTracker sequences = new SequenceTracker();
+    final AtomicLong backpressureOn = new AtomicLong();
+    final AtomicLong writeErrors = new AtomicLong();
+
+    private volatile StreamFramer framer;  // one per connection, a reader that's still winding down keeps its own
+    private long previousResyncs;
+    private long previousCrcErrors;
+    private volatile SimulatedRfcommPeripheral.Socket socket;
+    private volatile RfcommWriter writer;
+    private volatile boolean backpressure;
+    private volatile boolean closing;
+
+    private RfcommWriter.FlushPolicy flushPolicy = RfcommWriter.FlushPolicy.IMMEDIATE;
+    private int maxQueuedBytes = RfcommWriter.DEFAULT_MAX_QUEUED_BYTES;
+
+    SimulatedRfcommClient(SimulatedRfcommPeripheral peripheral, ScheduledExecutorService scheduler) {
+        this.peripheral = peripheral;
+        this.supervisor = new ReconnectSupervisor(this::reconnect, this::onLinkStateChanged, scheduler);
+    }
+
+    /** Takes effect on the next connection, as configureWriter does. */
+    void configureWriter(RfcommWriter.FlushPolicy policy, int maxQueuedBytes) {
+        if (policy != null) this.flushPolicy = policy;
+        if (maxQueuedBytes > 0) this.maxQueuedBytes = maxQueuedBytes;
+    }
+
+    /** Blocking first connect, like connectToDevice. */
+    void connect() throws IOException {
+        open();
+        supervisor.onConnected();
+    }
+
+    void disconnect() {
+        closing = true;
+        supervisor.stop();
+        stopWriter("Disconnected");
+        SimulatedRfcommPeripheral.Socket current = socket;
+        if (current != null) {
+            current.close();
+        }
+    }
+
+    /** Returns false (and rejects the callback) if the writer didn't accept the data, as sendData does. */
+    boolean send(byte[] data, Callback callback) {
+        RfcommWriter current = writer;
+        if (current == null) {
+            callback.reject("Not Connected", "No active Bluetooth connection.");
+            return false;
+        }
+        boolean accepted = current.enqueue(data, callback, data.length);
+        if (accepted) {
+            Metrics.shared().device(ADDRESS).sent(data.length);
+        }
+        return accepted;
+    }
+
+    boolean isBackpressured() {
+        return backpressure;
+    }
+
+    long queuedBytes() {
+        RfcommWriter current = writer;
+        return current != null ? current.queuedBytes() : 0;
+    }
+
+    synchronized long framingResyncs() {
+        StreamFramer current = framer;
+        return previousResyncs + (current != null ? current.resyncs : 0);
+    }
+
+    synchronized long crcErrors() {
+        StreamFramer current = framer;
+        return previousCrcErrors + (current != null ? current.crcErrors : 0);
+    }
+
+    private void open() throws IOException {
+        SimulatedRfcommPeripheral.Socket next = peripheral.connect();
+        synchronized (this) {
+            StreamFramer previous = framer;
+            if (previous != null) {
+                previousResyncs += previous.resyncs;
+                previousCrcErrors += previous.crcErrors;
+            }
+            framer = newFramer(peripheral.framing());
+        }
+        socket = next;
+        sequences.onLinkRestarted();
+        RfcommWriter nextWriter = new RfcommWriter(next.getOutputStream(), new RfcommWriter.Listener() {
+            @Override
+            public void onBackpressure(boolean active, int depth, long queuedBytes) {
+                backpressure = active;
+                if (active) {
+                    backpressureOn.incrementAndGet();
+                }
+            }
+
+            @Override
+            public void onWriteError(IOException e) {
+                writeErrors.incrementAndGet();
+                if (next == socket) {
+                    supervisor.onConnectionLost();
+                }
+            }
+        });
+        nextWriter.configure(flushPolicy, 0, 0, maxQueuedBytes);
+        writer = nextWriter;
+        startReader(next, framer);
+    }
+
+    private void startReader(SimulatedRfcommPeripheral.Socket current, StreamFramer framer) {
+        Thread reader = new Thread(() -> {
+            byte[] readBuffer = new byte[8192];
+            StreamFramer.FrameListener listener = this::onFrame;
+            Metrics.Device metrics = Metrics.shared().device(ADDRESS);
+            try {
+                while (current.isConnected()) {
+                    int count = current.getInputStream().read(readBuffer, 0, readBuffer.length);
+                    if (count < 0) {
+                        throw new IOException("Stream closed");
+                    }
+                    metrics.received(count);
+                    framer.feed(readBuffer, 0, count, listener);
+                }
+            } catch (IOException e) {
+                if (current == socket && !closing) {
+                    supervisor.onConnectionLost();
+                }
+            }
+        }, "SimRfcommReader");
+        reader.setDaemon(true);
+        reader.start();
+    }
+
+    private static StreamFramer newFramer(SimulatedRfcommPeripheral.Framing framing) {
+        switch (framing) {
+            case LENGTH:
+                return new LengthPrefixFramer(2, false, false, StreamFramer.DEFAULT_MAX_FRAME_LENGTH);
+            case LENGTH_CRC:
+                return new LengthPrefixFramer(2, false, true, StreamFramer.DEFAULT_MAX_FRAME_LENGTH);
+            case COBS:
+                return new CobsFramer(StreamFramer.DEFAULT_MAX_FRAME_LENGTH);
+            default:
+                return new DelimiterFramer('\n', StreamFramer.DEFAULT_MAX_FRAME_LENGTH);
+        }
+    }
+
+    private void onFrame(byte[] buffer, int offset, int length) {
+        sequences.onPayload(buffer, offset, length);
+    }
+
+    private void reconnect() {
+        Metrics.shared().device(ADDRESS).reconnectAttempts.incrementAndGet();
+        stopWriter("Reconnecting");
+        SimulatedRfcommPeripheral.Socket previous = socket;
+        if (previous != null) {
+            previous.close();
+        }
+        try {
+            open();
+            supervisor.onConnected();
+        } catch (IOException e) {
+            supervisor.onConnectFailed();
+        }
+    }
+
+    private void stopWriter(String reason) {
+        RfcommWriter current = writer;
+        writer = null;
+        backpressure = false;
+        if (current != null) {
+            current.close(reason);
+        }
+    }
+
+    private void onLinkStateChanged(ReconnectSupervisor.State state, int attempt, long outageMs, long nextAttemptMs) {
+        if (state == ReconnectSupervisor.State.CONNECTED && outageMs > 0) {
+            Metrics.shared().device(ADDRESS).reconnects.incrementAndGet();
+        }
+    }
+}
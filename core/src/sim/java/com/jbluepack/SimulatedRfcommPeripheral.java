@@ -0,0 +1,335 @@
+package com.jbluepack;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Software stand-in for the ESP32 serial (SPP) side. connect() blocks like
+ * BluetoothSocket.connect() and returns a fresh Socket:
+ *
+ * - its input stream carries framed SequencePayload messages at a configured rate,
+ *   handed out in reads of random size up to one RFCOMM frame, so framers see the
+ *   same split messages they get on a phone;
+ * - its output stream drains at a fixed link rate through a small controller buffer,
+ *   so a writer that outruns the link blocks the way it does on a real socket. What
+ *   arrives is split with a DelimiterFramer and checked for order.
+ *
+ * Link loss (exponential time between drops) and connect failures come from a seeded
+ * Random. A dropped link makes both streams throw, as a reset RFCOMM socket does.
+ */
+class SimulatedRfcommPeripheral {
+
+    enum Framing { DELIMITER, LENGTH, LENGTH_CRC, COBS }
+
+    static final int RFCOMM_FRAME_SIZE = 990;
+    static final int CONTROLLER_BUFFER = 4096;
+
+    /** Bounded byte pipe between one writer and one reader thread. */
+    private static final class Pipe {
+        private final byte[] ring;
+        private final Random segments;
+        private final int maxRead;
+        private int head;
+        private int size;
+        private boolean closed;
+
+        Pipe(int capacity, int maxRead, Random segments) {
+            this.ring = new byte[capacity];
+            this.maxRead = maxRead;
+            this.segments = segments;
+        }
+
+        synchronized void write(byte[] data, int offset, int length) throws IOException {
+            while (length > 0) {
+                while (size == ring.length && !closed) {
+                    waitInterruptibly();
+                }
+                if (closed) throw new IOException("Broken pipe");
+                int count = Math.min(length, ring.length - size);
+                for (int i = 0; i < count; i++) {
+                    ring[(head + size + i) % ring.length] = data[offset + i];
+                }
+                size += count;
+                offset += count;
+                length -= count;
+                notifyAll();
+            }
+        }
+
+        /** Blocks until data is available; returns -1 only after close with nothing left. */
+        synchronized int read(byte[] buffer, int offset, int length, boolean throwOnClose) throws IOException {
+            while (size == 0 && !closed) {
+                waitInterruptibly();
+            }
+            if (size == 0 || (closed && throwOnClose)) {
+                if (throwOnClose) throw new IOException("bt socket closed, read return: -1");
+                return -1;
+            }
+            int limit = segments != null ? 1 + segments.nextInt(maxRead) : maxRead;
+            int count = Math.min(Math.min(length, size), limit);
+            for (int i = 0; i < count; i++) {
+                buffer[offset + i] = ring[(head + i) % ring.length];
+            }
+            head = (head + count) % ring.length;
+            size -= count;
+            notifyAll();
+            return count;
+        }
+
+        synchronized void close() {
+            closed = true;
+            notifyAll();
+        }
+
+        private void waitInterruptibly() throws IOException {
+            try {
+                wait();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted");
+            }
+        }
+    }
+
+    /** One connection. Closing it (either side) ends both streams. */
+    final class Socket {
+        private final Pipe inbound;
+        private final Pipe outbound = new Pipe(CONTROLLER_BUFFER, CONTROLLER_BUFFER, null);
+        private final Thread emitter;
+        private final Thread drainer;
+        private volatile boolean open = true;
+
+        private final InputStream inputStream = new InputStream() {
+            @Override
+            public int read() throws IOException {
+                byte[] one = new byte[1];
+                return read(one, 0, 1) < 0 ? -1 : one[0] & 0xFF;
+            }
+
+            @Override
+            public int read(byte[] buffer, int offset, int length) throws IOException {
+                return inbound.read(buffer, offset, length, true);
+            }
+        };
+
+        private final OutputStream outputStream = new OutputStream() {
+            @Override
+            public void write(int b) throws IOException {
+                write(new byte[] {(byte) b}, 0, 1);
+            }
+
+            @Override
+            public void write(byte[] data, int offset, int length) throws IOException {
+                if (!open) throw new IOException("Broken pipe");
+                outbound.write(data, offset, length);
+            }
+        };
+
+        Socket(long seed) {
+            received.onLinkRestarted();
+            inbound = new Pipe(CONTROLLER_BUFFER * 4, RFCOMM_FRAME_SIZE, new Random(seed));
+            emitter = new Thread(this::emit, "SimRfcommEmitter");
+            drainer = new Thread(this::drain, "SimRfcommDrainer");
+            emitter.setDaemon(true);
+            drainer.setDaemon(true);
+            emitter.start();
+            drainer.start();
+        }
+
+        InputStream getInputStream() {
+            return inputStream;
+        }
+
+        OutputStream getOutputStream() {
+            return outputStream;
+        }
+
+        boolean isConnected() {
+            return open;
+        }
+
+        void close() {
+            if (!open) return;
+            open = false;
+            inbound.close();
+            outbound.close();
+            emitter.interrupt();
+            drainer.interrupt();
+        }
+
+        /** Peripheral to phone: framed messages at the configured rate. */
+        private void emit() {
+            long startedAt = System.nanoTime();
+            long sent = 0;
+            long dropAt = nextDropNanos(startedAt);
+            try {
+                while (open) {
+                    Thread.sleep(1);
+                    long now = System.nanoTime();
+                    if (now >= dropAt) {
+                        drops.incrementAndGet();
+                        close();
+                        return;
+                    }
+                    if (paused) {
+                        startedAt = now;
+                        sent = 0;
+                        continue;
+                    }
+                    long target = (now - startedAt) * rate / 1_000_000_000L;
+                    for (; sent < target; sent++) {
+                        byte[] frame = frame(SequencePayload.create(sequence.getAndIncrement(), size));
+                        inbound.write(frame, 0, frame.length);
+                        framesSent.incrementAndGet();
+                    }
+                }
+            } catch (InterruptedException | IOException e) {
+                // socket closed
+            }
+        }
+
+        /** Phone to peripheral: drains at linkBytesPerSecond and checks message order. */
+        private void drain() {
+            StreamFramer framer = new DelimiterFramer('\n', StreamFramer.DEFAULT_MAX_FRAME_LENGTH);
+            StreamFramer.FrameListener listener = received::onPayload;
+            byte[] buffer = new byte[CONTROLLER_BUFFER];
+            long startedAt = System.nanoTime();
+            long drained = 0;
+            try {
+                while (open) {
+                    Thread.sleep(1);
+                    long allowed = (System.nanoTime() - startedAt) * linkBytesPerSecond / 1_000_000_000L - drained;
+                    // Credit doesn't pile up while the phone is idle
+                    if (allowed > CONTROLLER_BUFFER) {
+                        drained += allowed - CONTROLLER_BUFFER;
+                        allowed = CONTROLLER_BUFFER;
+                    }
+                    while (allowed > 0 && !outboundEmpty()) {
+                        int count = outbound.read(buffer, 0, (int) Math.min(allowed, buffer.length), false);
+                        if (count <= 0) break;
+                        drained += count;
+                        allowed -= count;
+                        bytesReceived.addAndGet(count);
+                        framer.feed(buffer, 0, count, listener);
+                    }
+                }
+            } catch (InterruptedException | IOException e) {
+                // socket closed
+            }
+        }
+
+        private boolean outboundEmpty() {
+            synchronized (outbound) {
+                return outbound.size == 0;
+            }
+        }
+    }
+
+    private final Random random;
+    private volatile Framing framing = Framing.DELIMITER;
+    private volatile int rate = 100;
+    private volatile int size = 32;
+    private volatile long linkBytesPerSecond = 20000;
+    private volatile long minLatencyMs = 20;
+    private volatile long maxLatencyMs = 60;
+    private volatile double connectFailureRate;
+    private volatile long meanTimeToDropMs;
+    private volatile boolean paused;
+
+    private final AtomicLong sequence = new AtomicLong();
+    final SequenceTracker received = new SequenceTracker();
+    final AtomicLong framesSent = new AtomicLong();
+    final AtomicLong bytesReceived = new AtomicLong();
+    final AtomicLong connects = new AtomicLong();
+    final AtomicLong connectFailures = new AtomicLong();
+    final AtomicLong drops = new AtomicLong();
+
+    SimulatedRfcommPeripheral(long seed) {
+        this.random = new Random(seed);
+    }
+
+    /** Values <= 0 keep the current setting. */
+    void configureStream(Framing framing, int ratePerSecond, int size, long linkBytesPerSecond) {
+        if (framing != null) this.framing = framing;
+        if (ratePerSecond > 0) this.rate = ratePerSecond;
+        if (size > 0) this.size = size;
+        if (linkBytesPerSecond > 0) this.linkBytesPerSecond = linkBytesPerSecond;
+    }
+
+    /** Values < 0 keep the current setting. */
+    void configureFaults(long minLatencyMs, long maxLatencyMs, double connectFailureRate, long meanTimeToDropMs) {
+        if (minLatencyMs >= 0) this.minLatencyMs = minLatencyMs;
+        if (maxLatencyMs >= 0) this.maxLatencyMs = Math.max(this.minLatencyMs, maxLatencyMs);
+        if (connectFailureRate >= 0) this.connectFailureRate = connectFailureRate;
+        if (meanTimeToDropMs >= 0) this.meanTimeToDropMs = meanTimeToDropMs;
+    }
+
+    /** Stops (or resumes) the inbound stream on every socket, so a run can drain before counting. */
+    void pauseStream(boolean paused) {
+        this.paused = paused;
+    }
+
+    Framing framing() {
+        return framing;
+    }
+
+    /** Blocks for the connect latency, then returns a socket or throws like a failed SPP connect. */
+    Socket connect() throws IOException {
+        long latencyMs;
+        boolean fail;
+        long seed;
+        synchronized (random) {
+            latencyMs = minLatencyMs + (long) (random.nextDouble() * (maxLatencyMs - minLatencyMs));
+            fail = random.nextDouble() < connectFailureRate;
+            seed = random.nextLong();
+        }
+        try {
+            Thread.sleep(latencyMs);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted");
+        }
+        if (fail) {
+            connectFailures.incrementAndGet();
+            throw new IOException("read failed, socket might closed or timeout, read ret: -1");
+        }
+        connects.incrementAndGet();
+        return new Socket(seed);
+    }
+
+    EventSink.EventMap stats(EventSink sink) {
+        EventSink.EventMap stats = sink.createMap();
+        stats.putDouble("connects", connects.get());
+        stats.putDouble("connectFailures", connectFailures.get());
+        stats.putDouble("drops", drops.get());
+        stats.putDouble("framesSent", framesSent.get());
+        stats.putDouble("bytesReceived", bytesReceived.get());
+        stats.putMap("received", received.stats(sink));
+        return stats;
+    }
+
+    private long nextDropNanos(long now) {
+        if (meanTimeToDropMs <= 0) return Long.MAX_VALUE;
+        double u;
+        synchronized (random) {
+            u = random.nextDouble();
+        }
+        return now + (long) (-Math.log(1 - u) * meanTimeToDropMs * 1_000_000L);
+    }
+
+    private byte[] frame(byte[] payload) {
+        switch (framing) {
+            case LENGTH:
+                return FrameEncoder.lengthPrefixed(payload, false);
+            case LENGTH_CRC:
+                return FrameEncoder.lengthPrefixed(payload, true);
+            case COBS:
+                return FrameEncoder.cobs(payload);
+            default:
+                return FrameEncoder.delimited(payload, '\n');
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package com.jbluepack;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+public class Base64EncoderTest {
+
+    @Test
+    public void matchesTheJdkForEveryPaddingCase() {
+        Random random = new Random(42);
+        for (int length = 0; length < 70; length++) {
+            byte[] data = new byte[length];
+            random.nextBytes(data);
+            String expected = Base64.getEncoder().encodeToString(data);
+            assertEquals(expected, Base64Encoder.encode(data));
+
+            StringBuilder out = new StringBuilder("x");
+            Base64Encoder.encode(data, out);
+            assertEquals("x" + expected, out.toString());
+        }
+    }
+
+    @Test
+    public void encodesSlices() {
+        byte[] data = new byte[64];
+        new Random(7).nextBytes(data);
+        for (int offset = 0; offset < 5; offset++) {
+            for (int length = 0; length < 10; length++) {
+                String expected = Base64.getEncoder().encodeToString(Arrays.copyOfRange(data, offset, offset + length));
+                assertEquals(expected, Base64Encoder.encode(data, offset, length));
+
+                StringBuilder out = new StringBuilder();
+                Base64Encoder.encode(ByteBuffer.wrap(data), offset, length, out);
+                assertEquals(expected, out.toString());
+            }
+        }
+    }
+
+    @Test
+    public void readsByteBuffersWithoutMovingThem() {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(16);
+        for (int i = 0; i < 16; i++) {
+            buffer.put((byte) (0xF0 + i));
+        }
+        buffer.position(3);
+        StringBuilder out = new StringBuilder();
+        Base64Encoder.encode(buffer, 0, 16, out);
+        byte[] copy = new byte[16];
+        for (int i = 0; i < 16; i++) {
+            copy[i] = buffer.get(i);
+        }
+        assertEquals(Base64.getEncoder().encodeToString(copy), out.toString());
+        assertEquals(3, buffer.position());
+    }
+}
@@ -0,0 +1,142 @@
+package com.jbluepack;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/** BulkSender and BulkReceiver talking to each other directly, without the control channel. */
+public class BulkTransferTest {
+
+    private static final int MAX_PACKET_SIZE = 64;
+
+    private static byte[] image(int size) {
+        byte[] image = new byte[size];
+        new Random(size).nextBytes(image);
+        return image;
+    }
+
+    /**
+     * Runs the transfer to completion. loss is the chance of losing a data packet (seeded, so
+     * runs repeat), corruptAt flips a payload byte in that packet. Returns what the receiver reassembled.
+     */
+    private static byte[] transfer(BulkSender sender, BulkReceiver receiver, double loss, int corruptAt) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        Random random = new Random(1);
+        int sent = 0;
+        for (int round = 0; round < 100_000 && !sender.complete(); round++) {
+            byte[] packet = sender.next(MAX_PACKET_SIZE);
+            if (packet == null) {
+                // Window full with nothing acknowledged: the acknowledgement timeout rewinds
+                sender.rewind(receiver.nextBlock());
+                receiver.requestRetransmit();
+                continue;
+            }
+            sent++;
+            if (random.nextDouble() < loss) continue;
+            if (sent == corruptAt) packet[BulkProtocol.DATA_HEADER] ^= 0x01;
+            switch (receiver.onPacket(packet)) {
+                case BLOCK:
+                    out.write(receiver.block(), 0, receiver.completedLength());
+                    sender.acknowledge(receiver.nextBlock());
+                    break;
+                case NAK:
+                    sender.rewind(receiver.nextBlock());
+                    break;
+                default:
+                    break;
+            }
+        }
+        assertTrue(sender.complete());
+        assertTrue(receiver.complete());
+        return out.toByteArray();
+    }
+
+    @Test
+    public void deliversEveryBlockInOrder() {
+        byte[] image = image(1000);
+        BulkSender sender = new BulkSender(ByteBuffer.wrap(image), 256, 2);
+        BulkReceiver receiver = new BulkReceiver(image.length, 256, 0);
+        assertEquals(4, sender.blocks);
+        assertArrayEquals(image, transfer(sender, receiver, 0, 0));
+        assertEquals(image.length, sender.acknowledgedBytes());
+        assertEquals(0, sender.retransmittedBlocks());
+        assertEquals(0, receiver.crcErrors());
+    }
+
+    @Test
+    public void packetsFillTheMtuAndTheLastCarriesTheCrc() {
+        byte[] image = image(100);
+        BulkSender sender = new BulkSender(ByteBuffer.wrap(image), 128, 1);
+        byte[] first = sender.next(MAX_PACKET_SIZE);
+        byte[] second = sender.next(MAX_PACKET_SIZE);
+        assertEquals(MAX_PACKET_SIZE - BulkProtocol.CRC_BYTES, first.length);
+        assertEquals(0, BulkProtocol.u16(first, 4) & BulkProtocol.LAST_PACKET);
+        int payload = BulkProtocol.payloadSize(MAX_PACKET_SIZE);
+        assertEquals(BulkProtocol.LAST_PACKET | payload, BulkProtocol.u16(second, 4));
+        assertEquals(BulkProtocol.crc32(image, 0, 100), BulkProtocol.u32(second, second.length - BulkProtocol.CRC_BYTES));
+        assertNull(sender.next(MAX_PACKET_SIZE));
+    }
+
+    @Test
+    public void recoversFromLostPackets() {
+        byte[] image = image(5000);
+        BulkSender sender = new BulkSender(ByteBuffer.wrap(image), 512, 4);
+        BulkReceiver receiver = new BulkReceiver(image.length, 512, 0);
+        assertArrayEquals(image, transfer(sender, receiver, 0.05, 0));
+        assertTrue(sender.retransmittedBlocks() > 0);
+        assertTrue(receiver.outOfOrder() > 0);
+    }
+
+    @Test
+    public void nakOnACorruptBlock() {
+        byte[] image = image(600);
+        BulkSender sender = new BulkSender(ByteBuffer.wrap(image), 200, 3);
+        BulkReceiver receiver = new BulkReceiver(image.length, 200, 0);
+        assertArrayEquals(image, transfer(sender, receiver, 0, 2));
+        assertEquals(1, receiver.crcErrors());
+        assertTrue(sender.retransmittedBlocks() > 0);
+    }
+
+    @Test
+    public void resumesFromAReportedBlock() {
+        byte[] image = image(1024);
+        BulkSender sender = new BulkSender(ByteBuffer.wrap(image), 256, 4);
+        BulkReceiver receiver = new BulkReceiver(image.length, 256, 2);
+        sender.resumeAt(receiver.nextBlock());
+        byte[] received = transfer(sender, receiver, 0, 0);
+        byte[] tail = new byte[512];
+        System.arraycopy(image, 512, tail, 0, 512);
+        assertArrayEquals(tail, received);
+    }
+
+    @Test
+    public void ignoresStalePacketsAfterANak() {
+        byte[] image = image(300);
+        BulkSender sender = new BulkSender(ByteBuffer.wrap(image), 300, 1);
+        BulkReceiver receiver = new BulkReceiver(image.length, 300, 0);
+        byte[] first = sender.next(MAX_PACKET_SIZE);
+        sender.next(MAX_PACKET_SIZE);  // lost
+        byte[] third = sender.next(MAX_PACKET_SIZE);
+        assertEquals(BulkReceiver.Result.NONE, receiver.onPacket(first));
+        assertEquals(BulkReceiver.Result.NAK, receiver.onPacket(third));
+        assertTrue(receiver.awaitingRetransmit());
+        assertEquals(BulkReceiver.Result.NONE, receiver.onPacket(sender.next(MAX_PACKET_SIZE)));
+        assertEquals(1, receiver.outOfOrder());
+        assertFalse(receiver.complete());
+    }
+
+    @Test
+    public void countsMalformedPackets() {
+        BulkReceiver receiver = new BulkReceiver(100, 100, 0);
+        assertEquals(BulkReceiver.Result.NONE, receiver.onPacket(new byte[3]));
+        assertEquals(1, receiver.malformed());
+    }
+}
@@ -0,0 +1,256 @@
+package com.jbluepack;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class CommandQueueTest {
+
+    enum Kind { READ, WRITE }
+
+    /** Records what the queue issued to the transport. */
+    static final class Transport {
+        final List<String> issued = new ArrayList<>();
+        boolean refuse;
+    }
+
+    static final class Result implements Callback {
+        Object value;
+        String code;
+        String message;
+
+        @Override
+        public void resolve(Object value) {
+            this.value = value;
+        }
+
+        @Override
+        public void reject(String code, String message) {
+            this.code = code;
+            this.message = message;
+        }
+    }
+
+    static final class Op extends CommandQueue.Operation<Transport, Kind> {
+        final String label;
+        int steps;
+        long retryDelayMs;
+
+        Op(Kind kind, String label, Callback callback) {
+            super(kind, callback);
+            this.label = label;
+        }
+
+        @Override
+        boolean execute(Transport transport) {
+            if (transport.refuse) return false;
+            transport.issued.add(label);
+            return true;
+        }
+
+        @Override
+        boolean advance() {
+            return --steps > 0;
+        }
+
+        @Override
+        long retryDelayMs() {
+            return retryDelayMs;
+        }
+
+        @Override
+        String progress() {
+            return " " + steps + " steps left.";
+        }
+    }
+
+    private ManualTimer timer;
+    private Transport transport;
+    private CommandQueue<Transport, Kind> queue;
+
+    @Before
+    public void setUp() {
+        timer = new ManualTimer();
+        transport = new Transport();
+        queue = new CommandQueue<>(timer, "BLE");
+        queue.attach(transport);
+    }
+
+    @Test
+    public void issuesOneOperationAtATime() {
+        Result first = new Result();
+        Result second = new Result();
+        queue.enqueue(new Op(Kind.READ, "a", first));
+        queue.enqueue(new Op(Kind.WRITE, "b", second));
+        assertEquals(List.of("a"), transport.issued);
+        assertEquals(2, queue.depth());
+
+        queue.complete(Kind.READ, "value");
+        assertEquals("value", first.value);
+        assertEquals(List.of("a", "b"), transport.issued);
+
+        queue.complete(Kind.WRITE, true);
+        assertEquals(true, second.value);
+        assertEquals(0, queue.depth());
+    }
+
+    @Test
+    public void ignoresCompletionOfAnotherKind() {
+        Result result = new Result();
+        queue.enqueue(new Op(Kind.READ, "a", result));
+        queue.complete(Kind.WRITE, "stray");
+        assertNull(result.value);
+        assertEquals(1, queue.depth());
+
+        queue.complete(Kind.READ, "value");
+        assertEquals("value", result.value);
+    }
+
+    @Test
+    public void failRejectsOnlyTheMatchingKind() {
+        Result result = new Result();
+        queue.enqueue(new Op(Kind.WRITE, "a", result));
+        queue.fail(Kind.READ, "BLE Read Error", "stray");
+        assertNull(result.code);
+
+        queue.fail(Kind.WRITE, "BLE Write Error", "failed");
+        assertEquals("BLE Write Error", result.code);
+        assertEquals(0, queue.depth());
+    }
+
+    @Test
+    public void timesOutAndMovesOn() {
+        queue.configure(0, 1000);
+        Result first = new Result();
+        Result second = new Result();
+        queue.enqueue(new Op(Kind.READ, "a", first));
+        queue.enqueue(new Op(Kind.READ, "b", second));
+
+        timer.advance(999);
+        assertNull(first.code);
+        timer.advance(1);
+        assertEquals("Timeout", first.code);
+        assertEquals(List.of("a", "b"), transport.issued);
+
+        // A late completion belongs to the operation now in flight
+        queue.complete(Kind.READ, "value");
+        assertEquals("value", second.value);
+        assertEquals(0, timer.pending());
+    }
+
+    @Test
+    public void completionCancelsTheTimeout() {
+        queue.configure(0, 1000);
+        Result result = new Result();
+        queue.enqueue(new Op(Kind.READ, "a", result));
+        queue.complete(Kind.READ, "value");
+        timer.advance(5000);
+        assertEquals("value", result.value);
+        assertNull(result.code);
+    }
+
+    @Test
+    public void rejectsWhenFull() {
+        queue.configure(2, 0);
+        assertTrue(queue.enqueue(new Op(Kind.READ, "a", new Result())));
+        assertTrue(queue.enqueue(new Op(Kind.READ, "b", new Result())));
+        Result rejected = new Result();
+        assertFalse(queue.enqueue(new Op(Kind.READ, "c", rejected)));
+        assertEquals("Queue Full", rejected.code);
+        assertEquals(2, queue.depth());
+    }
+
+    @Test
+    public void rejectsWithoutTransport() {
+        queue.clear("BLE Disconnected", "gone");
+        Result result = new Result();
+        assertFalse(queue.enqueue(new Op(Kind.READ, "a", result)));
+        assertEquals("BLE Not Connected", result.code);
+    }
+
+    @Test
+    public void rejectsWhenTheTransportRefuses() {
+        transport.refuse = true;
+        Result result = new Result();
+        queue.enqueue(new Op(Kind.WRITE, "a", result));
+        assertEquals("BLE Busy", result.code);
+        assertEquals(0, queue.depth());
+    }
+
+    @Test
+    public void clearRejectsInFlightAndQueued() {
+        Result first = new Result();
+        Result second = new Result();
+        queue.enqueue(new Op(Kind.READ, "a", first));
+        queue.enqueue(new Op(Kind.READ, "b", second));
+        queue.clear("BLE Disconnected", "gone");
+        assertEquals("BLE Disconnected", first.code);
+        assertEquals("BLE Disconnected", second.code);
+        assertEquals(0, timer.pending());
+    }
+
+    @Test
+    public void multiStepOperationsRunEveryStep() {
+        Result result = new Result();
+        Op op = new Op(Kind.WRITE, "chunk", result);
+        op.steps = 3;
+        queue.enqueue(op);
+        queue.complete(Kind.WRITE, null);
+        queue.complete(Kind.WRITE, null);
+        assertNull(result.value);
+        queue.complete(Kind.WRITE, "done");
+        assertEquals("done", result.value);
+        assertEquals(List.of("chunk", "chunk", "chunk"), transport.issued);
+    }
+
+    @Test
+    public void retriesARefusedStepUntilTheTransportAccepts() {
+        queue.configure(0, 1000);
+        Result result = new Result();
+        Op op = new Op(Kind.WRITE, "chunk", result);
+        op.steps = 2;
+        op.retryDelayMs = 10;
+        queue.enqueue(op);
+        queue.enqueue(new Op(Kind.READ, "next", new Result()));
+        transport.refuse = true;
+        queue.complete(Kind.WRITE, null);
+
+        timer.advance(30);
+        assertNull(result.code);
+        assertEquals(List.of("chunk"), transport.issued);  // nothing slips in between the steps
+        transport.refuse = false;
+        timer.advance(10);
+        assertEquals(List.of("chunk", "chunk"), transport.issued);
+
+        queue.complete(Kind.WRITE, "done");
+        assertEquals("done", result.value);
+        assertEquals(List.of("chunk", "chunk", "next"), transport.issued);
+    }
+
+    @Test
+    public void retriesStopAtTheTimeoutWithProgress() {
+        queue.configure(0, 1000);
+        Result result = new Result();
+        Op op = new Op(Kind.WRITE, "chunk", result);
+        op.steps = 3;
+        op.retryDelayMs = 10;
+        queue.enqueue(op);
+        transport.refuse = true;
+        queue.complete(Kind.WRITE, null);
+
+        timer.advance(999);
+        assertNull(result.code);
+        timer.advance(1);
+        assertEquals("Timeout", result.code);
+        assertTrue(result.message.endsWith(" 2 steps left."));
+        assertEquals(0, queue.depth());
+        assertEquals(0, timer.pending());
+    }
+}
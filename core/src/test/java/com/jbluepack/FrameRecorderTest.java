@@ -0,0 +1,103 @@
+package com.jbluepack;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.HashMap;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class FrameRecorderTest {
+
+    private static final String DEVICE = "A0:B7:65:DD:47:AA";
+    private static final String CHARACTERISTIC = "beb5483e-36e1-4688-b7f5-ea07361b26a8";
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    private final MapEventSink sink = new MapEventSink((name, payload) -> { });
+    private File directory;
+    private FrameRecorder recorder;
+
+    @Before
+    public void setUp() throws IOException {
+        directory = folder.newFolder("recording");
+        recorder = new FrameRecorder();
+    }
+
+    @After
+    public void tearDown() {
+        recorder.stop();
+    }
+
+    private FrameRecorder.Config config(int maxSegments) {
+        return new FrameRecorder.Config(directory, FrameRecorder.MIN_SEGMENT_BYTES, maxSegments, 0, true, true, null, null);
+    }
+
+    private void append(FrameRecorder recorder, int count) {
+        for (int i = 0; i < count; i++) {
+            assertTrue(recorder.append(DEVICE, CHARACTERISTIC, new byte[]{(byte) i, 1, 2, 3}, 0, 4, 1000 + i));
+        }
+    }
+
+    private static HashMap<?, ?> map(EventSink.EventMap map) {
+        return (HashMap<?, ?>) map;
+    }
+
+    private int count(FrameRecorder recorder) {
+        return (Integer) map(recorder.query(sink, 0, Long.MIN_VALUE, Long.MAX_VALUE, null, 1000)).get("count");
+    }
+
+    @Test
+    public void recordsAndQueries() throws IOException {
+        recorder.start(config(4));
+        append(recorder, 5);
+        HashMap<?, ?> page = map(recorder.query(sink, 3, Long.MIN_VALUE, Long.MAX_VALUE, null, 2));
+        assertEquals(2, page.get("count"));
+        assertEquals(5.0, page.get("nextSeq"));
+        assertTrue(((String) page.get("data")).startsWith("3,1002," + DEVICE + "," + CHARACTERISTIC + ","));
+    }
+
+    @Test
+    public void restartWithoutFramesReusesTheEmptySegment() throws IOException {
+        // Two starts would list the active file three times, retention of 2 would delete it
+        recorder.start(config(2));
+        recorder.stop();
+        recorder.start(config(2));
+        recorder.start(config(2));  // startRecording again to change options
+        append(recorder, 3);
+
+        assertEquals(1, map(recorder.stats(sink)).get("segments"));
+        assertEquals(1, directory.listFiles().length);
+        assertEquals(3, count(recorder));
+
+        // And the frames are still there after a process restart
+        recorder.stop();
+        FrameRecorder reopened = new FrameRecorder();
+        reopened.start(config(2));
+        try {
+            assertEquals(3, count(reopened));
+            append(reopened, 1);
+            assertEquals(4, count(reopened));
+        } finally {
+            reopened.stop();
+        }
+    }
+
+    @Test
+    public void restartAfterFramesStartsANewSegment() throws IOException {
+        recorder.start(config(4));
+        append(recorder, 2);
+        recorder.stop();
+        recorder.start(config(4));
+        append(recorder, 2);
+        assertEquals(2, map(recorder.stats(sink)).get("segments"));
+        assertEquals(4, count(recorder));
+    }
+}
@@ -0,0 +1,58 @@
+package com.jbluepack;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/** Timer driven by the test: tasks run when advance() moves the clock past their deadline. */
+class ManualTimer implements Timer {
+
+    private static final class Entry {
+        final Runnable task;
+        final long dueMs;
+
+        Entry(Runnable task, long dueMs) {
+            this.task = task;
+            this.dueMs = dueMs;
+        }
+    }
+
+    private final List<Entry> entries = new ArrayList<>();
+    private long nowMs;
+
+    @Override
+    public synchronized void schedule(Runnable task, long delayMs) {
+        entries.add(new Entry(task, nowMs + delayMs));
+    }
+
+    @Override
+    public synchronized void cancel(Runnable task) {
+        entries.removeIf(entry -> entry.task == task);
+    }
+
+    /** Moves the clock forward and runs everything that became due, earliest first. */
+    void advance(long ms) {
+        long target;
+        synchronized (this) {
+            target = nowMs + ms;
+        }
+        while (true) {
+            Entry due = null;
+            synchronized (this) {
+                for (Entry entry : entries) {
+                    if (entry.dueMs <= target && (due == null || entry.dueMs < due.dueMs)) due = entry;
+                }
+                if (due == null) {
+                    nowMs = target;
+                    return;
+                }
+                entries.remove(due);
+                nowMs = due.dueMs;
+            }
+            due.task.run();
+        }
+    }
+
+    synchronized int pending() {
+        return entries.size();
+    }
+}
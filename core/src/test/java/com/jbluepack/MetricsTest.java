@@ -0,0 +1,59 @@
+package com.jbluepack;
+
+import org.junit.Test;
+
+import java.util.HashMap;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+public class MetricsTest {
+
+    private static final String ADDRESS = "A0:B7:65:DD:47:AA";
+
+    private final MapEventSink sink = new MapEventSink((name, payload) -> { });
+
+    private HashMap<?, ?> counters(Metrics metrics) {
+        HashMap<?, ?> devices = (HashMap<?, ?>) ((HashMap<?, ?>) metrics.snapshot(sink)).get("devices");
+        return (HashMap<?, ?>) devices.get(ADDRESS);
+    }
+
+    @Test
+    public void countsPerDevice() {
+        Metrics metrics = new Metrics();
+        metrics.packetIn(ADDRESS, 20, 1_000_000);
+        metrics.packetIn(ADDRESS, 20, 3_000_000);
+        metrics.device(ADDRESS).sent(5);
+        HashMap<?, ?> counters = counters(metrics);
+        assertEquals(40.0, counters.get("bytesIn"));
+        assertEquals(2.0, counters.get("packetsIn"));
+        assertEquals(5.0, counters.get("bytesOut"));
+        assertEquals(1, metrics.notificationInterArrival.count());
+    }
+
+    @Test
+    public void resetKeepsTheDevicesConnectionsHold() {
+        Metrics metrics = new Metrics();
+        Metrics.Device held = metrics.device(ADDRESS);  // what a connection caches in its constructor
+        held.sent(100);
+        held.reconnects.incrementAndGet();
+        metrics.packetIn(ADDRESS, 20, 1_000_000);
+
+        metrics.reset();
+        HashMap<?, ?> counters = counters(metrics);
+        assertEquals(0.0, counters.get("bytesOut"));
+        assertEquals(0.0, counters.get("reconnects"));
+        assertEquals(0.0, counters.get("bytesIn"));
+
+        held.sent(7);
+        held.reconnectAttempts.incrementAndGet();
+        assertSame(held, metrics.device(ADDRESS));
+        counters = counters(metrics);
+        assertEquals(7.0, counters.get("bytesOut"));
+        assertEquals(1.0, counters.get("reconnectAttempts"));
+
+        // The first packet after a reset has no predecessor to measure against
+        metrics.packetIn(ADDRESS, 20, 5_000_000);
+        assertEquals(0, metrics.notificationInterArrival.count());
+    }
+}
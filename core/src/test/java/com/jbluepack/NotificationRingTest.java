@@ -0,0 +1,107 @@
+package com.jbluepack;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+public class NotificationRingTest {
+
+    private static final String DEVICE = "A0:B7:65:DD:47:AA";
+    private static final String CHARACTERISTIC = "beb5483e-36e1-4688-b7f5-ea07361b26a8";
+
+    private final List<HashMap<String, Object>> wakes = new ArrayList<>();
+    private NotificationRing ring;
+
+    @Before
+    public void setUp() {
+        ring = new NotificationRing(new MapEventSink((name, payload) -> {
+            assertEquals(NotificationRing.AVAILABLE_EVENT, name);
+            wakes.add(payload);
+        }));
+    }
+
+    private void add(int count, int from) {
+        for (int i = from; i < from + count; i++) {
+            ring.add(DEVICE, CHARACTERISTIC, ("p" + i).getBytes(), false, i);
+        }
+    }
+
+    private static List<String> messages(EventSink.EventArray packets) {
+        List<String> messages = new ArrayList<>();
+        for (Object packet : (MapEventSink.Array) packets) {
+            messages.add((String) ((MapEventSink.Map) packet).get("message"));
+        }
+        return messages;
+    }
+
+    private MapEventSink.Map stats() {
+        return (MapEventSink.Map) ring.stats();
+    }
+
+    @Test
+    public void dropOldestKeepsTheFreshestPackets() {
+        ring.configure(3, NotificationRing.Overflow.DROP_OLDEST, false);
+        add(5, 0);
+        assertEquals(List.of("p2", "p3", "p4"), messages(ring.read(10)));
+        assertEquals(2.0, stats().get("overflows"));
+        assertEquals(3.0, stats().get("delivered"));
+    }
+
+    @Test
+    public void dropNewestKeepsWhatIsQueued() {
+        ring.configure(3, NotificationRing.Overflow.DROP_NEWEST, false);
+        add(5, 0);
+        assertEquals(List.of("p0", "p1", "p2"), messages(ring.read(10)));
+        assertEquals(2.0, stats().get("overflows"));
+        assertEquals(5.0, stats().get("added"));
+    }
+
+    @Test
+    public void readsOldestFirstInPages() {
+        ring.configure(4, null, false);
+        add(3, 0);
+        assertEquals(List.of("p0", "p1"), messages(ring.read(2)));
+        add(3, 3);
+        assertEquals(List.of("p2", "p3", "p4", "p5"), messages(ring.read(10)));
+        assertEquals(0, ring.size());
+        assertEquals(4, stats().get("highWater"));
+    }
+
+    @Test
+    public void shrinkingKeepsTheNewestPackets() {
+        ring.configure(8, NotificationRing.Overflow.DROP_NEWEST, false);
+        add(6, 0);
+        ring.configure(2, null, false);
+        assertEquals(List.of("p4", "p5"), messages(ring.read(10)));
+        assertEquals(4.0, stats().get("overflows"));
+        assertEquals("dropNewest", stats().get("overflow"));
+    }
+
+    @Test
+    public void wakesOncePerRead() {
+        add(3, 0);
+        assertEquals(1, wakes.size());
+        assertEquals(1, wakes.get(0).get("available"));
+
+        ring.read(1);
+        add(1, 3);
+        assertEquals(2, wakes.size());
+        assertEquals(3, wakes.get(1).get("available"));
+    }
+
+    @Test
+    public void readPackedWritesOneLinePerPacket() {
+        ring.configure(4, null, false);
+        ring.add(DEVICE, CHARACTERISTIC, new byte[]{1, 2, 3}, true, 7);
+        ring.add(DEVICE, CHARACTERISTIC, new byte[]{(byte) 0xFF}, true, 8);
+        StringBuilder out = new StringBuilder();
+        assertEquals(2, ring.readPacked(10, out));
+        assertEquals(DEVICE + "," + CHARACTERISTIC + ",7,AQID\n" + DEVICE + "," + CHARACTERISTIC + ",8,/w==\n", out.toString());
+        assertEquals(0, ring.size());
+    }
+}
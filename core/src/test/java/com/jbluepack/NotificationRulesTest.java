@@ -0,0 +1,131 @@
+package com.jbluepack;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class NotificationRulesTest {
+
+    private static final String DEVICE = "A0:B7:65:DD:47:AA";
+    private static final String CHARACTERISTIC = "beb5483e-36e1-4688-b7f5-ea07361b26a8";
+
+    private final List<HashMap<String, Object>> alerts = new ArrayList<>();
+    private final List<String> actions = new ArrayList<>();
+    private NotificationRules rules;
+    private NotificationRules.Actions recorder;
+
+    @Before
+    public void setUp() {
+        rules = new NotificationRules(new MapEventSink((name, payload) -> {
+            assertEquals(NotificationRules.ALERT_EVENT, name);
+            alerts.add(payload);
+        }));
+        recorder = new NotificationRules.Actions() {
+            @Override
+            public void playSound(NotificationRules.Rule rule) {
+                actions.add("sound:" + rule.sound);
+            }
+
+            @Override
+            public void write(NotificationRules.Rule rule, String deviceId) {
+                actions.add("write:" + deviceId);
+            }
+        };
+    }
+
+    private NotificationRules.Rule rule(String characteristic, int offset, byte[] prefix, byte[] mask, String text,
+                                        NotificationRules.Action action, boolean consume, long cooldownMs) {
+        return new NotificationRules.Rule(rules.nextId(), null, characteristic, offset, prefix, mask, text, action,
+                action == NotificationRules.Action.SOUND ? "alarm" : null, null, null, null, consume, cooldownMs);
+    }
+
+    private boolean evaluate(byte[] value, long nowMs) {
+        return rules.evaluate(DEVICE, CHARACTERISTIC, value, 0, value.length, nowMs, recorder);
+    }
+
+    private static byte[] ascii(String text) {
+        return text.getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Test
+    public void matchesMaskedPrefixAtOffset() {
+        rules.add(rule(CHARACTERISTIC, 1, new byte[]{(byte) 0xA1, (byte) 0xF0}, new byte[]{(byte) 0xFF, (byte) 0xF0}, null,
+                NotificationRules.Action.SOUND, false, 0));
+        assertFalse(evaluate(new byte[]{0, (byte) 0xA1, (byte) 0xF7}, 0));
+        evaluate(new byte[]{0, (byte) 0xA1, (byte) 0x07}, 0);
+        evaluate(new byte[]{0, (byte) 0xA1}, 0);  // too short for the prefix
+        assertEquals(List.of("sound:alarm"), actions);
+    }
+
+    @Test
+    public void matchesTextAnywhere() {
+        rules.add(rule(null, 0, null, null, "OVERHEAT", NotificationRules.Action.EVENT, false, 0));
+        evaluate(ascii("T=21.5;H=40"), 0);
+        evaluate(ascii("ERR OVERHEAT 3"), 42);
+        assertEquals(1, alerts.size());
+        HashMap<String, Object> alert = alerts.get(0);
+        assertEquals(DEVICE, alert.get("deviceId"));
+        assertEquals(CHARACTERISTIC, alert.get("characteristic"));
+        assertEquals(Base64Encoder.encode(ascii("ERR OVERHEAT 3")), alert.get("data"));
+        assertEquals(42.0, alert.get("timestamp"));
+    }
+
+    @Test
+    public void filtersByCharacteristic() {
+        rules.add(rule("00002a37-0000-1000-8000-00805f9b34fb", 0, null, null, null, NotificationRules.Action.EVENT, false, 0));
+        evaluate(ascii("anything"), 0);
+        assertTrue(alerts.isEmpty());
+    }
+
+    @Test
+    public void cooldownSuppressesButStillConsumes() {
+        rules.add(rule(null, 0, new byte[]{0x01}, null, null, NotificationRules.Action.WRITE, true, 1000));
+        assertTrue(evaluate(new byte[]{0x01}, 0));
+        assertTrue(evaluate(new byte[]{0x01}, 500));
+        assertTrue(evaluate(new byte[]{0x01}, 1000));
+        assertFalse(evaluate(new byte[]{0x02}, 1000));
+        assertEquals(List.of("write:" + DEVICE, "write:" + DEVICE), actions);
+
+        MapEventSink.Map stats = (MapEventSink.Map) ((MapEventSink.Array) rules.toArray()).get(0);
+        assertEquals(3.0, stats.get("matches"));
+        assertEquals(1.0, stats.get("suppressed"));
+    }
+
+    @Test
+    public void firesEveryMatchingRuleInOrder() {
+        rules.add(rule(null, 0, null, null, "A", NotificationRules.Action.SOUND, false, 0));
+        rules.add(rule(null, 0, null, null, "A", NotificationRules.Action.WRITE, false, 0));
+        assertFalse(evaluate(ascii("A"), 0));
+        assertEquals(List.of("sound:alarm", "write:" + DEVICE), actions);
+    }
+
+    @Test
+    public void removeStopsARule() {
+        NotificationRules.Rule rule = rule(null, 0, null, null, "A", NotificationRules.Action.EVENT, false, 0);
+        rules.add(rule);
+        assertTrue(rules.remove(rule.id));
+        assertFalse(rules.remove(rule.id));
+        assertTrue(rules.isEmpty());
+        evaluate(ascii("A"), 0);
+        assertTrue(alerts.isEmpty());
+    }
+
+    @Test
+    public void parsesHex() {
+        assertArrayEquals(new byte[]{(byte) 0xA1, (byte) 0xFF, 0x00}, NotificationRules.hex("A1ff00"));
+        assertArrayEquals(new byte[0], NotificationRules.hex(""));
+        assertNull(NotificationRules.hex("A1f"));
+        assertNull(NotificationRules.hex("zz"));
+        assertNull(NotificationRules.hex(null));
+    }
+}
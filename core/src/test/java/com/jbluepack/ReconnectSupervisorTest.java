@@ -0,0 +1,143 @@
+package com.jbluepack;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class ReconnectSupervisorTest {
+
+    /** One listener callback. */
+    static final class Transition {
+        final ReconnectSupervisor.State state;
+        final int attempt;
+        final long nextAttemptMs;
+
+        Transition(ReconnectSupervisor.State state, int attempt, long nextAttemptMs) {
+            this.state = state;
+            this.attempt = attempt;
+            this.nextAttemptMs = nextAttemptMs;
+        }
+    }
+
+    private ScheduledExecutorService scheduler;
+    private final List<Transition> transitions = new ArrayList<>();
+    private final CountDownLatch settled = new CountDownLatch(1);
+
+    @Before
+    public void setUp() {
+        scheduler = Executors.newSingleThreadScheduledExecutor();
+    }
+
+    @After
+    public void tearDown() {
+        scheduler.shutdownNow();
+    }
+
+    private ReconnectSupervisor supervisor(ReconnectSupervisor.Link link) {
+        return new ReconnectSupervisor(link, (state, attempt, outageMs, nextAttemptMs) -> {
+            synchronized (transitions) {
+                transitions.add(new Transition(state, attempt, nextAttemptMs));
+            }
+            if (state == ReconnectSupervisor.State.GIVEN_UP || (state == ReconnectSupervisor.State.CONNECTED && attempt > 0)) {
+                settled.countDown();
+            }
+        }, scheduler);
+    }
+
+    private List<Transition> backoffs() {
+        List<Transition> backoffs = new ArrayList<>();
+        synchronized (transitions) {
+            for (Transition transition : transitions) {
+                if (transition.state == ReconnectSupervisor.State.BACKING_OFF) backoffs.add(transition);
+            }
+        }
+        return backoffs;
+    }
+
+    @Test
+    public void backsOffExponentiallyWithinTheCapAndGivesUp() throws InterruptedException {
+        ReconnectSupervisor[] holder = new ReconnectSupervisor[1];
+        AtomicInteger attempts = new AtomicInteger();
+        holder[0] = supervisor(() -> {
+            attempts.incrementAndGet();
+            holder[0].onConnectFailed();
+        });
+        holder[0].configure(true, 8, 40, 6);
+        holder[0].onConnected();
+        holder[0].onConnectionLost();
+
+        assertTrue(settled.await(5, TimeUnit.SECONDS));
+        assertEquals(ReconnectSupervisor.State.GIVEN_UP, holder[0].state());
+        assertEquals(6, attempts.get());
+
+        // Equal jitter: attempt n waits between half and all of min(max, base * 2^(n-1))
+        List<Transition> backoffs = backoffs();
+        assertEquals(5, backoffs.size());
+        for (Transition backoff : backoffs) {
+            long capped = Math.min(40, 8L << (backoff.attempt - 1));
+            assertTrue("attempt " + backoff.attempt + " waited " + backoff.nextAttemptMs,
+                    backoff.nextAttemptMs >= capped / 2 && backoff.nextAttemptMs <= capped);
+        }
+    }
+
+    @Test
+    public void reconnectsAndResetsTheAttemptCount() throws InterruptedException {
+        ReconnectSupervisor[] holder = new ReconnectSupervisor[1];
+        AtomicInteger attempts = new AtomicInteger();
+        holder[0] = supervisor(() -> {
+            if (attempts.incrementAndGet() < 3) {
+                holder[0].onConnectFailed();
+            } else {
+                holder[0].onConnected();
+            }
+        });
+        holder[0].configure(true, 5, 20, 10);
+        holder[0].onConnected();
+        holder[0].onConnectionLost();
+
+        assertTrue(settled.await(5, TimeUnit.SECONDS));
+        assertEquals(ReconnectSupervisor.State.CONNECTED, holder[0].state());
+        assertEquals(2, backoffs().size());
+        synchronized (transitions) {
+            Transition last = transitions.get(transitions.size() - 1);
+            assertEquals(ReconnectSupervisor.State.CONNECTED, last.state);
+            assertEquals(2, last.attempt);
+        }
+    }
+
+    @Test
+    public void givesUpImmediatelyWhenDisabled() {
+        ReconnectSupervisor supervisor = supervisor(() -> {
+            throw new AssertionError("no attempt expected");
+        });
+        supervisor.configure(false, 0, 0, 0);
+        supervisor.onConnected();
+        supervisor.onConnectionLost();
+        assertEquals(ReconnectSupervisor.State.GIVEN_UP, supervisor.state());
+    }
+
+    @Test
+    public void ignoresLossUnlessConnected() {
+        ReconnectSupervisor supervisor = supervisor(() -> {
+            throw new AssertionError("no attempt expected");
+        });
+        supervisor.onConnectionLost();
+        assertEquals(ReconnectSupervisor.State.STOPPED, supervisor.state());
+
+        supervisor.onConnected();
+        supervisor.stop();
+        supervisor.onConnectionLost();
+        assertEquals(ReconnectSupervisor.State.STOPPED, supervisor.state());
+    }
+}
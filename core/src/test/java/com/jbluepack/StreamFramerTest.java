@@ -0,0 +1,191 @@
+package com.jbluepack;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class StreamFramerTest {
+
+    /** Copies every frame out of the framer's reused buffer. */
+    static final class Frames implements StreamFramer.FrameListener {
+        final List<byte[]> frames = new ArrayList<>();
+
+        @Override
+        public void onFrame(byte[] buffer, int offset, int length) {
+            frames.add(Arrays.copyOfRange(buffer, offset, offset + length));
+        }
+
+        List<String> text() {
+            List<String> text = new ArrayList<>();
+            for (byte[] frame : frames) {
+                text.add(new String(frame, StandardCharsets.UTF_8));
+            }
+            return text;
+        }
+    }
+
+    private static byte[] ascii(String text) {
+        return text.getBytes(StandardCharsets.UTF_8);
+    }
+
+    /** 2-byte big-endian length, payload, optional CRC-16 over both. */
+    private static byte[] lengthPrefixed(byte[] payload, boolean crc) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.write(payload.length >>> 8);
+        out.write(payload.length);
+        out.write(payload, 0, payload.length);
+        if (crc) {
+            byte[] framed = out.toByteArray();
+            int value = StreamFramer.crc16(framed, 0, framed.length);
+            out.write(value >>> 8);
+            out.write(value);
+        }
+        return out.toByteArray();
+    }
+
+    private static byte[] concat(byte[]... parts) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (byte[] part : parts) {
+            out.write(part, 0, part.length);
+        }
+        return out.toByteArray();
+    }
+
+    /** Feeds one byte at a time, the worst case for reassembly. */
+    private static void trickle(StreamFramer framer, byte[] data, Frames frames) {
+        for (int i = 0; i < data.length; i++) {
+            framer.feed(data, i, 1, frames);
+        }
+    }
+
+    @Test
+    public void crc16IsCcittFalse() {
+        assertEquals(0x29B1, StreamFramer.crc16(ascii("123456789"), 0, 9));
+    }
+
+    @Test
+    public void delimiterSplitsLinesAcrossReads() {
+        DelimiterFramer framer = new DelimiterFramer('\n', 64);
+        Frames frames = new Frames();
+        trickle(framer, ascii("T=21.5\r\nH=40\n\nOK\n"), frames);
+        assertEquals(List.of("T=21.5", "H=40", "", "OK"), frames.text());
+        assertEquals(4, framer.frames);
+    }
+
+    @Test
+    public void delimiterDiscardsOverlongFrames() {
+        DelimiterFramer framer = new DelimiterFramer('\n', 4);
+        Frames frames = new Frames();
+        byte[] data = ascii("ab\nthis-is-too-long\ncd\n");
+        framer.feed(data, 0, data.length, frames);
+        assertEquals(List.of("ab", "cd"), frames.text());
+        assertEquals(1, framer.resyncs);
+    }
+
+    @Test
+    public void delimiterResyncsWhenNoDelimiterArrives() {
+        DelimiterFramer framer = new DelimiterFramer('\n', 4);
+        Frames frames = new Frames();
+        trickle(framer, ascii("garbage-without-end\nok\n"), frames);
+        assertEquals(List.of("ok"), frames.text());
+        assertTrue(framer.resyncs > 0);
+    }
+
+    @Test
+    public void lengthPrefixReassemblesFrames() {
+        LengthPrefixFramer framer = new LengthPrefixFramer(2, false, false, 64);
+        Frames frames = new Frames();
+        trickle(framer, concat(lengthPrefixed(ascii("hello"), false), lengthPrefixed(new byte[0], false),
+                lengthPrefixed(ascii("world"), false)), frames);
+        assertEquals(List.of("hello", "", "world"), frames.text());
+    }
+
+    @Test
+    public void lengthPrefixReadsLittleEndianHeaders() {
+        LengthPrefixFramer framer = new LengthPrefixFramer(4, true, false, 64);
+        Frames frames = new Frames();
+        byte[] data = {3, 0, 0, 0, 'a', 'b', 'c'};
+        framer.feed(data, 0, data.length, frames);
+        assertEquals(List.of("abc"), frames.text());
+    }
+
+    @Test
+    public void lengthPrefixSlidesPastImplausibleLengths() {
+        LengthPrefixFramer framer = new LengthPrefixFramer(2, false, false, 16);
+        Frames frames = new Frames();
+        byte[] data = concat(new byte[]{(byte) 0xFF}, lengthPrefixed(ascii("ok"), false));
+        framer.feed(data, 0, data.length, frames);
+        assertEquals(List.of("ok"), frames.text());
+        assertEquals(1, framer.resyncs);
+    }
+
+    @Test
+    public void lengthPrefixDropsCrcFailures() {
+        LengthPrefixFramer framer = new LengthPrefixFramer(2, false, true, 16);
+        Frames frames = new Frames();
+        byte[] corrupt = lengthPrefixed(ascii("bad"), true);
+        corrupt[3] ^= 0x01;
+        byte[] data = concat(lengthPrefixed(ascii("one"), true), corrupt, lengthPrefixed(ascii("two"), true));
+        trickle(framer, data, frames);
+        assertEquals(List.of("one", "two"), frames.text());
+        assertEquals(2, framer.frames);
+        assertTrue(framer.crcErrors > 0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void lengthPrefixRejectsOddHeaderSizes() {
+        new LengthPrefixFramer(3, false, false, 16);
+    }
+
+    @Test
+    public void cobsDecodesZeroesAndLongRuns() {
+        CobsFramer framer = new CobsFramer(512);
+        Frames frames = new Frames();
+        // 11 22 00 33 and 00 00, encoded per the COBS paper, then 300 non-zero bytes
+        byte[] run = new byte[300];
+        Arrays.fill(run, (byte) 0x5A);
+        byte[] encodedRun = new byte[302];
+        encodedRun[0] = (byte) 0xFF;
+        System.arraycopy(run, 0, encodedRun, 1, 254);
+        encodedRun[255] = 47;
+        System.arraycopy(run, 254, encodedRun, 256, 46);
+        byte[] data = concat(new byte[]{3, 0x11, 0x22, 2, 0x33, 0}, new byte[]{1, 1, 1, 0}, encodedRun, new byte[]{0});
+        trickle(framer, data, frames);
+        assertEquals(3, frames.frames.size());
+        assertArrayEquals(new byte[]{0x11, 0x22, 0, 0x33}, frames.frames.get(0));
+        assertArrayEquals(new byte[]{0, 0}, frames.frames.get(1));
+        assertArrayEquals(run, frames.frames.get(2));
+    }
+
+    @Test
+    public void cobsSkipsMalformedBlocks() {
+        CobsFramer framer = new CobsFramer(64);
+        Frames frames = new Frames();
+        // The code byte promises 9 bytes where only 2 follow
+        byte[] data = {9, 0x11, 0x22, 0, 2, 0x33, 0};
+        framer.feed(data, 0, data.length, frames);
+        assertEquals(1, frames.frames.size());
+        assertArrayEquals(new byte[]{0x33}, frames.frames.get(0));
+        assertEquals(1, framer.resyncs);
+    }
+
+    @Test
+    public void resetDropsAPartialFrame() {
+        LengthPrefixFramer framer = new LengthPrefixFramer(1, false, false, 16);
+        Frames frames = new Frames();
+        byte[] partial = {5, 'a', 'b'};
+        framer.feed(partial, 0, partial.length, frames);
+        framer.reset();
+        byte[] whole = {2, 'o', 'k'};
+        framer.feed(whole, 0, whole.length, frames);
+        assertEquals(List.of("ok"), frames.text());
+    }
+}
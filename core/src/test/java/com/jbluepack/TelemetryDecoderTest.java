@@ -0,0 +1,143 @@
+package com.jbluepack;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class TelemetryDecoderTest {
+
+    private static final String DEVICE = "A0:B7:65:DD:47:AA";
+    private static final String CHARACTERISTIC = "beb5483e-36e1-4688-b7f5-ea07361b26a8";
+
+    private final List<HashMap<String, Object>> events = new ArrayList<>();
+    private TelemetryDecoder decoder;
+    private TelemetryDecoder.Schema env;
+
+    private static TelemetryDecoder.Field field(String name, TelemetryDecoder.Type type, int offset, double scale) {
+        return new TelemetryDecoder.Field(name, type, offset, true, 0, 0, scale, 0, false, null, null);
+    }
+
+    /** The DecoderBenchmark frame: 0x54 tag, i16 0.01 °C, u16 0.1 %, u32 uptime, f32 hPa, u8 mode, u8 flags. */
+    private static byte[] frame() {
+        byte[] frame = new byte[16];
+        frame[0] = 0x54;
+        frame[1] = (byte) 0x66;  // -2458
+        frame[2] = (byte) 0xF6;
+        frame[3] = (byte) 0xC5;  // 453
+        frame[4] = 0x01;
+        frame[5] = 0x40;         // 123456
+        frame[6] = (byte) 0xE2;
+        frame[7] = 0x01;
+        int pressure = Float.floatToIntBits(1013.25f);
+        for (int i = 0; i < 4; i++) frame[9 + i] = (byte) (pressure >>> (8 * i));
+        frame[13] = 1;
+        frame[14] = 0x08;
+        return frame;
+    }
+
+    @Before
+    public void setUp() {
+        decoder = new TelemetryDecoder(new MapEventSink((name, payload) -> {
+            assertEquals(TelemetryDecoder.EVENT, name);
+            events.add(payload);
+        }));
+        env = new TelemetryDecoder.Schema(decoder.nextId(), "env", null, CHARACTERISTIC, 0, new byte[]{0x54}, 16,
+                new TelemetryDecoder.Field[]{
+                        field("temperature", TelemetryDecoder.Type.I16, 1, 0.01),
+                        field("humidity", TelemetryDecoder.Type.U16, 3, 0.1),
+                        field("uptime", TelemetryDecoder.Type.U32, 5, 1),
+                        field("pressure", TelemetryDecoder.Type.F32, 9, 1),
+                        new TelemetryDecoder.Field("mode", TelemetryDecoder.Type.U8, 13, true, 0, 0, 1, 0, false,
+                                new int[]{2, 0, 1}, new String[]{"boost", "idle", "run"}),
+                        new TelemetryDecoder.Field("heater", TelemetryDecoder.Type.U8, 14, true, 1, 3, 1, 0, true, null, null),
+                }, false);
+        decoder.add(env);
+    }
+
+    @Test
+    public void decodesTypedFields() {
+        byte[] frame = frame();
+        assertTrue(decoder.decode(DEVICE, CHARACTERISTIC, frame, 0, frame.length, 99));
+        assertEquals(1, events.size());
+        HashMap<String, Object> event = events.get(0);
+        assertEquals("env", event.get("schema"));
+        assertEquals(env.id, event.get("schemaId"));
+        assertEquals(DEVICE, event.get("deviceId"));
+        assertEquals(99.0, event.get("timestamp"));
+        assertEquals(-24.58, (Double) event.get("temperature"), 1e-9);
+        assertEquals(45.3, (Double) event.get("humidity"), 1e-9);
+        assertEquals(123456.0, event.get("uptime"));
+        assertEquals(1013.25, (Double) event.get("pressure"), 1e-9);
+        assertEquals("run", event.get("mode"));
+        assertEquals(true, event.get("heater"));
+        assertEquals(1, env.decoded.get());
+    }
+
+    @Test
+    public void readsBigEndianAndOffsets() {
+        TelemetryDecoder.Field bigEndian = new TelemetryDecoder.Field("t", TelemetryDecoder.Type.I16, 1, false, 0, 0, 1, 0,
+                false, null, null);
+        byte[] frame = frame();
+        assertEquals(26358.0, bigEndian.number(bigEndian.raw(frame, 0)), 0);
+        byte[] shifted = new byte[20];
+        System.arraycopy(frame, 0, shifted, 4, frame.length);
+        assertTrue(decoder.decode(DEVICE, CHARACTERISTIC, shifted, 4, frame.length, 0));
+        assertEquals(-24.58, (Double) events.get(0).get("temperature"), 1e-9);
+    }
+
+    @Test
+    public void countsLengthMismatches() {
+        byte[] truncated = new byte[12];
+        System.arraycopy(frame(), 0, truncated, 0, truncated.length);
+        assertFalse(decoder.decode(DEVICE, CHARACTERISTIC, truncated, 0, truncated.length, 0));
+        assertTrue(events.isEmpty());
+        assertEquals(1, env.lengthMismatches.get());
+    }
+
+    @Test
+    public void countsUnclaimedFrames() {
+        byte[] other = frame();
+        other[0] = 0x55;
+        assertFalse(decoder.decode(DEVICE, CHARACTERISTIC, other, 0, other.length, 0));
+        byte[] frame = frame();
+        assertFalse(decoder.decode(DEVICE, "00002a37-0000-1000-8000-00805f9b34fb", frame, 0, frame.length, 0));
+        assertEquals(2, decoder.unclaimed());
+        assertTrue(events.isEmpty());
+    }
+
+    @Test
+    public void passesUnknownEnumValuesThrough() {
+        byte[] frame = frame();
+        frame[13] = 7;
+        decoder.decode(DEVICE, CHARACTERISTIC, frame, 0, frame.length, 0);
+        assertEquals(7.0, events.get(0).get("mode"));
+        assertEquals(1, env.enumMisses.get());
+    }
+
+    @Test
+    public void keepRawLetsTheNormalEventThrough() {
+        decoder.remove(env.id);
+        decoder.add(new TelemetryDecoder.Schema(decoder.nextId(), "raw", null, null, 0, null, 0,
+                new TelemetryDecoder.Field[]{field("b", TelemetryDecoder.Type.U8, 0, 1)}, true));
+        byte[] frame = {(byte) 0xFE};
+        assertFalse(decoder.decode(DEVICE, null, frame, 0, 1, 0));
+        assertEquals(254.0, events.get(0).get("b"));
+    }
+
+    @Test
+    public void signExtendsOnlyWithoutAMask() {
+        byte[] value = {(byte) 0xF0};
+        TelemetryDecoder.Field signed = field("s", TelemetryDecoder.Type.I8, 0, 1);
+        TelemetryDecoder.Field bits = new TelemetryDecoder.Field("n", TelemetryDecoder.Type.I8, 0, true, 0xF, 4, 1, 0,
+                false, null, null);
+        assertEquals(-16, signed.raw(value, 0));
+        assertEquals(15, bits.raw(value, 0));
+    }
+}
@@ -0,0 +1,97 @@
+import type { TurboModule } from 'react-native';
+import { TurboModuleRegistry } from 'react-native';
+
+/**
+ * Codegen spec for the BLE module. Under the New Architecture it is served by
+ * BLETurboModule over JSI; old-architecture apps keep the bridge module of the
+ * same name. The synchronous getters read cached native state and never touch GATT.
+ */
+export interface Spec extends TurboModule {
+  scanBLEDevices(): Promise<unknown>;
+  scanBLEDevicesWithOptions(options: Object): Promise<string>;
+  stopBLEScan(): void;
+  getScanSnapshot(): Promise<Array<Object>>;
+  configureScanCache(ttlMs: number, emitIntervalMs: number, rssiThreshold: number): void;
+  clearScanCache(): void;
+  setNotificationBatching(enabled: boolean, maxPackets: number, windowMs: number): void;
+  getMetrics(): Promise<Object>;
+  resetMetrics(): void;
+  getBLEEventLoopStats(): Promise<Object>;
+  setMetricsInterval(intervalMs: number): void;
+  setLogLevel(level: string): Promise<string>;
+  getNotificationBatchStats(): Promise<Object>;
+  configureNotificationBuffer(options: Object): Promise<Object>;
+  setBLENotificationBuffering(deviceId: string, characteristicUUID: string, enabled: boolean): Promise<boolean>;
+  readBuffered(max: number): Promise<Array<Object>>;
+  readBufferedPacked(max: number): string;
+  getBufferedNotificationCount(): number;
+  getNotificationBufferStats(): Promise<Object>;
+  addNotificationRule(rule: Object): Promise<number>;
+  removeNotificationRule(id: number): Promise<boolean>;
+  clearNotificationRules(): void;
+  getNotificationRules(): Promise<Array<Object>>;
+  addTelemetrySchema(schema: Object): Promise<number>;
+  removeTelemetrySchema(id: number): Promise<boolean>;
+  clearTelemetrySchemas(): void;
+  getTelemetrySchemas(): Promise<Array<Object>>;
+  startRecording(options: Object): Promise<Object>;
+  stopRecording(): Promise<Object>;
+  queryRecording(options: Object): Promise<Object>;
+  getRecorderStats(): Promise<Object>;
+  deleteRecording(): Promise<number>;
+  connectToKnownBLEDevice(): Promise<unknown>;
+  connectToBLEDevice(deviceId: string): Promise<unknown>;
+  connectToBLEDeviceWithProfile(deviceId: string, profileName: string): Promise<unknown>;
+  configureReconnect(options: Object): void;
+  disconnectBLE(): Promise<string>;
+  disconnectBLEDevice(deviceId: string): Promise<string>;
+  getConnectedBLEDevices(): Promise<Array<Object>>;
+  writeToBLECharacteristic(serviceUUID: string, characteristicUUID: string, data: string): Promise<unknown>;
+  writeToBLEDeviceCharacteristic(deviceId: string, serviceUUID: string, characteristicUUID: string, data: string): Promise<unknown>;
+  writeBase64ToBLECharacteristic(serviceUUID: string, characteristicUUID: string, base64Data: string): Promise<unknown>;
+  writeBase64ToBLEDeviceCharacteristic(deviceId: string, serviceUUID: string, characteristicUUID: string, base64Data: string): Promise<unknown>;
+  setBLECharacteristicAlias(alias: number, serviceUUID: string, characteristicUUID: string): Promise<unknown>;
+  setBLEDeviceCharacteristicAlias(deviceId: string, alias: number, serviceUUID: string, characteristicUUID: string): Promise<unknown>;
+  removeBLEDeviceCharacteristicAlias(deviceId: string, alias: number): void;
+  getBLEDeviceAttributes(deviceId: string): Promise<Object>;
+  writeToBLEAlias(alias: number, data: string): Promise<unknown>;
+  writeToBLEDeviceAlias(deviceId: string, alias: number, data: string): Promise<unknown>;
+  writeBase64ToBLEDeviceAlias(deviceId: string, alias: number, base64Data: string): Promise<unknown>;
+  readBLECharacteristic(serviceUUID: string, characteristicUUID: string): Promise<unknown>;
+  readBLECharacteristicBase64(serviceUUID: string, characteristicUUID: string): Promise<unknown>;
+  readBLEDeviceCharacteristic(deviceId: string, serviceUUID: string, characteristicUUID: string): Promise<unknown>;
+  readBLEDeviceCharacteristicBase64(deviceId: string, serviceUUID: string, characteristicUUID: string): Promise<unknown>;
+  requestBLEMtu(mtu: number): Promise<unknown>;
+  requestBLEDeviceMtu(deviceId: string, mtu: number): Promise<unknown>;
+  setBLELinkProfile(profileName: string): Promise<Object>;
+  setBLEDeviceLinkProfile(deviceId: string, profileName: string): Promise<Object>;
+  getBLELinkInfo(): Promise<Object>;
+  getBLEDeviceLinkInfo(deviceId: string): Promise<Object>;
+  getBLEMtu(): Promise<number>;
+  getBLEDeviceMtu(deviceId: string): Promise<number>;
+  isBLEDeviceConnected(deviceId: string): boolean;
+  getBLEDeviceConnectionState(deviceId: string): string;
+  getBLEDeviceMtuSync(deviceId: string): number;
+  streamToBLECharacteristic(serviceUUID: string, characteristicUUID: string, data: string, withResponse: boolean): Promise<unknown>;
+  streamToBLEDeviceCharacteristic(deviceId: string, serviceUUID: string, characteristicUUID: string, data: string, withResponse: boolean): Promise<unknown>;
+  streamBase64ToBLECharacteristic(serviceUUID: string, characteristicUUID: string, base64Data: string, withResponse: boolean): Promise<unknown>;
+  streamBase64ToBLEDeviceCharacteristic(deviceId: string, serviceUUID: string, characteristicUUID: string, base64Data: string, withResponse: boolean): Promise<unknown>;
+  uploadToBLEDevice(deviceId: string, serviceUUID: string, controlUUID: string, dataUUID: string, source: Object, options: Object): Promise<unknown>;
+  downloadFromBLEDevice(deviceId: string, serviceUUID: string, controlUUID: string, dataUUID: string, options: Object): Promise<unknown>;
+  cancelBLETransfer(deviceId: string): Promise<void>;
+  getBLETransferStatus(deviceId: string): Promise<Object | null>;
+  configureGattQueue(maxDepth: number, timeoutMs: number): void;
+  getGattQueueStatus(): Promise<Object>;
+  subscribeToBLENotifications(serviceUUID: string, characteristicUUID: string): Promise<unknown>;
+  subscribeToBLENotificationsBase64(serviceUUID: string, characteristicUUID: string): Promise<unknown>;
+  subscribeToBLEDeviceNotifications(deviceId: string, serviceUUID: string, characteristicUUID: string): Promise<unknown>;
+  subscribeToBLEDeviceNotificationsBase64(deviceId: string, serviceUUID: string, characteristicUUID: string): Promise<unknown>;
+  unsubscribeFromBLENotifications(serviceUUID: string, characteristicUUID: string): Promise<unknown>;
+  unsubscribeFromBLEDeviceNotifications(deviceId: string, serviceUUID: string, characteristicUUID: string): Promise<unknown>;
+
+  // NativeEventEmitter bookkeeping, events are emitted the same way on both architectures
+  addListener(eventName: string): void;
+  removeListeners(count: number): void;
+}
+
+export default TurboModuleRegistry.getEnforcing<Spec>('BLEModule');
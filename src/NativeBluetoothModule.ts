@@ -0,0 +1,51 @@
+import type { TurboModule } from 'react-native';
+import { TurboModuleRegistry } from 'react-native';
+
+/** Codegen spec for the Bluetooth Classic (RFCOMM) module, see NativeBLEModule.ts. */
+export interface Spec extends TurboModule {
+  isBluetoothAvailable(): Promise<boolean>;
+  isBluetoothEnabled(): Promise<boolean>;
+  isConnected(): boolean;
+  isDeviceConnected(deviceId: string): boolean;
+  getConnectionState(): string;
+  enableBluetooth(): Promise<boolean>;
+  scanDevices(): Promise<Array<Object>>;
+  sendData(message: string): Promise<unknown>;
+  sendDataToDevice(deviceId: string, message: string): Promise<unknown>;
+  configureWriter(options: Object): void;
+  getWriteQueueStatus(): Promise<Object>;
+  getConnections(): Promise<Array<Object>>;
+  connectToDevice(deviceAddress: string): Promise<string>;
+  connectToDeviceWithOptions(deviceId: string, options: Object): Promise<Object>;
+  connectToFirstDevice(deviceIds: Array<string>, options: Object): Promise<Object>;
+  disconnectFromDevice(): Promise<string>;
+  disconnectDevice(deviceId: string): Promise<string>;
+  startServer(options: Object): Promise<boolean>;
+  stopServer(): Promise<boolean>;
+  configureReconnect(options: Object): void;
+  startListeningForData(): void;
+  setFraming(options: Object): Promise<boolean>;
+  addNotificationRule(rule: Object): Promise<number>;
+  removeNotificationRule(id: number): Promise<boolean>;
+  clearNotificationRules(): void;
+  getNotificationRules(): Promise<Array<Object>>;
+  addTelemetrySchema(schema: Object): Promise<number>;
+  removeTelemetrySchema(id: number): Promise<boolean>;
+  clearTelemetrySchemas(): void;
+  getTelemetrySchemas(): Promise<Array<Object>>;
+  startRecording(options: Object): Promise<Object>;
+  stopRecording(): Promise<Object>;
+  queryRecording(options: Object): Promise<Object>;
+  getRecorderStats(): Promise<Object>;
+  deleteRecording(): Promise<number>;
+  getMetrics(): Promise<Object>;
+  resetMetrics(): void;
+  setMetricsInterval(intervalMs: number): void;
+  setLogLevel(level: string): Promise<string>;
+  getFramingStats(): Promise<Object>;
+
+  addListener(eventName: string): void;
+  removeListeners(count: number): void;
+}
+
+export default TurboModuleRegistry.getEnforcing<Spec>('BluetoothModule');